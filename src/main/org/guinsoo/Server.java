@@ -84,6 +84,10 @@ public class Server extends Tool implements Runnable, ShutdownHandler {
      * <td>Use encrypted (SSL) connections</td></tr>
      * <tr><td>[-tcpPassword &lt;pwd&gt;]</td>
      * <td>The password for shutting down a TCP server</td></tr>
+     * <tr><td>[-tcpWorkers &lt;count&gt;]</td>
+     * <td>Serve connections with a fixed number of threads</td></tr>
+     * <tr><td>[-tcpVirtualThreads]</td>
+     * <td>Use a virtual thread per connection (Java 21 and later)</td></tr>
      * <tr><td>[-tcpShutdown "&lt;url&gt;"]</td>
      * <td>Stop the TCP server; example: tcp://localhost</td></tr>
      * <tr><td>[-tcpShutdownForce]</td>
@@ -136,6 +140,10 @@ public class Server extends Tool implements Runnable, ShutdownHandler {
                     // no parameters
                 } else if ("-tcpPort".equals(arg)) {
                     i++;
+                } else if ("-tcpWorkers".equals(arg)) {
+                    i++;
+                } else if ("-tcpVirtualThreads".equals(arg)) {
+                    // no parameters
                 } else if ("-tcpPassword".equals(arg)) {
                     i++;
                 } else if ("-tcpShutdown".equals(arg)) {
@@ -219,6 +227,10 @@ public class Server extends Tool implements Runnable, ShutdownHandler {
                     // no parameters
                 } else if ("-tcpPort".equals(arg)) {
                     i++;
+                } else if ("-tcpWorkers".equals(arg)) {
+                    i++;
+                } else if ("-tcpVirtualThreads".equals(arg)) {
+                    // no parameters
                 } else if ("-tcpPassword".equals(arg)) {
                     tcpPassword = args[++i];
                 } else if ("-tcpShutdown".equals(arg)) {
@@ -390,7 +402,8 @@ public class Server extends Tool implements Runnable, ShutdownHandler {
      * </pre>
      * Supported options are:
      * -tcpPort, -tcpSSL, -tcpPassword, -tcpAllowOthers, -tcpDaemon,
-     * -trace, -ifExists, -ifNotExists, -baseDir, -key.
+     * -tcpWorkers, -tcpVirtualThreads, -trace, -ifExists, -ifNotExists,
+     * -baseDir, -key.
      * See the main method for details.
      * <p>
      * If no port is specified, the default port is used if possible,
@@ -31,7 +31,7 @@ public abstract class Command implements CommandInterface {
     /**
      * The session.
      */
-    protected final SessionLocal session;
+    protected SessionLocal session;
 
     /**
      * The last start time.
@@ -48,7 +48,7 @@ public abstract class Command implements CommandInterface {
      */
     private volatile boolean cancel;
 
-    private final String sql;
+    private String sql;
 
     private boolean canReuse;
 
@@ -384,6 +384,20 @@ public abstract class Command implements CommandInterface {
         }
     }
 
+    /**
+     * Sets the session and the SQL statement of a command taken from the
+     * shared plan cache.
+     *
+     * @param session the session
+     * @param sql the SQL statement
+     */
+    void setSession(SessionLocal session, String sql) {
+        this.session = session;
+        this.sql = sql;
+        cancel = false;
+        startTimeNanos = 0L;
+    }
+
     public void setCanReuse(boolean canReuse) {
         this.canReuse = canReuse;
     }
@@ -12,6 +12,7 @@ import java.util.Set;
 
 import org.guinsoo.command.ddl.DefineCommand;
 import org.guinsoo.command.dml.DataChangeStatement;
+import org.guinsoo.command.query.Query;
 import org.guinsoo.expression.Expression;
 import org.guinsoo.expression.ExpressionColumn;
 import org.guinsoo.expression.Parameter;
@@ -82,6 +83,12 @@ public class CommandContainer extends Command {
     private boolean readOnlyKnown;
     private boolean readOnly;
 
+    /**
+     * The plan of the shared plan cache this command was taken from, or
+     * {@code null}.
+     */
+    private PlanCache.Plan plan;
+
     /**
      * Clears CTE (common table expression) views for a specified statement.
      *
@@ -268,6 +275,38 @@ public class CommandContainer extends Command {
         clearCTE(session, prepared);
     }
 
+    @Override
+    public void close() {
+        super.close();
+        PlanCache.Plan plan = this.plan;
+        if (plan != null) {
+            this.plan = null;
+            plan.release(this);
+        }
+    }
+
+    @Override
+    void setSession(SessionLocal session, String sql) {
+        super.setSession(session, sql);
+        prepared.setSession(session);
+        if (prepared instanceof Query) {
+            ((Query) prepared).resetLastResult();
+        }
+    }
+
+    /**
+     * Sets the plan of the shared plan cache this command was taken from.
+     *
+     * @param plan the plan
+     */
+    void setPlan(PlanCache.Plan plan) {
+        this.plan = plan;
+    }
+
+    Prepared getPrepared() {
+        return prepared;
+    }
+
     @Override
     public boolean canReuse() {
         return super.canReuse() && prepared.getCteCleanups() == null;
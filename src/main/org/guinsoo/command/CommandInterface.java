@@ -5,11 +5,16 @@
  */
 package org.guinsoo.command;
 
+import java.sql.Statement;
 import java.util.ArrayList;
 
 import org.guinsoo.expression.ParameterInterface;
+import org.guinsoo.message.DbException;
+import org.guinsoo.result.BatchResult;
+import org.guinsoo.result.MergedResult;
 import org.guinsoo.result.ResultInterface;
 import org.guinsoo.result.ResultWithGeneratedKeys;
+import org.guinsoo.value.Value;
 
 /**
  * Represents a SQL statement.
@@ -581,6 +586,48 @@ public interface CommandInterface extends AutoCloseable {
      */
     ResultWithGeneratedKeys executeUpdate(Object generatedKeysRequest);
 
+    /**
+     * Execute the statement with each set of parameters. A failed execution
+     * does not stop the batch.
+     *
+     * @param batchParameters
+     *            the sets of parameter values
+     * @param generatedKeysRequest
+     *            {@code null} or {@code false} if generated keys are not
+     *            needed, {@code true} if generated keys should be configured
+     *            automatically, {@code int[]} to specify column indices to
+     *            return generated keys from, or {@code String[]} to specify
+     *            column names to return generated keys from
+     *
+     * @return the update counts, generated keys, and exceptions
+     */
+    default BatchResult executeBatchUpdate(ArrayList<Value[]> batchParameters, Object generatedKeysRequest) {
+        ArrayList<? extends ParameterInterface> parameters = getParameters();
+        int size = batchParameters.size();
+        long[] updateCounts = new long[size];
+        MergedResult generatedKeys = new MergedResult();
+        ArrayList<DbException> exceptions = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Value[] set = batchParameters.get(i);
+            for (int j = 0, l = set.length; j < l; j++) {
+                parameters.get(j).setValue(set[j], false);
+            }
+            try {
+                ResultWithGeneratedKeys result = executeUpdate(generatedKeysRequest);
+                updateCounts[i] = result.getUpdateCount();
+                ResultInterface keys = result.getGeneratedKeys();
+                if (keys != null) {
+                    generatedKeys.add(keys);
+                    keys.close();
+                }
+            } catch (RuntimeException e) {
+                exceptions.add(DbException.convert(e));
+                updateCounts[i] = Statement.EXECUTE_FAILED;
+            }
+        }
+        return new BatchResult(updateCounts, generatedKeys.getResult(), exceptions);
+    }
+
     /**
      * Stop the command execution, release all locks and resources
      */
@@ -6,6 +6,7 @@
 package org.guinsoo.command;
 
 import java.io.IOException;
+import java.sql.Statement;
 import java.util.ArrayList;
 
 import org.guinsoo.expression.ParameterInterface;
@@ -16,6 +17,7 @@ import org.guinsoo.engine.Constants;
 import org.guinsoo.engine.GeneratedKeysMode;
 import org.guinsoo.engine.SessionRemote;
 import org.guinsoo.engine.SysProperties;
+import org.guinsoo.result.BatchResult;
 import org.guinsoo.result.ResultInterface;
 import org.guinsoo.result.ResultRemote;
 import org.guinsoo.result.ResultWithGeneratedKeys;
@@ -214,25 +216,7 @@ public class CommandRemote implements CommandInterface {
                     transfer.writeInt(SessionRemote.COMMAND_EXECUTE_UPDATE).writeInt(id);
                     sendParameters(transfer);
                     if (supportsGeneratedKeys) {
-                        transfer.writeInt(generatedKeysMode);
-                        switch (generatedKeysMode) {
-                        case GeneratedKeysMode.COLUMN_NUMBERS: {
-                            int[] keys = (int[]) generatedKeysRequest;
-                            transfer.writeInt(keys.length);
-                            for (int key : keys) {
-                                transfer.writeInt(key);
-                            }
-                            break;
-                        }
-                        case GeneratedKeysMode.COLUMN_NAMES: {
-                            String[] keys = (String[]) generatedKeysRequest;
-                            transfer.writeInt(keys.length);
-                            for (String key : keys) {
-                                transfer.writeString(key);
-                            }
-                            break;
-                        }
-                        }
+                        sendGeneratedKeysRequest(transfer, generatedKeysMode, generatedKeysRequest);
                     }
                     session.done(transfer);
                     updateCount = transfer.readRowCount();
@@ -259,6 +243,87 @@ public class CommandRemote implements CommandInterface {
         }
     }
 
+    @Override
+    public BatchResult executeBatchUpdate(ArrayList<Value[]> batchParameters, Object generatedKeysRequest) {
+        if (session.getClientVersion() < Constants.TCP_PROTOCOL_VERSION_21) {
+            return CommandInterface.super.executeBatchUpdate(batchParameters, generatedKeysRequest);
+        }
+        int generatedKeysMode = GeneratedKeysMode.valueOf(generatedKeysRequest);
+        boolean readGeneratedKeys = generatedKeysMode != GeneratedKeysMode.NONE;
+        int objectId = readGeneratedKeys ? session.getNextId() : 0;
+        int size = batchParameters.size();
+        synchronized (session) {
+            long[] updateCounts = new long[size];
+            ArrayList<DbException> exceptions = new ArrayList<>();
+            ResultRemote generatedKeys = null;
+            boolean autoCommit = false;
+            for (int i = 0, count = 0; i < transferList.size(); i++) {
+                prepareIfRequired();
+                Transfer transfer = transferList.get(i);
+                try {
+                    session.traceOperation("COMMAND_EXECUTE_BATCH_UPDATE", id);
+                    transfer.writeInt(SessionRemote.COMMAND_EXECUTE_BATCH_UPDATE).writeInt(id);
+                    sendGeneratedKeysRequest(transfer, generatedKeysMode, generatedKeysRequest);
+                    transfer.writeInt(size);
+                    for (Value[] set : batchParameters) {
+                        transfer.writeInt(set.length);
+                        for (Value v : set) {
+                            transfer.writeValue(v);
+                        }
+                    }
+                    session.done(transfer);
+                    exceptions.clear();
+                    for (int j = 0; j < size; j++) {
+                        if (transfer.readBoolean()) {
+                            updateCounts[j] = transfer.readRowCount();
+                        } else {
+                            updateCounts[j] = Statement.EXECUTE_FAILED;
+                            exceptions.add(SessionRemote.readException(transfer));
+                        }
+                    }
+                    autoCommit = transfer.readBoolean();
+                    if (readGeneratedKeys) {
+                        int columnCount = transfer.readInt();
+                        if (generatedKeys != null) {
+                            generatedKeys.close();
+                            generatedKeys = null;
+                        }
+                        generatedKeys = new ResultRemote(session, transfer, objectId, columnCount, Integer.MAX_VALUE);
+                    }
+                } catch (IOException e) {
+                    session.removeServer(e, i--, ++count);
+                }
+            }
+            session.setAutoCommitFromServer(autoCommit);
+            session.autoCommitIfCluster();
+            session.readSessionState();
+            return new BatchResult(updateCounts, generatedKeys, exceptions);
+        }
+    }
+
+    private static void sendGeneratedKeysRequest(Transfer transfer, int generatedKeysMode,
+            Object generatedKeysRequest) throws IOException {
+        transfer.writeInt(generatedKeysMode);
+        switch (generatedKeysMode) {
+        case GeneratedKeysMode.COLUMN_NUMBERS: {
+            int[] keys = (int[]) generatedKeysRequest;
+            transfer.writeInt(keys.length);
+            for (int key : keys) {
+                transfer.writeInt(key);
+            }
+            break;
+        }
+        case GeneratedKeysMode.COLUMN_NAMES: {
+            String[] keys = (String[]) generatedKeysRequest;
+            transfer.writeInt(keys.length);
+            for (String key : keys) {
+                transfer.writeString(key);
+            }
+            break;
+        }
+        }
+    }
+
     private void checkParameters() {
         if (cmdType != EXPLAIN) {
             for (ParameterInterface p : parameters) {
@@ -332,6 +332,7 @@ import org.guinsoo.schema.Sequence;
 import org.guinsoo.schema.UserAggregate;
 import org.guinsoo.schema.UserDefinedFunction;
 import org.guinsoo.table.Column;
+import org.guinsoo.table.ColumnStatistics;
 import org.guinsoo.table.DataChangeDeltaTable;
 import org.guinsoo.table.DataChangeDeltaTable.ResultOption;
 import org.guinsoo.table.DualTable;
@@ -343,6 +344,7 @@ import org.guinsoo.table.Table;
 import org.guinsoo.table.TableFilter;
 import org.guinsoo.table.TableView;
 import org.guinsoo.util.HasSQL;
+import org.guinsoo.util.IntArray;
 import org.guinsoo.util.IntervalUtils;
 import org.guinsoo.util.ParserUtil;
 import org.guinsoo.util.StringUtils;
@@ -864,6 +866,16 @@ public class Parser {
     private boolean literalsChecked;
     private int orderInFrom;
     private boolean parseDomainConstraint;
+    /**
+     * parameters created for literals, or {@code null} if literals aren't
+     * replaced with parameters
+     */
+    private ArrayList<Parameter> literalParameters;
+    /** positions of literals replaced with parameters in sqlCommand */
+    private IntArray literalPositions;
+    /** whether literals in the current context are replaced with parameters */
+    private boolean literalsToParameters;
+    private int queryCount;
 
     /**
      * Parses the specified collection of non-keywords.
@@ -1058,10 +1070,120 @@ public class Parser {
         currentPrepared = null;
         createView = null;
         recompileAlways = false;
+        if (literalParameters != null) {
+            literalParameters = Utils.newSmallArrayList();
+            literalPositions = new IntArray();
+        }
+        literalsToParameters = false;
+        queryCount = 0;
         read();
         return parsePrepared();
     }
 
+    /**
+     * Enables replacement of literals with parameters in conditions, values,
+     * and OFFSET / FETCH clauses of parsed statements.
+     */
+    void replaceLiteralsWithParameters() {
+        literalParameters = Utils.newSmallArrayList();
+        literalPositions = new IntArray();
+    }
+
+    /**
+     * Returns the parameters created for literals of the last parsed
+     * statement.
+     *
+     * @return the parameters, or {@code null} if literals aren't replaced
+     */
+    ArrayList<Parameter> getLiteralParameters() {
+        return literalParameters;
+    }
+
+    /**
+     * Returns the positions of literals replaced with parameters in the last
+     * parsed statement.
+     *
+     * @return the positions of literals in the statement
+     */
+    IntArray getLiteralPositions() {
+        return literalPositions;
+    }
+
+    /**
+     * Returns the number of queries in the last parsed statement, including
+     * the statement itself and its subqueries.
+     *
+     * @return the number of queries
+     */
+    int getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * Reads literals of the specified SELECT, INSERT, UPDATE, or DELETE
+     * statement without parsing it.
+     *
+     * @param sql
+     *            the SQL statement
+     * @return the literals, or {@code null} if this isn't a single statement
+     *         of a supported kind
+     */
+    PlanCache.Literals readLiterals(String sql) {
+        boolean checked = literalsChecked;
+        literalsChecked = true;
+        try {
+            initialize(sql);
+            expectedList = null;
+            read();
+            boolean select = currentTokenType == SELECT;
+            if (!select && !isToken("INSERT") && !isToken("UPDATE") && !isToken("DELETE")) {
+                return null;
+            }
+            read();
+            ArrayList<Value> values = Utils.newSmallArrayList();
+            IntArray positions = new IntArray();
+            StringBuilder builder = new StringBuilder(sqlCommand.length());
+            int last = 0;
+            for (;;) {
+                switch (currentTokenType) {
+                case END_OF_INPUT:
+                    builder.append(sqlCommand, last, sqlCommand.length());
+                    return new PlanCache.Literals(builder.toString(), lastParseIndex, values.toArray(new Value[0]),
+                            positions);
+                case SEMICOLON:
+                case OPEN_BRACE:
+                case SELECT:
+                case WITH:
+                case TABLE:
+                    // multiple statements or subqueries
+                    return null;
+                case VALUES:
+                    if (select) {
+                        return null;
+                    }
+                    break;
+                case PARAMETER:
+                    if (Character.isDigit(sqlCommandChars[parseIndex])) {
+                        readParameterIndex();
+                    }
+                    break;
+                case LITERAL: {
+                    int start = getTokenStart();
+                    builder.append(sqlCommand, last, start).append('\0');
+                    last = parseIndex;
+                    values.add(currentValue);
+                    positions.add(start);
+                }
+                }
+                read();
+            }
+        } catch (DbException e) {
+            return null;
+        } finally {
+            literalsChecked = checked;
+        }
+    }
+
     private Prepared parsePrepared() {
         int start = lastParseIndex;
         Prepared c = null;
@@ -1277,6 +1399,10 @@ public class Parser {
         BackupCommand command = new BackupCommand(session);
         read(TO);
         command.setFileName(readExpression());
+        if (readIf("INCREMENTAL")) {
+            read("SINCE");
+            command.setIncrementalSince(readExpression());
+        }
         return command;
     }
 
@@ -1500,7 +1626,9 @@ public class Parser {
             command.setFromTableFilter(fromTable);
         }
         if (readIf(WHERE)) {
+            boolean literals = enableLiteralParameters();
             command.setCondition(readExpression());
+            literalsToParameters = literals;
         }
         if (fetch == null) {
             // for MySQL compatibility
@@ -1527,7 +1655,9 @@ public class Parser {
             } else {
                 Column column = readTableColumn(filter);
                 read(EQUAL);
+                boolean literals = enableLiteralParameters();
                 list.addSingle(column, readExpressionOrDefault());
+                literalsToParameters = literals;
             }
         } while (readIf(COMMA));
         return list;
@@ -1550,7 +1680,9 @@ public class Parser {
         }
         command.setTableFilter(readSimpleTableFilter());
         if (readIf(WHERE)) {
+            boolean literals = enableLiteralParameters();
             command.setCondition(readExpression());
+            literalsToParameters = literals;
         }
         if (fetch == null) {
             fetch = readFetchOrLimit();
@@ -1968,7 +2100,9 @@ public class Parser {
                 }
                 if (readIf(VALUES)) {
                     // parse values
+                    boolean literals = enableLiteralParameters();
                     parseValuesForCommand(command);
+                    literalsToParameters = literals;
                     break readValues;
                 }
                 if (readIf(SET)) {
@@ -2008,7 +2142,9 @@ public class Parser {
         do {
             columnList.add(parseColumn(table));
             read(EQUAL);
+            boolean literals = enableLiteralParameters();
             values.add(readExpressionOrDefault());
+            literalsToParameters = literals;
         } while (readIf(COMMA));
         command.setColumns(columnList.toArray(new Column[0]));
         command.addRow(values.toArray(new Expression[0]));
@@ -2887,6 +3023,7 @@ public class Parser {
     }
 
     private Query parseQuery() {
+        queryCount++;
         int paramIndex = parameters.size();
         Query command = parseSelectUnion();
         int size = parameters.size();
@@ -2973,6 +3110,7 @@ public class Parser {
             // make sure aggregate functions will not work here
             Select temp = currentSelect;
             currentSelect = null;
+            boolean literals = enableLiteralParameters();
             boolean hasOffsetOrFetch = false;
             // Standard SQL OFFSET / FETCH
             if (readIf(OFFSET)) {
@@ -3018,6 +3156,7 @@ public class Parser {
                 }
                 command.setFetch(limit);
             }
+            literalsToParameters = literals;
             currentSelect = temp;
         }
         if (readIf(FOR)) {
@@ -3215,7 +3354,9 @@ public class Parser {
             parseSelectFromPart(command);
         }
         if (readIf(WHERE)) {
+            boolean literals = enableLiteralParameters();
             command.addCondition(readExpressionWithGlobalConditions());
+            literalsToParameters = literals;
         }
         // the group by is read for the outer select (or not a select)
         // so that columns that are not grouped can be used
@@ -3582,9 +3723,13 @@ public class Parser {
         } else {
             v = Utils.newSmallArrayList();
         }
+        // keep constant lists of values for ConditionInConstantSet
+        boolean literals = literalsToParameters;
+        literalsToParameters = false;
         do {
             v.add(readExpression());
         } while (readIfMore());
+        literalsToParameters = literals;
         return new ConditionIn(left, not, whenOperand, v);
     }
 
@@ -3647,7 +3792,15 @@ public class Parser {
                 left = new Comparison(compareType, left, readConcat(), whenOperand);
             }
         } else {
-            left = new Comparison(compareType, left, readConcat(), whenOperand);
+            Expression right = readConcat();
+            int size = literalParameters != null ? literalParameters.size() : 0;
+            if (size >= 2 && literalParameters.get(size - 2) == left && literalParameters.get(size - 1) == right) {
+                // comparisons of two literals are evaluated by the optimizer
+                left = ValueExpression.get(literalParameters.remove(size - 2).getParamValue());
+                right = ValueExpression.get(literalParameters.remove(size - 2).getParamValue());
+                literalPositions.removeRange(size - 2, size);
+            }
+            left = new Comparison(compareType, left, right, whenOperand);
         }
         return left;
     }
@@ -5179,6 +5332,36 @@ public class Parser {
         }
     }
 
+    private Parameter readLiteralParameter() {
+        int start = getTokenStart();
+        int size = literalParameters.size();
+        // remove literals read again after backtracking
+        while (size > 0 && literalPositions.get(size - 1) >= start) {
+            literalParameters.remove(--size);
+            literalPositions.remove(size);
+        }
+        Parameter p = new Parameter(size, currentValue);
+        literalParameters.add(p);
+        literalPositions.add(start);
+        read();
+        return p;
+    }
+
+    private boolean enableLiteralParameters() {
+        boolean old = literalsToParameters;
+        literalsToParameters = literalParameters != null;
+        return old;
+    }
+
+    private int getTokenStart() {
+        int i = lastParseIndex;
+        int[] types = characterTypes;
+        while (types[i] == 0) {
+            i++;
+        }
+        return i;
+    }
+
     private Parameter readParameter() {
         // there must be no space between ? and the number
         boolean indexed = Character.isDigit(sqlCommandChars[parseIndex]);
@@ -5366,6 +5549,10 @@ public class Parser {
             r = new ExpressionColumn(database, null, null);
             break;
         case LITERAL:
+            if (literalsToParameters) {
+                r = readLiteralParameter();
+                break;
+            }
             r = ValueExpression.get(currentValue);
             read();
             break;
@@ -5907,6 +6094,45 @@ public class Parser {
         return whenOperand;
     }
 
+    private ColumnStatistics readColumnStatistics(Column column) {
+        read(OPEN_PAREN);
+        long rowCount = readLong();
+        read(COMMA);
+        long nullCount = readLong();
+        read(COMMA);
+        long distinctCount = readLong();
+        read(COMMA);
+        Value[] commonValues = readColumnStatisticsValues(column);
+        read(COMMA);
+        Value[] counts = readColumnStatisticsValues(null);
+        read(COMMA);
+        Value[] bounds = readColumnStatisticsValues(column);
+        read(CLOSE_PAREN);
+        int length = counts.length;
+        if (length != commonValues.length) {
+            throw DbException.getSyntaxError(sqlCommand, parseIndex);
+        }
+        long[] commonCounts = new long[length];
+        for (int i = 0; i < length; i++) {
+            commonCounts[i] = counts[i].getLong();
+        }
+        return new ColumnStatistics(rowCount, nullCount, distinctCount, commonValues, commonCounts, bounds);
+    }
+
+    private Value[] readColumnStatisticsValues(Column column) {
+        Value v = readExpression().optimize(session).getValue(session);
+        if (v.getValueType() != Value.ARRAY) {
+            throw DbException.getSyntaxError(sqlCommand, parseIndex, "array");
+        }
+        Value[] values = ((ValueArray) v).getList().clone();
+        if (column != null) {
+            for (int i = 0, l = values.length; i < l; i++) {
+                values[i] = column.convert(session, values[i]);
+            }
+        }
+        return values;
+    }
+
     private int readNonNegativeInt() {
         int v = readInt();
         if (v < 0) {
@@ -7033,6 +7259,9 @@ public class Parser {
         if (readIf("SELECTIVITY")) {
             column.setSelectivity(readNonNegativeInt());
         }
+        if (readIf("STATISTICS")) {
+            column.setStatistics(readColumnStatistics(column));
+        }
         if (database.getMode().getEnum() == ModeEnum.MySQL) {
             if (readIf("CHARACTER")) {
                 readIf(SET);
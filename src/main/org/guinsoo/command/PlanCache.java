@@ -0,0 +1,474 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.command;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.guinsoo.command.dml.Delete;
+import org.guinsoo.command.dml.Insert;
+import org.guinsoo.command.dml.Update;
+import org.guinsoo.command.query.Select;
+import org.guinsoo.engine.Constants;
+import org.guinsoo.engine.Database;
+import org.guinsoo.engine.SessionLocal;
+import org.guinsoo.expression.Parameter;
+import org.guinsoo.message.DbException;
+import org.guinsoo.table.Column;
+import org.guinsoo.table.ColumnStatistics;
+import org.guinsoo.table.Table;
+import org.guinsoo.table.TableFilter;
+import org.guinsoo.table.TableType;
+import org.guinsoo.util.HasSQL;
+import org.guinsoo.util.IntArray;
+import org.guinsoo.util.SmallLRUCache;
+import org.guinsoo.util.StringUtils;
+import org.guinsoo.value.Value;
+
+/**
+ * A cache of prepared commands shared by all sessions of a database.
+ *
+ * <p>
+ * Literals in conditions, inserted and updated values, and OFFSET / FETCH
+ * clauses of SELECT, INSERT, UPDATE, and DELETE statements are replaced with
+ * hidden parameters, so statements that differ only in values of such
+ * literals share the same plan. Other literals are a part of the key. A plan
+ * is only shared between literals of the same data types. Literals compared
+ * with columns with statistics are optimized with their values, and a plan is
+ * only shared between values of the same class, see
+ * {@link ColumnStatistics#getValueClass(SessionLocal, Value)}.
+ * </p>
+ *
+ * <p>
+ * Only statements with one base table (or with a join of base tables for
+ * UPDATE) and without subqueries are shared. A command from this cache is used
+ * by one session at time: it is taken from the cache when a statement is
+ * prepared and returned back when the command is closed. The whole cache is
+ * cleared when meta data of the database is modified.
+ * </p>
+ */
+public final class PlanCache {
+
+    /**
+     * The maximum number of idle commands of the same plan.
+     */
+    private static final int MAX_IDLE_COMMANDS = 16;
+
+    /**
+     * The marker of statements that can't be shared.
+     */
+    private static final Template NOT_SHAREABLE = new Template(new int[0], new Column[0]);
+
+    /**
+     * Literals of a statement.
+     */
+    static final class Literals {
+
+        /**
+         * The SQL statement with literals replaced with {@code '\0'} and
+         * without comments.
+         */
+        final String key;
+
+        /**
+         * The end of the statement.
+         */
+        final int end;
+
+        /**
+         * The values of literals.
+         */
+        final Value[] values;
+
+        /**
+         * The positions of literals in the statement.
+         */
+        final IntArray positions;
+
+        Literals(String key, int end, Value[] values, IntArray positions) {
+            this.key = key;
+            this.end = end;
+            this.values = values;
+            this.positions = positions;
+        }
+
+    }
+
+    /**
+     * Literals of a normalized statement replaced with parameters.
+     */
+    static final class Template {
+
+        /**
+         * The indexes of literals replaced with parameters.
+         */
+        final int[] ordinals;
+
+        /**
+         * The columns compared with literals replaced with parameters, or
+         * {@code null} for literals that aren't compared with columns.
+         */
+        final Column[] columns;
+
+        Template(int[] ordinals, Column[] columns) {
+            this.ordinals = ordinals;
+            this.columns = columns;
+        }
+
+    }
+
+    /**
+     * Commands with the same plan.
+     */
+    static final class Plan {
+
+        private final PlanCache cache;
+
+        /**
+         * The meta data modification id of the database when this plan was
+         * created.
+         */
+        final long modificationMetaId;
+
+        /**
+         * The indexes of literals replaced with parameters.
+         */
+        final int[] ordinals;
+
+        /**
+         * Commands that aren't used by any session.
+         */
+        final ArrayDeque<CommandContainer> idle = new ArrayDeque<>();
+
+        Plan(PlanCache cache, long modificationMetaId, int[] ordinals) {
+            this.cache = cache;
+            this.modificationMetaId = modificationMetaId;
+            this.ordinals = ordinals;
+        }
+
+        /**
+         * Returns a closed command back to the cache.
+         *
+         * @param command the command
+         */
+        void release(CommandContainer command) {
+            cache.release(this, command);
+        }
+
+    }
+
+    /**
+     * The literals replaced with parameters for normalized statements.
+     */
+    private final SmallLRUCache<String, Template> templates;
+
+    private final SmallLRUCache<String, Plan> plans;
+
+    private long modificationMetaId = -1L;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a new plan cache.
+     *
+     * @param size the maximum number of cached plans
+     */
+    public PlanCache(int size) {
+        templates = SmallLRUCache.newInstance(size);
+        plans = SmallLRUCache.newInstance(size);
+    }
+
+    /**
+     * Prepares a command from this cache.
+     *
+     * @param session the session
+     * @param sql the SQL statement
+     * @return the command, or {@code null} if the statement isn't shared and
+     *         should be prepared as usual
+     */
+    public Command prepare(SessionLocal session, String sql) {
+        Database database = session.getDatabase();
+        if (session.isQuirksMode() || !session.getLocalTempTables().isEmpty()
+                || !session.getAllowLiterals() && database.getAllowLiterals() != Constants.ALLOW_LITERALS_ALL) {
+            return null;
+        }
+        Parser parser = new Parser(session);
+        Literals literals = parser.readLiterals(sql);
+        if (literals == null) {
+            return null;
+        }
+        String template = getContext(session, database).append(literals.key).toString();
+        long id = database.getModificationMetaId();
+        Template t;
+        synchronized (this) {
+            if (modificationMetaId != id) {
+                templates.clear();
+                plans.clear();
+                modificationMetaId = id;
+            }
+            t = templates.get(template);
+        }
+        if (t == NOT_SHAREABLE) {
+            return null;
+        }
+        if (t != null) {
+            String key = getKey(session, template, literals, t);
+            CommandContainer command = null;
+            Plan plan;
+            synchronized (this) {
+                plan = plans.get(key);
+                if (plan != null) {
+                    command = plan.idle.poll();
+                }
+            }
+            if (command != null) {
+                hits.incrementAndGet();
+                try {
+                    bind(command, session, sql, literals, plan);
+                } catch (DbException e) {
+                    throw e.addSQL(sql);
+                }
+                return command;
+            }
+        }
+        misses.incrementAndGet();
+        parser.replaceLiteralsWithParameters();
+        Command command;
+        try {
+            command = parser.prepareCommand(sql);
+        } catch (DbException e) {
+            putTemplate(template, NOT_SHAREABLE, id);
+            return null;
+        }
+        int[] ordinals = command instanceof CommandContainer
+                && isShareable(((CommandContainer) command).getPrepared(), parser.getQueryCount())
+                        ? getOrdinals(literals, parser.getLiteralPositions()) : null;
+        if (ordinals == null) {
+            putTemplate(template, NOT_SHAREABLE, id);
+            return null;
+        }
+        CommandContainer container = (CommandContainer) command;
+        Prepared prepared = container.getPrepared();
+        ArrayList<Parameter> parameters = parser.getLiteralParameters();
+        prepared.setLiteralParameters(parameters);
+        if (prepared.getModificationMetaId() == id) {
+            int count = parameters.size();
+            Column[] columns = new Column[count];
+            for (int i = 0; i < count; i++) {
+                columns[i] = parameters.get(i).getComparedColumn();
+            }
+            t = new Template(ordinals, columns);
+            String key = getKey(session, template, literals, t);
+            synchronized (this) {
+                if (modificationMetaId == id) {
+                    templates.put(template, t);
+                    Plan plan = plans.get(key);
+                    if (plan == null) {
+                        plan = new Plan(this, id, ordinals);
+                        plans.put(key, plan);
+                    }
+                    container.setPlan(plan);
+                }
+            }
+        }
+        return command;
+    }
+
+    private synchronized void putTemplate(String template, Template t, long id) {
+        if (modificationMetaId == id) {
+            templates.put(template, t);
+        }
+    }
+
+    private synchronized void release(Plan plan, CommandContainer command) {
+        Prepared prepared = command.getPrepared();
+        ArrayList<Parameter> parameters = prepared.getLiteralParameters();
+        if (modificationMetaId == plan.modificationMetaId && parameters != null
+                && parameters.size() == plan.ordinals.length && !prepared.needRecompile() && command.canReuse()
+                && plan.idle.size() < MAX_IDLE_COMMANDS) {
+            plan.idle.add(command);
+        }
+    }
+
+    private static void bind(CommandContainer command, SessionLocal session, String sql, Literals literals,
+            Plan plan) {
+        command.reuse();
+        command.setSession(session, sql);
+        Prepared prepared = command.getPrepared();
+        prepared.setSQL(StringUtils.trimSubstring(sql, 0, literals.end));
+        ArrayList<Parameter> parameters = prepared.getLiteralParameters();
+        int[] ordinals = plan.ordinals;
+        for (int i = 0, l = ordinals.length; i < l; i++) {
+            parameters.get(i).setLiteralValue(session, literals.values[ordinals[i]]);
+        }
+        command.setPlan(plan);
+    }
+
+    /**
+     * Checks whether the specified statement may be shared between sessions.
+     * Only statements with base tables and without subqueries are shared.
+     */
+    private static boolean isShareable(Prepared prepared, int queryCount) {
+        if (!prepared.isCacheable() || prepared.needRecompile() || prepared.getCteCleanups() != null) {
+            return false;
+        }
+        ArrayList<TableFilter> filters = new ArrayList<>();
+        switch (prepared.getType()) {
+        case CommandInterface.SELECT:
+            if (!(prepared instanceof Select) || queryCount != 1) {
+                return false;
+            }
+            for (TableFilter f : ((Select) prepared).getTopFilters()) {
+                f.visit(filters::add);
+            }
+            break;
+        case CommandInterface.UPDATE:
+            if (queryCount != 0) {
+                return false;
+            }
+            ((Update) prepared).getTableFilter().visit(filters::add);
+            break;
+        case CommandInterface.DELETE:
+            if (queryCount != 0) {
+                return false;
+            }
+            ((Delete) prepared).getTableFilter().visit(filters::add);
+            break;
+        case CommandInterface.INSERT:
+            return queryCount == 0 && isBaseTable(((Insert) prepared).getTable());
+        default:
+            return false;
+        }
+        for (TableFilter f : filters) {
+            if (!isBaseTable(f.getTable())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBaseTable(Table table) {
+        return table.getTableType() == TableType.TABLE && (!table.isTemporary() || table.isGlobalTemporary());
+    }
+
+    /**
+     * Returns the indexes of literals replaced with parameters.
+     */
+    private static int[] getOrdinals(Literals literals, IntArray parameterPositions) {
+        IntArray positions = literals.positions;
+        int count = parameterPositions.size();
+        int[] ordinals = new int[count];
+        for (int i = 0, j = 0, l = positions.size(); i < count; i++) {
+            int position = parameterPositions.get(i);
+            while (j < l && positions.get(j) < position) {
+                j++;
+            }
+            if (j == l || positions.get(j) != position) {
+                return null;
+            }
+            ordinals[i] = j++;
+        }
+        return ordinals;
+    }
+
+    /**
+     * Returns the key of a plan. Data types of literals replaced with
+     * parameters and values of other literals are a part of the key. Equal
+     * literals are also marked in the key, because the optimizer may merge
+     * conditions with the same SQL. Literals compared with columns with
+     * statistics are optimized with their values, so classes of their values
+     * are also a part of the key.
+     */
+    private static String getKey(SessionLocal session, String template, Literals literals, Template t) {
+        StringBuilder builder = new StringBuilder(template);
+        Value[] values = literals.values;
+        int[] ordinals = t.ordinals;
+        for (int i = 0, j = 0, l = values.length; i < l; i++) {
+            Value v = values[i];
+            builder.append('\0');
+            if (j < ordinals.length && ordinals[j] == i) {
+                appendValueClass(session, builder, t.columns[j++], v);
+                int valueType = v.getValueType();
+                if (valueType == Value.VARCHAR || valueType == Value.VARBINARY) {
+                    builder.append(valueType);
+                } else {
+                    v.getType().getSQL(builder, HasSQL.DEFAULT_SQL_FLAGS);
+                }
+                for (int k = 0; k < i; k++) {
+                    if (values[k].equals(v)) {
+                        builder.append('=').append(k);
+                        break;
+                    }
+                }
+            } else {
+                v.getSQL(builder, HasSQL.DEFAULT_SQL_FLAGS);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void appendValueClass(SessionLocal session, StringBuilder builder, Column column, Value v) {
+        if (column != null) {
+            ColumnStatistics statistics = column.getStatistics();
+            if (statistics != null) {
+                builder.append('#');
+                try {
+                    builder.append(statistics.getValueClass(session, column.convert(session, v)));
+                } catch (DbException e) {
+                    // the value can't be converted to the data type of the
+                    // column
+                    builder.append('?');
+                }
+                builder.append('#');
+            }
+        }
+    }
+
+    /**
+     * Returns the settings of the session that affect parsing and
+     * optimization of statements.
+     */
+    private static StringBuilder getContext(SessionLocal session, Database database) {
+        StringBuilder builder = new StringBuilder(session.getUser().getName()).append('\0')
+                .append(session.getCurrentSchemaName()).append('\0');
+        String[] searchPath = session.getSchemaSearchPath();
+        if (searchPath != null) {
+            for (String s : searchPath) {
+                builder.append(s).append(',');
+            }
+        }
+        builder.append('\0').append(session.currentTimeZone().getId()).append('\0')
+                .append(Parser.formatNonKeywords(session.getNonKeywords())).append('\0')
+                .append(database.getMode().getName()).append('\0')
+                .append(database.getDefaultNullOrdering()).append('\0')
+                .append(session.isVariableBinary()).append(session.isForceJoinOrder())
+                .append(session.isLazyQueryExecution()).append('\0');
+        return builder;
+    }
+
+    /**
+     * Returns the number of statements prepared from cached plans.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of eligible statements that were not found in this
+     * cache.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+}
@@ -69,6 +69,10 @@ public abstract class Prepared {
      * which need to be cleaned up once a command is done executing.
      */
     private List<TableView> cteCleanups;
+    /**
+     * Parameters created for literals by the shared plan cache.
+     */
+    private ArrayList<Parameter> literalParameters;
 
     /**
      * Create a new object.
@@ -166,6 +170,24 @@ public abstract class Prepared {
         return parameters;
     }
 
+    /**
+     * Set the list of parameters created for literals.
+     *
+     * @param literalParameters the parameters
+     */
+    void setLiteralParameters(ArrayList<Parameter> literalParameters) {
+        this.literalParameters = literalParameters;
+    }
+
+    /**
+     * Get the list of parameters created for literals.
+     *
+     * @return the parameters, or {@code null}
+     */
+    ArrayList<Parameter> getLiteralParameters() {
+        return literalParameters;
+    }
+
     /**
      * Check if all parameters have been set.
      *
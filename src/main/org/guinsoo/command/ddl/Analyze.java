@@ -5,6 +5,10 @@
  */
 package org.guinsoo.command.ddl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
 import org.guinsoo.command.CommandInterface;
 import org.guinsoo.engine.Constants;
 import org.guinsoo.engine.Database;
@@ -14,11 +18,20 @@ import org.guinsoo.index.Cursor;
 import org.guinsoo.result.Row;
 import org.guinsoo.schema.Schema;
 import org.guinsoo.table.Column;
+import org.guinsoo.table.ColumnStatistics;
 import org.guinsoo.table.Table;
 import org.guinsoo.table.TableType;
+import org.guinsoo.util.HyperLogLog;
 import org.guinsoo.util.IntIntHashMap;
+import org.guinsoo.util.Utils;
+import org.guinsoo.value.CompareMode;
 import org.guinsoo.value.DataType;
 import org.guinsoo.value.Value;
+import org.guinsoo.value.ValueDate;
+import org.guinsoo.value.ValueNull;
+import org.guinsoo.value.ValueTime;
+import org.guinsoo.value.ValueTimestamp;
+import org.guinsoo.value.ValueUuid;
 
 /**
  * This class represents the statements
@@ -27,6 +40,8 @@ import org.guinsoo.value.Value;
  * <p>
  * Updates the selectivity statistics of tables. If no table name is given, all tables are analyzed.
  * The selectivity is used by the cost based optimizer to select the best index for a given query.
+ * Histograms, most common values, and estimated numbers of distinct values of columns are also
+ * collected, they are used to estimate the number of rows for conditions with constant values.
  *
  */
 public class Analyze extends DefineCommand {
@@ -35,9 +50,11 @@ public class Analyze extends DefineCommand {
 
         private long count, distinctCount;
         private final IntIntHashMap distinctHashes;
+        private final CompareMode compareMode;
 
-        SelectivityData() {
+        SelectivityData(CompareMode compareMode) {
             distinctHashes = new IntIntHashMap(false);
+            this.compareMode = compareMode;
         }
 
         void add(Value v) {
@@ -47,8 +64,9 @@ public class Analyze extends DefineCommand {
                 distinctHashes.clear();
                 distinctCount += size;
             }
+            long hash = getHash64(v, compareMode);
             // the value -1 is not supported
-            distinctHashes.put(v.hashCode(), 1);
+            distinctHashes.put((int) (hash ^ hash >>> 32), 1);
         }
 
         int getSelectivity() {
@@ -66,6 +84,94 @@ public class Analyze extends DefineCommand {
 
     }
 
+    private static final class StatisticsData {
+
+        /**
+         * The maximum number of values in the sample.
+         */
+        private static final int MAX_SAMPLE_SIZE = 10_000;
+
+        private long count, nullCount;
+        private final HyperLogLog distinct = new HyperLogLog();
+        private final ArrayList<Value> sample = new ArrayList<>();
+        private final CompareMode compareMode;
+
+        StatisticsData(CompareMode compareMode) {
+            this.compareMode = compareMode;
+        }
+
+        void add(Value v) {
+            count++;
+            if (v == ValueNull.INSTANCE) {
+                nullCount++;
+                return;
+            }
+            distinct.add(getHash64(v, compareMode));
+            if (sample.size() < MAX_SAMPLE_SIZE) {
+                sample.add(v);
+            } else {
+                // reservoir sampling
+                long index = ThreadLocalRandom.current().nextLong(count - nullCount);
+                if (index < MAX_SAMPLE_SIZE) {
+                    sample.set((int) index, v);
+                }
+            }
+        }
+
+        ColumnStatistics getStatistics(SessionLocal session) {
+            Value[] values = sample.toArray(new Value[0]);
+            Arrays.sort(values, session::compareTypeSafe);
+            return ColumnStatistics.create(session, count, nullCount, distinct.estimate(), values);
+        }
+
+    }
+
+    /**
+     * Calculates the 64-bit hash code of a value. Values that are equal in
+     * the specified compare mode have the same hash code.
+     *
+     * @param v the value
+     * @param compareMode the compare mode
+     * @return the hash code
+     */
+    private static long getHash64(Value v, CompareMode compareMode) {
+        switch (v.getValueType()) {
+        case Value.CHAR:
+            return compareMode.getStringHash64(v.convertToChar().getString(), false);
+        case Value.VARCHAR:
+            return compareMode.getStringHash64(v.getString(), false);
+        case Value.VARCHAR_IGNORECASE:
+            return compareMode.getStringHash64(v.getString(), true);
+        case Value.BINARY:
+        case Value.VARBINARY:
+            return Utils.getByteArrayHash64(v.getBytesNoCopy());
+        case Value.BOOLEAN:
+        case Value.TINYINT:
+        case Value.SMALLINT:
+        case Value.INTEGER:
+        case Value.BIGINT:
+        case Value.ENUM:
+            return v.getLong();
+        case Value.REAL:
+        case Value.DOUBLE:
+            return Double.doubleToLongBits(v.getDouble());
+        case Value.DATE:
+            return ((ValueDate) v).getDateValue();
+        case Value.TIME:
+            return ((ValueTime) v).getNanos();
+        case Value.TIMESTAMP: {
+            ValueTimestamp ts = (ValueTimestamp) v;
+            return ts.getDateValue() * 0x9e3779b97f4a7c15L + ts.getTimeNanos();
+        }
+        case Value.UUID: {
+            ValueUuid uuid = (ValueUuid) v;
+            return uuid.getHigh() * 0x9e3779b97f4a7c15L + uuid.getLow();
+        }
+        default:
+            return v.hashCode();
+        }
+    }
+
     /**
      * The sample size.
      */
@@ -129,20 +235,30 @@ public class Analyze extends DefineCommand {
         }
         Cursor cursor = table.getScanIndex(session).find(session, null, null);
         if (cursor.next()) {
+            CompareMode compareMode = session.getDatabase().getCompareMode();
             SelectivityData[] array = new SelectivityData[columnCount];
+            StatisticsData[] statistics = new StatisticsData[columnCount];
             for (int i = 0; i < columnCount; i++) {
                 Column col = columns[i];
                 if (!DataType.isLargeObject(col.getType().getValueType())) {
-                    array[i] = new SelectivityData();
+                    array[i] = new SelectivityData(compareMode);
+                }
+                if (ColumnStatistics.isSupported(col.getType())) {
+                    statistics[i] = new StatisticsData(compareMode);
                 }
             }
             int rowNumber = 0;
             do {
                 Row row = cursor.get();
                 for (int i = 0; i < columnCount; i++) {
+                    Value v = row.getValue(i);
                     SelectivityData selectivity = array[i];
                     if (selectivity != null) {
-                        selectivity.add(row.getValue(i));
+                        selectivity.add(v);
+                    }
+                    StatisticsData data = statistics[i];
+                    if (data != null) {
+                        data.add(v);
                     }
                 }
             } while ((sample <= 0 || ++rowNumber < sample) && cursor.next());
@@ -151,12 +267,17 @@ public class Analyze extends DefineCommand {
                 if (selectivity != null) {
                     columns[i].setSelectivity(selectivity.getSelectivity());
                 }
+                StatisticsData data = statistics[i];
+                columns[i].setStatistics(data != null ? data.getStatistics(session) : null);
             }
         } else {
             for (int i = 0; i < columnCount; i++) {
                 columns[i].setSelectivity(0);
+                columns[i].setStatistics(null);
             }
         }
+        // plans of prepared and cached statements may depend on statistics
+        table.setModified();
         session.getDatabase().updateMeta(session, table);
     }
 
@@ -22,6 +22,7 @@ import org.guinsoo.engine.Database;
 import org.guinsoo.engine.SessionLocal;
 import org.guinsoo.expression.Expression;
 import org.guinsoo.message.DbException;
+import org.guinsoo.mvstore.IncrementalBackup;
 import org.guinsoo.mvstore.MVStore;
 import org.guinsoo.pagestore.PageStore;
 import org.guinsoo.result.ResultInterface;
@@ -37,6 +38,8 @@ public class BackupCommand extends Prepared {
 
     private Expression fileNameExpr;
 
+    private Expression sinceVersionExpr;
+
     public BackupCommand(SessionLocal session) {
         super(session);
     }
@@ -45,14 +48,40 @@ public class BackupCommand extends Prepared {
         this.fileNameExpr = fileName;
     }
 
+    /**
+     * Write only the changes after the specified version of the store.
+     *
+     * @param sinceVersion the version of the base backup
+     */
+    public void setIncrementalSince(Expression sinceVersion) {
+        this.sinceVersionExpr = sinceVersion;
+    }
+
     @Override
     public long update() {
         String name = fileNameExpr.getValue(session).getString();
         session.getUser().checkAdmin();
-        backupTo(name);
+        if (sinceVersionExpr != null) {
+            backupIncremental(name, sinceVersionExpr.getValue(session).getLong());
+        } else {
+            backupTo(name);
+        }
         return 0;
     }
 
+    private void backupIncremental(String fileName, long sinceVersion) {
+        Database db = session.getDatabase();
+        if (!db.isPersistent()) {
+            throw DbException.get(ErrorCode.DATABASE_IS_NOT_PERSISTENT);
+        }
+        Store store = db.getStore();
+        if (store == null || store.getMvStore().getFileStore().getEncryptedFile() != null) {
+            throw DbException.getUnsupportedException("BACKUP INCREMENTAL");
+        }
+        store.flush();
+        store.setBackupVersion(IncrementalBackup.write(store.getMvStore(), sinceVersion, fileName));
+    }
+
     private void backupTo(String fileName) {
         Database db = session.getDatabase();
         if (!db.isPersistent()) {
@@ -83,13 +112,14 @@ public class BackupCommand extends Prepared {
                     for (String n : fileList) {
                         if (n.endsWith(Constants.SUFFIX_MV_FILE) && store != null) {
                             MVStore s = store.getMvStore();
-                            boolean before = s.getReuseSpace();
-                            s.setReuseSpace(false);
+                            s.beginBackup();
+                            long version = s.getLastStoredVersion();
                             try {
                                 InputStream in = store.getInputStream();
                                 backupFile(out, base, n, in);
+                                store.setBackupVersion(version);
                             } finally {
-                                s.setReuseSpace(before);
+                                s.endBackup();
                             }
                         }
                     }
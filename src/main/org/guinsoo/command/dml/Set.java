@@ -78,6 +78,7 @@ public class Set extends Prepared {
         case SetTypes.TIME_ZONE:
         case SetTypes.VARIABLE_BINARY:
         case SetTypes.TRUNCATE_LARGE_LENGTH:
+        case SetTypes.MAX_PARALLELISM:
         case SetTypes.WRITE_DELAY:
             return true;
         default:
@@ -609,6 +610,14 @@ public class Set extends Prepared {
         case SetTypes.TRUNCATE_LARGE_LENGTH:
             session.setTruncateLargeLength(expression.getBooleanValue(session));
             break;
+        case SetTypes.MAX_PARALLELISM: {
+            int value = getIntValue();
+            if (value < 1) {
+                throw DbException.getInvalidValueException("MAX_PARALLELISM", value);
+            }
+            session.setMaxParallelism(value);
+            break;
+        }
         default:
             throw DbException.getInternalError("type="+type);
         }
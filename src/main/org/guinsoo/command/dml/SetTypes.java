@@ -262,7 +262,12 @@ public class SetTypes {
      */
     public static final int TRUNCATE_LARGE_LENGTH = DEFAULT_NULL_ORDERING + 1;
 
-    private static final int COUNT = TRUNCATE_LARGE_LENGTH + 1;
+    /**
+     * The type of a SET MAX_PARALLELISM statement.
+     */
+    public static final int MAX_PARALLELISM = TRUNCATE_LARGE_LENGTH + 1;
+
+    private static final int COUNT = MAX_PARALLELISM + 1;
 
     private static final ArrayList<String> TYPES;
 
@@ -322,6 +327,7 @@ public class SetTypes {
         list.add("VARIABLE_BINARY");
         list.add("DEFAULT_NULL_ORDERING");
         list.add("TRUNCATE_LARGE_LENGTH");
+        list.add("MAX_PARALLELISM");
         TYPES = list;
     }
 
@@ -5,10 +5,17 @@
  */
 package org.guinsoo.command.query;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
 import org.guinsoo.engine.SessionLocal;
 import org.guinsoo.expression.Expression;
+import org.guinsoo.expression.ExpressionVisitor;
+import org.guinsoo.expression.condition.ConditionAndOr;
+import org.guinsoo.expression.condition.ConditionAndOrN;
 import org.guinsoo.table.Plan;
 import org.guinsoo.table.PlanItem;
 import org.guinsoo.table.TableFilter;
@@ -23,6 +30,9 @@ class Optimizer {
     private static final int MAX_BRUTE_FORCE_FILTERS = 7;
     private static final int MAX_BRUTE_FORCE = 2000;
     private static final int MAX_GENETIC = 500;
+    private static final int MAX_DYNAMIC_FILTERS = 63;
+    private static final int MAX_DYNAMIC_PLANS = 64;
+    private static final long MAX_DYNAMIC_NANOS = 200_000_000L;
     private long startNs;
     private BitSet switched;
 
@@ -37,6 +47,11 @@ class Optimizer {
     //  8 filters 40320 plan
     //  9 filters 362880 plans
     // 10 filters 3628800 filters
+    //
+    // with dynamic programming, sets of n filters are extended by one filter:
+    //  8 filters 1024 partial plans
+    // 10 filters 5120 partial plans
+    // 15 filters at most about 64 * 15 * 15 partial plans
 
     private final TableFilter[] filters;
     private final Expression condition;
@@ -83,6 +98,8 @@ class Optimizer {
             startNs = System.nanoTime();
             if (filters.length <= MAX_BRUTE_FORCE_FILTERS) {
                 calculateBruteForceAll();
+            } else if (filters.length <= MAX_DYNAMIC_FILTERS) {
+                calculateDynamic();
             } else {
                 calculateBruteForceSome();
                 random = new Random(0);
@@ -150,6 +167,118 @@ class Optimizer {
         }
     }
 
+    /**
+     * Find the best order of filters using dynamic programming over sets of
+     * filters. The best order of each set is built from the best orders of
+     * the same set without one filter. Sets are extended only with filters
+     * connected to them by conditions, if there are any. Only the cheapest
+     * {@link #MAX_DYNAMIC_PLANS} sets of each size are kept, and only the
+     * cheapest one after {@link #MAX_DYNAMIC_NANOS}, so the result doesn't
+     * depend on timing for most queries.
+     */
+    private void calculateDynamic() {
+        int n = filters.length;
+        long[] connections = getConnections();
+        LinkedHashMap<Long, PartialPlan> plans = new LinkedHashMap<>();
+        plans.put(0L, new PartialPlan(new TableFilter[0], 1));
+        TableFilter[] list = new TableFilter[n];
+        for (int size = 0; size < n; size++) {
+            int maxPlans = System.nanoTime() - startNs > MAX_DYNAMIC_NANOS ? 1 : MAX_DYNAMIC_PLANS;
+            LinkedHashMap<Long, PartialPlan> next = new LinkedHashMap<>();
+            for (Map.Entry<Long, PartialPlan> entry : plans.entrySet()) {
+                long set = entry.getKey();
+                PartialPlan prefix = entry.getValue();
+                System.arraycopy(prefix.filters, 0, list, 0, size);
+                boolean connected = false;
+                for (int i = 0; i < n; i++) {
+                    if ((set & 1L << i) == 0 && (connections[i] & set) != 0) {
+                        connected = true;
+                        break;
+                    }
+                }
+                for (int i = 0; i < n; i++) {
+                    long bit = 1L << i;
+                    if ((set & bit) != 0 || connected && (connections[i] & set) == 0) {
+                        continue;
+                    }
+                    list[size] = filters[i];
+                    Plan part = new Plan(list, size + 1, condition);
+                    double costNow = part.calculateCost(session, allColumnsSet, size, prefix.cost);
+                    PartialPlan old = next.get(set | bit);
+                    if (old == null || costNow < old.cost) {
+                        next.put(set | bit, new PartialPlan(Arrays.copyOf(list, size + 1), costNow));
+                    }
+                }
+            }
+            if (next.size() > maxPlans) {
+                ArrayList<Map.Entry<Long, PartialPlan>> entries = new ArrayList<>(next.entrySet());
+                // stable sort, ties are resolved by the order of filters
+                entries.sort((a, b) -> Double.compare(a.getValue().cost, b.getValue().cost));
+                next = new LinkedHashMap<>();
+                for (int i = 0; i < maxPlans; i++) {
+                    Map.Entry<Long, PartialPlan> entry = entries.get(i);
+                    next.put(entry.getKey(), entry.getValue());
+                }
+            }
+            plans = next;
+        }
+        testPlan(plans.values().iterator().next().filters);
+    }
+
+    /**
+     * Get the sets of filters connected with each filter by conditions.
+     *
+     * @return the bit masks of connected filters
+     */
+    private long[] getConnections() {
+        int n = filters.length;
+        ExpressionVisitor[][] visitors = new ExpressionVisitor[n][];
+        ArrayList<Expression> conditions = new ArrayList<>();
+        if (condition != null) {
+            conditions.add(condition);
+        }
+        for (int i = 0; i < n; i++) {
+            ArrayList<ExpressionVisitor> list = new ArrayList<>();
+            filters[i].visit(f -> {
+                list.add(ExpressionVisitor.getNotFromResolverVisitor(f));
+                Expression on = f.getJoinCondition();
+                if (on != null) {
+                    conditions.add(on);
+                }
+            });
+            visitors[i] = list.toArray(new ExpressionVisitor[0]);
+        }
+        long[] connections = new long[n];
+        for (Expression e : conditions) {
+            addConnections(e, visitors, connections);
+        }
+        return connections;
+    }
+
+    private static void addConnections(Expression e, ExpressionVisitor[][] visitors, long[] connections) {
+        if (e instanceof ConditionAndOr || e instanceof ConditionAndOrN) {
+            for (int i = 0, l = e.getSubexpressionCount(); i < l; i++) {
+                addConnections(e.getSubexpression(i), visitors, connections);
+            }
+            return;
+        }
+        long mask = 0L;
+        for (int i = 0; i < visitors.length; i++) {
+            for (ExpressionVisitor visitor : visitors[i]) {
+                if (!e.isEverything(visitor)) {
+                    mask |= 1L << i;
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < visitors.length; i++) {
+            long bit = 1L << i;
+            if ((mask & bit) != 0) {
+                connections[i] |= mask & ~bit;
+            }
+        }
+    }
+
     private void calculateGenetic() {
         TableFilter[] best = new TableFilter[filters.length];
         TableFilter[] list = new TableFilter[filters.length];
@@ -263,4 +392,20 @@ class Optimizer {
         return cost;
     }
 
+    /**
+     * The best known order of a set of filters.
+     */
+    private static final class PartialPlan {
+
+        final TableFilter[] filters;
+
+        final double cost;
+
+        PartialPlan(TableFilter[] filters, double cost) {
+            this.filters = filters;
+            this.cost = cost;
+        }
+
+    }
+
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.command.query;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.guinsoo.engine.SessionLocal;
+import org.guinsoo.expression.Expression;
+import org.guinsoo.expression.ExpressionColumn;
+import org.guinsoo.expression.ExpressionVisitor;
+import org.guinsoo.expression.Parameter;
+import org.guinsoo.expression.RowBatch;
+import org.guinsoo.expression.aggregate.Aggregate;
+import org.guinsoo.expression.aggregate.AggregateType;
+import org.guinsoo.expression.analysis.DataAnalysisOperation;
+import org.guinsoo.index.Cursor;
+import org.guinsoo.index.Index;
+import org.guinsoo.message.DbException;
+import org.guinsoo.mvstore.db.MVPrimaryIndex;
+import org.guinsoo.result.Row;
+import org.guinsoo.table.TableFilter;
+import org.guinsoo.value.Value;
+import org.guinsoo.value.ValueBigint;
+
+/**
+ * Parallel execution of aggregates of a query without GROUP BY clause.
+ *
+ * <p>
+ * Rows of the primary index are split into ranges of keys. Each range is
+ * scanned by its own task in the common fork-join pool, the condition is
+ * evaluated in batch mode and partial results of aggregates are computed.
+ * Partial results are merged in the thread of the session.
+ * </p>
+ *
+ * <p>
+ * Sessions aren't thread-safe, so tasks never change the session or the
+ * table filter. Cursors of all ranges are opened in the thread of the session
+ * before tasks are started, so tasks don't access the transaction of the
+ * session. Rows are read with detached batches, the condition consists only
+ * of comparisons of columns, constants, parameters and simple arithmetic on
+ * them, see {@link Expression#isBatchSelectable(TableFilter)}, and its
+ * evaluation doesn't use the session. Aggregates use the session only to compare values of
+ * MIN and MAX, it reads the compare mode of the database and the time zone
+ * of the session. The thread of the session waits for completion of all
+ * tasks, even on failure, so this state can't be changed while tasks are
+ * running.
+ * </p>
+ */
+final class ParallelAggregate {
+
+    /**
+     * The minimal number of rows in a range.
+     */
+    private static final int MIN_ROWS_PER_TASK = 16_384;
+
+    /**
+     * The marker of an aggregate without arguments.
+     */
+    private static final int NO_COLUMN = -2;
+
+    private final Select select;
+
+    private final SessionLocal session;
+
+    private final TableFilter filter;
+
+    private final MVPrimaryIndex index;
+
+    private final Expression condition;
+
+    private final Aggregate[] aggregates;
+
+    private final int[] columnIds;
+
+    private final int parallelism;
+
+    private volatile boolean stopped;
+
+    /**
+     * Creates a parallel executor for the specified query if it can be used.
+     *
+     * @param select
+     *            the query without GROUP BY clause
+     * @param session
+     *            the session
+     * @param filter
+     *            the top table filter
+     * @param condition
+     *            the condition, or {@code null}
+     * @param expressions
+     *            the expressions of the query
+     * @return the executor, or {@code null}
+     */
+    static ParallelAggregate create(Select select, SessionLocal session, TableFilter filter, Expression condition,
+            ArrayList<Expression> expressions) {
+        int parallelism = session.getMaxParallelism();
+        if (parallelism <= 1 || filter.getJoin() != null || filter.getNestedJoin() != null
+                || filter.getFilterCondition() != null || filter.getJoinCondition() != null
+                || !filter.getIndexConditions().isEmpty()) {
+            return null;
+        }
+        Index index = filter.getIndex();
+        if (!(index instanceof MVPrimaryIndex)) {
+            return null;
+        }
+        parallelism = (int) Math.min(parallelism, index.getRowCountApproximation(session) / MIN_ROWS_PER_TASK);
+        if (parallelism <= 1) {
+            return null;
+        }
+        ArrayList<Aggregate> aggregates = new ArrayList<>();
+        for (Expression e : expressions) {
+            if (!collectAggregates(e, filter, aggregates)) {
+                return null;
+            }
+        }
+        if (condition != null && (!condition.isEverything(ExpressionVisitor.DETERMINISTIC_VISITOR)
+                || !condition.isBatchSelectable(filter))) {
+            return null;
+        }
+        return new ParallelAggregate(select, session, filter, (MVPrimaryIndex) index, condition,
+                aggregates.toArray(new Aggregate[0]), parallelism);
+    }
+
+    private static boolean collectAggregates(Expression e, TableFilter filter, ArrayList<Aggregate> aggregates) {
+        if (e instanceof Aggregate) {
+            Aggregate aggregate = (Aggregate) e;
+            if (!aggregate.isMergeable(filter)) {
+                return false;
+            }
+            if (!aggregates.contains(aggregate)) {
+                aggregates.add(aggregate);
+            }
+            return true;
+        } else if (e instanceof DataAnalysisOperation) {
+            return false;
+        }
+        int count = e.getSubexpressionCount();
+        if (count == 0) {
+            // columns outside of aggregates, subqueries, and others
+            return e.isConstant() || e instanceof Parameter;
+        }
+        for (int i = 0; i < count; i++) {
+            if (!collectAggregates(e.getSubexpression(i), filter, aggregates)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ParallelAggregate(Select select, SessionLocal session, TableFilter filter, MVPrimaryIndex index,
+            Expression condition, Aggregate[] aggregates, int parallelism) {
+        this.select = select;
+        this.session = session;
+        this.filter = filter;
+        this.index = index;
+        this.condition = condition;
+        this.aggregates = aggregates;
+        int count = aggregates.length;
+        int[] columnIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            Aggregate aggregate = aggregates[i];
+            columnIds[i] = aggregate.getAggregateType() == AggregateType.COUNT_ALL ? NO_COLUMN
+                    : ((ExpressionColumn) aggregate.getSubexpression(0)).getColumn().getColumnId();
+        }
+        this.columnIds = columnIds;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Computes the aggregates and sets their data for the only group.
+     *
+     * @param groupData
+     *            the group data
+     */
+    void execute(SelectGroups groupData) {
+        ArrayList<Cursor> cursors = index.findRanges(session, parallelism);
+        int count = cursors.size();
+        ArrayList<ForkJoinTask<Object[]>> tasks = new ArrayList<>(count - 1);
+        Object[] data;
+        try {
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            for (int i = 1; i < count; i++) {
+                Cursor cursor = cursors.get(i);
+                tasks.add(pool.submit(() -> aggregate(cursor, false)));
+            }
+            // the first range is processed by the thread of the session
+            data = aggregate(cursors.get(0), true);
+            for (ForkJoinTask<Object[]> task : tasks) {
+                Object[] partial = task.join();
+                for (int i = 0, l = aggregates.length; i < l; i++) {
+                    aggregates[i].mergePartialData(session, data[i], partial[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            stopped = true;
+            for (ForkJoinTask<Object[]> task : tasks) {
+                task.quietlyJoin();
+            }
+            throw DbException.convert(e);
+        }
+        groupData.nextSource();
+        for (int i = 0, l = aggregates.length; i < l; i++) {
+            aggregates[i].setGroupData(groupData, data[i]);
+        }
+    }
+
+    private Object[] aggregate(Cursor cursor, boolean checkCanceled) {
+        Aggregate[] aggregates = this.aggregates;
+        int[] columnIds = this.columnIds;
+        int count = aggregates.length;
+        Object[] data = new Object[count];
+        for (int i = 0; i < count; i++) {
+            data[i] = aggregates[i].createPartialData();
+        }
+        RowBatch batch = new RowBatch(session, filter, condition, true);
+        try {
+            while (!stopped && batch.fill(cursor)) {
+                if (checkCanceled) {
+                    select.checkCanceled();
+                }
+                for (int r = 0, l = batch.getSelectionCount(); r < l; r++) {
+                    Row row = batch.getSelectedRow(r);
+                    for (int i = 0; i < count; i++) {
+                        int id = columnIds[i];
+                        Value v = id >= 0 ? row.getValue(id)
+                                : id == NO_COLUMN ? null : ValueBigint.get(row.getKey());
+                        aggregates[i].addPartialValue(session, data[i], v);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            stopped = true;
+            throw e;
+        }
+        return data;
+    }
+
+}
@@ -497,6 +497,14 @@ public abstract class Query extends Prepared {
         return r;
     }
 
+    /**
+     * Forgets the last result of this query without closing it. The last
+     * result may be still used by another session.
+     */
+    public void resetLastResult() {
+        lastResult = null;
+    }
+
     private void closeLastResult() {
         if (lastResult != null) {
             lastResult.close();
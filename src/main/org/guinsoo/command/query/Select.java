@@ -24,6 +24,7 @@ import org.guinsoo.expression.ExpressionColumn;
 import org.guinsoo.expression.ExpressionList;
 import org.guinsoo.expression.ExpressionVisitor;
 import org.guinsoo.expression.Parameter;
+import org.guinsoo.expression.RowBatch;
 import org.guinsoo.expression.Wildcard;
 import org.guinsoo.expression.analysis.DataAnalysisOperation;
 import org.guinsoo.expression.analysis.Window;
@@ -32,6 +33,7 @@ import org.guinsoo.expression.condition.ConditionAndOr;
 import org.guinsoo.expression.condition.ConditionLocalAndGlobal;
 import org.guinsoo.expression.function.CoalesceFunction;
 import org.guinsoo.index.Cursor;
+import org.guinsoo.index.HashJoinIndex;
 import org.guinsoo.index.Index;
 import org.guinsoo.index.ViewIndex;
 import org.guinsoo.message.DbException;
@@ -54,7 +56,10 @@ import org.guinsoo.util.ParserUtil;
 import org.guinsoo.util.StringUtils;
 import org.guinsoo.util.Utils;
 import org.guinsoo.value.DataType;
+import org.guinsoo.value.TypeInfo;
 import org.guinsoo.value.Value;
+import org.guinsoo.value.ValueBigint;
+import org.guinsoo.value.ValueNull;
 import org.guinsoo.value.ValueRow;
 
 /**
@@ -474,8 +479,29 @@ public class Select extends Query {
     private void queryGroup(int columnCount, LocalResult result, long offset, boolean quickOffset) {
         initGroupData(columnCount);
         try {
-            gatherGroup(columnCount, DataAnalysisOperation.STAGE_GROUP);
-            processGroupResult(columnCount, result, offset, quickOffset, true);
+            ParallelAggregate parallel = groupIndex == null && !isForUpdate
+                    ? ParallelAggregate.create(this, session, topTableFilter, condition, expressions)
+                    : null;
+            ArrayList<TableFilter> spillFilters = null;
+            if (parallel != null) {
+                parallel.execute(groupData);
+                groupData.done();
+            } else {
+                spillFilters = enableGroupSpill();
+                gatherGroup(columnCount, DataAnalysisOperation.STAGE_GROUP, spillFilters);
+            }
+            offset = processGroupResult(columnCount, result, offset, quickOffset, true);
+            if (spillFilters != null) {
+                while (groupData.nextSpilledGroups()) {
+                    updateAgg(columnCount, DataAnalysisOperation.STAGE_RESET);
+                    for (Value[] source; (source = groupData.nextSpilledSource()) != null;) {
+                        setSpilledSource(spillFilters, source);
+                        updateAgg(columnCount, DataAnalysisOperation.STAGE_GROUP);
+                    }
+                    groupData.done();
+                    offset = processGroupResult(columnCount, result, offset, quickOffset, true);
+                }
+            }
         } finally {
             groupData.reset();
         }
@@ -501,17 +527,46 @@ public class Select extends Query {
     }
 
     private void gatherGroup(int columnCount, int stage) {
+        gatherGroup(columnCount, stage, null);
+    }
+
+    /**
+     * Evaluates the source rows of groups.
+     *
+     * @param columnCount number of columns
+     * @param stage see STAGE_RESET/STAGE_GROUP/STAGE_WINDOW in DataAnalysisOperation
+     * @param spillFilters the table filters whose rows are spilled with rows of
+     *            groups that don't fit into memory, or {@code null} if
+     *            spilling is disabled
+     */
+    private void gatherGroup(int columnCount, int stage, ArrayList<TableFilter> spillFilters) {
         long rowNumber = 0;
         setCurrentRowNumber(0);
         long start = System.currentTimeMillis();
-        /// topTableFilter.getIndexCursor().next()
-        while (topTableFilter.next()) {
-            setCurrentRowNumber(rowNumber + 1);
-            if (isForUpdateMvcc ? isConditionMetForUpdate() : isConditionMet()) {
-                rowNumber++;
-                groupData.nextSource();
-                // update aggregate data
-                updateAgg(columnCount, stage);
+        RowBatch batch = createRowBatch();
+        if (batch != null) {
+            while (batch.next()) {
+                setCurrentRowNumber(++rowNumber);
+                if (groupData.nextSource()) {
+                    // update aggregate data
+                    updateAgg(columnCount, stage);
+                } else {
+                    groupData.spill(getSpilledSource(spillFilters, rowNumber));
+                }
+            }
+        } else {
+            /// topTableFilter.getIndexCursor().next()
+            while (topTableFilter.next()) {
+                setCurrentRowNumber(rowNumber + 1);
+                if (isForUpdateMvcc ? isConditionMetForUpdate() : isConditionMet()) {
+                    rowNumber++;
+                    if (groupData.nextSource()) {
+                        // update aggregate data
+                        updateAgg(columnCount, stage);
+                    } else {
+                        groupData.spill(getSpilledSource(spillFilters, rowNumber));
+                    }
+                }
             }
         }
         System.out.println("Duration<updateAgg>: " + (System.currentTimeMillis() - start));
@@ -519,6 +574,84 @@ public class Select extends Query {
     }
 
 
+    /**
+     * Enables spilling of groups to a temporary file if the number of groups
+     * may exceed the maximum number of rows kept in memory. Rows of all table
+     * filters are spilled, so the aggregates can be evaluated for them later.
+     *
+     * @return the table filters, or {@code null} if spilling is not possible
+     */
+    private ArrayList<TableFilter> enableGroupSpill() {
+        Database db = session.getDatabase();
+        if (isForUpdate || !db.isPersistent() || db.isReadOnly()) {
+            return null;
+        }
+        ArrayList<TableFilter> filters = new ArrayList<>();
+        topTableFilter.visit(filters::add);
+        ArrayList<TypeInfo> types = new ArrayList<>();
+        // the row number
+        types.add(TypeInfo.TYPE_BIGINT);
+        for (TableFilter f : filters) {
+            // the key of the row
+            types.add(TypeInfo.TYPE_BIGINT);
+            for (Column column : f.getTable().getColumns()) {
+                types.add(column.getType());
+            }
+        }
+        return groupData.enableSpill(db.getMaxMemoryRows(), types.toArray(new TypeInfo[0])) ? filters : null;
+    }
+
+    private static Value[] getSpilledSource(ArrayList<TableFilter> filters, long rowNumber) {
+        ArrayList<Value> source = new ArrayList<>();
+        source.add(ValueBigint.get(rowNumber));
+        for (TableFilter f : filters) {
+            Row row = f.get();
+            int columnCount = f.getTable().getColumns().length;
+            if (row == null) {
+                source.add(ValueNull.INSTANCE);
+                for (int i = 0; i < columnCount; i++) {
+                    source.add(ValueNull.INSTANCE);
+                }
+            } else {
+                source.add(ValueBigint.get(row.getKey()));
+                for (int i = 0; i < columnCount; i++) {
+                    source.add(row.getValue(i));
+                }
+            }
+        }
+        return source.toArray(new Value[0]);
+    }
+
+    private void setSpilledSource(ArrayList<TableFilter> filters, Value[] source) {
+        setCurrentRowNumber(source[0].getLong());
+        int index = 1;
+        for (TableFilter f : filters) {
+            Value key = source[index++];
+            int columnCount = f.getTable().getColumns().length;
+            f.set(key == ValueNull.INSTANCE ? null
+                    : Row.get(Arrays.copyOfRange(source, index, index + columnCount), SearchRow.MEMORY_CALCULATE,
+                            key.getLong()));
+            index += columnCount;
+        }
+    }
+
+    /**
+     * Creates a row batch for the batch execution mode if it can be used for
+     * this query.
+     *
+     * @return the row batch, or {@code null}
+     */
+    private RowBatch createRowBatch() {
+        if (condition == null || isForUpdate || !session.getDatabase().getSettings().optimizeBatchExecution
+                || topTableFilter.getJoin() != null || topTableFilter.getNestedJoin() != null
+                || topTableFilter.getFilterCondition() != null || topTableFilter.getJoinCondition() != null
+                || !topTableFilter.getIndex().getIndexType().isScan()
+                || !condition.isEverything(ExpressionVisitor.DETERMINISTIC_VISITOR)) {
+            return null;
+        }
+        return new RowBatch(session, topTableFilter, condition);
+    }
+
     /**
      * Update any aggregate expressions with the query stage.
      * @param columnCount number of columns
@@ -534,7 +667,12 @@ public class Select extends Query {
         }
     }
 
-    private void processGroupResult(int columnCount, LocalResult result, long offset, boolean quickOffset,
+    /**
+     * Adds rows of the current groups to the result.
+     *
+     * @return the remaining offset
+     */
+    private long processGroupResult(int columnCount, LocalResult result, long offset, boolean quickOffset,
             boolean withHaving) {
         for (ValueRow currentGroupsKey; (currentGroupsKey = groupData.next()) != null;) {
             Value[] row = constructGroupResultRow(currentGroupsKey.getList(), columnCount);
@@ -550,6 +688,7 @@ public class Select extends Query {
             }
             result.addRow(rowForResult(row, columnCount));
         }
+        return offset;
     }
 
     private Value[] constructGroupResultRow(Value[] keyValues, int columnCount) {
@@ -709,8 +848,10 @@ public class Select extends Query {
                 limitRows = Long.MAX_VALUE;
             }
         }
-        /// !!!
-        LazyResultQueryFlat lazyResult = new LazyResultQueryFlat(expressionArray, columnCount, isForUpdateMvcc);
+        // rows are read ahead in batch mode, it isn't used with a limit
+        RowBatch batch = limitRows < 0 ? createRowBatch() : null;
+        LazyResultQueryFlat lazyResult = new LazyResultQueryFlat(expressionArray, columnCount, isForUpdateMvcc,
+                batch);
         skipOffset(lazyResult, offset, quickOffset);
         if (result == null) {
             return lazyResult;
@@ -801,6 +942,9 @@ public class Select extends Query {
         if (!lazy && (fetch >= 0 || offset > 0)) {
             result = createLocalResult(result);
         }
+        if (sort != null && !sortUsingIndex && !fetchPercent) {
+            result.setTopN(offset, fetch, withTies);
+        }
         topTableFilter.startQuery(session);
         topTableFilter.reset();
         boolean exclusive = isForUpdate && !isForUpdateMvcc;
@@ -857,7 +1001,11 @@ public class Select extends Query {
         if (session.isLazyQueryExecution()) {
             top.visit(f -> {
                 if (f != top && f.getTable().getTableType() == TableType.VIEW) {
-                    ViewIndex idx = (ViewIndex) f.getIndex();
+                    Index index = f.getIndex();
+                    if (index instanceof HashJoinIndex) {
+                        index = ((HashJoinIndex) index).getBuildIndex();
+                    }
+                    ViewIndex idx = (ViewIndex) index;
                     if (idx != null && idx.getQuery() != null) {
                         idx.getQuery().setNeverLazy(true);
                     }
@@ -1818,13 +1966,36 @@ public class Select extends Query {
 
         private boolean forUpdate;
 
-        LazyResultQueryFlat(Expression[] expressions, int columnCount, boolean forUpdate) {
+        private final RowBatch batch;
+
+        LazyResultQueryFlat(Expression[] expressions, int columnCount, boolean forUpdate, RowBatch batch) {
             super(expressions, columnCount);
             this.forUpdate = forUpdate;
+            this.batch = batch;
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            if (batch != null) {
+                batch.reset();
+            }
         }
 
         @Override
         protected Value[] fetchNextRow() {
+            if (batch != null) {
+                if (!batch.next()) {
+                    return null;
+                }
+                setCurrentRowNumber(++rowNumber);
+                Value[] row = new Value[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    Expression expr = expressions.get(i);
+                    row[i] = expr.getValue(getSession());
+                }
+                return row;
+            }
             while (topTableFilter.next()) {
                 setCurrentRowNumber(rowNumber + 1);
                 // This method may lock rows
@@ -1843,6 +2014,13 @@ public class Select extends Query {
 
         @Override
         protected boolean skipNextRow() {
+            if (batch != null) {
+                if (!batch.next()) {
+                    return false;
+                }
+                setCurrentRowNumber(++rowNumber);
+                return true;
+            }
             while (topTableFilter.next()) {
                 setCurrentRowNumber(rowNumber + 1);
                 // This method does not lock rows
@@ -17,7 +17,14 @@ import org.guinsoo.engine.SessionLocal;
 import org.guinsoo.expression.Expression;
 import org.guinsoo.expression.analysis.DataAnalysisOperation;
 import org.guinsoo.expression.analysis.PartitionData;
+import org.guinsoo.message.DbException;
+import org.guinsoo.mvstore.Cursor;
+import org.guinsoo.mvstore.db.MVTempPartitionStore;
+import org.guinsoo.value.CompareMode;
+import org.guinsoo.value.DataType;
+import org.guinsoo.value.TypeInfo;
 import org.guinsoo.value.Value;
+import org.guinsoo.value.ValueNull;
 import org.guinsoo.value.ValueRow;
 
 /**
@@ -33,6 +40,15 @@ import org.guinsoo.value.ValueRow;
  * <li>{@link #next()} is invoked inside a loop until it returns null.</li>
  * </ul>
  * <p>
+ * If spilling is enabled with {@link #enableSpill(int, TypeInfo[])},
+ * {@link #nextSource()} returns {@code false} for source rows of groups that
+ * don't fit into memory, and these rows should be passed to
+ * {@link #spill(Value[])}. After the groups in memory were returned,
+ * {@link #nextSpilledGroups()} is invoked inside a loop until it returns
+ * false. For each of its invocations, {@link #nextSpilledSource()} is invoked
+ * until it returns null, followed by {@link #done()} and {@link #next()}.
+ * </p>
+ * <p>
  * Call sequence for lazy group sorted result:
  * </p>
  * <ul>
@@ -78,7 +94,7 @@ public abstract class SelectGroups {
         }
 
         @Override
-        public void nextSource() {
+        public boolean nextSource() {
             if (groupIndex == null) {
                 currentGroupsKey = ValueRow.EMPTY;
             } else {
@@ -98,6 +114,7 @@ public abstract class SelectGroups {
             }
             currentGroupByExprData = values;
             currentGroupRowId++;
+            return true;
         }
 
         @Override
@@ -144,6 +161,287 @@ public abstract class SelectGroups {
         }
     }
 
+    /**
+     * Grouped data stored in an open addressing hash table. Groups are
+     * returned in order of their first appearance, sorting is done by the
+     * result only if it is required.
+     */
+    private static final class Hashed extends SelectGroups {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final int[] groupIndex;
+
+        private final TypeInfo[] keyTypes;
+
+        /**
+         * Group-by keys in order of their first appearance. Removed groups are
+         * set to null.
+         */
+        private ArrayList<ValueRow> keys;
+
+        /**
+         * Group-by expression data e.g. AggregateData for the keys with the
+         * same index.
+         */
+        private ArrayList<Object[]> data;
+
+        /**
+         * Hash codes of the keys.
+         */
+        private int[] hashes;
+
+        /**
+         * The hash table. Contains index of a key plus one, or 0 for an empty
+         * slot.
+         */
+        private int[] table;
+
+        private int mask;
+
+        /**
+         * Index of the current group.
+         */
+        private int currentIndex;
+
+        /**
+         * Cursor for {@link #next()} method.
+         */
+        private int cursor;
+
+        /**
+         * The maximum number of groups in memory. Source rows of other groups
+         * are spilled.
+         */
+        private int maxGroups = Integer.MAX_VALUE;
+
+        private TypeInfo[] sourceTypes;
+
+        /**
+         * The key of the source row that needs to be spilled.
+         */
+        private Value[] spilledKey;
+
+        /**
+         * Source rows of spilled groups in a single partition sorted by group
+         * keys, so groups don't need to be kept in memory while they are
+         * replayed.
+         */
+        private MVTempPartitionStore spill;
+
+        private Cursor<ValueRow, ValueRow> spillCursor;
+
+        /**
+         * Whether the current entry of the spill cursor belongs to a group
+         * that didn't fit into memory.
+         */
+        private boolean spillPending;
+
+        Hashed(SessionLocal session, ArrayList<Expression> expressions, int[] groupIndex, TypeInfo[] keyTypes) {
+            super(session, expressions);
+            this.groupIndex = groupIndex;
+            this.keyTypes = keyTypes;
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            clearGroups();
+            if (spill != null) {
+                spill.close();
+                spill = null;
+                spillCursor = null;
+            }
+            spilledKey = null;
+            spillPending = false;
+        }
+
+        private void clearGroups() {
+            keys = new ArrayList<>();
+            data = new ArrayList<>();
+            hashes = new int[INITIAL_CAPACITY / 2];
+            table = new int[INITIAL_CAPACITY];
+            mask = INITIAL_CAPACITY - 1;
+            currentIndex = -1;
+            cursor = 0;
+        }
+
+        @Override
+        public boolean nextSource() {
+            int length = groupIndex.length;
+            Value[] keyValues = new Value[length];
+            for (int i = 0; i < length; i++) {
+                Value v = expressions.get(groupIndex[i]).getValue(session);
+                TypeInfo type = keyTypes[i];
+                if (v.getValueType() != type.getValueType() && v != ValueNull.INSTANCE) {
+                    v = v.convertTo(type, session);
+                }
+                keyValues[i] = v;
+            }
+            if (setCurrentGroup(ValueRow.get(keyValues))) {
+                return true;
+            }
+            spilledKey = keyValues;
+            return false;
+        }
+
+        @Override
+        public boolean enableSpill(int maxGroups, TypeInfo[] sourceTypes) {
+            this.maxGroups = Math.max(maxGroups, 1);
+            this.sourceTypes = sourceTypes;
+            return true;
+        }
+
+        @Override
+        public void spill(Value[] source) {
+            if (spill == null) {
+                spill = new MVTempPartitionStore(session.getDatabase(), keyTypes, sourceTypes, 1);
+            }
+            spill.put(0, spilledKey, source);
+            spilledKey = null;
+        }
+
+        @Override
+        public boolean nextSpilledGroups() {
+            if (spill == null) {
+                return false;
+            }
+            if (spillCursor == null) {
+                spillCursor = spill.cursor(0);
+            } else if (!spillPending && !spillCursor.hasNext()) {
+                spill.close();
+                spill = null;
+                spillCursor = null;
+                return false;
+            }
+            clearGroups();
+            return true;
+        }
+
+        @Override
+        public Value[] nextSpilledSource() {
+            Cursor<ValueRow, ValueRow> c = spillCursor;
+            if (!spillPending) {
+                if (!c.hasNext()) {
+                    return null;
+                }
+                c.next();
+            }
+            Value[] storedKey = c.getKey().getList();
+            // the row is returned again after the groups in memory were
+            // processed
+            spillPending = !setCurrentGroup(ValueRow.get(Arrays.copyOf(storedKey, storedKey.length - 1)));
+            return spillPending ? null : c.getValue().getList();
+        }
+
+        /**
+         * Finds or creates the group with the specified key and makes it
+         * current.
+         *
+         * @return {@code false} if the group isn't in memory and the limit of
+         *         groups is reached
+         */
+        private boolean setCurrentGroup(ValueRow key) {
+            int hash = key.hashCode();
+            hash ^= hash >>> 16;
+            int slot = hash & mask;
+            for (int index; (index = table[slot]) != 0; slot = (slot + 1) & mask) {
+                index--;
+                if (hashes[index] == hash && keys.get(index).equals(key)) {
+                    currentIndex = index;
+                    currentGroupByExprData = data.get(index);
+                    currentGroupRowId++;
+                    return true;
+                }
+            }
+            int index = keys.size();
+            if (index >= maxGroups) {
+                currentIndex = -1;
+                currentGroupByExprData = null;
+                return false;
+            }
+            keys.add(key);
+            Object[] values = createRow();
+            data.add(values);
+            if (index == hashes.length) {
+                hashes = Arrays.copyOf(hashes, index * 2);
+            }
+            hashes[index] = hash;
+            table[slot] = index + 1;
+            if (index + 1 > table.length >>> 1) {
+                rehash();
+            }
+            currentIndex = index;
+            currentGroupByExprData = values;
+            currentGroupRowId++;
+            return true;
+        }
+
+        private void rehash() {
+            int capacity = table.length << 1;
+            if (capacity <= 0) {
+                throw DbException.getInvalidValueException("groups", keys.size());
+            }
+            int[] newTable = new int[capacity];
+            int newMask = capacity - 1;
+            for (int index = 0, size = keys.size(); index < size; index++) {
+                int slot = hashes[index] & newMask;
+                while (newTable[slot] != 0) {
+                    slot = (slot + 1) & newMask;
+                }
+                newTable[slot] = index + 1;
+            }
+            table = newTable;
+            mask = newMask;
+        }
+
+        @Override
+        void updateCurrentGroupExprData() {
+            // this can be negative in lazy mode
+            if (currentIndex >= 0) {
+                data.set(currentIndex, currentGroupByExprData);
+            }
+        }
+
+        @Override
+        public void done() {
+            super.done();
+            // the hash table is not needed for iteration
+            table = null;
+            hashes = null;
+            cursor = 0;
+        }
+
+        @Override
+        public ValueRow next() {
+            for (int size = keys.size(); cursor < size;) {
+                int index = cursor++;
+                ValueRow key = keys.get(index);
+                if (key != null) {
+                    currentIndex = index;
+                    currentGroupByExprData = data.get(index);
+                    currentGroupRowId++;
+                    return key;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void remove() {
+            keys.set(currentIndex, null);
+            data.set(currentIndex, null);
+            currentGroupByExprData = null;
+            currentGroupRowId--;
+        }
+
+        @Override
+        public void resetLazy() {
+            super.resetLazy();
+            currentIndex = -1;
+        }
+    }
+
     private static final class Plain extends SelectGroups {
 
         private ArrayList<Object[]> rows;
@@ -165,11 +463,12 @@ public abstract class SelectGroups {
         }
 
         @Override
-        public void nextSource() {
+        public boolean nextSource() {
             Object[] values = createRow();
             rows.add(values);
             currentGroupByExprData = values;
             currentGroupRowId++;
+            return true;
         }
 
         @Override
@@ -245,7 +544,23 @@ public abstract class SelectGroups {
      */
     public static SelectGroups getInstance(SessionLocal session, ArrayList<Expression> expressions,
             boolean isGroupQuery, int[] groupIndex) {
-        return isGroupQuery ? new Grouped(session, expressions, groupIndex) : new Plain(session, expressions);
+        if (!isGroupQuery) {
+            return new Plain(session, expressions);
+        }
+        if (groupIndex != null && session.getDatabase().getSettings().optimizeHashGroupBy) {
+            CompareMode compareMode = session.getDatabase().getCompareMode();
+            int length = groupIndex.length;
+            TypeInfo[] keyTypes = new TypeInfo[length];
+            for (int i = 0; i < length; i++) {
+                TypeInfo type = expressions.get(groupIndex[i]).getType();
+                if (!DataType.isHashable(type, compareMode)) {
+                    return new Grouped(session, expressions, groupIndex);
+                }
+                keyTypes[i] = type;
+            }
+            return new Hashed(session, expressions, groupIndex, keyTypes);
+        }
+        return new Grouped(session, expressions, groupIndex);
     }
 
     SelectGroups(SessionLocal session, ArrayList<Expression> expressions) {
@@ -382,8 +697,58 @@ public abstract class SelectGroups {
     /**
      * Invoked for each source row to evaluate group key and setup all necessary
      * data for aggregates.
+     *
+     * @return {@code true} if the group of the row is in memory,
+     *         {@code false} if the row must be passed to {@link #spill(Value[])}
      */
-    public abstract void nextSource();
+    public abstract boolean nextSource();
+
+    /**
+     * Enables spilling of rows of new groups to a temporary file when the
+     * number of groups in memory reaches the specified limit.
+     *
+     * @param maxGroups
+     *            the maximum number of groups in memory
+     * @param sourceTypes
+     *            the types of values of spilled source rows
+     * @return whether spilling is supported
+     */
+    public boolean enableSpill(int maxGroups, TypeInfo[] sourceTypes) {
+        return false;
+    }
+
+    /**
+     * Spills the current source row, its group is not in memory.
+     *
+     * @param source
+     *            the values needed to evaluate the aggregates later
+     * @see #nextSource()
+     */
+    public void spill(Value[] source) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Removes all groups from memory and starts processing of spilled rows,
+     * if there are any left. Groups are returned by {@link #next()} as usual.
+     *
+     * @return whether there are spilled rows
+     */
+    public boolean nextSpilledGroups() {
+        return false;
+    }
+
+    /**
+     * Returns the next spilled source row and sets up its group. Rows of the
+     * same group are returned together.
+     *
+     * @return the values passed to {@link #spill(Value[])}, or {@code null} if
+     *         there are no more rows or the number of groups in memory reached
+     *         the limit
+     */
+    public Value[] nextSpilledSource() {
+        return null;
+    }
 
     /**
      * Invoked after all source rows are evaluated.
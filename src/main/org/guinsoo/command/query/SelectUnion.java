@@ -168,6 +168,9 @@ public class SelectUnion extends Query {
         default:
             throw DbException.getInternalError("type=" + unionType);
         }
+        if (sort != null && !fetchPercent) {
+            result.setTopN(offset, fetch, withTies);
+        }
         ResultInterface l = left.query(0);
         ResultInterface r = right.query(0);
         l.reset();
@@ -136,6 +136,9 @@ public class TableValueConstructor extends Query {
         if (distinct) {
             result.setDistinct();
         }
+        if (sort != null && !fetchPercent) {
+            result.setTopN(offset, fetch, withTies);
+        }
         Column[] columns = table.getColumns();
         if (visibleColumnCount == resultColumnCount) {
             getVisibleResult(session, result, columns, rows);
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.compress;
+
+/**
+ * <p>
+ * This class implements a compression algorithm that produces data in the LZ4
+ * block format. The compression ratio is similar to LZF, but expansion is
+ * faster, because literal runs and back-references are copied as whole blocks.
+ * </p>
+ * <p>
+ * Safety/Use Notes:
+ * </p>
+ * <ul>
+ * <li>Each instance should be used by a single thread only for compression;
+ * expansion is thread-safe.</li>
+ * <li>The data buffers should be smaller than 1 GB.</li>
+ * <li>The output area of compression should be at least
+ * {@code inLen + inLen / 255 + 16} bytes long.</li>
+ * <li>Invalid compressed data can cause an ArrayIndexOutOfBoundsException.</li>
+ * </ul>
+ * <p>
+ * Compressed data is a list of sequences. Each sequence starts with a token
+ * byte. The higher four bits of the token are the number of literals and the
+ * lower four bits are the back-reference length minus 4. If a field is 15, the
+ * rest of value is stored in the next bytes, each byte is added to the value
+ * until a byte that isn't 255. The token is followed by the literals, then by
+ * the back-reference offset (two bytes, little endian), and then by the rest of
+ * the back-reference length. The last sequence contains only literals.
+ * </p>
+ */
+public final class CompressLZ4 implements Compressor {
+
+    /**
+     * The number of bits of hash codes.
+     */
+    private static final int HASH_LOG = 14;
+
+    /**
+     * The minimal length of a back-reference.
+     */
+    private static final int MIN_MATCH = 4;
+
+    /**
+     * The maximum offset allowed for a back-reference.
+     */
+    private static final int MAX_OFFSET = 0xffff;
+
+    /**
+     * The number of bytes at the end of data that are always stored as
+     * literals.
+     */
+    private static final int LAST_LITERALS = 5;
+
+    /**
+     * The minimal distance between the start of the last back-reference and the
+     * end of data.
+     */
+    private static final int MF_LIMIT = 12;
+
+    /**
+     * Controls how fast the search moves forward in data that isn't
+     * compressible.
+     */
+    private static final int SKIP_STRENGTH = 6;
+
+    /**
+     * Hash table of positions of byte sequences (reused for performance).
+     */
+    private int[] cachedHashTable;
+
+    @Override
+    public int getAlgorithm() {
+        return LZ4;
+    }
+
+    @Override
+    public void setOptions(String options) {
+        // nothing to do
+    }
+
+    private static int readInt(byte[] in, int pos) {
+        return (in[pos] & 255) | (in[pos + 1] & 255) << 8 | (in[pos + 2] & 255) << 16 | in[pos + 3] << 24;
+    }
+
+    private static int hash(int v) {
+        return v * -1640531535 >>> 32 - HASH_LOG;
+    }
+
+    @Override
+    public int compress(byte[] in, int inPos, int inLen, byte[] out, int outPos) {
+        int[] hashTable = cachedHashTable;
+        if (hashTable == null) {
+            cachedHashTable = hashTable = new int[1 << HASH_LOG];
+        }
+        int start = inPos, end = inPos + inLen, anchor = inPos;
+        if (inLen > MF_LIMIT) {
+            int limit = end - MF_LIMIT, matchLimit = end - LAST_LITERALS;
+            hashTable[hash(readInt(in, inPos))] = inPos;
+            int pos = inPos + 1;
+            while (pos < limit) {
+                int v = readInt(in, pos), h = hash(v), ref = hashTable[h];
+                hashTable[h] = pos;
+                // the table may contain positions from previous invocations,
+                // so data is always compared
+                if (ref < start || ref >= pos || pos - ref > MAX_OFFSET || readInt(in, ref) != v) {
+                    pos += 1 + (pos - anchor >>> SKIP_STRENGTH);
+                    continue;
+                }
+                while (pos > anchor && ref > start && in[pos - 1] == in[ref - 1]) {
+                    pos--;
+                    ref--;
+                }
+                int len = MIN_MATCH;
+                while (pos + len < matchLimit && in[pos + len] == in[ref + len]) {
+                    len++;
+                }
+                outPos = writeSequence(in, anchor, pos - anchor, out, outPos, pos - ref, len);
+                pos += len;
+                anchor = pos;
+                if (pos < limit) {
+                    hashTable[hash(readInt(in, pos - 2))] = pos - 2;
+                }
+            }
+        }
+        int literals = end - anchor;
+        int tokenPos = outPos++;
+        if (literals >= 15) {
+            out[tokenPos] = (byte) 0xf0;
+            outPos = writeLength(out, outPos, literals - 15);
+        } else {
+            out[tokenPos] = (byte) (literals << 4);
+        }
+        System.arraycopy(in, anchor, out, outPos, literals);
+        return outPos + literals;
+    }
+
+    private static int writeSequence(byte[] in, int anchor, int literals, byte[] out, int outPos, int offset,
+            int len) {
+        int tokenPos = outPos++;
+        int token;
+        if (literals >= 15) {
+            token = 0xf0;
+            outPos = writeLength(out, outPos, literals - 15);
+        } else {
+            token = literals << 4;
+        }
+        System.arraycopy(in, anchor, out, outPos, literals);
+        outPos += literals;
+        out[outPos++] = (byte) offset;
+        out[outPos++] = (byte) (offset >>> 8);
+        len -= MIN_MATCH;
+        if (len >= 15) {
+            token |= 15;
+            outPos = writeLength(out, outPos, len - 15);
+        } else {
+            token |= len;
+        }
+        out[tokenPos] = (byte) token;
+        return outPos;
+    }
+
+    private static int writeLength(byte[] out, int outPos, int length) {
+        for (; length >= 255; length -= 255) {
+            out[outPos++] = (byte) 255;
+        }
+        out[outPos++] = (byte) length;
+        return outPos;
+    }
+
+    @Override
+    public void expand(byte[] in, int inPos, int inLen, byte[] out, int outPos, int outLen) {
+        if (inPos < 0 || outPos < 0 || outLen < 0) {
+            throw new IllegalArgumentException();
+        }
+        int inEnd = inPos + inLen;
+        for (;;) {
+            int token = in[inPos++] & 255;
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int b;
+                do {
+                    b = in[inPos++] & 255;
+                    literals += b;
+                } while (b == 255);
+            }
+            System.arraycopy(in, inPos, out, outPos, literals);
+            inPos += literals;
+            outPos += literals;
+            if (inPos >= inEnd) {
+                break;
+            }
+            int offset = in[inPos++] & 255 | (in[inPos++] & 255) << 8;
+            int len = token & 15;
+            if (len == 15) {
+                int b;
+                do {
+                    b = in[inPos++] & 255;
+                    len += b;
+                } while (b == 255);
+            }
+            len += MIN_MATCH;
+            int ref = outPos - offset;
+            if (offset >= len) {
+                System.arraycopy(out, ref, out, outPos, len);
+                outPos += len;
+            } else {
+                // overlapping back-reference repeats the last bytes
+                for (int i = 0; i < len; i++) {
+                    out[outPos++] = out[ref++];
+                }
+            }
+        }
+    }
+
+}
@@ -5,6 +5,7 @@
  */
 package org.guinsoo.compress;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import org.guinsoo.mvstore.DataUtils;
@@ -66,6 +67,9 @@ public class LZFInputStream extends InputStream {
         int off = 0;
         while (len > 0) {
             int l = in.read(buff, off, len);
+            if (l < 0) {
+                throw new EOFException();
+            }
             len -= l;
             off += l;
         }
@@ -125,6 +129,11 @@ public class LZFInputStream extends InputStream {
         return max;
     }
 
+    @Override
+    public int available() throws IOException {
+        return buffer != null && pos < bufferLength ? bufferLength - pos : in.available();
+    }
+
     @Override
     public void close() throws IOException {
         in.close();
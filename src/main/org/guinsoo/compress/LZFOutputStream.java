@@ -46,7 +46,7 @@ public class LZFOutputStream extends OutputStream {
     @Override
     public void write(int b) throws IOException {
         if (pos >= buffer.length) {
-            flush();
+            writeBuffer();
         }
         buffer[pos++] = (byte) b;
     }
@@ -80,22 +80,27 @@ public class LZFOutputStream extends OutputStream {
             System.arraycopy(buff, off, buffer, pos, copy);
             pos += copy;
             if (pos >= buffer.length) {
-                flush();
+                writeBuffer();
             }
             off += copy;
             len -= copy;
         }
     }
 
-    @Override
-    public void flush() throws IOException {
+    private void writeBuffer() throws IOException {
         compressAndWrite(buffer, pos);
         pos = 0;
     }
 
+    @Override
+    public void flush() throws IOException {
+        writeBuffer();
+        out.flush();
+    }
+
     @Override
     public void close() throws IOException {
-        flush();
+        writeBuffer();
         out.close();
     }
 
@@ -130,7 +130,7 @@ public class ConnectionInfo implements Cloneable {
                 "CACHE_TYPE",
                 "FILE_LOCK",
                 "JMX",
-                "NETWORK_TIMEOUT",
+                "NETWORK_COMPRESSION", "NETWORK_TIMEOUT",
                 "OLD_INFORMATION_SCHEMA", "OPEN_NEW",
                 "PAGE_SIZE",
                 "RECOVER",
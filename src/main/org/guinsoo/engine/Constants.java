@@ -88,6 +88,18 @@ public class Constants {
      */
     public static final int TCP_PROTOCOL_VERSION_20 = 20;
 
+    /**
+     * The TCP protocol version number 21.
+     * @since 2.0.204 (TODO)
+     */
+    public static final int TCP_PROTOCOL_VERSION_21 = 21;
+
+    /**
+     * The TCP protocol version number 22.
+     * @since 2.0.204 (TODO)
+     */
+    public static final int TCP_PROTOCOL_VERSION_22 = 22;
+
     /**
      * Minimum supported version of TCP protocol.
      */
@@ -96,7 +108,7 @@ public class Constants {
     /**
      * Maximum supported version of TCP protocol.
      */
-    public static final int TCP_PROTOCOL_VERSION_MAX_SUPPORTED = TCP_PROTOCOL_VERSION_20;
+    public static final int TCP_PROTOCOL_VERSION_MAX_SUPPORTED = TCP_PROTOCOL_VERSION_22;
 
     /**
      * The major version of this database.
@@ -24,6 +24,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.guinsoo.command.CommandInterface;
+import org.guinsoo.command.PlanCache;
 import org.guinsoo.command.Prepared;
 import org.guinsoo.command.ddl.CreateTableData;
 import org.guinsoo.command.dml.SetTypes;
@@ -226,6 +227,7 @@ public final class Database implements DataHandler, CastDataProvider {
     private boolean queryStatistics;
     private int queryStatisticsMaxEntries = Constants.QUERY_STATISTICS_MAX_ENTRIES;
     private QueryStatisticsData queryStatisticsData;
+    private final PlanCache planCache;
     private RowFactory rowFactory = RowFactory.getRowFactory();
     private boolean ignoreCatalogs;
 
@@ -241,6 +243,7 @@ public final class Database implements DataHandler, CastDataProvider {
         }
         String databaseName = ci.getName();
         this.dbSettings = ci.getDbSettings();
+        planCache = dbSettings.planCacheSize > 0 ? new PlanCache(dbSettings.planCacheSize) : null;
         this.compareMode = CompareMode.getInstance(null, 0);
         this.persistent = ci.isPersistent();
         this.filePasswordHash = ci.getFilePasswordHash();
@@ -341,25 +344,25 @@ public final class Database implements DataHandler, CastDataProvider {
                 }
                 deleteOldTempFiles();
                 starting = true;
+                if (isQuickStore(ci.getStore())) {
+                    throw DbException.getUnsupportedException("STORE=QUICK && persistent database");
+                }
                 if (dbSettings.mvStore) {
                     store = createStore();
                 } else {
                     store = null;
-                    if (Constants.PAGE_DB.equals(ci.getStore())) {
-                        createPageStore(ci);
-                    } else {
-                        createQuickStore(ci);
-                    }
+                    createPageStore(ci);
                 }
                 starting = false;
             } else if (dbSettings.mvStore) {
                 if (Constants.PAGE_DB.equals(ci.getStore())) {
                     throw DbException.getUnsupportedException("PAGE_STORE NOT SUPPORT MEM MODEL");
-                } else if (Constants.QUICK_DB.equals(ci.getStore())) {
-
-                    throw DbException.getUnsupportedException("QUICK_STORE IS COMING");
                 } else {
-                    ci.removeProperty("STORE", "1");
+                    if (isQuickStore(ci.getStore())) {
+                        // tables are stored in off-heap memory, the store keeps
+                        // the metadata, LOBs and temporary results
+                        quickStore = new QuickStore(ci);
+                    }
                     store = createStore();
                 }
             } else {
@@ -373,7 +376,7 @@ public final class Database implements DataHandler, CastDataProvider {
                 if (pageStore != null) {
                     settingKeys.removeIf(name -> "COMPRESS".equals(name) || "REUSE_SPACE".equals(name));
                 } else {
-                    throw DbException.getUnsupportedException("QUICK_STORE ENGINE IS COMING");
+                    throw DbException.getUnsupportedException("MV_STORE=FALSE && in-memory database");
                 }
             }
             systemUser = new User(this, 0, SYSTEM_USER_NAME, true);
@@ -1499,6 +1502,9 @@ public final class Database implements DataHandler, CastDataProvider {
                 lobSession.close();
                 lobSession = null;
             }
+            if (quickStore != null) {
+                quickStore.close();
+            }
             closeFiles(false);
             if (persistent) {
                 // Don't delete temp files if everything is already closed
@@ -2369,6 +2375,15 @@ public final class Database implements DataHandler, CastDataProvider {
         }
     }
 
+    /**
+     * Returns the plan cache shared by all sessions.
+     *
+     * @return the plan cache, or {@code null} if it is disabled
+     */
+    public PlanCache getPlanCache() {
+        return planCache;
+    }
+
     public QueryStatisticsData getQueryStatisticsData() {
         if (!queryStatistics) {
             return null;
@@ -2560,9 +2575,17 @@ public final class Database implements DataHandler, CastDataProvider {
         pageStore.open();
     }
 
-    private void createQuickStore(ConnectionInfo ci) {
-        System.out.println("QUICK_STORE IS COMING");
-        quickStore = new QuickStore(ci);
+    private static boolean isQuickStore(String store) {
+        return Constants.QUICK_DB.equals(store) || "QUICK".equalsIgnoreCase(store);
+    }
+
+    /**
+     * Returns the store of tables if tables are stored in a QuickStore.
+     *
+     * @return the QuickStore, or {@code null}
+     */
+    public QuickStore getQuickStore() {
+        return quickStore;
     }
 
     public PageStore getPageStore() {
@@ -65,6 +65,18 @@ public class DbSettings extends SettingsBase {
      */
     public final int autoCompactFillRate = get("AUTO_COMPACT_FILL_RATE", 90);
 
+    /**
+     * Database setting <code>COMPACTION_RATE</code>
+     * (default: 0, which means not limited).<br />
+     * The maximum amount of data rewritten and moved by background
+     * compaction, in KB per second. Limiting it avoids latency spikes caused
+     * by write bursts of compaction under load. The rate is an average: a
+     * chunk larger than the amount of one second is still compacted, and
+     * the next compaction waits until the excess is paid off.<br />
+     * This setting only affects MVStore engine.
+     */
+    public final int compactionRate = get("COMPACTION_RATE", 0);
+
     /**
      * Database setting <code>DATABASE_TO_LOWER</code> (default: false).<br />
      * When set to true unquoted identifiers and short name of database are
@@ -168,6 +180,14 @@ public class DbSettings extends SettingsBase {
      */
     public final int maxQueryTimeout = get("MAX_QUERY_TIMEOUT", 0);
 
+    /**
+     * Database setting <code>OPTIMIZE_BATCH_EXECUTION</code> (default:
+     * true).<br />
+     * Read rows of single table queries with a condition in batches and
+     * evaluate the condition for the whole batch at once.
+     */
+    public final boolean optimizeBatchExecution = get("OPTIMIZE_BATCH_EXECUTION", true);
+
     /**
      * Database setting <code>OPTIMIZE_DISTINCT</code> (default: true).<br />
      * Improve the performance of simple DISTINCT queries if an index is
@@ -190,6 +210,22 @@ public class DbSettings extends SettingsBase {
     public final boolean optimizeEvaluatableSubqueries = get(
             "OPTIMIZE_EVALUATABLE_SUBQUERIES", true);
 
+    /**
+     * Database setting <code>OPTIMIZE_HASH_GROUP_BY</code> (default:
+     * true).<br />
+     * Use a hash table instead of a sorted map for groups of GROUP BY queries
+     * if equality of values of all grouping expressions is consistent with
+     * their hash codes.
+     */
+    public final boolean optimizeHashGroupBy = get("OPTIMIZE_HASH_GROUP_BY", true);
+
+    /**
+     * Database setting <code>OPTIMIZE_HASH_JOIN</code> (default: true).<br />
+     * Use a hash join for equality join conditions if the joined table has no
+     * suitable index and the estimated cost is lower.
+     */
+    public final boolean optimizeHashJoin = get("OPTIMIZE_HASH_JOIN", true);
+
     /**
      * Database setting <code>OPTIMIZE_INSERT_FROM_SELECT</code>
      * (default: true).<br />
@@ -248,6 +284,17 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean pageStoreTrim = get("PAGE_STORE_TRIM", true);
 
+    /**
+     * Database setting <code>PLAN_CACHE_SIZE</code> (default: 256).<br />
+     * The size of the shared plan cache, in number of cached plans. The cache
+     * is shared by all sessions and is only used for SELECT statements from
+     * one table and for INSERT, UPDATE, and DELETE statements. Literals in
+     * conditions, inserted and updated values, and OFFSET / FETCH clauses are
+     * replaced with parameters, so statements that differ only in values of
+     * such literals share the same plan. Set to 0 to disable the cache.
+     */
+    public final int planCacheSize = get("PLAN_CACHE_SIZE", 256);
+
     /**
      * Database setting <code>QUERY_CACHE_SIZE</code> (default: 8).<br />
      * The size of the query cache, in number of cached statements. Each session
@@ -311,6 +358,58 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean compressData = get("COMPRESS", false);
 
+    /**
+     * Database setting <code>COMPRESS_INDEXES</code>
+     * (default: true).<br />
+     * Compress pages of secondary indexes when data is compressed. Disabling
+     * it makes index lookups faster.
+     */
+    public final boolean compressIndexes = get("COMPRESS_INDEXES", true);
+
+    /**
+     * Database setting <code>ENCODE_KEYS</code>
+     * (default: false).<br />
+     * Store keys of pages without the prefix shared with the previous key,
+     * and row keys as differences between adjacent keys. This reduces the size
+     * of indexes in the database file and the amount of data read per page,
+     * but older versions can't read such databases. Pages are decoded when
+     * they are read, so the memory used by cached pages does not change.
+     */
+    public final boolean encodeKeys = get("ENCODE_KEYS", false);
+
+    /**
+     * Database setting <code>OFF_HEAP_CACHE_SIZE</code>
+     * (default: 0).<br />
+     * The size of the second level cache of serialized pages in MB. This cache
+     * is allocated outside of the heap, 0 disables it.
+     */
+    public final int offHeapCacheSize = get("OFF_HEAP_CACHE_SIZE", 0);
+
+    /**
+     * Database setting <code>MEMORY_MAPPED</code>
+     * (default: false).<br />
+     * Read pages from memory-mapped regions of the database file.
+     */
+    public final boolean memoryMapped = get("MEMORY_MAPPED", false);
+
+    /**
+     * Database setting <code>GROUP_COMMIT_DELAY</code>
+     * (default: 0).<br />
+     * The maximum time in microseconds a committing transaction waits for
+     * other open transactions to commit, so their changes are written to the
+     * file together. Only used if changes are written on each commit.
+     */
+    public final int groupCommitDelay = get("GROUP_COMMIT_DELAY", 0);
+
+    /**
+     * Database setting <code>SYNC_COMMIT</code>
+     * (default: false).<br />
+     * Synchronize the file with the file system after changes of committed
+     * transactions are written to it. Only used if changes are written on each
+     * commit.
+     */
+    public final boolean syncCommit = get("SYNC_COMMIT", false);
+
     /**
      * Database setting <code>IGNORE_CATALOGS</code>
      * (default: false).<br />
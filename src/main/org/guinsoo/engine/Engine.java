@@ -63,6 +63,8 @@ public final class Engine {
         }
 
         synchronized (databaseHolder) {
+            // remove not parse property, the store is known from the connection info
+            ci.removeProperty("STORE", "1");
             database = databaseHolder.database;
             if (database == null || openNew) {
                 if (ci.isPersistent()) {
@@ -91,8 +93,6 @@ public final class Engine {
                             fileName = null;
                         }
                     }
-                    // remove not parse property
-                    ci.removeProperty("STORE", "1");
                     if (fileName != null && !FileUtils.canWrite(fileName)) {
                         ci.setProperty("ACCESS_MODE_DATA", "r");
                     }
@@ -11,6 +11,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.guinsoo.command.Command;
 import org.guinsoo.command.CommandInterface;
 import org.guinsoo.command.Parser;
+import org.guinsoo.command.PlanCache;
 import org.guinsoo.command.Prepared;
 import org.guinsoo.command.ddl.Analyze;
 import org.guinsoo.constraint.Constraint;
@@ -224,6 +225,11 @@ public class SessionLocal extends Session implements TransactionStore.RollbackLi
      */
     private boolean truncateLargeLength;
 
+    /**
+     * The maximum number of threads used to execute a query.
+     */
+    private int maxParallelism = 1;
+
     /**
      * Whether BINARY is parsed as VARBINARY.
      */
@@ -608,6 +614,17 @@ public class SessionLocal extends Session implements TransactionStore.RollbackLi
                 }
             }
         }
+        PlanCache planCache = database.getPlanCache();
+        if (planCache != null) {
+            try {
+                command = planCache.prepare(this, sql);
+            } finally {
+                subQueryIndexCache = null;
+            }
+            if (command != null) {
+                return command;
+            }
+        }
         Parser parser = new Parser(this);
         try {
             command = parser.prepareCommand(sql);
@@ -2148,6 +2165,26 @@ public class SessionLocal extends Session implements TransactionStore.RollbackLi
         return truncateLargeLength;
     }
 
+    /**
+     * Changes the maximum number of threads used to execute a query.
+     *
+     * @param maxParallelism
+     *            the maximum number of threads, {@code 1} to disable
+     *            parallel execution
+     */
+    public void setMaxParallelism(int maxParallelism) {
+        this.maxParallelism = maxParallelism;
+    }
+
+    /**
+     * Returns the maximum number of threads used to execute a query.
+     *
+     * @return the maximum number of threads
+     */
+    public int getMaxParallelism() {
+        return maxParallelism;
+    }
+
     /**
      * Changes parsing of a BINARY data type.
      *
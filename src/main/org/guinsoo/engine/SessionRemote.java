@@ -21,6 +21,7 @@ import org.guinsoo.message.DbException;
 import org.guinsoo.message.Trace;
 import org.guinsoo.message.TraceSystem;
 import org.guinsoo.result.ResultInterface;
+import org.guinsoo.result.ResultRemote;
 import org.guinsoo.store.fs.FileUtils;
 import org.guinsoo.api.DatabaseEventListener;
 import org.guinsoo.api.ErrorCode;
@@ -74,6 +75,7 @@ public final class SessionRemote extends Session implements DataHandler {
     public static final int LOB_READ = 17;
     public static final int SESSION_PREPARE_READ_PARAMS2 = 18;
     public static final int GET_JDBC_META = 19;
+    public static final int COMMAND_EXECUTE_BATCH_UPDATE = 20;
 
     public static final int STATUS_ERROR = 0;
     public static final int STATUS_OK = 1;
@@ -110,6 +112,12 @@ public final class SessionRemote extends Session implements DataHandler {
 
     private volatile DynamicSettings dynamicSettings;
 
+    /**
+     * The result with a fetch request that was sent to the server, but whose
+     * response was not read yet.
+     */
+    private ResultRemote pendingFetch;
+
     public SessionRemote(ConnectionInfo ci) {
         this.connectionInfo = ci;
         oldInformationSchema = ci.getProperty("OLD_INFORMATION_SCHEMA", false);
@@ -149,6 +157,13 @@ public final class SessionRemote extends Session implements DataHandler {
             done(trans);
             clientVersion = trans.readInt();
             trans.setVersion(clientVersion);
+            if (clientVersion >= Constants.TCP_PROTOCOL_VERSION_22) {
+                boolean compress = ci.getProperty("NETWORK_COMPRESSION", false);
+                trans.writeBoolean(compress);
+                if (compress) {
+                    trans.setCompressed();
+                }
+            }
             if (ci.getFileEncryptionKey() != null) {
                 trans.writeBytes(ci.getFileEncryptionKey());
             }
@@ -425,6 +440,7 @@ public final class SessionRemote extends Session implements DataHandler {
         String[] servers = StringUtils.arraySplit(server, ',', true);
         int len = servers.length;
         transferList.clear();
+        pendingFetch = null;
         sessionId = StringUtils.convertBytesToHex(MathUtils.secureRandomBytes(32));
         // TODO cluster: support more than 2 connections
         boolean switchOffCluster = false;
@@ -601,6 +617,7 @@ public final class SessionRemote extends Session implements DataHandler {
      */
     public void done(Transfer transfer) throws IOException {
         transfer.flush();
+        readPendingFetch(transfer);
         int status = transfer.readInt();
         switch (status) {
         case STATUS_ERROR:
@@ -620,6 +637,35 @@ public final class SessionRemote extends Session implements DataHandler {
         }
     }
 
+    /**
+     * Remember a result with a sent fetch request. Its response is read before
+     * the response to any later request.
+     *
+     * @param result the result
+     * @param transfer the transfer object used for the request
+     * @throws IOException if there is a communication problem between client
+     *             and server
+     */
+    public void setPendingFetch(ResultRemote result, Transfer transfer) throws IOException {
+        readPendingFetch(transfer);
+        pendingFetch = result;
+    }
+
+    /**
+     * Read the response to a sent fetch request, if there is one.
+     *
+     * @param transfer the transfer object
+     * @throws IOException if there is a communication problem between client
+     *             and server
+     */
+    public void readPendingFetch(Transfer transfer) throws IOException {
+        ResultRemote result = pendingFetch;
+        if (result != null) {
+            pendingFetch = null;
+            result.readPrefetchedRows(this, transfer);
+        }
+    }
+
     /**
      * Reads an exception.
      *
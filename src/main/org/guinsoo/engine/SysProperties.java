@@ -314,6 +314,16 @@ public class SysProperties {
     public static final int SERVER_RESULT_SET_FETCH_SIZE =
             Utils.getProperty("guinsoo.serverResultSetFetchSize", 100);
 
+    /**
+     * System property <code>guinsoo.serverResultSetFetchMemory</code>
+     * (default: 262144).<br />
+     * The estimated memory in bytes of rows fetched at once when using the
+     * server mode with the default fetch size. The number of fetched rows
+     * grows up to this limit depending on the size of rows.
+     */
+    public static final int SERVER_RESULT_SET_FETCH_MEMORY =
+            Utils.getProperty("guinsoo.serverResultSetFetchMemory", 256 * 1024);
+
     /**
      * System property <code>guinsoo.socketConnectRetry</code> (default: 16).<br />
      * The number of times to retry opening a socket. Windows sometimes fails
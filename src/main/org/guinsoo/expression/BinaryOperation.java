@@ -8,9 +8,11 @@ package org.guinsoo.expression;
 import org.guinsoo.engine.SessionLocal;
 import org.guinsoo.expression.function.DateTimeFunction;
 import org.guinsoo.message.DbException;
+import org.guinsoo.table.TableFilter;
 import org.guinsoo.value.DataType;
 import org.guinsoo.value.TypeInfo;
 import org.guinsoo.value.Value;
+import org.guinsoo.value.ValueBigint;
 import org.guinsoo.value.ValueInteger;
 import org.guinsoo.value.ValueNull;
 import org.guinsoo.value.ValueNumeric;
@@ -124,6 +126,120 @@ public class BinaryOperation extends Operation2 {
         }
     }
 
+    @Override
+    public ValueVector getBatchValue(SessionLocal session, RowBatch batch, int[] selection, int count) {
+        int valueType = type.getValueType();
+        if (opType == OpType.DIVIDE || !convertRight || valueType == Value.BOOLEAN
+                || !ValueVector.isSupported(valueType)) {
+            return null;
+        }
+        ValueVector l = left.getBatchValue(session, batch, selection, count);
+        if (l == null || l.getValueType() == Value.BOOLEAN) {
+            return null;
+        }
+        ValueVector r = right.getBatchValue(session, batch, selection, count);
+        if (r == null || r.getValueType() == Value.BOOLEAN) {
+            return null;
+        }
+        ValueVector result = batch.getResultVector(this, valueType);
+        boolean[] leftNulls = l.getNulls(), rightNulls = r.getNulls(), nulls = result.getNulls();
+        if (valueType == Value.DOUBLE) {
+            double[] values = result.getDoubles();
+            for (int i = 0; i < count; i++) {
+                int index = selection[i];
+                if (leftNulls[index] || rightNulls[index]) {
+                    nulls[index] = true;
+                } else {
+                    nulls[index] = false;
+                    values[index] = getDouble(l.isDouble() ? l.getDoubles()[index] : l.getLongs()[index],
+                            r.isDouble() ? r.getDoubles()[index] : r.getLongs()[index]);
+                }
+            }
+            return result;
+        }
+        if (l.isDouble() || r.isDouble()) {
+            return null;
+        }
+        long[] leftLongs = l.getLongs(), rightLongs = r.getLongs(), values = result.getLongs();
+        long min, max;
+        switch (valueType) {
+        case Value.TINYINT:
+            min = Byte.MIN_VALUE;
+            max = Byte.MAX_VALUE;
+            break;
+        case Value.SMALLINT:
+            min = Short.MIN_VALUE;
+            max = Short.MAX_VALUE;
+            break;
+        case Value.INTEGER:
+            min = Integer.MIN_VALUE;
+            max = Integer.MAX_VALUE;
+            break;
+        default:
+            min = Long.MIN_VALUE;
+            max = Long.MAX_VALUE;
+        }
+        for (int i = 0; i < count; i++) {
+            int index = selection[i];
+            if (leftNulls[index] || rightNulls[index]) {
+                nulls[index] = true;
+                continue;
+            }
+            nulls[index] = false;
+            long a = leftLongs[index], b = rightLongs[index], v;
+            boolean overflow = false;
+            try {
+                switch (opType) {
+                case PLUS:
+                    v = Math.addExact(a, b);
+                    break;
+                case MINUS:
+                    v = Math.subtractExact(a, b);
+                    break;
+                default:
+                    v = Math.multiplyExact(a, b);
+                }
+            } catch (ArithmeticException e) {
+                v = 0L;
+                overflow = true;
+            }
+            if (overflow || v < min || v > max) {
+                // compute the value as usual to throw the same exception
+                Value x = ValueBigint.get(a).convertTo(type), y = ValueBigint.get(b).convertTo(type);
+                v = (opType == OpType.PLUS ? x.add(y) : opType == OpType.MINUS ? x.subtract(y) : x.multiply(y))
+                        .getLong();
+            }
+            values[index] = v;
+        }
+        return result;
+    }
+
+    @Override
+    public int getBatchValueType(TableFilter filter) {
+        int valueType = type.getValueType();
+        if (opType == OpType.DIVIDE || !convertRight || valueType == Value.BOOLEAN
+                || !ValueVector.isSupported(valueType)) {
+            return Value.UNKNOWN;
+        }
+        int l = left.getBatchValueType(filter), r = right.getBatchValueType(filter);
+        if (l == Value.UNKNOWN || l == Value.BOOLEAN || r == Value.UNKNOWN || r == Value.BOOLEAN
+                || valueType != Value.DOUBLE && (l == Value.DOUBLE || r == Value.DOUBLE)) {
+            return Value.UNKNOWN;
+        }
+        return valueType;
+    }
+
+    private double getDouble(double a, double b) {
+        switch (opType) {
+        case PLUS:
+            return a + b;
+        case MINUS:
+            return a - b;
+        default:
+            return a * b;
+        }
+    }
+
     @Override
     public Expression optimize(SessionLocal session) {
         left = left.optimize(session);
@@ -334,6 +334,72 @@ public abstract class Expression implements HasSQL, Typed {
         return getValue(session).getBoolean();
     }
 
+    /**
+     * Evaluate this condition for the selected rows of a batch and remove rows
+     * for which it is not true from the selection. The default implementation
+     * evaluates the condition row by row.
+     *
+     * @param session the session
+     * @param batch the batch of rows
+     * @param selection the indexes of the selected rows in ascending order,
+     *            updated in place
+     * @param count the number of the selected rows
+     * @return the new number of the selected rows
+     */
+    public int getBatchSelection(SessionLocal session, RowBatch batch, int[] selection, int count) {
+        batch.checkRowMode();
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int index = selection[i];
+            batch.setCurrent(index);
+            if (getBooleanValue(session)) {
+                selection[n++] = index;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Evaluate this expression for the selected rows of a batch.
+     *
+     * @param session the session
+     * @param batch the batch of rows
+     * @param selection the indexes of the selected rows
+     * @param count the number of the selected rows
+     * @return the values, or {@code null} if this expression can't be
+     *         evaluated in batch mode
+     */
+    public ValueVector getBatchValue(SessionLocal session, RowBatch batch, int[] selection, int count) {
+        return isConstant() ? batch.getConstantVector(this, getValue(session)) : null;
+    }
+
+    /**
+     * Check if this condition can be evaluated for rows of the specified
+     * table filter in batch mode only, without setting the current row of the
+     * table filter. Such conditions may be used in detached batches.
+     *
+     * @param filter the table filter
+     * @return whether {@link #getBatchSelection(SessionLocal, RowBatch, int[], int)}
+     *         never evaluates this condition row by row
+     */
+    public boolean isBatchSelectable(TableFilter filter) {
+        return false;
+    }
+
+    /**
+     * Get the data type of values of this expression in batch mode for rows
+     * of the specified table filter.
+     *
+     * @param filter the table filter
+     * @return the data type of vectors returned by
+     *         {@link #getBatchValue(SessionLocal, RowBatch, int[], int)}, or
+     *         {@link Value#UNKNOWN} if this expression may be not evaluated in
+     *         batch mode
+     */
+    public int getBatchValueType(TableFilter filter) {
+        return Value.UNKNOWN;
+    }
+
     /**
      * Create index conditions if possible and attach them to the table filter.
      *
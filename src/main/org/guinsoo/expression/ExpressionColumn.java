@@ -298,6 +298,22 @@ public final class ExpressionColumn extends Expression {
         return value;
     }
 
+    @Override
+    public ValueVector getBatchValue(SessionLocal session, RowBatch batch, int[] selection, int count) {
+        return columnResolver == batch.getFilter() ? batch.getVector(column) : null;
+    }
+
+    @Override
+    public int getBatchValueType(TableFilter filter) {
+        if (columnResolver == filter) {
+            int valueType = column.getType().getValueType();
+            if (ValueVector.isSupported(valueType)) {
+                return valueType;
+            }
+        }
+        return Value.UNKNOWN;
+    }
+
     @Override
     public TypeInfo getType() {
         return column == null ? TypeInfo.TYPE_UNKNOWN : column.getType();
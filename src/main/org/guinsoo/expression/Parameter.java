@@ -10,6 +10,7 @@ import org.guinsoo.engine.SessionLocal;
 import org.guinsoo.expression.condition.Comparison;
 import org.guinsoo.message.DbException;
 import org.guinsoo.table.Column;
+import org.guinsoo.table.TableFilter;
 import org.guinsoo.value.TypeInfo;
 import org.guinsoo.value.Value;
 import org.guinsoo.value.ValueNull;
@@ -24,12 +25,39 @@ public final class Parameter extends Operation0 implements ParameterInterface {
     private Column column;
     private final int index;
 
+    /**
+     * Whether this parameter was created for a literal.
+     */
+    private final boolean literal;
+
+    /**
+     * The column compared with the literal, or {@code null}.
+     */
+    private Column comparedColumn;
+
     public Parameter(int index) {
         this.index = index;
+        literal = false;
+    }
+
+    /**
+     * Creates a new parameter for a literal. SQL of this parameter contains
+     * its current value.
+     *
+     * @param index the index of the parameter in the list of literals
+     * @param value the value of the literal
+     */
+    public Parameter(int index, Value value) {
+        this.index = index;
+        this.value = value;
+        literal = true;
     }
 
     @Override
     public StringBuilder getUnenclosedSQL(StringBuilder builder, int sqlFlags) {
+        if (literal) {
+            return getParamValue().getSQL(builder, sqlFlags);
+        }
         return builder.append('?').append(index + 1);
     }
 
@@ -44,6 +72,49 @@ public final class Parameter extends Operation0 implements ParameterInterface {
         this.value = v;
     }
 
+    /**
+     * Sets a new value of a literal. The value is converted in the same way as
+     * a constant compared with a column, if this literal is compared with a
+     * column.
+     *
+     * @param session the session
+     * @param v the value
+     */
+    public void setLiteralValue(SessionLocal session, Value v) {
+        value = comparedColumn != null && v != ValueNull.INSTANCE ? Comparison.convertConstant(session, v,
+                comparedColumn) : v;
+        optimize(session);
+    }
+
+    /**
+     * Sets the column compared with this literal and converts the value.
+     *
+     * @param session the session
+     * @param column the column
+     */
+    public void setComparedColumn(SessionLocal session, Column column) {
+        comparedColumn = column;
+        setLiteralValue(session, value);
+    }
+
+    /**
+     * Returns the column compared with this literal.
+     *
+     * @return the column, or {@code null}
+     */
+    public Column getComparedColumn() {
+        return comparedColumn;
+    }
+
+    /**
+     * Returns whether this parameter was created for a literal.
+     *
+     * @return whether this parameter was created for a literal
+     */
+    public boolean isLiteral() {
+        return literal;
+    }
+
     @Override
     public Value getParamValue() {
         if (value == null) {
@@ -58,6 +129,16 @@ public final class Parameter extends Operation0 implements ParameterInterface {
         return getParamValue();
     }
 
+    @Override
+    public ValueVector getBatchValue(SessionLocal session, RowBatch batch, int[] selection, int count) {
+        return batch.getConstantVector(this, getParamValue());
+    }
+
+    @Override
+    public int getBatchValueType(TableFilter filter) {
+        return ValueVector.getConstantType(getParamValue());
+    }
+
     @Override
     public TypeInfo getType() {
         if (value != null) {
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.expression;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import org.guinsoo.engine.SessionLocal;
+import org.guinsoo.index.Cursor;
+import org.guinsoo.message.DbException;
+import org.guinsoo.result.Row;
+import org.guinsoo.table.Column;
+import org.guinsoo.table.TableFilter;
+import org.guinsoo.value.Value;
+import org.guinsoo.value.ValueBigint;
+
+/**
+ * A batch of rows of a table filter for the batch execution mode.
+ *
+ * <p>
+ * Rows are read from the table filter in batches of up to {@link #CAPACITY}
+ * rows. The condition is evaluated for the whole batch at once with
+ * {@link Expression#getBatchSelection(SessionLocal, RowBatch, int[], int)},
+ * values of columns are decoded into {@link ValueVector}s on demand. Vectors
+ * are allocated once and reused for all batches. Selected
+ * rows are then returned one by one as current rows of the table filter.
+ * </p>
+ *
+ * <p>
+ * A detached batch reads rows from its own cursor and never changes the
+ * current row of the table filter, so detached batches of the same filter may
+ * be used from different threads. Conditions that can't be evaluated without
+ * the current row aren't allowed in detached batches, see
+ * {@link Expression#isBatchSelectable(TableFilter)}.
+ * </p>
+ */
+public final class RowBatch {
+
+    /**
+     * The maximum number of rows in a batch.
+     */
+    public static final int CAPACITY = 1024;
+
+    private final SessionLocal session;
+
+    private final TableFilter filter;
+
+    private final Expression condition;
+
+    private final boolean detached;
+
+    private final Row[] rows = new Row[CAPACITY];
+
+    private final int[] selection = new int[CAPACITY];
+
+    private final HashMap<Column, ValueVector> vectors = new HashMap<>();
+
+    private final IdentityHashMap<Expression, ValueVector> results = new IdentityHashMap<>();
+
+    private int batchId;
+
+    private int size;
+
+    private int selectionCount;
+
+    private int position;
+
+    /**
+     * Creates a new row batch.
+     *
+     * @param session
+     *            the session
+     * @param filter
+     *            the table filter without joins
+     * @param condition
+     *            the condition
+     */
+    public RowBatch(SessionLocal session, TableFilter filter, Expression condition) {
+        this(session, filter, condition, false);
+    }
+
+    /**
+     * Creates a new row batch.
+     *
+     * @param session
+     *            the session
+     * @param filter
+     *            the table filter without joins
+     * @param condition
+     *            the condition, or {@code null}
+     * @param detached
+     *            whether rows are read with {@link #fill(Cursor)} and the
+     *            current row of the table filter may not be used
+     */
+    public RowBatch(SessionLocal session, TableFilter filter, Expression condition, boolean detached) {
+        this.session = session;
+        this.filter = filter;
+        this.condition = condition;
+        this.detached = detached;
+    }
+
+    /**
+     * Moves to the next row that meets the condition and sets it as the
+     * current row of the table filter.
+     *
+     * @return {@code true} if a row was found, {@code false} if there are no
+     *         more rows
+     */
+    public boolean next() {
+        while (position >= selectionCount) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        setCurrent(selection[position++]);
+        return true;
+    }
+
+    private boolean fill() {
+        int count = 0;
+        Row[] rows = this.rows;
+        while (count < CAPACITY && filter.next()) {
+            rows[count++] = filter.get();
+        }
+        return select(count);
+    }
+
+    /**
+     * Reads the next rows from the specified cursor and evaluates the
+     * condition for them. Selected rows may be retrieved with
+     * {@link #getSelectedRow(int)}.
+     *
+     * @param cursor
+     *            the cursor
+     * @return {@code true} if some rows were read, {@code false} if there are
+     *         no more rows
+     */
+    public boolean fill(Cursor cursor) {
+        int count = 0;
+        Row[] rows = this.rows;
+        while (count < CAPACITY && cursor.next()) {
+            rows[count++] = cursor.get();
+        }
+        return select(count);
+    }
+
+    private boolean select(int count) {
+        Row[] rows = this.rows;
+        for (int i = count; i < size; i++) {
+            rows[i] = null;
+        }
+        size = count;
+        batchId++;
+        position = 0;
+        if (count == 0) {
+            selectionCount = 0;
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            selection[i] = i;
+        }
+        selectionCount = condition != null ? condition.getBatchSelection(session, this, selection, count) : count;
+        return true;
+    }
+
+    /**
+     * Returns the number of selected rows in the current batch.
+     *
+     * @return the number of selected rows
+     */
+    public int getSelectionCount() {
+        return selectionCount;
+    }
+
+    /**
+     * Returns the selected row with the specified index.
+     *
+     * @param index
+     *            the index of the selected row, 0-based
+     * @return the row
+     */
+    public Row getSelectedRow(int index) {
+        return rows[selection[index]];
+    }
+
+    /**
+     * Discards the rows of the current batch.
+     */
+    public void reset() {
+        for (int i = 0; i < size; i++) {
+            rows[i] = null;
+        }
+        size = 0;
+        selectionCount = 0;
+        position = 0;
+    }
+
+    /**
+     * Returns the table filter.
+     *
+     * @return the table filter
+     */
+    public TableFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the row with the specified index as the current row of the table
+     * filter.
+     *
+     * @param index
+     *            the index of the row in this batch
+     */
+    public void setCurrent(int index) {
+        checkRowMode();
+        filter.set(rows[index]);
+    }
+
+    /**
+     * Checks whether rows of this batch may be evaluated one by one as current
+     * rows of the table filter. Must be called by expressions before the
+     * evaluation in row mode.
+     */
+    public void checkRowMode() {
+        if (detached) {
+            throw DbException.getInternalError("row mode in detached batch");
+        }
+    }
+
+    /**
+     * Returns values of the specified column for all rows of this batch.
+     *
+     * @param column
+     *            the column of the table filter
+     * @return the vector, or {@code null} if data type of the column is not
+     *         supported
+     */
+    public ValueVector getVector(Column column) {
+        int valueType = column.getType().getValueType();
+        if (!ValueVector.isSupported(valueType)) {
+            return null;
+        }
+        ValueVector vector = vectors.get(column);
+        if (vector == null) {
+            vector = new ValueVector(valueType, CAPACITY);
+            vectors.put(column, vector);
+        } else if (vector.batchId == batchId) {
+            return vector;
+        }
+        int columnId = column.getColumnId();
+        Row[] rows = this.rows;
+        for (int i = 0, l = size; i < l; i++) {
+            Row row = rows[i];
+            vector.set(i, columnId >= 0 ? row.getValue(columnId) : ValueBigint.get(row.getKey()));
+        }
+        vector.batchId = batchId;
+        return vector;
+    }
+
+    /**
+     * Returns the vector for values of the specified expression. The same
+     * vector is returned for all batches, so the expression must set all
+     * selected elements, including their null flags.
+     *
+     * @param expression
+     *            the expression
+     * @param valueType
+     *            the data type of values, must be supported
+     * @return the vector
+     */
+    public ValueVector getResultVector(Expression expression, int valueType) {
+        ValueVector vector = results.get(expression);
+        if (vector == null || vector.getValueType() != valueType || vector.constant != null) {
+            vector = new ValueVector(valueType, CAPACITY);
+            results.put(expression, vector);
+        }
+        return vector;
+    }
+
+    /**
+     * Returns a vector with the same value of the specified expression for
+     * all rows. The vector is reused while the value is the same.
+     *
+     * @param expression
+     *            the expression
+     * @param value
+     *            the value
+     * @return the vector, or {@code null} if data type of the value is not
+     *         supported
+     */
+    public ValueVector getConstantVector(Expression expression, Value value) {
+        ValueVector vector = results.get(expression);
+        if (vector == null || !value.equals(vector.constant)) {
+            vector = ValueVector.getConstant(value);
+            if (vector != null) {
+                results.put(expression, vector);
+            }
+        }
+        return vector;
+    }
+
+}
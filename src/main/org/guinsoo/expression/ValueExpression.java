@@ -120,6 +120,11 @@ public class ValueExpression extends Operation0 {
         return true;
     }
 
+    @Override
+    public int getBatchValueType(TableFilter filter) {
+        return ValueVector.getConstantType(value);
+    }
+
     @Override
     public boolean isNullConstant() {
         return this == NULL;
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.expression;
+
+import java.util.Arrays;
+
+import org.guinsoo.value.Value;
+import org.guinsoo.value.ValueNull;
+
+/**
+ * Values of an expression for all rows of a {@link RowBatch}, stored in
+ * primitive arrays.
+ *
+ * <p>
+ * BOOLEAN, TINYINT, SMALLINT, INTEGER and BIGINT values are stored as longs,
+ * DOUBLE values are stored as doubles. Only the elements of the selected rows
+ * of a batch are valid.
+ * </p>
+ */
+public final class ValueVector {
+
+    private final int valueType;
+
+    private final long[] longs;
+
+    private final double[] doubles;
+
+    private final boolean[] nulls;
+
+    /**
+     * Batch for which this vector was filled, used by {@link RowBatch}.
+     */
+    int batchId = -1;
+
+    /**
+     * The value of all rows of a constant vector, or {@code null}.
+     */
+    Value constant;
+
+    /**
+     * Creates a new vector.
+     *
+     * @param valueType
+     *            the data type, must be supported
+     * @param capacity
+     *            the number of elements
+     * @see #isSupported(int)
+     */
+    public ValueVector(int valueType, int capacity) {
+        this.valueType = valueType;
+        if (valueType == Value.DOUBLE) {
+            longs = null;
+            doubles = new double[capacity];
+        } else {
+            longs = new long[capacity];
+            doubles = null;
+        }
+        nulls = new boolean[capacity];
+    }
+
+    /**
+     * Returns whether values of the specified data type can be stored in a
+     * vector.
+     *
+     * @param valueType
+     *            the data type
+     * @return whether values of this type can be stored
+     */
+    public static boolean isSupported(int valueType) {
+        switch (valueType) {
+        case Value.BOOLEAN:
+        case Value.TINYINT:
+        case Value.SMALLINT:
+        case Value.INTEGER:
+        case Value.BIGINT:
+        case Value.DOUBLE:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Returns the data type of a vector with the specified value for all
+     * rows.
+     *
+     * @param value
+     *            the value
+     * @return the data type, or {@link Value#UNKNOWN} if the value can't be
+     *         stored in a vector
+     * @see #getConstant(Value)
+     */
+    public static int getConstantType(Value value) {
+        int valueType = value.getValueType();
+        return value == ValueNull.INSTANCE || !isSupported(valueType) ? Value.UNKNOWN : valueType;
+    }
+
+    /**
+     * Creates a vector with the same value for all rows.
+     *
+     * @param value
+     *            the value
+     * @return the vector, or {@code null} if data type of the value is not
+     *         supported
+     */
+    public static ValueVector getConstant(Value value) {
+        int valueType = getConstantType(value);
+        if (valueType == Value.UNKNOWN) {
+            return null;
+        }
+        ValueVector vector = new ValueVector(valueType, RowBatch.CAPACITY);
+        if (valueType == Value.DOUBLE) {
+            Arrays.fill(vector.doubles, value.getDouble());
+        } else {
+            Arrays.fill(vector.longs, valueType == Value.BOOLEAN ? (value.getBoolean() ? 1L : 0L) : value.getLong());
+        }
+        vector.constant = value;
+        return vector;
+    }
+
+    /**
+     * Set the value of the specified element.
+     *
+     * @param index
+     *            the index of the element
+     * @param value
+     *            the value
+     */
+    void set(int index, Value value) {
+        if (value == ValueNull.INSTANCE) {
+            nulls[index] = true;
+            return;
+        }
+        nulls[index] = false;
+        switch (valueType) {
+        case Value.DOUBLE:
+            doubles[index] = value.getDouble();
+            break;
+        case Value.BOOLEAN:
+            longs[index] = value.getBoolean() ? 1L : 0L;
+            break;
+        default:
+            longs[index] = value.getLong();
+        }
+    }
+
+    /**
+     * Returns the data type of values.
+     *
+     * @return the data type
+     */
+    public int getValueType() {
+        return valueType;
+    }
+
+    /**
+     * Returns whether values are stored as doubles.
+     *
+     * @return {@code true} for doubles, {@code false} for longs
+     */
+    public boolean isDouble() {
+        return doubles != null;
+    }
+
+    /**
+     * Returns whether values of this vector can be compared with values of
+     * another vector without conversion to a different data type.
+     *
+     * @param other
+     *            the other vector
+     * @return whether values are comparable
+     */
+    public boolean isComparable(ValueVector other) {
+        return isComparable(valueType, other.valueType);
+    }
+
+    /**
+     * Returns whether vectors of the specified data types can be compared
+     * with each other.
+     *
+     * @param valueType
+     *            the data type of the first vector
+     * @param otherType
+     *            the data type of the second vector
+     * @return whether vectors can be compared
+     */
+    public static boolean isComparable(int valueType, int otherType) {
+        if (valueType == Value.BOOLEAN || otherType == Value.BOOLEAN) {
+            return valueType == otherType;
+        }
+        return (valueType == Value.DOUBLE) == (otherType == Value.DOUBLE);
+    }
+
+    /**
+     * Returns the array with long values.
+     *
+     * @return the array with long values, or {@code null}
+     */
+    public long[] getLongs() {
+        return longs;
+    }
+
+    /**
+     * Returns the array with double values.
+     *
+     * @return the array with double values, or {@code null}
+     */
+    public double[] getDoubles() {
+        return doubles;
+    }
+
+    /**
+     * Returns the array with flags of NULL values.
+     *
+     * @return the array with flags of NULL values
+     */
+    public boolean[] getNulls() {
+        return nulls;
+    }
+
+}
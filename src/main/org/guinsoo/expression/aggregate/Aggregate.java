@@ -19,6 +19,7 @@ import java.util.TreeMap;
 import org.guinsoo.api.ErrorCode;
 import org.guinsoo.command.query.QueryOrderBy;
 import org.guinsoo.command.query.Select;
+import org.guinsoo.command.query.SelectGroups;
 import org.guinsoo.engine.Constants;
 import org.guinsoo.engine.Database;
 import org.guinsoo.engine.SessionLocal;
@@ -358,6 +359,109 @@ public class Aggregate extends AbstractAggregate implements ExpressionWithFlags
         return AggregateData.create(aggregateType, distinct, type, orderByList != null, flags);
     }
 
+    /**
+     * Returns whether this aggregate can be computed from partial results for
+     * different sets of rows of the specified table filter. Partial results
+     * are computed without the current row of the table filter, so argument
+     * of such aggregate must be a column of this table filter.
+     *
+     * @param filter
+     *            the table filter
+     * @return whether partial results of this aggregate can be merged
+     * @see #createPartialData()
+     */
+    public boolean isMergeable(TableFilter filter) {
+        if (filterCondition != null || over != null || orderByList != null) {
+            return false;
+        }
+        switch (aggregateType) {
+        case COUNT_ALL:
+            return true;
+        case COUNT:
+        case SUM:
+        case AVG:
+        case STDDEV_POP:
+        case STDDEV_SAMP:
+        case VAR_POP:
+        case VAR_SAMP:
+        case BIT_XOR_AGG:
+        case BIT_XNOR_AGG:
+            if (distinct) {
+                return false;
+            }
+            break;
+        case MIN:
+        case MAX:
+        case EVERY:
+        case ANY:
+        case BIT_AND_AGG:
+        case BIT_OR_AGG:
+        case BIT_NAND_AGG:
+        case BIT_NOR_AGG:
+            break;
+        default:
+            return false;
+        }
+        Expression arg = args[0];
+        if (!(arg instanceof ExpressionColumn) || ((ExpressionColumn) arg).getTableFilter() != filter) {
+            return false;
+        }
+        // character strings are compared with a collator
+        int valueType = arg.getType().getValueType();
+        return aggregateType == AggregateType.COUNT || valueType == Value.BOOLEAN
+                || DataType.isNumericType(valueType) || DataType.isDateTimeType(valueType);
+    }
+
+    /**
+     * Creates data for a partial result of this aggregate.
+     *
+     * @return the new data
+     * @see #isMergeable(TableFilter)
+     */
+    public Object createPartialData() {
+        return createAggregateData();
+    }
+
+    /**
+     * Adds a value of the argument to a partial result.
+     *
+     * @param session
+     *            the session
+     * @param data
+     *            the data of the partial result
+     * @param v
+     *            the value of the argument, ignored by {@code COUNT(*)}
+     */
+    public void addPartialValue(SessionLocal session, Object data, Value v) {
+        ((AggregateData) data).add(session, v);
+    }
+
+    /**
+     * Merges a partial result into another one.
+     *
+     * @param session
+     *            the session
+     * @param data
+     *            the data of the partial result to update
+     * @param other
+     *            the data of the other partial result
+     */
+    public void mergePartialData(SessionLocal session, Object data, Object other) {
+        ((AggregateData) data).merge(session, (AggregateData) other);
+    }
+
+    /**
+     * Sets the merged data of this aggregate for the current group.
+     *
+     * @param groupData
+     *            the group data
+     * @param data
+     *            the merged data of all partial results
+     */
+    public void setGroupData(SelectGroups groupData, Object data) {
+        groupData.setCurrentGroupExprData(this, data);
+    }
+
     @Override
     public Value getValue(SessionLocal session) {
         return select.isQuickAggregateQuery() ? getValueQuick(session) : super.getValue(session);
@@ -100,6 +100,17 @@ abstract class AggregateData {
      */
     abstract void add(SessionLocal session, Value v);
 
+    /**
+     * Merge the data of another aggregate of the same type into this
+     * aggregate.
+     *
+     * @param session the session
+     * @param other the data computed for other rows
+     */
+    void merge(SessionLocal session, AggregateData other) {
+        throw DbException.getInternalError(getClass().getName());
+    }
+
     /**
      * Get the aggregate result.
      *
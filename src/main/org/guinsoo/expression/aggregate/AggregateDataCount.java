@@ -30,6 +30,11 @@ class AggregateDataCount extends AggregateData {
         }
     }
 
+    @Override
+    void merge(SessionLocal session, AggregateData other) {
+        count += ((AggregateDataCount) other).count;
+    }
+
     @Override
     Value getValue(SessionLocal session) {
         return ValueBigint.get(count);
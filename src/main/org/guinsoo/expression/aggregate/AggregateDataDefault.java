@@ -132,6 +132,38 @@ class AggregateDataDefault extends AggregateData {
         }
     }
 
+    @Override
+    void merge(SessionLocal session, AggregateData other) {
+        AggregateDataDefault d = (AggregateDataDefault) other;
+        long n = d.count;
+        if (n == 0) {
+            return;
+        }
+        switch (aggregateType) {
+        case STDDEV_POP:
+        case STDDEV_SAMP:
+        case VAR_POP:
+        case VAR_SAMP:
+            if (count == 0) {
+                mean = d.mean;
+                m2 = d.m2;
+            } else {
+                // Pairwise algorithm of Chan et al., see also
+                // https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance
+                long total = count + n;
+                double delta = d.mean - mean;
+                mean += delta * n / total;
+                m2 += d.m2 + delta * delta * count * n / total;
+            }
+            count += n;
+            break;
+        default:
+            // the partial value is combined in the same way as a single value
+            add(session, d.value);
+            count += n - 1;
+        }
+    }
+
     @Override
     Value getValue(SessionLocal session) {
         Value v = null;
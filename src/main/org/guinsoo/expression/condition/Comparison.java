@@ -21,8 +21,10 @@ import org.guinsoo.expression.Expression;
 import org.guinsoo.expression.ExpressionColumn;
 import org.guinsoo.expression.ExpressionVisitor;
 import org.guinsoo.expression.Parameter;
+import org.guinsoo.expression.RowBatch;
 import org.guinsoo.expression.TypedValueExpression;
 import org.guinsoo.expression.ValueExpression;
+import org.guinsoo.expression.ValueVector;
 import org.guinsoo.expression.aggregate.Aggregate;
 import org.guinsoo.expression.aggregate.AggregateType;
 
@@ -158,20 +160,17 @@ public final class Comparison extends Condition {
                         return TypedValueExpression.UNKNOWN;
                     }
                 }
-                TypeInfo colType = left.getType(), constType = r.getType();
-                int constValueType = constType.getValueType();
-                if (constValueType != colType.getValueType() || constValueType >= Value.ARRAY) {
-                    TypeInfo resType = TypeInfo.getHigherType(colType, constType);
-                    // If not, the column values will need to be promoted
-                    // to constant type, but vise versa, then let's do this here
-                    // once.
-                    if (constValueType != resType.getValueType() || constValueType >= Value.ARRAY) {
-                        Column column = ((ExpressionColumn) left).getColumn();
-                        right = ValueExpression.get(r.convertTo(resType, session, column));
-                    }
+                Value c = convertConstant(session, r, ((ExpressionColumn) left).getColumn());
+                if (c != r) {
+                    right = ValueExpression.get(c);
                 }
             } else if (right instanceof Parameter) {
-                ((Parameter) right).setColumn(((ExpressionColumn) left).getColumn());
+                Parameter p = (Parameter) right;
+                Column column = ((ExpressionColumn) left).getColumn();
+                p.setColumn(column);
+                if (p.isLiteral()) {
+                    p.setComparedColumn(session, column);
+                }
             }
         }
         if (left.isConstant() && right.isConstant()) {
@@ -193,6 +192,32 @@ public final class Comparison extends Condition {
         return this;
     }
 
+    /**
+     * Converts a constant compared with a column to the data type of the
+     * comparison if the column values would need to be converted to the data
+     * type of the constant otherwise.
+     *
+     * @param session the session
+     * @param r the value of the constant
+     * @param column the column
+     * @return the converted value, or the same value if conversion isn't
+     *         needed
+     */
+    public static Value convertConstant(SessionLocal session, Value r, Column column) {
+        TypeInfo colType = column.getType(), constType = r.getType();
+        int constValueType = constType.getValueType();
+        if (constValueType != colType.getValueType() || constValueType >= Value.ARRAY) {
+            TypeInfo resType = TypeInfo.getHigherType(colType, constType);
+            // If not, the column values will need to be promoted
+            // to constant type, but vise versa, then let's do this here
+            // once.
+            if (constValueType != resType.getValueType() || constValueType >= Value.ARRAY) {
+                return r.convertTo(resType, session, column);
+            }
+        }
+        return r;
+    }
+
     @Override
     public Value getValue(SessionLocal session) {
         Value l = left.getValue(session);
@@ -215,6 +240,81 @@ public final class Comparison extends Condition {
         return compare(session, left, right.getValue(session), compareType).getBoolean();
     }
 
+    @Override
+    public int getBatchSelection(SessionLocal session, RowBatch batch, int[] selection, int count) {
+        if (compareType <= NOT_EQUAL_NULL_SAFE && !whenOperand) {
+            ValueVector l = left.getBatchValue(session, batch, selection, count);
+            if (l != null) {
+                ValueVector r = right.getBatchValue(session, batch, selection, count);
+                if (r != null && l.isComparable(r)) {
+                    return getBatchSelection(l, r, selection, count);
+                }
+            }
+        }
+        return super.getBatchSelection(session, batch, selection, count);
+    }
+
+    @Override
+    public boolean isBatchSelectable(TableFilter filter) {
+        if (compareType > NOT_EQUAL_NULL_SAFE || whenOperand) {
+            return false;
+        }
+        int l = left.getBatchValueType(filter), r = right.getBatchValueType(filter);
+        return l != Value.UNKNOWN && r != Value.UNKNOWN && ValueVector.isComparable(l, r);
+    }
+
+    private int getBatchSelection(ValueVector l, ValueVector r, int[] selection, int count) {
+        boolean[] leftNulls = l.getNulls(), rightNulls = r.getNulls();
+        long[] leftLongs = l.getLongs(), rightLongs = r.getLongs();
+        double[] leftDoubles = l.getDoubles(), rightDoubles = r.getDoubles();
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int index = selection[i];
+            boolean leftNull = leftNulls[index], rightNull = rightNulls[index];
+            boolean result;
+            if (leftNull || rightNull) {
+                switch (compareType) {
+                case EQUAL_NULL_SAFE:
+                    result = leftNull && rightNull;
+                    break;
+                case NOT_EQUAL_NULL_SAFE:
+                    result = leftNull != rightNull;
+                    break;
+                default:
+                    result = false;
+                }
+            } else {
+                int cmp = leftLongs != null ? Long.compare(leftLongs[index], rightLongs[index])
+                        : Double.compare(leftDoubles[index], rightDoubles[index]);
+                switch (compareType) {
+                case EQUAL:
+                case EQUAL_NULL_SAFE:
+                    result = cmp == 0;
+                    break;
+                case NOT_EQUAL:
+                case NOT_EQUAL_NULL_SAFE:
+                    result = cmp != 0;
+                    break;
+                case SMALLER:
+                    result = cmp < 0;
+                    break;
+                case BIGGER:
+                    result = cmp > 0;
+                    break;
+                case SMALLER_EQUAL:
+                    result = cmp <= 0;
+                    break;
+                default:
+                    result = cmp >= 0;
+                }
+            }
+            if (result) {
+                selection[n++] = index;
+            }
+        }
+        return n;
+    }
+
     /**
      * Compare two values.
      *
@@ -224,7 +324,7 @@ public final class Comparison extends Condition {
      * @param compareType the compare type
      * @return result of comparison, either TRUE, FALSE, or NULL
      */
-    static Value compare(SessionLocal session, Value l, Value r, int compareType) {
+    public static Value compare(SessionLocal session, Value l, Value r, int compareType) {
         Value result;
         switch (compareType) {
         case EQUAL: {
@@ -5,9 +5,13 @@
  */
 package org.guinsoo.expression.condition;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.guinsoo.engine.SessionLocal;
 import org.guinsoo.expression.Expression;
 import org.guinsoo.expression.ExpressionVisitor;
+import org.guinsoo.expression.RowBatch;
 import org.guinsoo.expression.TypedValueExpression;
 import org.guinsoo.expression.ValueExpression;
 import org.guinsoo.message.DbException;
@@ -138,6 +142,68 @@ public class ConditionAndOr extends Condition {
         }
     }
 
+    @Override
+    public int getBatchSelection(SessionLocal session, RowBatch batch, int[] selection, int count) {
+        if (andOrType == AND) {
+            count = left.getBatchSelection(session, batch, selection, count);
+            return count > 0 ? right.getBatchSelection(session, batch, selection, count) : 0;
+        }
+        return getBatchSelectionOr(session, batch, selection, count, Arrays.asList(left, right));
+    }
+
+    @Override
+    public boolean isBatchSelectable(TableFilter filter) {
+        return left.isBatchSelectable(filter) && right.isBatchSelectable(filter);
+    }
+
+    /**
+     * Evaluate an OR condition for the selected rows of a batch.
+     *
+     * @param session the session
+     * @param batch the batch of rows
+     * @param selection the indexes of the selected rows, updated in place
+     * @param count the number of the selected rows
+     * @param expressions the operands of the OR condition
+     * @return the new number of the selected rows
+     */
+    static int getBatchSelectionOr(SessionLocal session, RowBatch batch, int[] selection, int count,
+            List<Expression> expressions) {
+        boolean[] found = new boolean[RowBatch.CAPACITY];
+        int[] remaining = Arrays.copyOf(selection, count);
+        int remainingCount = count;
+        for (Expression e : expressions) {
+            if (remainingCount == 0) {
+                break;
+            }
+            // each operand is evaluated only for rows not selected by the
+            // previous operands
+            int[] candidates = Arrays.copyOf(remaining, remainingCount);
+            int n = e.getBatchSelection(session, batch, candidates, remainingCount);
+            if (n == 0) {
+                continue;
+            }
+            for (int i = 0; i < n; i++) {
+                found[candidates[i]] = true;
+            }
+            int m = 0;
+            for (int i = 0; i < remainingCount; i++) {
+                int index = remaining[i];
+                if (!found[index]) {
+                    remaining[m++] = index;
+                }
+            }
+            remainingCount = m;
+        }
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int index = selection[i];
+            if (found[index]) {
+                selection[n++] = index;
+            }
+        }
+        return n;
+    }
+
     @Override
     public Expression optimize(SessionLocal session) {
         // NULL handling: see wikipedia,
@@ -14,6 +14,7 @@ import java.util.List;
 import org.guinsoo.engine.SessionLocal;
 import org.guinsoo.expression.Expression;
 import org.guinsoo.expression.ExpressionVisitor;
+import org.guinsoo.expression.RowBatch;
 import org.guinsoo.message.DbException;
 import org.guinsoo.table.ColumnResolver;
 import org.guinsoo.table.TableFilter;
@@ -151,6 +152,30 @@ public class ConditionAndOrN extends Condition {
         }
     }
 
+    @Override
+    public int getBatchSelection(SessionLocal session, RowBatch batch, int[] selection, int count) {
+        if (andOrType == ConditionAndOr.AND) {
+            for (Expression e : expressions) {
+                if (count == 0) {
+                    break;
+                }
+                count = e.getBatchSelection(session, batch, selection, count);
+            }
+            return count;
+        }
+        return ConditionAndOr.getBatchSelectionOr(session, batch, selection, count, expressions);
+    }
+
+    @Override
+    public boolean isBatchSelectable(TableFilter filter) {
+        for (Expression e : expressions) {
+            if (!e.isBatchSelectable(filter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static final Comparator<Expression> COMPARE_BY_COST = new Comparator<Expression>() {
         @Override
         public int compare(Expression lhs, Expression rhs) {
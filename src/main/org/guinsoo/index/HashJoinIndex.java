@@ -0,0 +1,473 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.guinsoo.command.query.AllColumnsForPlan;
+import org.guinsoo.engine.Constants;
+import org.guinsoo.engine.SessionLocal;
+import org.guinsoo.expression.condition.Comparison;
+import org.guinsoo.message.DbException;
+import org.guinsoo.mvstore.db.MVTempPartitionStore;
+import org.guinsoo.result.Row;
+import org.guinsoo.result.SearchRow;
+import org.guinsoo.result.SortOrder;
+import org.guinsoo.table.Column;
+import org.guinsoo.table.IndexColumn;
+import org.guinsoo.table.Table;
+import org.guinsoo.table.TableFilter;
+import org.guinsoo.value.TypeInfo;
+import org.guinsoo.value.Value;
+import org.guinsoo.value.ValueBigint;
+import org.guinsoo.value.ValueBoolean;
+import org.guinsoo.value.ValueNull;
+import org.guinsoo.value.ValueRow;
+
+/**
+ * An index that is built on demand for the inner table of an equi-join.
+ *
+ * <p>
+ * On the first lookup of a query execution the rows of the table are read
+ * and placed into a hash table keyed by the join columns (build phase). Each
+ * lookup from the outer table is then a single hash probe instead of a full
+ * table scan (probe phase).
+ * </p>
+ * <p>
+ * Conditions that need only this table, such as comparisons with constants
+ * or parameters, are applied in the build phase. They are used to read the
+ * rows with an index where possible, and rows that don't match them are not
+ * placed into the hash table.
+ * </p>
+ * <p>
+ * The hash table is split into partitions. If the build side has more rows
+ * than allowed by {@code MAX_MEMORY_ROWS}, the biggest partitions are moved
+ * to a temporary file and are probed from there.
+ * </p>
+ * <p>
+ * This index may return rows which do not match the join condition exactly,
+ * the join condition is always evaluated for the returned rows.
+ * </p>
+ */
+public class HashJoinIndex extends Index {
+
+    private static final int PARTITIONS = 16;
+
+    /**
+     * The cost of hashing a row in the build phase, about the cost of reading
+     * it.
+     */
+    private static final int HASH_ROW_COST = 10;
+
+    private final Index buildIndex;
+
+    private final ArrayList<IndexCondition> buildConditions;
+
+    /**
+     * The build conditions on columns of the build index.
+     */
+    private final ArrayList<IndexCondition> buildIndexConditions;
+
+    private final int[] keyColumnIds;
+
+    private ArrayList<HashMap<Value, ArrayList<Row>>> partitions;
+
+    private int[] partitionRows;
+
+    private int memoryRows;
+
+    private MVTempPartitionStore spill;
+
+    /**
+     * Create a new hash join index.
+     *
+     * @param table the table
+     * @param buildIndex the index used to read the rows of the table
+     * @param buildConditions the conditions that need only this table
+     * @param keyColumns the join columns
+     */
+    public HashJoinIndex(Table table, Index buildIndex, ArrayList<IndexCondition> buildConditions,
+            Column[] keyColumns) {
+        super(table, 0, "HASH_JOIN", IndexColumn.wrap(keyColumns), IndexType.createNonUnique(false));
+        this.buildIndex = buildIndex;
+        this.buildConditions = buildConditions;
+        buildIndexConditions = new ArrayList<>(buildConditions.size());
+        for (IndexCondition condition : buildConditions) {
+            if (buildIndex.getColumnIndex(condition.getColumn()) >= 0) {
+                buildIndexConditions.add(condition);
+            }
+        }
+        int len = keyColumns.length;
+        keyColumnIds = new int[len];
+        for (int i = 0; i < len; i++) {
+            keyColumnIds[i] = keyColumns[i].getColumnId();
+        }
+    }
+
+    /**
+     * Estimate the cost of a lookup in the hash table.
+     *
+     * @param session the session
+     * @return the estimated cost per lookup
+     */
+    public double getProbeCost(SessionLocal session) {
+        long rowCount = table.getRowCountApproximation(session) + Constants.COST_ROW_OFFSET;
+        int totalSelectivity = 0;
+        for (Column column : columns) {
+            totalSelectivity = 100 - ((100 - totalSelectivity) * (100 - column.getSelectivity()) / 100);
+        }
+        long distinctRows = Math.max(rowCount * totalSelectivity / 100, 1);
+        // a probe is estimated like a lookup in a non-covering secondary index,
+        // so existing indexes are preferred
+        long rowsCost = 2 + Math.max(rowCount / distinctRows, 1);
+        return 10 * (rowsCost + rowsCost + 20);
+    }
+
+    /**
+     * Estimate the cost of building the hash table. The hash table is built
+     * once for each execution of the query.
+     *
+     * @param readCost the cost of reading the rows with the build index
+     * @param buildRows the estimated number of rows that match the build
+     *        conditions
+     * @return the estimated cost
+     */
+    public static double getBuildCost(double readCost, double buildRows) {
+        return readCost + HASH_ROW_COST * buildRows;
+    }
+
+    /**
+     * Get the index used to read the rows of the table.
+     *
+     * @return the build index
+     */
+    public Index getBuildIndex() {
+        return buildIndex;
+    }
+
+    /**
+     * Discard the hash table. The next lookup reads the table again.
+     */
+    public void reset() {
+        partitions = null;
+        partitionRows = null;
+        memoryRows = 0;
+        if (spill != null) {
+            spill.close();
+            spill = null;
+        }
+    }
+
+    private void build(SessionLocal session) {
+        partitions = new ArrayList<>(PARTITIONS);
+        partitionRows = new int[PARTITIONS];
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions.add(new HashMap<>());
+        }
+        int maxMemoryRows = database.getMaxMemoryRows();
+        Value[][] bounds = getBounds(session);
+        Cursor cursor = openBuildCursor(session);
+        int count = 0;
+        while (cursor.next()) {
+            if ((++count & 4095) == 0) {
+                session.checkCanceled();
+            }
+            Row row = cursor.get();
+            if (!isBuildRow(session, row, bounds)) {
+                continue;
+            }
+            Value key = getKey(row);
+            int partition = getPartition(key);
+            HashMap<Value, ArrayList<Row>> map = partitions.get(partition);
+            if (map == null) {
+                spill.put(partition, getKeyValues(key), getStoredValues(row));
+            } else {
+                map.computeIfAbsent(key, k -> new ArrayList<>(1)).add(row);
+                partitionRows[partition]++;
+                if (++memoryRows > maxMemoryRows) {
+                    spillLargestPartition();
+                }
+            }
+        }
+    }
+
+    private Cursor openBuildCursor(SessionLocal session) {
+        IndexCursor cursor = new IndexCursor();
+        cursor.setIndex(buildIndex);
+        cursor.find(session, buildIndexConditions);
+        return cursor;
+    }
+
+    /**
+     * Evaluate the build conditions. The cursor of the build index may return
+     * rows which do not match them.
+     *
+     * @param session the session
+     * @return the value of each simple comparison or the sorted values of each
+     *         IN list, or {@code null} for other conditions
+     */
+    private Value[][] getBounds(SessionLocal session) {
+        int len = buildConditions.size();
+        Value[][] bounds = new Value[len][];
+        for (int i = 0; i < len; i++) {
+            IndexCondition condition = buildConditions.get(i);
+            switch (condition.getCompareType()) {
+            case Comparison.EQUAL:
+            case Comparison.EQUAL_NULL_SAFE:
+            case Comparison.BIGGER:
+            case Comparison.BIGGER_EQUAL:
+            case Comparison.SMALLER:
+            case Comparison.SMALLER_EQUAL:
+                bounds[i] = new Value[] { condition.getCurrentValue(session) };
+                break;
+            case Comparison.IN_LIST:
+                bounds[i] = condition.getCurrentValueList(session);
+                break;
+            default:
+            }
+        }
+        return bounds;
+    }
+
+    private boolean isBuildRow(SessionLocal session, Row row, Value[][] bounds) {
+        for (int i = 0, len = bounds.length; i < len; i++) {
+            Value[] b = bounds[i];
+            if (b == null) {
+                continue;
+            }
+            IndexCondition condition = buildConditions.get(i);
+            Value v = row.getValue(condition.getColumn().getColumnId());
+            int compareType = condition.getCompareType();
+            if (compareType == Comparison.IN_LIST) {
+                if (v == ValueNull.INSTANCE || Arrays.binarySearch(b, v, database.getCompareMode()) < 0) {
+                    return false;
+                }
+            } else if (Comparison.compare(session, v, b[0], compareType) != ValueBoolean.TRUE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void spillLargestPartition() {
+        int largest = -1;
+        for (int i = 0; i < PARTITIONS; i++) {
+            if (partitions.get(i) != null && (largest < 0 || partitionRows[i] > partitionRows[largest])) {
+                largest = i;
+            }
+        }
+        if (spill == null) {
+            Column[] tableColumns = table.getColumns();
+            int len = tableColumns.length;
+            TypeInfo[] valueTypes = new TypeInfo[len + 1];
+            for (int i = 0; i < len; i++) {
+                valueTypes[i] = tableColumns[i].getType();
+            }
+            valueTypes[len] = TypeInfo.TYPE_BIGINT;
+            TypeInfo[] keyTypes = new TypeInfo[columns.length];
+            for (int i = 0; i < keyTypes.length; i++) {
+                keyTypes[i] = columns[i].getType();
+            }
+            spill = new MVTempPartitionStore(database, keyTypes, valueTypes, PARTITIONS);
+        }
+        for (ArrayList<Row> rows : partitions.get(largest).values()) {
+            for (Row row : rows) {
+                spill.put(largest, getKeyValues(getKey(row)), getStoredValues(row));
+            }
+        }
+        partitions.set(largest, null);
+        memoryRows -= partitionRows[largest];
+    }
+
+    private Value getKey(SearchRow row) {
+        int len = keyColumnIds.length;
+        if (len == 1) {
+            return row.getValue(keyColumnIds[0]);
+        }
+        Value[] values = new Value[len];
+        for (int i = 0; i < len; i++) {
+            values[i] = row.getValue(keyColumnIds[i]);
+        }
+        return ValueRow.get(values);
+    }
+
+    private Value[] getKeyValues(Value key) {
+        return keyColumnIds.length == 1 ? new Value[] { key } : ((ValueRow) key).getList();
+    }
+
+    private static Value[] getStoredValues(Row row) {
+        int len = row.getColumnCount();
+        Value[] values = new Value[len + 1];
+        for (int i = 0; i < len; i++) {
+            values[i] = row.getValue(i);
+        }
+        values[len] = ValueBigint.get(row.getKey());
+        return values;
+    }
+
+    private static int getPartition(Value key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (PARTITIONS - 1);
+    }
+
+    @Override
+    public Cursor find(SessionLocal session, SearchRow first, SearchRow last) {
+        if (partitions == null) {
+            build(session);
+        }
+        int len = keyColumnIds.length;
+        Value[] values = new Value[len];
+        for (int i = 0; i < len; i++) {
+            int id = keyColumnIds[i];
+            Value v = first != null ? first.getValue(id) : null;
+            if (v == null || last == null || v != last.getValue(id)) {
+                // not an equality lookup, return all rows
+                return new HashJoinCursor(getAllRows(session));
+            }
+            try {
+                values[i] = columns[i].convert(session, v);
+            } catch (DbException e) {
+                // the value can't be equal to any value of this column
+                return new HashJoinCursor(Collections.emptyList());
+            }
+        }
+        Value key = len == 1 ? values[0] : ValueRow.get(values);
+        int partition = getPartition(key);
+        HashMap<Value, ArrayList<Row>> map = partitions.get(partition);
+        if (map != null) {
+            ArrayList<Row> rows = map.get(key);
+            return new HashJoinCursor(rows != null ? rows : Collections.emptyList());
+        }
+        ArrayList<Value[]> spilled = spill.get(partition, values);
+        ArrayList<Row> rows = new ArrayList<>(spilled.size());
+        for (Value[] v : spilled) {
+            rows.add(createRow(v));
+        }
+        return new HashJoinCursor(rows);
+    }
+
+    private ArrayList<Row> getAllRows(SessionLocal session) {
+        ArrayList<Row> rows = new ArrayList<>();
+        Value[][] bounds = getBounds(session);
+        Cursor cursor = openBuildCursor(session);
+        while (cursor.next()) {
+            Row row = cursor.get();
+            if (isBuildRow(session, row, bounds)) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private Row createRow(Value[] stored) {
+        int len = stored.length - 1;
+        Value[] data = new Value[len];
+        System.arraycopy(stored, 0, data, 0, len);
+        return table.createRow(data, SearchRow.MEMORY_CALCULATE, stored[len].getLong());
+    }
+
+    @Override
+    public double getCost(SessionLocal session, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        return getProbeCost(session);
+    }
+
+    @Override
+    public String getPlanSQL() {
+        StringBuilder builder = new StringBuilder();
+        return table.getSQL(builder, TRACE_SQL_FLAGS).append(".hashJoin").toString();
+    }
+
+    @Override
+    public String getCreateSQL() {
+        return null;
+    }
+
+    @Override
+    public void close(SessionLocal session) {
+        reset();
+    }
+
+    @Override
+    public void add(SessionLocal session, Row row) {
+        throw DbException.getUnsupportedException("HASH JOIN");
+    }
+
+    @Override
+    public void remove(SessionLocal session, Row row) {
+        throw DbException.getUnsupportedException("HASH JOIN");
+    }
+
+    @Override
+    public void remove(SessionLocal session) {
+        reset();
+    }
+
+    @Override
+    public void truncate(SessionLocal session) {
+        throw DbException.getUnsupportedException("HASH JOIN");
+    }
+
+    @Override
+    public boolean needRebuild() {
+        return false;
+    }
+
+    @Override
+    public void checkRename() {
+        throw DbException.getUnsupportedException("HASH JOIN");
+    }
+
+    @Override
+    public long getRowCount(SessionLocal session) {
+        return table.getRowCount(session);
+    }
+
+    @Override
+    public long getRowCountApproximation(SessionLocal session) {
+        return table.getRowCountApproximation(session);
+    }
+
+    /**
+     * The cursor over the rows of a single hash bucket.
+     */
+    private static final class HashJoinCursor implements Cursor {
+
+        private final List<Row> rows;
+
+        private int index = -1;
+
+        HashJoinCursor(List<Row> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Row get() {
+            return rows.get(index);
+        }
+
+        @Override
+        public SearchRow getSearchRow() {
+            return get();
+        }
+
+        @Override
+        public boolean next() {
+            return ++index < rows.size();
+        }
+
+        @Override
+        public boolean previous() {
+            throw DbException.getInternalError(toString());
+        }
+
+    }
+
+}
@@ -11,6 +11,9 @@ import org.guinsoo.command.query.AllColumnsForPlan;
 import org.guinsoo.engine.Constants;
 import org.guinsoo.engine.DbObject;
 import org.guinsoo.engine.SessionLocal;
+import org.guinsoo.expression.Expression;
+import org.guinsoo.expression.Parameter;
+import org.guinsoo.expression.condition.Comparison;
 import org.guinsoo.message.DbException;
 import org.guinsoo.message.Trace;
 import org.guinsoo.result.Row;
@@ -19,6 +22,7 @@ import org.guinsoo.result.SearchRow;
 import org.guinsoo.result.SortOrder;
 import org.guinsoo.schema.SchemaObject;
 import org.guinsoo.table.Column;
+import org.guinsoo.table.ColumnStatistics;
 import org.guinsoo.table.IndexColumn;
 import org.guinsoo.table.Table;
 import org.guinsoo.table.TableFilter;
@@ -532,8 +536,11 @@ public abstract class Index extends SchemaObject {
         int totalSelectivity = 0;
         long rowsCost = rowCount;
         if (masks != null) {
+            // the number of rows selected by conditions on previous columns
+            long prefixRows = rowCount;
             int i = 0, len = columns.length;
-            boolean tryAdditional = false;
+            boolean tryAdditional = false, statisticsUsed = false;
+            TableFilter tableFilter = filters == null ? null : filters[filter];
             while (i < len) {
                 Column column = columns[i++];
                 int index = column.getColumnId();
@@ -549,17 +556,32 @@ public abstract class Index extends SchemaObject {
                     if (distinctRows <= 0) {
                         distinctRows = 1;
                     }
-                    rowsCost = 2 + Math.max(rowCount / distinctRows, 1);
+                    double fraction = getStatisticsFraction(tableFilter, column, true);
+                    if (fraction >= 0d) {
+                        prefixRows = Math.max((long) (prefixRows * fraction), 1);
+                        statisticsUsed = true;
+                    } else if (statisticsUsed) {
+                        prefixRows = Math.min(prefixRows, Math.max(rowCount / distinctRows, 1));
+                    } else {
+                        prefixRows = Math.max(rowCount / distinctRows, 1);
+                    }
+                    rowsCost = 2 + prefixRows;
                 } else if ((mask & IndexCondition.RANGE) == IndexCondition.RANGE) {
-                    rowsCost = 2 + rowsCost / 4;
+                    // with statistics a range condition costs one less than an
+                    // equality with the same number of rows, so indexes that
+                    // check more conditions are preferred
+                    double fraction = getStatisticsFraction(tableFilter, column, false);
+                    rowsCost = fraction >= 0d ? 1 + (long) (prefixRows * fraction) : 2 + rowsCost / 4;
                     tryAdditional = true;
                     break;
                 } else if ((mask & IndexCondition.START) == IndexCondition.START) {
-                    rowsCost = 2 + rowsCost / 3;
+                    double fraction = getStatisticsFraction(tableFilter, column, false);
+                    rowsCost = fraction >= 0d ? 1 + (long) (prefixRows * fraction) : 2 + rowsCost / 3;
                     tryAdditional = true;
                     break;
                 } else if ((mask & IndexCondition.END) == IndexCondition.END) {
-                    rowsCost = rowsCost / 3;
+                    double fraction = getStatisticsFraction(tableFilter, column, false);
+                    rowsCost = fraction >= 0d ? 1 + (long) (prefixRows * fraction) : rowsCost / 3;
                     tryAdditional = true;
                     break;
                 } else {
@@ -667,6 +689,114 @@ public abstract class Index extends SchemaObject {
     }
 
 
+    /**
+     * Estimates the fraction of rows that meet index conditions with constant
+     * values on the specified column using statistics of this column.
+     *
+     * @param tableFilter the table filter, or {@code null}
+     * @param column the column
+     * @param equality whether equality conditions should be used, otherwise
+     *            range conditions are used
+     * @return the fraction of rows, or -1 if it can't be estimated
+     */
+    private static double getStatisticsFraction(TableFilter tableFilter, Column column, boolean equality) {
+        ColumnStatistics statistics = column.getStatistics();
+        if (statistics == null || tableFilter == null) {
+            return -1d;
+        }
+        SessionLocal session = tableFilter.getSession();
+        double fraction = -1d;
+        Value low = null, high = null;
+        boolean lowInclusive = false, highInclusive = false;
+        try {
+            for (IndexCondition condition : tableFilter.getIndexConditions()) {
+                if (condition.getColumn() != column) {
+                    continue;
+                }
+                int compareType = condition.getCompareType();
+                if (compareType == Comparison.IN_LIST) {
+                    if (equality) {
+                        double f = 0d;
+                        for (Expression e : condition.getExpressionList()) {
+                            Value v = getConstantValue(session, column, e);
+                            if (v == null) {
+                                f = -1d;
+                                break;
+                            }
+                            f += statistics.getEqualFraction(session, v);
+                        }
+                        if (f >= 0d && (fraction < 0d || f < fraction)) {
+                            fraction = Math.min(f, 1d);
+                        }
+                    }
+                    continue;
+                } else if (compareType == Comparison.IN_QUERY || compareType == Comparison.SPATIAL_INTERSECTS
+                        || compareType == Comparison.FALSE) {
+                    continue;
+                }
+                Value v = getConstantValue(session, column, condition.getExpression());
+                if (v == null) {
+                    continue;
+                }
+                switch (compareType) {
+                case Comparison.EQUAL:
+                case Comparison.EQUAL_NULL_SAFE:
+                    if (equality) {
+                        double f = compareType == Comparison.EQUAL && v == ValueNull.INSTANCE ? 0d
+                                : statistics.getEqualFraction(session, v);
+                        if (fraction < 0d || f < fraction) {
+                            fraction = f;
+                        }
+                    }
+                    break;
+                case Comparison.BIGGER_EQUAL:
+                case Comparison.BIGGER: {
+                    boolean inclusive = compareType == Comparison.BIGGER_EQUAL;
+                    int cmp = low == null ? 1 : session.compare(v, low);
+                    if (cmp > 0) {
+                        low = v;
+                        lowInclusive = inclusive;
+                    } else if (cmp == 0) {
+                        lowInclusive &= inclusive;
+                    }
+                    break;
+                }
+                case Comparison.SMALLER_EQUAL:
+                case Comparison.SMALLER: {
+                    boolean inclusive = compareType == Comparison.SMALLER_EQUAL;
+                    int cmp = high == null ? -1 : session.compare(v, high);
+                    if (cmp < 0) {
+                        high = v;
+                        highInclusive = inclusive;
+                    } else if (cmp == 0) {
+                        highInclusive &= inclusive;
+                    }
+                    break;
+                }
+                default:
+                }
+            }
+            if (!equality && (low != null || high != null)) {
+                fraction = statistics.getRangeFraction(session, low, lowInclusive, high, highInclusive);
+            }
+        } catch (DbException e) {
+            // values can't be converted to the data type of the column
+            return -1d;
+        }
+        return fraction;
+    }
+
+    private static Value getConstantValue(SessionLocal session, Column column, Expression e) {
+        // values of literals replaced with parameters by the shared plan cache
+        // are known, plans with different classes of these values aren't
+        // shared
+        if (e == null || !e.isConstant() && !(e instanceof Parameter && ((Parameter) e).isLiteral())) {
+            return null;
+        }
+        Value v = e.getValue(session);
+        return v == ValueNull.INSTANCE ? v : column.convert(session, v);
+    }
+
     /**
      * Check if this row may have duplicates with the same indexed values in the
      * current compatibility mode. Duplicates with {@code NULL} values are
@@ -371,20 +371,29 @@ public class IndexCondition {
      * @return true if it can be evaluated
      */
     public boolean isEvaluatable() {
+        return isEverything(ExpressionVisitor.EVALUATABLE_VISITOR);
+    }
+
+    /**
+     * Check if the expression, the expression list, or the query of this
+     * condition satisfies the visitor.
+     *
+     * @param visitor the visitor
+     * @return true if the visitor returned true for all expressions
+     */
+    public boolean isEverything(ExpressionVisitor visitor) {
         if (expression != null) {
-            return expression
-                    .isEverything(ExpressionVisitor.EVALUATABLE_VISITOR);
+            return expression.isEverything(visitor);
         }
         if (expressionList != null) {
             for (Expression e : expressionList) {
-                if (!e.isEverything(ExpressionVisitor.EVALUATABLE_VISITOR)) {
+                if (!e.isEverything(visitor)) {
                     return false;
                 }
             }
             return true;
         }
-        return expressionQuery
-                .isEverything(ExpressionVisitor.EVALUATABLE_VISITOR);
+        return expressionQuery.isEverything(visitor);
     }
 
     @Override
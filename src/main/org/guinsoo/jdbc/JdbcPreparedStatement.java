@@ -22,7 +22,6 @@ import java.sql.RowId;
 import java.sql.SQLException;
 import java.sql.SQLType;
 import java.sql.SQLXML;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
@@ -31,6 +30,7 @@ import org.guinsoo.command.CommandInterface;
 import org.guinsoo.expression.ParameterInterface;
 import org.guinsoo.message.DbException;
 import org.guinsoo.message.TraceObject;
+import org.guinsoo.result.BatchResult;
 import org.guinsoo.result.MergedResult;
 import org.guinsoo.result.ResultInterface;
 import org.guinsoo.result.ResultWithGeneratedKeys;
@@ -1194,20 +1194,14 @@ public class JdbcPreparedStatement extends JdbcStatement implements PreparedStat
     public int[] executeBatch() throws SQLException {
         try {
             debugCodeCall("executeBatch");
-            if (batchParameters == null) {
-                // Empty batch is allowed, see JDK-4639504 and other issues
-                batchParameters = new ArrayList<>();
-            }
-            batchIdentities = new MergedResult();
-            int size = batchParameters.size();
-            int[] result = new int[size];
             SQLException exception = new SQLException();
-            checkClosed();
+            long[] updateCounts = executeBatchInternal(exception);
+            int size = updateCounts.length;
+            int[] result = new int[size];
             for (int i = 0; i < size; i++) {
-                long updateCount = executeBatchElement(batchParameters.get(i), exception);
+                long updateCount = updateCounts[i];
                 result[i] = updateCount <= Integer.MAX_VALUE ? (int) updateCount : SUCCESS_NO_INFO;
             }
-            batchParameters = null;
             exception = exception.getNextException();
             if (exception != null) {
                 throw new JdbcBatchUpdateException(exception, result);
@@ -1228,19 +1222,8 @@ public class JdbcPreparedStatement extends JdbcStatement implements PreparedStat
     public long[] executeLargeBatch() throws SQLException {
         try {
             debugCodeCall("executeLargeBatch");
-            if (batchParameters == null) {
-                // Empty batch is allowed, see JDK-4639504 and other issues
-                batchParameters = new ArrayList<>();
-            }
-            batchIdentities = new MergedResult();
-            int size = batchParameters.size();
-            long[] result = new long[size];
             SQLException exception = new SQLException();
-            checkClosed();
-            for (int i = 0; i < size; i++) {
-                result[i] = executeBatchElement(batchParameters.get(i), exception);
-            }
-            batchParameters = null;
+            long[] result = executeBatchInternal(exception);
             exception = exception.getNextException();
             if (exception != null) {
                 throw new JdbcBatchUpdateException(exception, result);
@@ -1251,22 +1234,34 @@ public class JdbcPreparedStatement extends JdbcStatement implements PreparedStat
         }
     }
 
-    private long executeBatchElement(Value[] set, SQLException exception) {
-        ArrayList<? extends ParameterInterface> parameters = command.getParameters();
-        for (int i = 0, l = set.length; i < l; i++) {
-            parameters.get(i).setValue(set[i], false);
+    private long[] executeBatchInternal(SQLException exception) {
+        if (batchParameters == null) {
+            // Empty batch is allowed, see JDK-4639504 and other issues
+            batchParameters = new ArrayList<>();
         }
-        long updateCount;
-        try {
-            updateCount = executeUpdateInternal();
-            // Cannot use own implementation, it returns batch identities
-            ResultSet rs = super.getGeneratedKeys();
-            batchIdentities.add(((JdbcResultSet) rs).result);
-        } catch (Exception e) {
+        batchIdentities = new MergedResult();
+        checkClosed();
+        closeOldResultSet();
+        BatchResult result;
+        synchronized (session) {
+            try {
+                setExecutingStatement(command);
+                // in server mode all sets of parameters are sent at once
+                result = command.executeBatchUpdate(batchParameters, generatedKeysRequest);
+            } finally {
+                setExecutingStatement(null);
+            }
+        }
+        batchParameters = null;
+        for (DbException e : result.getExceptions()) {
             exception.setNextException(logAndConvert(e));
-            updateCount = Statement.EXECUTE_FAILED;
         }
-        return updateCount;
+        ResultInterface gk = result.getGeneratedKeys();
+        if (gk != null) {
+            batchIdentities.add(gk);
+            gk.close();
+        }
+        return result.getUpdateCounts();
     }
 
     @Override
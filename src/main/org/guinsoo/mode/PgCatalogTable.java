@@ -89,9 +89,14 @@ public final class PgCatalogTable extends MetaTable {
             { 19, "name", 64, 18 },
             { 22, "int2vector", -1, 21 },
             { 24, "regproc", 4, 0 },
+            { PgServer.PG_TYPE_BOOL_ARRAY, "_bool", -1, PgServer.PG_TYPE_BOOL },
             { PgServer.PG_TYPE_INT2_ARRAY, "_int2", -1, PgServer.PG_TYPE_INT2 },
             { PgServer.PG_TYPE_INT4_ARRAY, "_int4", -1, PgServer.PG_TYPE_INT4 },
             { PgServer.PG_TYPE_VARCHAR_ARRAY, "_varchar", -1, PgServer.PG_TYPE_VARCHAR },
+            { PgServer.PG_TYPE_INT8_ARRAY, "_int8", -1, PgServer.PG_TYPE_INT8 },
+            { PgServer.PG_TYPE_FLOAT4_ARRAY, "_float4", -1, PgServer.PG_TYPE_FLOAT4 },
+            { PgServer.PG_TYPE_FLOAT8_ARRAY, "_float8", -1, PgServer.PG_TYPE_FLOAT8 },
+            { PgServer.PG_TYPE_NUMERIC_ARRAY, "_numeric", -1, PgServer.PG_TYPE_NUMERIC },
             { 2205, "regclass", 4, 0 },
     };
 
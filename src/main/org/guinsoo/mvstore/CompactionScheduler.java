@@ -0,0 +1,143 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.mvstore;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the amount of data written by the background compaction of a store
+ * and collects the compaction statistics.
+ *
+ * <p>
+ * The background writer asks for the budget on each run and skips compaction
+ * while the budget is used up, so compaction does not exceed the configured
+ * rate on average. The budget grows with the configured rate and is
+ * limited by the amount of one second; data rewritten or moved by explicit
+ * compaction is charged as well. When the budget is positive, the whole
+ * requested amount is allowed and the overdraft is charged afterwards, so
+ * chunks larger than the amount of one second can still be compacted and
+ * the next run is postponed until the overdraft is paid off.
+ * </p>
+ */
+final class CompactionScheduler {
+
+    /**
+     * The maximum number of bytes per second, or 0 if not limited.
+     */
+    private final long bytesPerSecond;
+
+    /**
+     * The number of bytes that may be written now. May be negative after a
+     * compaction that exceeded the budget.
+     */
+    private long available;
+
+    /**
+     * The time of the last update of the budget, in nanoseconds.
+     */
+    private long lastUpdate;
+
+    private final AtomicLong rewrittenChunks = new AtomicLong();
+
+    private final AtomicLong rewrittenBytes = new AtomicLong();
+
+    private final AtomicLong movedChunks = new AtomicLong();
+
+    private final AtomicLong movedBytes = new AtomicLong();
+
+    private final AtomicLong throttled = new AtomicLong();
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param bytesPerSecond the maximum number of bytes per second, or 0 if
+     *            not limited
+     */
+    CompactionScheduler(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        available = bytesPerSecond;
+        lastUpdate = System.nanoTime();
+    }
+
+    /**
+     * Returns the number of bytes background compaction may write now.
+     *
+     * @param limit the number of bytes the caller wants to write
+     * @return the allowed number of bytes, {@code 0} if compaction should be
+     *         skipped
+     */
+    synchronized int getBudget(int limit) {
+        if (bytesPerSecond == 0L) {
+            return limit;
+        }
+        long now = System.nanoTime();
+        available = Math.min(bytesPerSecond,
+                available + (long) ((now - lastUpdate) * (bytesPerSecond / 1e9)));
+        lastUpdate = now;
+        if (available <= 0L) {
+            throttled.incrementAndGet();
+            return 0;
+        }
+        // allow at least one chunk even if it is larger than the available
+        // amount, the overdraft is charged by the caller
+        return limit;
+    }
+
+    private synchronized void charge(long bytes) {
+        if (bytesPerSecond != 0L) {
+            available -= bytes;
+        }
+    }
+
+    /**
+     * Records rewritten chunks.
+     *
+     * @param chunkCount the number of chunks
+     * @param bytes the amount of live data in these chunks
+     */
+    void recordRewrite(int chunkCount, long bytes) {
+        rewrittenChunks.addAndGet(chunkCount);
+        rewrittenBytes.addAndGet(bytes);
+        charge(bytes);
+    }
+
+    /**
+     * Records moved chunks.
+     *
+     * @param chunkCount the number of chunks
+     * @param bytes the number of written bytes
+     */
+    void recordMove(int chunkCount, long bytes) {
+        movedChunks.addAndGet(chunkCount);
+        movedBytes.addAndGet(bytes);
+        charge(bytes);
+    }
+
+    long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    long getRewrittenChunks() {
+        return rewrittenChunks.get();
+    }
+
+    long getRewrittenBytes() {
+        return rewrittenBytes.get();
+    }
+
+    long getMovedChunks() {
+        return movedChunks.get();
+    }
+
+    long getMovedBytes() {
+        return movedBytes.get();
+    }
+
+    long getThrottledCount() {
+        return throttled.get();
+    }
+
+}
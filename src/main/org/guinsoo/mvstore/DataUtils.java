@@ -134,11 +134,21 @@ public final class DataUtils {
      */
     public static final int PAGE_COMPRESSED_HIGH = 2 + 4;
 
+    /**
+     * The bit mask for compressed pages (LZ4).
+     */
+    public static final int PAGE_COMPRESSED_LZ4 = 2 + 16;
+
     /**
      * The bit mask for pages with page sequential number.
      */
     public static final int PAGE_HAS_PAGE_NO = 8;
 
+    /**
+     * The bit mask for pages with encoded keys.
+     */
+    public static final int PAGE_ENCODED_KEYS = 32;
+
     /**
      * The maximum length of a variable size int.
      */
@@ -357,7 +367,20 @@ public final class DataUtils {
      */
     public static String readString(ByteBuffer buff, int len) {
         char[] chars = new char[len];
-        for (int i = 0; i < len; i++) {
+        readChars(buff, chars, 0, len);
+        return new String(chars);
+    }
+
+    /**
+     * Read characters of a string.
+     *
+     * @param buff the source buffer
+     * @param chars the target array
+     * @param off the offset in the target array
+     * @param len the number of characters
+     */
+    public static void readChars(ByteBuffer buff, char[] chars, int off, int len) {
+        for (int i = off, end = off + len; i < end; i++) {
             int x = buff.get() & 0xff;
             if (x < 0x80) {
                 chars[i] = (char) x;
@@ -368,7 +391,6 @@ public final class DataUtils {
                 chars[i] = (char) (((x & 0x1f) << 6) + (buff.get() & 0x3f));
             }
         }
-        return new String(chars);
     }
 
     /**
@@ -8,14 +8,17 @@ package org.guinsoo.mvstore;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.guinsoo.mvstore.cache.FilePathCache;
 import org.guinsoo.store.fs.FilePath;
 import org.guinsoo.store.fs.encrypt.FileEncrypt;
 import org.guinsoo.store.fs.encrypt.FilePathEncrypt;
+import org.guinsoo.util.MemoryUnmapper;
 
 /**
  * The default storage mechanism of the MVStore. This implementation persists
@@ -24,6 +27,11 @@ import org.guinsoo.store.fs.encrypt.FilePathEncrypt;
  */
 public class FileStore {
 
+    /**
+     * The size of memory-mapped regions of the file (64 MB).
+     */
+    private static final int MAPPED_REGION_SHIFT = 26;
+
     /**
      * The number of read operations.
      */
@@ -81,6 +89,19 @@ public class FileStore {
      */
     private FileLock fileLock;
 
+    /**
+     * Whether reads should use memory-mapped regions of the file.
+     */
+    private boolean memoryMapped;
+
+    /**
+     * The read-only memory-mapped regions of the file, or null if memory
+     * mapping is not used. A region may be shorter than the region size if
+     * the file was smaller when the region was mapped; such regions are mapped
+     * again when the file grows.
+     */
+    private volatile ByteBuffer[] mappedRegions;
+
     @Override
     public String toString() {
         return fileName;
@@ -94,6 +115,15 @@ public class FileStore {
      * @return the byte buffer
      */
     public ByteBuffer readFully(long pos, int len) {
+        ByteBuffer[] regions = mappedRegions;
+        if (regions != null) {
+            ByteBuffer buff = readMapped(regions, pos, len);
+            if (buff != null) {
+                readCount.incrementAndGet();
+                readBytes.addAndGet(len);
+                return buff;
+            }
+        }
         ByteBuffer dst = ByteBuffer.allocate(len);
         DataUtils.readFully(file, pos, dst);
         readCount.incrementAndGet();
@@ -101,6 +131,77 @@ public class FileStore {
         return dst;
     }
 
+    /**
+     * Returns a slice of a memory-mapped region of the file. Chunks are not
+     * modified after they are written, so pages may be deserialized from the
+     * mapped memory directly, without a system call and a copy.
+     *
+     * @param regions the mapped regions
+     * @param pos the read position
+     * @param len the number of bytes to read
+     * @return the read-only slice, or null if the data should be read from the
+     *         file
+     */
+    private ByteBuffer readMapped(ByteBuffer[] regions, long pos, int len) {
+        int index = (int) (pos >>> MAPPED_REGION_SHIFT);
+        int offset = (int) (pos & ((1 << MAPPED_REGION_SHIFT) - 1));
+        if (offset + len > 1 << MAPPED_REGION_SHIFT || pos + len > fileSize) {
+            // crosses the region boundary or reads after the end of file
+            return null;
+        }
+        ByteBuffer region = index < regions.length ? regions[index] : null;
+        if (region == null || offset + len > region.capacity()) {
+            region = mapRegion(index);
+            if (region == null || offset + len > region.capacity()) {
+                return null;
+            }
+        }
+        ByteBuffer buff = region.duplicate();
+        buff.limit(offset + len).position(offset);
+        return buff.slice();
+    }
+
+    /**
+     * Maps a region of the file. A previous mapping of this region is not
+     * unmapped explicitly, because it may still be used by other threads.
+     *
+     * @param index the index of the region
+     * @return the mapped region, or null if the file can't be mapped
+     */
+    private synchronized ByteBuffer mapRegion(int index) {
+        ByteBuffer[] regions = mappedRegions;
+        if (regions == null) {
+            return null;
+        }
+        long start = (long) index << MAPPED_REGION_SHIFT;
+        long length = Math.min(1 << MAPPED_REGION_SHIFT, fileSize - start);
+        if (index < regions.length) {
+            ByteBuffer region = regions[index];
+            if (region != null && region.capacity() >= length) {
+                return region;
+            }
+        }
+        ByteBuffer region;
+        try {
+            region = file.map(MapMode.READ_ONLY, start, length);
+        } catch (UnsupportedOperationException e) {
+            // the file system doesn't support memory mapping
+            mappedRegions = null;
+            return null;
+        } catch (IOException e) {
+            // for example, the address space is exhausted
+            return null;
+        }
+        if (index >= regions.length) {
+            regions = Arrays.copyOf(regions, index + 1);
+        } else {
+            regions = regions.clone();
+        }
+        regions[index] = region;
+        mappedRegions = regions;
+        return region;
+    }
+
     /**
      * Write to the file.
      *
@@ -166,6 +267,9 @@ public class FileStore {
                         "The file is locked: {0}", fileName);
             }
             fileSize = file.size();
+            if (memoryMapped && encryptedFile == null) {
+                mappedRegions = new ByteBuffer[0];
+            }
         } catch (IOException e) {
             try { close(); } catch (Exception ignore) {}
             throw DataUtils.newMVStoreException(
@@ -178,6 +282,7 @@ public class FileStore {
      * Close this store.
      */
     public void close() {
+        unmapRegions();
         try {
             if(file != null && file.isOpen()) {
                 if (fileLock != null) {
@@ -195,6 +300,29 @@ public class FileStore {
         }
     }
 
+    private synchronized void unmapRegions() {
+        ByteBuffer[] regions = mappedRegions;
+        if (regions != null) {
+            mappedRegions = null;
+            for (ByteBuffer region : regions) {
+                if (region != null) {
+                    MemoryUnmapper.unmap(region);
+                }
+            }
+        }
+    }
+
+    /**
+     * Set whether reads should use memory-mapped regions of the file. This
+     * setting should be changed before the file is opened. Encrypted files
+     * and file systems that don't support memory mapping are read as usual.
+     *
+     * @param memoryMapped whether memory mapping should be used
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
     /**
      * Flush all changes.
      */
@@ -229,6 +357,7 @@ public class FileStore {
         while (true) {
             try {
                 writeCount.incrementAndGet();
+                dropMappedRegions(size);
                 file.truncate(size);
                 fileSize = Math.min(fileSize, size);
                 return;
@@ -245,6 +374,21 @@ public class FileStore {
         }
     }
 
+    /**
+     * Forget memory-mapped regions after the specified position. They can't be
+     * unmapped explicitly, because other threads may read other pages from
+     * them, so some systems may need a GC before the file can be truncated.
+     */
+    private synchronized void dropMappedRegions(long size) {
+        ByteBuffer[] regions = mappedRegions;
+        if (regions != null) {
+            int index = (int) (size >>> MAPPED_REGION_SHIFT);
+            if (index < regions.length) {
+                mappedRegions = Arrays.copyOf(regions, index);
+            }
+        }
+    }
+
     /**
      * Get the file instance in use.
      * <p>
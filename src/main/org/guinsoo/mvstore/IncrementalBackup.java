@@ -0,0 +1,338 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.mvstore;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.guinsoo.store.fs.FileUtils;
+
+/**
+ * Incremental backups of a store.
+ *
+ * <p>
+ * Chunks are immutable, so a backup taken after a base backup only needs the
+ * chunks of newer versions. An incremental backup contains the file header,
+ * the list of all chunks with live data of the backed up version, and the
+ * data of chunks created after the specified base version. Data is copied
+ * directly between file channels, and concurrent writers are not blocked:
+ * while the backup is written, free space of the store is not reused and
+ * chunks of the backed up version are not released.
+ * </p>
+ *
+ * <p>
+ * A backup is restored by copying the listed chunks either from the
+ * incremental backup or from the restored base backup to their positions;
+ * chunks moved by compaction after the base backup get their new position in
+ * the header and footer. A chain of incremental backups is restored by
+ * applying them in order.
+ * </p>
+ */
+public final class IncrementalBackup {
+
+    /**
+     * The first bytes of an incremental backup file ("MVIB").
+     */
+    private static final int MAGIC = 0x4d564942;
+
+    /**
+     * The format of incremental backup files.
+     */
+    private static final int FORMAT = 1;
+
+    /**
+     * The length of the fixed part of the header.
+     */
+    private static final int PREFIX_LENGTH = 28;
+
+    /**
+     * The length of a chunk entry in the list of chunks.
+     */
+    private static final int ENTRY_LENGTH = 25;
+
+    /**
+     * The header of an incremental backup file.
+     */
+    private static final class Header {
+
+        /**
+         * The version of the base backup.
+         */
+        long sinceVersion;
+
+        /**
+         * The version of this backup.
+         */
+        long version;
+
+        /**
+         * The name of the store file without directory.
+         */
+        String name;
+
+        /**
+         * The file header blocks of the store.
+         */
+        ByteBuffer fileHeader;
+
+        /**
+         * The number of chunks.
+         */
+        int count;
+
+        /**
+         * The list of chunks.
+         */
+        ByteBuffer entries;
+
+        /**
+         * The position of data of the first included chunk.
+         */
+        long dataPosition;
+
+        Header(FileChannel in, String fileName) throws IOException {
+            ByteBuffer buff = read(in, 0L, PREFIX_LENGTH);
+            if (buff.getInt() != MAGIC) {
+                throw DataUtils.newMVStoreException(DataUtils.ERROR_FILE_CORRUPT,
+                        "File {0} is not an incremental backup", fileName);
+            }
+            int format = buff.getInt();
+            if (format != FORMAT) {
+                throw DataUtils.newMVStoreException(DataUtils.ERROR_UNSUPPORTED_FORMAT,
+                        "Unsupported incremental backup format {0}", format);
+            }
+            sinceVersion = buff.getLong();
+            version = buff.getLong();
+            int nameLength = buff.getInt();
+            long pos = PREFIX_LENGTH;
+            name = new String(read(in, pos, nameLength).array(), StandardCharsets.UTF_8);
+            pos += nameLength;
+            fileHeader = read(in, pos, 2 * MVStore.BLOCK_SIZE);
+            pos += 2 * MVStore.BLOCK_SIZE;
+            count = read(in, pos, 4).getInt();
+            pos += 4;
+            entries = read(in, pos, count * ENTRY_LENGTH);
+            dataPosition = pos + count * ENTRY_LENGTH;
+        }
+
+    }
+
+    private IncrementalBackup() {
+    }
+
+    /**
+     * Write an incremental backup of the last stored version of a store.
+     *
+     * @param store the store
+     * @param sinceVersion the version of the base backup, chunks of this and
+     *            older versions are not included
+     * @param fileName the name of the backup file
+     * @return the version of the backup
+     */
+    public static long write(MVStore store, long sinceVersion, String fileName) {
+        FileStore fileStore = store.getFileStore();
+        if (fileStore == null || fileStore.getEncryptedFile() != null) {
+            throw DataUtils.newIllegalArgumentException(
+                    "Incremental backup is only supported for not encrypted file stores");
+        }
+        store.beginBackup();
+        MVStore.TxCounter counter = store.registerVersionUsage();
+        try {
+            ArrayList<Chunk> chunks = store.getStoredChunks();
+            if (chunks.isEmpty()) {
+                throw DataUtils.newIllegalArgumentException("Store {0} is empty", fileStore);
+            }
+            Chunk last = chunks.get(0);
+            byte[] name = FileUtils.getName(fileStore.getFileName()).getBytes(StandardCharsets.UTF_8);
+            WriteBuffer buff = new WriteBuffer();
+            buff.putInt(MAGIC).putInt(FORMAT).putLong(sinceVersion).putLong(last.version).putInt(name.length)
+                    .put(name).put(store.getStoreHeaderBlocks(last)).putInt(chunks.size());
+            for (Chunk c : chunks) {
+                buff.putInt(c.id).putLong(c.block).putInt(c.len).putLong(c.version)
+                        .put((byte) (c.version > sinceVersion ? 1 : 0));
+            }
+            ByteBuffer header = buff.getBuffer();
+            header.flip();
+            FileChannel source = fileStore.getFile();
+            try (FileChannel out = FileUtils.open(fileName, "rw")) {
+                out.truncate(0L);
+                DataUtils.writeFully(out, 0L, header);
+                out.position(header.limit());
+                for (Chunk c : chunks) {
+                    if (c.version > sinceVersion) {
+                        transfer(source, c.block * MVStore.BLOCK_SIZE, (long) c.len * MVStore.BLOCK_SIZE, out);
+                    }
+                }
+                out.force(true);
+            }
+            return last.version;
+        } catch (IOException e) {
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_WRITING_FAILED,
+                    "Writing incremental backup {0} failed", fileName, e);
+        } finally {
+            store.deregisterVersionUsage(counter);
+            store.endBackup();
+        }
+    }
+
+    /**
+     * Restore an incremental backup.
+     *
+     * @param baseFileName the restored base backup
+     * @param backupFileName the incremental backup
+     * @param targetFileName the name of the new store file, must be
+     *            different from the base
+     * @return the version of the restored store
+     */
+    public static long restore(String baseFileName, String backupFileName, String targetFileName) {
+        HashMap<Integer, Chunk> baseChunks = new HashMap<>();
+        long baseVersion, version;
+        try (MVStore base = new MVStore.Builder().fileName(baseFileName).readOnly().open()) {
+            ArrayList<Chunk> chunks = base.getStoredChunks();
+            baseVersion = chunks.isEmpty() ? 0L : chunks.get(0).version;
+            for (Chunk c : chunks) {
+                baseChunks.put(c.id, c);
+            }
+        }
+        try (FileChannel in = FileUtils.open(backupFileName, "r");
+                FileChannel base = FileUtils.open(baseFileName, "r");
+                FileChannel out = FileUtils.open(targetFileName, "rw")) {
+            Header header = new Header(in, backupFileName);
+            if (baseVersion < header.sinceVersion) {
+                throw DataUtils.newIllegalArgumentException(
+                        "Version {0} of {1} is older than the base version {2} of {3}",
+                        baseVersion, baseFileName, header.sinceVersion, backupFileName);
+            }
+            out.truncate(0L);
+            DataUtils.writeFully(out, 0L, header.fileHeader);
+            ByteBuffer entries = header.entries;
+            long pos = header.dataPosition;
+            for (int i = 0; i < header.count; i++) {
+                int id = entries.getInt();
+                long block = entries.getLong();
+                int len = entries.getInt();
+                long chunkVersion = entries.getLong();
+                long length = (long) len * MVStore.BLOCK_SIZE;
+                out.position(block * MVStore.BLOCK_SIZE);
+                if (entries.get() != 0) {
+                    transfer(in, pos, length, out);
+                    pos += length;
+                } else {
+                    Chunk c = baseChunks.get(id);
+                    if (c == null || c.version != chunkVersion || c.len != len) {
+                        throw DataUtils.newMVStoreException(DataUtils.ERROR_CHUNK_NOT_FOUND,
+                                "Chunk {0} of version {1} not found in {2}", id, chunkVersion, baseFileName);
+                    }
+                    if (c.block == block) {
+                        transfer(base, c.block * MVStore.BLOCK_SIZE, length, out);
+                    } else {
+                        move(base, c, block, out);
+                    }
+                }
+            }
+            out.force(true);
+            version = header.version;
+        } catch (IOException e) {
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_WRITING_FAILED,
+                    "Restoring incremental backup {0} failed", backupFileName, e);
+        }
+        // a store with missing chunks would be opened with an older version
+        try (MVStore restored = new MVStore.Builder().fileName(targetFileName).readOnly().open()) {
+            long restoredVersion = restored.getLastStoredVersion();
+            if (restoredVersion != version) {
+                throw DataUtils.newMVStoreException(DataUtils.ERROR_FILE_CORRUPT,
+                        "Restored version {0} of {1} does not match the version {2} of {3}",
+                        restoredVersion, targetFileName, version, backupFileName);
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Read the name of the store file from an incremental backup.
+     *
+     * @param backupFileName the incremental backup
+     * @return the name of the store file without directory
+     */
+    public static String getStoreFileName(String backupFileName) {
+        try (FileChannel in = FileUtils.open(backupFileName, "r")) {
+            return new Header(in, backupFileName).name;
+        } catch (IOException e) {
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_READING_FAILED,
+                    "Reading incremental backup {0} failed", backupFileName, e);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel in, long pos, int length) throws IOException {
+        ByteBuffer buff = ByteBuffer.allocate(length);
+        while (buff.hasRemaining()) {
+            if (in.read(buff, pos + buff.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buff.flip();
+        return buff;
+    }
+
+    /**
+     * Copy a chunk that was moved after the base backup to its new position
+     * and update the position in its header and footer.
+     */
+    private static void move(FileChannel base, Chunk c, long block, FileChannel out) {
+        long start = c.block * MVStore.BLOCK_SIZE;
+        int length = c.len * MVStore.BLOCK_SIZE;
+        ByteBuffer buff = ByteBuffer.allocate(length);
+        DataUtils.readFully(base, start, buff);
+        Chunk chunkFromFile = Chunk.readChunkHeader(buff, start);
+        int chunkHeaderLen = buff.position();
+        chunkFromFile.block = block;
+        chunkFromFile.next = 0;
+        WriteBuffer header = new WriteBuffer(chunkHeaderLen);
+        chunkFromFile.writeChunkHeader(header, chunkHeaderLen);
+        ByteBuffer headerBuffer = header.getBuffer();
+        headerBuffer.flip();
+        buff.position(0);
+        buff.put(headerBuffer);
+        buff.position(length - Chunk.FOOTER_LENGTH);
+        buff.put(chunkFromFile.getFooterBytes());
+        buff.rewind();
+        DataUtils.writeFully(out, block * MVStore.BLOCK_SIZE, buff);
+    }
+
+    /**
+     * Copy data between file channels, directly if supported.
+     */
+    private static void transfer(FileChannel source, long position, long count, FileChannel target)
+            throws IOException {
+        try {
+            while (count > 0L) {
+                long n = source.transferTo(position, count, target);
+                if (n <= 0L) {
+                    throw new EOFException();
+                }
+                position += n;
+                count -= n;
+            }
+        } catch (UnsupportedOperationException e) {
+            ByteBuffer buff = ByteBuffer.allocate((int) Math.min(count, 1 << 16));
+            while (count > 0L) {
+                buff.clear().limit((int) Math.min(count, buff.capacity()));
+                DataUtils.readFully(source, position, buff);
+                while (buff.hasRemaining()) {
+                    target.write(buff);
+                }
+                position += buff.limit();
+                count -= buff.limit();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.mvstore;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.guinsoo.mvstore.type.DataType;
+import org.guinsoo.mvstore.type.LongDataType;
+import org.guinsoo.mvstore.type.StringDataType;
+
+/**
+ * Compact encoding of sorted keys of a page.
+ *
+ * <p>
+ * Keys of a page are sorted, so adjacent keys usually share a prefix or are
+ * close to each other. Keys of {@link LongDataType} are stored as the first
+ * key followed by differences between adjacent keys, keys of
+ * {@link StringDataType} are stored as the length of the prefix shared with
+ * the previous key and the remaining characters, and keys of other types are
+ * serialized one by one and stored in the same way as byte sequences.
+ * </p>
+ *
+ * <p>
+ * The encoded data starts with the kind of encoding, so pages may be read
+ * with a different data type, such as the generic data type of tools: in this
+ * case, the key is passed to the data type in the not encoded form.
+ * </p>
+ *
+ * <p>
+ * Only the stored form of a page is encoded: keys are decoded into the usual
+ * key array when a page is read, so the encoding saves space on disk and I/O,
+ * but not memory of cached pages.
+ * </p>
+ */
+final class KeyEncoder {
+
+    /**
+     * Keys are serialized with their data type and stored with a shared
+     * prefix.
+     */
+    private static final int PREFIX_BYTES = 0;
+
+    /**
+     * Long keys are stored as differences from the previous key.
+     */
+    private static final int DELTA_LONGS = 1;
+
+    /**
+     * String keys are stored with a shared prefix.
+     */
+    private static final int PREFIX_STRINGS = 2;
+
+    private KeyEncoder() {
+    }
+
+    /**
+     * Write the encoded keys.
+     *
+     * @param keyType the key type
+     * @param buff the target buffer
+     * @param storage the sorted keys
+     * @param len the number of keys
+     */
+    static void write(DataType<?> keyType, WriteBuffer buff, Object storage, int len) {
+        Object[] keys = (Object[]) storage;
+        if (keyType instanceof LongDataType) {
+            buff.put((byte) DELTA_LONGS);
+            long previous = 0L;
+            for (int i = 0; i < len; i++) {
+                long key = (Long) keys[i];
+                buff.putVarLong(key - previous);
+                previous = key;
+            }
+        } else if (keyType instanceof StringDataType) {
+            buff.put((byte) PREFIX_STRINGS);
+            String previous = "";
+            for (int i = 0; i < len; i++) {
+                String key = (String) keys[i];
+                int shared = 0, l = Math.min(previous.length(), key.length());
+                while (shared < l && previous.charAt(shared) == key.charAt(shared)) {
+                    shared++;
+                }
+                int suffix = key.length() - shared;
+                buff.putVarInt(shared).putVarInt(suffix).putStringData(key.substring(shared), suffix);
+                previous = key;
+            }
+        } else {
+            buff.put((byte) PREFIX_BYTES);
+            @SuppressWarnings("unchecked")
+            DataType<Object> type = (DataType<Object>) keyType;
+            WriteBuffer keyBuff = new WriteBuffer();
+            byte[] previous = new byte[0];
+            for (int i = 0; i < len; i++) {
+                type.write(keyBuff.clear(), keys[i]);
+                byte[] key = new byte[keyBuff.position()];
+                keyBuff.position(0).get(key);
+                int shared = 0, l = Math.min(previous.length, key.length);
+                while (shared < l && previous[shared] == key[shared]) {
+                    shared++;
+                }
+                buff.putVarInt(shared).putVarInt(key.length - shared).put(key, shared, key.length - shared);
+                previous = key;
+            }
+        }
+    }
+
+    /**
+     * Read the encoded keys.
+     *
+     * @param keyType the key type
+     * @param buff the source buffer
+     * @param storage the target array
+     * @param len the number of keys
+     */
+    static void read(DataType<?> keyType, ByteBuffer buff, Object storage, int len) {
+        Object[] keys = (Object[]) storage;
+        int kind = buff.get();
+        switch (kind) {
+        case DELTA_LONGS: {
+            boolean isLong = keyType instanceof LongDataType;
+            WriteBuffer keyBuff = isLong ? null : new WriteBuffer();
+            long key = 0L;
+            for (int i = 0; i < len; i++) {
+                key += DataUtils.readVarLong(buff);
+                keys[i] = isLong ? (Object) key : keyType.read(readBuffer(keyBuff.clear().putVarLong(key)));
+            }
+            break;
+        }
+        case PREFIX_STRINGS: {
+            boolean isString = keyType instanceof StringDataType;
+            WriteBuffer keyBuff = isString ? null : new WriteBuffer();
+            char[] chars = new char[64];
+            for (int i = 0; i < len; i++) {
+                int shared = DataUtils.readVarInt(buff);
+                int suffix = DataUtils.readVarInt(buff);
+                int length = shared + suffix;
+                if (length > chars.length) {
+                    chars = Arrays.copyOf(chars, Math.max(length, chars.length * 2));
+                }
+                // the shared prefix is still in the array
+                DataUtils.readChars(buff, chars, shared, suffix);
+                String key = new String(chars, 0, length);
+                keys[i] = isString ? key
+                        : keyType.read(readBuffer(keyBuff.clear().putVarInt(key.length())
+                                .putStringData(key, key.length())));
+            }
+            break;
+        }
+        case PREFIX_BYTES: {
+            byte[] key = new byte[64];
+            ByteBuffer keyBuff = ByteBuffer.wrap(key);
+            for (int i = 0; i < len; i++) {
+                int shared = DataUtils.readVarInt(buff);
+                int suffix = DataUtils.readVarInt(buff);
+                int length = shared + suffix;
+                if (length > key.length) {
+                    key = Arrays.copyOf(key, Math.max(length, key.length * 2));
+                    keyBuff = ByteBuffer.wrap(key);
+                }
+                buff.get(key, shared, suffix);
+                keyBuff.clear();
+                keyBuff.limit(length);
+                keys[i] = keyType.read(keyBuff);
+            }
+            break;
+        }
+        default:
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_FILE_CORRUPT,
+                    "Unsupported key encoding {0}", kind);
+        }
+    }
+
+    private static ByteBuffer readBuffer(WriteBuffer buff) {
+        ByteBuffer b = buff.getBuffer();
+        return ByteBuffer.wrap(b.array(), b.arrayOffset(), b.position()).slice();
+    }
+
+}
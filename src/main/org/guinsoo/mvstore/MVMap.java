@@ -10,6 +10,7 @@ import static org.guinsoo.engine.Constants.MEMORY_POINTER;
 import java.util.AbstractList;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -63,6 +64,18 @@ public class MVMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V
     private volatile  boolean closed;
     private boolean readOnly;
     private boolean isVolatile;
+
+    /**
+     * The compression level for new pages of this map, or -1 to use the
+     * compression level of the store.
+     */
+    private volatile int compressionLevel = -1;
+
+    /**
+     * Whether the map is being filled by {@link #bulkLoad(Iterator)}. Pages
+     * of such map are not rewritten by compaction.
+     */
+    private volatile boolean bulkLoading;
     private final AtomicLong avgKeySize;
     private final AtomicLong avgValSize;
 
@@ -91,6 +104,7 @@ public class MVMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V
     protected MVMap(MVMap<K, V> source) {
         this(source.store, source.keyType, source.valueType, source.id, source.createVersion,
                 new AtomicReference<>(source.root.get()), source.keysPerPage, source.singleWriter);
+        compressionLevel = source.compressionLevel;
     }
 
     /**
@@ -677,7 +691,7 @@ public class MVMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V
         }
         assert p.isSaved();
         K key = p.getKey(0);
-        if (!isClosed()) {
+        if (!isClosed() && !bulkLoading) {
             RewriteDecisionMaker<V> decisionMaker = new RewriteDecisionMaker<>(p.getPos());
             V result = operate(key, null, decisionMaker);
             boolean res = decisionMaker.getDecision() != Decision.ABORT;
@@ -926,6 +940,32 @@ public class MVMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V
         this.isVolatile = isVolatile;
     }
 
+    /**
+     * Set the compression level for new pages of this map. This setting isn't
+     * persisted, pages that were already written aren't recompressed.
+     *
+     * @param compressionLevel the compression level (0 for disabled, 1 for
+     *            fast, 2 for high, 3 for LZ4), or -1 to use the compression
+     *            level of the store
+     */
+    public final void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < -1 || compressionLevel > MVStore.COMPRESSION_LEVEL_LZ4) {
+            throw DataUtils.newIllegalArgumentException("Unsupported compression level {0}", compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Get the compression level for new pages of this map.
+     *
+     * @return the compression level of this map, or the compression level of
+     *         the store if it isn't set for this map
+     */
+    public final int getCompressionLevel() {
+        int compressionLevel = this.compressionLevel;
+        return compressionLevel >= 0 ? compressionLevel : store.getCompressionLevel();
+    }
+
     /**
      * Whether this is volatile map, meaning that changes
      * are not persisted. By default (even if the store is not persisted),
@@ -1358,6 +1398,40 @@ public class MVMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V
         return replacement;
     }
 
+    /**
+     * Fills this empty map with the specified entries. The keys must be
+     * unique and sorted in ascending order.
+     * <p>
+     * Leaf pages are filled completely and internal nodes are built from them
+     * level by level, so unlike {@link #put(Object, Object)} no pages are
+     * copied. If the store needs to save changes, the already loaded part of
+     * the map is made visible and committed, so the amount of used memory
+     * doesn't depend on the number of entries. The map must not be modified
+     * concurrently.
+     *
+     * @param entries the entries
+     * @throws IllegalArgumentException if the map isn't empty, or if keys
+     *         aren't in ascending order
+     */
+    public final void bulkLoad(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        beforeWrite();
+        RootReference<K,V> rootReference = flushAndGetRoot();
+        if (rootReference.root.getTotalCount() != 0) {
+            throw DataUtils.newIllegalArgumentException("Map {0} is not empty", getName());
+        }
+        bulkLoading = true;
+        try {
+            BulkLoader<K,V> loader = new BulkLoader<>(this, rootReference.root);
+            while (entries.hasNext()) {
+                Map.Entry<? extends K, ? extends V> e = entries.next();
+                loader.add(e.getKey(), e.getValue());
+            }
+            loader.finish();
+        } finally {
+            bulkLoading = false;
+        }
+    }
+
     /**
      * Appends entry to this map. this method is NOT thread safe and can not be used
      * neither concurrently, nor in combination with any method that updates this map.
@@ -2111,4 +2185,222 @@ public class MVMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V
 
         IntValueHolder() {}
     }
+
+    /**
+     * Builds a B-tree from sorted entries, from the leaves up.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    private static final class BulkLoader<K,V> {
+
+        /**
+         * Children of the internal node being built at one level of the tree.
+         * Except for the topmost level, at least two children are kept after
+         * a node is completed, so the last node of each level is valid.
+         */
+        private static final class Level<K,V> {
+
+            /**
+             * The separator keys, the key at index i is the first key of the
+             * child at index i + 1.
+             */
+            final K[] keys;
+
+            final Page.PageReference<K,V>[] children;
+
+            /**
+             * The first key of the first child.
+             */
+            K firstKey;
+
+            int count;
+
+            long totalCount;
+
+            int memory;
+
+            Level(MVMap<K,V> map, int capacity) {
+                keys = map.getKeyType().createStorage(capacity);
+                children = Page.createRefStorage(capacity + 1);
+            }
+
+        }
+
+        private final MVMap<K,V> map;
+
+        private final MVStore store;
+
+        private final int keysPerPage;
+
+        private final long maxPageSize;
+
+        private final K[] keys;
+
+        private final V[] values;
+
+        private int count;
+
+        private int memory;
+
+        private K lastKey;
+
+        private final ArrayList<Level<K,V>> levels = new ArrayList<>();
+
+        /**
+         * The root page set by the last call of publish().
+         */
+        private Page<K,V> root;
+
+        /**
+         * The incomplete internal nodes created by the last call of publish().
+         */
+        private ArrayList<Page<K,V>> spine = new ArrayList<>();
+
+        BulkLoader(MVMap<K,V> map, Page<K,V> root) {
+            this.map = map;
+            this.root = root;
+            spine.add(root);
+            store = map.store;
+            keysPerPage = store.getKeysPerPage();
+            maxPageSize = store.getMaxPageSize();
+            keys = map.getKeyType().createStorage(keysPerPage);
+            values = map.getValueType().createStorage(keysPerPage);
+        }
+
+        void add(K key, V value) {
+            DataType<K> keyType = map.getKeyType();
+            if (lastKey != null && keyType.compare(key, lastKey) <= 0) {
+                throw DataUtils.newIllegalArgumentException(
+                        "Keys of map {0} are not in ascending order: {1}, {2}", map.getName(), lastKey, key);
+            }
+            if (count == keysPerPage || memory >= maxPageSize) {
+                addLeaf();
+                if (store.isSaveNeeded()) {
+                    publish();
+                    store.commit();
+                }
+            }
+            keys[count] = key;
+            values[count++] = value;
+            memory += keyType.getMemory(key) + map.getValueType().getMemory(value);
+            lastKey = key;
+        }
+
+        void finish() {
+            if (count > 0) {
+                addLeaf();
+            }
+            publish();
+        }
+
+        private void addLeaf() {
+            Page<K,V> leaf = Page.createLeaf(map, Arrays.copyOf(keys, count), Arrays.copyOf(values, count), 0);
+            Arrays.fill(keys, 0, count, null);
+            Arrays.fill(values, 0, count, null);
+            count = 0;
+            memory = 0;
+            addChild(0, leaf, leaf.getKey(0));
+        }
+
+        private void addChild(int height, Page<K,V> page, K key) {
+            if (map.isPersistent()) {
+                store.registerUnsavedMemory(page.getMemory());
+            }
+            Page.PageReference<K,V> ref = new Page.PageReference<>(page);
+            Level<K,V> level;
+            if (height == levels.size()) {
+                level = new Level<>(map, keysPerPage + 1);
+                levels.add(level);
+            } else {
+                level = levels.get(height);
+                if (level.count == keysPerPage + 2 || level.count > 2 && level.memory >= maxPageSize) {
+                    addNode(height, level);
+                }
+            }
+            int count = level.count;
+            if (count == 0) {
+                level.firstKey = key;
+            } else {
+                level.keys[count - 1] = key;
+                level.memory += map.getKeyType().getMemory(key);
+            }
+            level.children[count] = ref;
+            level.count = count + 1;
+            level.totalCount += ref.count;
+        }
+
+        /**
+         * Completes the node of the specified level from all its children
+         * except the last one.
+         */
+        private void addNode(int height, Level<K,V> level) {
+            int childCount = level.count - 1;
+            Page.PageReference<K,V> last = level.children[childCount];
+            Page<K,V> node = Page.createNode(map, Arrays.copyOf(level.keys, childCount - 1),
+                    Arrays.copyOf(level.children, childCount), level.totalCount - last.count, 0);
+            K firstKey = level.firstKey;
+            level.firstKey = level.keys[childCount - 1];
+            Arrays.fill(level.keys, 0, childCount, null);
+            Arrays.fill(level.children, 0, childCount + 1, null);
+            level.children[0] = last;
+            level.count = 1;
+            level.totalCount = last.count;
+            level.memory = 0;
+            addChild(height + 1, node, firstKey);
+        }
+
+        /**
+         * Sets the root of the map to a tree with all added entries. Previous
+         * incomplete nodes are removed.
+         */
+        private void publish() {
+            ArrayList<Page<K,V>> newSpine = new ArrayList<>();
+            Page.PageReference<K,V> carry = null;
+            K carryKey = null;
+            int unsavedMemory = 0;
+            for (int height = 0, size = levels.size(); height < size; height++) {
+                Level<K,V> level = levels.get(height);
+                int childCount = level.count;
+                if (carry == null && height == size - 1 && childCount == 1) {
+                    carry = level.children[0];
+                    break;
+                }
+                int keyCount = carry == null ? childCount - 1 : childCount;
+                K[] nodeKeys = Arrays.copyOf(level.keys, keyCount);
+                Page.PageReference<K,V>[] children = Arrays.copyOf(level.children, keyCount + 1);
+                long totalCount = level.totalCount;
+                if (carry != null) {
+                    nodeKeys[keyCount - 1] = carryKey;
+                    children[keyCount] = carry;
+                    totalCount += carry.count;
+                }
+                Page<K,V> node = Page.createNode(map, nodeKeys, children, totalCount, 0);
+                unsavedMemory += node.getMemory();
+                newSpine.add(node);
+                carry = new Page.PageReference<>(node);
+                carryKey = level.firstKey;
+            }
+            Page<K,V> newRoot = carry == null ? map.createEmptyLeaf() : carry.getPage();
+            if (newRoot == null) {
+                newRoot = map.readPage(carry.getPos());
+            }
+            RootReference<K,V> rootReference = map.lockRoot(map.getRoot(), 1);
+            if (rootReference.root != root) {
+                map.unlockRoot();
+                throw DataUtils.newMVStoreException(DataUtils.ERROR_INTERNAL,
+                        "Map {0} was modified during bulk load", map.getName());
+            }
+            for (Page<K,V> p : spine) {
+                unsavedMemory += p.removePage(rootReference.version);
+            }
+            map.unlockRoot(newRoot);
+            if (map.isPersistent()) {
+                store.registerUnsavedMemory(unsavedMemory);
+            }
+            root = newRoot;
+            spine = newSpine;
+        }
+
+    }
 }
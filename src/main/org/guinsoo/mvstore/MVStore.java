@@ -17,6 +17,7 @@ import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -27,6 +28,8 @@ import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
@@ -42,6 +45,7 @@ import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import org.guinsoo.compress.CompressDeflate;
+import org.guinsoo.compress.CompressLZ4;
 import org.guinsoo.compress.CompressLZF;
 import org.guinsoo.compress.Compressor;
 import org.guinsoo.mvstore.cache.CacheLongKeyLIRS;
@@ -109,6 +113,16 @@ public class MVStore implements AutoCloseable {
 
     private static final int PIPE_LENGTH = 1;
 
+    /**
+     * The minimal number of leaf pages serialized by one task.
+     */
+    private static final int MIN_LEAVES_PER_SERIALIZATION_TASK = 16;
+
+    /**
+     * The highest compression level (LZ4).
+     */
+    static final int COMPRESSION_LEVEL_LZ4 = 3;
+
 
     /**
      * Lock which governs access to major store operations: store(), close(), ...
@@ -136,6 +150,12 @@ public class MVStore implements AutoCloseable {
 
     private volatile boolean reuseSpace = true;
 
+    /**
+     * The number of running backups. Empty space in the file isn't re-used
+     * while it is positive.
+     */
+    private final AtomicInteger backupCount = new AtomicInteger();
+
     private volatile int state;
 
     private final FileStore fileStore;
@@ -146,6 +166,11 @@ public class MVStore implements AutoCloseable {
 
     private final int keysPerPage;
 
+    /**
+     * Limits the amount of data written by background compaction.
+     */
+    private final CompactionScheduler compactionScheduler;
+
     /**
      * The page cache. The default size is 16 MB, and the average size is 2 KB.
      * It is split in 16 segments. The stack move distance is 2% of the expected
@@ -153,6 +178,12 @@ public class MVStore implements AutoCloseable {
      */
     private final CacheLongKeyLIRS<Page<?,?>> cache;
 
+    /**
+     * The second level cache of serialized pages, as they are stored in the
+     * file, in direct buffers outside of the heap. Disabled by default.
+     */
+    private final OffHeapPageCache offHeapCache;
+
     /**
      * Cache for chunks "Table of Content" used to translate page's
      * sequential number within containing chunk into byte position
@@ -202,8 +233,9 @@ public class MVStore implements AutoCloseable {
     private int versionsToKeep = 5;
 
     /**
-     * The compression level for new pages (0 for disabled, 1 for fast, 2 for
-     * high). Even if disabled, the store may contain (old) compressed pages.
+     * The default compression level for new pages (0 for disabled, 1 for fast,
+     * 2 for high, 3 for LZ4), maps may override it. Even if disabled, the store
+     * may contain (old) compressed pages.
      */
     private final int compressionLevel;
 
@@ -211,6 +243,24 @@ public class MVStore implements AutoCloseable {
 
     private Compressor compressorHigh;
 
+    private Compressor compressorLZ4;
+
+    /**
+     * Whether keys of new pages are encoded with {@link KeyEncoder}.
+     */
+    private final boolean keyEncoding;
+
+    /**
+     * The maximum number of threads used to serialize leaf pages of a chunk.
+     */
+    private final int serializationThreads;
+
+    /**
+     * Leaf pages of the chunk being written serialized by worker threads, or
+     * null.
+     */
+    private IdentityHashMap<Page<?,?>, byte[]> serializedPages;
+
     private final boolean recoveryMode;
 
     public final UncaughtExceptionHandler backgroundExceptionHandler;
@@ -298,6 +348,9 @@ public class MVStore implements AutoCloseable {
     MVStore(Map<String, Object> config) {
         recoveryMode = config.containsKey("recoveryMode");
         compressionLevel = DataUtils.getConfigParam(config, "compress", 0);
+        keyEncoding = config.containsKey("encodeKeys");
+        serializationThreads = DataUtils.getConfigParam(config, "serializationThreads",
+                Runtime.getRuntime().availableProcessors());
         String fileName = (String) config.get("fileName");
         FileStore fileStore = (FileStore) config.get("fileStore");
         if (fileStore == null) {
@@ -317,12 +370,15 @@ public class MVStore implements AutoCloseable {
         int pgSplitSize = 48;
         CacheLongKeyLIRS.Config cc = null;
         CacheLongKeyLIRS.Config cc2 = null;
+        CacheLongKeyLIRS.Config cc3 = null;
 
         if (this.fileStore != null) {
             int mb = DataUtils.getConfigParam(config, "cacheSize", 16);
             if (mb > 0) {
                 cc = new CacheLongKeyLIRS.Config();
                 cc.maxMemory = mb * 1024L * 1024L;
+                // large scans shouldn't evict frequently used pages
+                cc.admissionFilter = true;
                 Object o = config.get("cacheConcurrency");
                 if (o != null) {
                     cc.segmentCount = (Integer)o;
@@ -330,6 +386,13 @@ public class MVStore implements AutoCloseable {
             }
             cc2 = new CacheLongKeyLIRS.Config();
             cc2.maxMemory = 1024L * 1024L;
+            mb = DataUtils.getConfigParam(config, "offHeapCacheSize", 0);
+            if (mb > 0) {
+                cc3 = new CacheLongKeyLIRS.Config();
+                cc3.maxMemory = mb * 1024L * 1024L;
+                cc3.admissionFilter = true;
+                cc3.weakReferences = false;
+            }
             pgSplitSize = 16 * 1024;
         }
         if (cc != null) {
@@ -338,6 +401,7 @@ public class MVStore implements AutoCloseable {
             cache = null;
         }
         chunksToC = cc2 == null ? null : new CacheLongKeyLIRS<>(cc2);
+        offHeapCache = cc3 == null ? null : new OffHeapPageCache(cc3);
 
         pgSplitSize = DataUtils.getConfigParam(config, "pageSplitSize", pgSplitSize);
         // Make sure pages will fit into cache
@@ -346,6 +410,7 @@ public class MVStore implements AutoCloseable {
         }
         pageSplitSize = pgSplitSize;
         keysPerPage = DataUtils.getConfigParam(config, "keysPerPage", 48);
+        compactionScheduler = new CompactionScheduler(DataUtils.getConfigParam(config, "compactionRate", 0) * 1024L);
 
         backgroundExceptionHandler =
                 (UncaughtExceptionHandler)config.get("backgroundExceptionHandler");
@@ -366,6 +431,7 @@ public class MVStore implements AutoCloseable {
                 try {
                     if (!fileStoreIsProvided) {
                         boolean readOnly = config.containsKey("readOnly");
+                        this.fileStore.setMemoryMapped(config.containsKey("memoryMapped"));
                         this.fileStore.open(fileName, readOnly, encryptionKey);
                     }
                     if (this.fileStore.size() == 0) {
@@ -1144,24 +1210,73 @@ public class MVStore implements AutoCloseable {
     }
 
     private void writeStoreHeader() {
-        StringBuilder buff = new StringBuilder(112);
         if (lastChunk != null) {
             storeHeader.put(HDR_BLOCK, lastChunk.block);
             storeHeader.put(HDR_CHUNK, lastChunk.id);
             storeHeader.put(HDR_VERSION, lastChunk.version);
         }
-        DataUtils.appendMap(buff, storeHeader);
+        write(0, getStoreHeaderBlocks(storeHeader));
+    }
+
+    private static ByteBuffer getStoreHeaderBlocks(HashMap<String, Object> header) {
+        StringBuilder buff = new StringBuilder(112);
+        DataUtils.appendMap(buff, header);
         byte[] bytes = buff.toString().getBytes(StandardCharsets.ISO_8859_1);
         int checksum = DataUtils.getFletcher32(bytes, 0, bytes.length);
         DataUtils.appendMap(buff, HDR_FLETCHER, checksum);
         buff.append('\n');
         bytes = buff.toString().getBytes(StandardCharsets.ISO_8859_1);
-        ByteBuffer header = ByteBuffer.allocate(2 * BLOCK_SIZE);
-        header.put(bytes);
-        header.position(BLOCK_SIZE);
-        header.put(bytes);
-        header.rewind();
-        write(0, header);
+        ByteBuffer blocks = ByteBuffer.allocate(2 * BLOCK_SIZE);
+        blocks.put(bytes);
+        blocks.position(BLOCK_SIZE);
+        blocks.put(bytes);
+        blocks.rewind();
+        return blocks;
+    }
+
+    /**
+     * Get the last stored chunk and the live chunks referenced by the layout
+     * of its version. These chunks contain all data of this version.
+     *
+     * @return the list of chunks, the last stored chunk first, or an empty
+     *         list if nothing was stored yet
+     */
+    ArrayList<Chunk> getStoredChunks() {
+        ArrayList<Chunk> list = new ArrayList<>();
+        Chunk last = lastChunk;
+        if (last != null) {
+            last = Chunk.fromString(last.asString());
+            list.add(last);
+            Cursor<String, String> cursor = getLayoutMap(last.version).cursor(DataUtils.META_CHUNK);
+            while (cursor.hasNext() && cursor.next().startsWith(DataUtils.META_CHUNK)) {
+                Chunk c = Chunk.fromString(cursor.getValue());
+                if (c.id != last.id && c.isLive()) {
+                    list.add(c);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Get the file header blocks that point to the specified chunk.
+     *
+     * @param last the last chunk
+     * @return the buffer with two copies of the file header
+     */
+    ByteBuffer getStoreHeaderBlocks(Chunk last) {
+        HashMap<String, Object> header;
+        saveChunkLock.lock();
+        try {
+            header = new HashMap<>(storeHeader);
+        } finally {
+            saveChunkLock.unlock();
+        }
+        header.remove(HDR_CLEAN);
+        header.put(HDR_BLOCK, last.block);
+        header.put(HDR_CHUNK, last.id);
+        header.put(HDR_VERSION, last.version);
+        return getStoreHeaderBlocks(header);
     }
 
     private void write(long pos, ByteBuffer buffer) {
@@ -1247,6 +1362,9 @@ public class MVStore implements AutoCloseable {
                             // release memory early - this is important when called
                             // because of out of memory
                             clearCaches();
+                            if (offHeapCache != null) {
+                                offHeapCache.close();
+                            }
                             for (MVMap<?, ?> m : new ArrayList<>(maps.values())) {
                                 m.close();
                             }
@@ -1404,7 +1522,7 @@ public class MVStore implements AutoCloseable {
                             throw DataUtils.newMVStoreException(
                                     DataUtils.ERROR_WRITING_FAILED, "This store is read-only");
                         }
-                        storeNow(syncWrite, 0, () -> reuseSpace ? 0 : getAfterLastBlock());
+                        storeNow(syncWrite, 0, () -> isSpaceReused() ? 0 : getAfterLastBlock());
                     }
                 } finally {
                     // in any case reset the current store version,
@@ -1572,15 +1690,20 @@ public class MVStore implements AutoCloseable {
 
         long version = c.version;
         List<Long> toc = new ArrayList<>();
-        for (Page<?,?> p : changed) {
-            String key = MVMap.getMapRootKey(p.getMapId());
-            if (p.getTotalCount() == 0) {
-                layout.remove(key);
-            } else {
-                p.writeUnsavedRecursive(c, buff, toc);
-                long root = p.getPos();
-                layout.put(key, Long.toHexString(root));
+        serializeLeafPages(changed);
+        try {
+            for (Page<?,?> p : changed) {
+                String key = MVMap.getMapRootKey(p.getMapId());
+                if (p.getTotalCount() == 0) {
+                    layout.remove(key);
+                } else {
+                    p.writeUnsavedRecursive(c, buff, toc);
+                    long root = p.getPos();
+                    layout.put(key, Long.toHexString(root));
+                }
             }
+        } finally {
+            serializedPages = null;
         }
 
         acceptChunkOccupancyChanges(c.time, version);
@@ -1653,6 +1776,87 @@ public class MVStore implements AutoCloseable {
         }
     }
 
+    /**
+     * Serialize keys and values of unsaved leaf pages of the changed maps in
+     * worker threads of the common fork-join pool. Pages are written into the
+     * chunk later in the usual order, so the layout of the chunk does not
+     * depend on the number of threads.
+     *
+     * @param changed the roots of changed maps
+     */
+    private void serializeLeafPages(ArrayList<Page<?,?>> changed) {
+        int threads = serializationThreads;
+        if (threads <= 1) {
+            return;
+        }
+        ArrayList<Page<?,?>> leaves = new ArrayList<>();
+        for (Page<?,?> p : changed) {
+            if (p.getTotalCount() != 0) {
+                p.collectUnsavedLeaves(leaves);
+            }
+        }
+        int count = leaves.size();
+        int tasks = Math.min(threads, count / MIN_LEAVES_PER_SERIALIZATION_TASK);
+        if (tasks <= 1) {
+            return;
+        }
+        byte[][] serialized = new byte[count][];
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        ArrayList<ForkJoinTask<?>> futures = new ArrayList<>(tasks - 1);
+        for (int i = 1; i < tasks; i++) {
+            int from = (int) ((long) count * i / tasks), to = (int) ((long) count * (i + 1) / tasks);
+            futures.add(pool.submit(() -> serializeLeafPages(leaves, serialized, from, to)));
+        }
+        // the first range is serialized by the current thread
+        RuntimeException exception = null;
+        try {
+            serializeLeafPages(leaves, serialized, 0, count / tasks);
+        } catch (RuntimeException e) {
+            exception = e;
+        }
+        for (ForkJoinTask<?> future : futures) {
+            try {
+                future.join();
+            } catch (RuntimeException e) {
+                if (exception == null) {
+                    exception = e;
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        IdentityHashMap<Page<?,?>, byte[]> map = new IdentityHashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            map.put(leaves.get(i), serialized[i]);
+        }
+        serializedPages = map;
+    }
+
+    private void serializeLeafPages(ArrayList<Page<?,?>> leaves, byte[][] serialized, int from, int to) {
+        WriteBuffer buff = new WriteBuffer();
+        // compressors aren't thread-safe, they are created for each task on
+        // demand
+        Compressor[] compressors = new Compressor[COMPRESSION_LEVEL_LZ4 + 1];
+        for (int i = from; i < to; i++) {
+            serialized[i] = leaves.get(i).serializeKeysAndValues(buff, compressors);
+        }
+    }
+
+    /**
+     * Remove and return keys and values of the specified leaf page serialized
+     * by a worker thread.
+     *
+     * @param page the page
+     * @return the serialized keys and values, see
+     *         {@link Page#serializeKeysAndValues(WriteBuffer, Compressor[])},
+     *         or null if the page was not serialized in advance
+     */
+    byte[] removeSerializedPage(Page<?,?> page) {
+        IdentityHashMap<Page<?,?>, byte[]> map = serializedPages;
+        return map != null ? map.remove(page) : null;
+    }
+
     private void storeBuffer(Chunk c, WriteBuffer buff, ArrayList<Page<?,?>> changed) {
         saveChunkLock.lock();
         try {
@@ -1947,7 +2151,7 @@ public class MVStore implements AutoCloseable {
                 submitOrRun(bufferSaveExecutor, () -> {}, true);
                 saveChunkLock.lock();
                 try {
-                    if (lastChunk != null && reuseSpace && getFillRate() <= targetFillRate) {
+                    if (lastChunk != null && isSpaceReused() && getFillRate() <= targetFillRate) {
                         res = compactMoveChunks(moveSize);
                     }
                 } finally {
@@ -1971,17 +2175,19 @@ public class MVStore implements AutoCloseable {
         assert storeLock.isHeldByCurrentThread();
         dropUnusedChunks();
         long start = fileStore.getFirstFree() / BLOCK_SIZE;
-        Iterable<Chunk> chunksToMove = findChunksToMove(start, moveSize);
+        ArrayList<Chunk> chunksToMove = findChunksToMove(start, moveSize);
         if (chunksToMove == null) {
             return false;
         }
+        long writeBytes = fileStore.getWriteBytes();
         compactMoveChunks(chunksToMove);
+        compactionScheduler.recordMove(chunksToMove.size(), fileStore.getWriteBytes() - writeBytes);
         return true;
     }
 
-    private Iterable<Chunk> findChunksToMove(long startBlock, long moveSize) {
+    private ArrayList<Chunk> findChunksToMove(long startBlock, long moveSize) {
         long maxBlocksToMove = moveSize / BLOCK_SIZE;
-        Iterable<Chunk> result = null;
+        ArrayList<Chunk> result = null;
         if (maxBlocksToMove > 0) {
             PriorityQueue<Chunk> queue = new PriorityQueue<>(chunks.size() / 2 + 1,
                     (o1, o2) -> {
@@ -2215,7 +2421,7 @@ public class MVStore implements AutoCloseable {
      * @return if a chunk was re-written
      */
     public boolean compact(int targetFillRate, int write) {
-        if (reuseSpace && lastChunk != null) {
+        if (isSpaceReused() && lastChunk != null) {
             checkOpen();
             if (targetFillRate > 0 && getChunksFillRate() < targetFillRate) {
                 // We can't wait forever for the lock here,
@@ -2247,7 +2453,14 @@ public class MVStore implements AutoCloseable {
                 Iterable<Chunk> old = findOldChunks(writeLimit, targetFillRate);
                 if (old != null) {
                     HashSet<Integer> idSet = createIdSet(old);
-                    return !idSet.isEmpty() && compactRewrite(idSet) > 0;
+                    if (!idSet.isEmpty() && compactRewrite(idSet) > 0) {
+                        long bytes = 0L;
+                        for (Chunk c : old) {
+                            bytes += c.maxLenLive;
+                        }
+                        compactionScheduler.recordRewrite(idSet.size(), bytes);
+                        return true;
+                    }
                 }
             } finally {
                 deregisterVersionUsage(txCounter);
@@ -2474,7 +2687,7 @@ public class MVStore implements AutoCloseable {
                 // !!! get page offset
                 int pageOffset = DataUtils.getPageOffset(pos);
                 try {
-                    ByteBuffer buff = chunk.readBufferForPage(fileStore, pageOffset, pos);
+                    ByteBuffer buff = readBufferForPage(chunk, pageOffset, pos);
                     p = Page.read(buff, pos, map);
                     if (p.pageNo < 0) {
                         p.pageNo = calculatePageNo(pos);
@@ -2497,6 +2710,23 @@ public class MVStore implements AutoCloseable {
         }
     }
 
+    /**
+     * Read the serialized page from the off-heap cache or from the file. Pages
+     * read from the file are copied to the off-heap cache.
+     */
+    private ByteBuffer readBufferForPage(Chunk chunk, int pageOffset, long pos) {
+        if (offHeapCache == null) {
+            return chunk.readBufferForPage(fileStore, pageOffset, pos);
+        }
+        ByteBuffer buff = offHeapCache.getPage(pos, chunk.version);
+        if (buff == null) {
+            // a page of a dropped chunk with the same id is replaced
+            buff = chunk.readBufferForPage(fileStore, pageOffset, pos);
+            offHeapCache.putPage(pos, chunk.version, buff);
+        }
+        return buff;
+    }
+
     private long[] getToC(Chunk chunk) {
         if (chunk.tocPos == 0) {
             // legacy chunk without table of content
@@ -2570,10 +2800,55 @@ public class MVStore implements AutoCloseable {
         return compressorHigh;
     }
 
+    Compressor getCompressorLZ4() {
+        if (compressorLZ4 == null) {
+            compressorLZ4 = new CompressLZ4();
+        }
+        return compressorLZ4;
+    }
+
+    /**
+     * Get the shared compressor for the specified compression level.
+     *
+     * @param compressionLevel the compression level (1, 2, or 3)
+     * @return the compressor
+     */
+    Compressor getCompressor(int compressionLevel) {
+        switch (compressionLevel) {
+        case 1:
+            return getCompressorFast();
+        case 2:
+            return getCompressorHigh();
+        default:
+            return getCompressorLZ4();
+        }
+    }
+
+    /**
+     * Create a new compressor for the specified compression level.
+     *
+     * @param compressionLevel the compression level (1, 2, or 3)
+     * @return the compressor
+     */
+    static Compressor createCompressor(int compressionLevel) {
+        switch (compressionLevel) {
+        case 1:
+            return new CompressLZF();
+        case 2:
+            return new CompressDeflate();
+        default:
+            return new CompressLZ4();
+        }
+    }
+
     int getCompressionLevel() {
         return compressionLevel;
     }
 
+    boolean isKeyEncoding() {
+        return keyEncoding;
+    }
+
     public int getPageSplitSize() {
         return pageSplitSize;
     }
@@ -2607,6 +2882,26 @@ public class MVStore implements AutoCloseable {
         this.reuseSpace = reuseSpace;
     }
 
+    /**
+     * Start a backup. Empty space in the file is not re-used until the backup
+     * is finished with {@link #endBackup()}, so the file can be copied
+     * while new versions are stored. Several backups may run concurrently.
+     */
+    public void beginBackup() {
+        backupCount.incrementAndGet();
+    }
+
+    /**
+     * Finish a backup started with {@link #beginBackup()}.
+     */
+    public void endBackup() {
+        backupCount.decrementAndGet();
+    }
+
+    private boolean isSpaceReused() {
+        return reuseSpace && backupCount.get() == 0;
+    }
+
     public int getRetentionTime() {
         return retentionTime;
     }
@@ -2969,6 +3264,9 @@ public class MVStore implements AutoCloseable {
         if (chunksToC != null) {
             chunksToC.clear();
         }
+        if (offHeapCache != null) {
+            offHeapCache.clear();
+        }
     }
 
     private long getRootPos(int mapId) {
@@ -2986,6 +3284,16 @@ public class MVStore implements AutoCloseable {
         return currentVersion;
     }
 
+    /**
+     * Get the version of the last chunk written to the file.
+     *
+     * @return the version, or 0 if nothing was written yet
+     */
+    public long getLastStoredVersion() {
+        Chunk last = lastChunk;
+        return last != null ? last.version : 0L;
+    }
+
     /**
      * Get the file store.
      *
@@ -3137,12 +3445,13 @@ public class MVStore implements AutoCloseable {
             }
             int fillRate = getFillRate();
             if (fileStore.isFragmented() && fillRate < autoCompactFillRate) {
-                if (storeLock.tryLock(10, TimeUnit.MILLISECONDS)) {
+                int moveSize = autoCommitMemory;
+                if (isIdle()) {
+                    moveSize *= 4;
+                }
+                moveSize = compactionScheduler.getBudget(moveSize);
+                if (moveSize > 0 && storeLock.tryLock(10, TimeUnit.MILLISECONDS)) {
                     try {
-                        int moveSize = autoCommitMemory;
-                        if (isIdle()) {
-                            moveSize *= 4;
-                        }
                         compactMoveChunks(101, moveSize);
                     } finally {
                         unlockAndCheckPanicCondition();
@@ -3152,12 +3461,13 @@ public class MVStore implements AutoCloseable {
                 int chunksFillRate = getRewritableChunksFillRate();
                 chunksFillRate = isIdle() ? 100 - (100 - chunksFillRate) / 2 : chunksFillRate;
                 if (chunksFillRate < getTargetFillRate()) {
-                    if (storeLock.tryLock(10, TimeUnit.MILLISECONDS)) {
+                    int writeLimit = autoCommitMemory * fillRate / Math.max(chunksFillRate, 1);
+                    if (!isIdle()) {
+                        writeLimit /= 4;
+                    }
+                    writeLimit = compactionScheduler.getBudget(writeLimit);
+                    if (writeLimit > 0 && storeLock.tryLock(10, TimeUnit.MILLISECONDS)) {
                         try {
-                            int writeLimit = autoCommitMemory * fillRate / Math.max(chunksFillRate, 1);
-                            if (!isIdle()) {
-                                writeLimit /= 4;
-                            }
                             if (rewriteChunks(writeLimit, chunksFillRate)) {
                                 dropUnusedChunks();
                             }
@@ -3178,7 +3488,7 @@ public class MVStore implements AutoCloseable {
     }
 
     private void doMaintenance(int targetFillRate) {
-        if (autoCompactFillRate > 0 && lastChunk != null && reuseSpace) {
+        if (autoCompactFillRate > 0 && lastChunk != null && isSpaceReused()) {
             try {
                 int lastProjectedFillRate = -1;
                 for (int cnt = 0; cnt < 5; cnt++) {
@@ -3455,6 +3765,56 @@ public class MVStore implements AutoCloseable {
         return getCacheHitRatio(chunksToC);
     }
 
+    public int getOffHeapCacheHitRatio() {
+        return getCacheHitRatio(offHeapCache);
+    }
+
+    /**
+     * Get the amount of off-heap memory used by the second level cache, in
+     * MB.
+     *
+     * @return the amount of memory in MB
+     */
+    public int getOffHeapCacheSizeUsed() {
+        return offHeapCache == null ? 0 : (int) (offHeapCache.getUsedMemory() >> 20);
+    }
+
+    /**
+     * Get the maximum size of the second level cache, in MB.
+     *
+     * @return the cache size, or 0 if it is disabled
+     */
+    public int getOffHeapCacheSize() {
+        return offHeapCache == null ? 0 : (int) (offHeapCache.getMaxMemory() >> 20);
+    }
+
+    /**
+     * Get the number of page cache hits.
+     *
+     * @return the number of hits
+     */
+    public long getCacheHits() {
+        return cache == null ? 0L : cache.getHits();
+    }
+
+    /**
+     * Get the number of page cache misses.
+     *
+     * @return the number of misses
+     */
+    public long getCacheMisses() {
+        return cache == null ? 0L : cache.getMisses();
+    }
+
+    /**
+     * Get the number of pages evicted from the page cache.
+     *
+     * @return the number of evictions
+     */
+    public long getCacheEvictions() {
+        return cache == null ? 0L : cache.getEvictions();
+    }
+
     private static int getCacheHitRatio(CacheLongKeyLIRS<?> cache) {
         if (cache == null) {
             return 0;
@@ -3463,6 +3823,65 @@ public class MVStore implements AutoCloseable {
         return (int) (100 * hits / (hits + cache.getMisses() + 1));
     }
 
+    /**
+     * Get the maximum rate of background compaction.
+     *
+     * @return the rate in KB per second, or 0 if not limited
+     */
+    public int getCompactionRate() {
+        return (int) (compactionScheduler.getBytesPerSecond() >> 10);
+    }
+
+    /**
+     * Get the number of chunks rewritten by compaction since the store was
+     * opened.
+     *
+     * @return the number of chunks
+     */
+    public long getRewrittenChunkCount() {
+        return compactionScheduler.getRewrittenChunks();
+    }
+
+    /**
+     * Get the amount of live data in chunks rewritten by compaction since the
+     * store was opened.
+     *
+     * @return the number of bytes
+     */
+    public long getRewrittenBytes() {
+        return compactionScheduler.getRewrittenBytes();
+    }
+
+    /**
+     * Get the number of chunks moved by compaction since the store was
+     * opened.
+     *
+     * @return the number of chunks
+     */
+    public long getMovedChunkCount() {
+        return compactionScheduler.getMovedChunks();
+    }
+
+    /**
+     * Get the number of bytes written by moving chunks since the store was
+     * opened.
+     *
+     * @return the number of bytes
+     */
+    public long getMovedBytes() {
+        return compactionScheduler.getMovedBytes();
+    }
+
+    /**
+     * Get the number of times background compaction was postponed because
+     * the compaction rate was exceeded.
+     *
+     * @return the number of postponed compactions
+     */
+    public long getCompactionThrottledCount() {
+        return compactionScheduler.getThrottledCount();
+    }
+
     public int getLeafRatio() {
         return (int)(leafCount * 100 / Math.max(1, leafCount + nonLeafCount));
     }
@@ -3570,10 +3989,15 @@ public class MVStore implements AutoCloseable {
                     if (chunks.remove(chunk.id) != null) {
                         // purge dead pages from cache
                         long[] toc = chunksToC.remove(chunk.id);
-                        if (toc != null && cache != null) {
+                        if (toc != null) {
                             for (long tocElement : toc) {
                                 long pagePos = DataUtils.getPagePos(chunk.id, tocElement);
-                                cache.remove(pagePos);
+                                if (cache != null) {
+                                    cache.remove(pagePos);
+                                }
+                                if (offHeapCache != null) {
+                                    offHeapCache.remove(pagePos);
+                                }
                             }
                         }
 
@@ -3772,9 +4196,14 @@ public class MVStore implements AutoCloseable {
      * - cacheSize: the cache size in MB.
      * - compress: compress the data when storing using a fast algorithm (LZF).
      * - compressHigh: compress the data when storing using a slower algorithm (Deflate).
+     * - compactionRate: the maximum rate of background compaction in KB/s.
+     * - compressLZ4: compress the data when storing using the LZ4 algorithm.
+     * - encodeKeys: store keys of pages on disk with prefix and delta encoding.
      * - encryptionKey: the key for file encryption.
      * - fileName: the name of the file, for file based stores.
      * - fileStore: the storage implementation to use.
+     * - memoryMapped: read the file through memory-mapped regions.
+     * - offHeapCacheSize: the size of the off-heap page cache in MB.
      * - readOnly: open the file in read-only mode.
      */
     public static final class Builder {
@@ -3847,6 +4276,21 @@ public class MVStore implements AutoCloseable {
             return set("autoCompactFillRate", percent);
         }
 
+        /**
+         * Set the maximum rate of background compaction. Chunks are rewritten
+         * and moved in small steps, so that the amount of rewritten and moved
+         * data doesn't exceed this rate. The rate isn't applied to explicit
+         * compaction, but such compaction delays background compaction.
+         * <p>
+         * The default value is 0 (not limited).
+         *
+         * @param kbPerSecond the rate in KB per second
+         * @return this
+         */
+        public Builder compactionRate(int kbPerSecond) {
+            return set("compactionRate", kbPerSecond);
+        }
+
         /**
          * Use the following file name. If the file does not exist, it is
          * automatically created. The parent directory already must exist.
@@ -3929,6 +4373,32 @@ public class MVStore implements AutoCloseable {
             return set("cacheConcurrency", concurrency);
         }
 
+        /**
+         * Read pages from memory-mapped regions of the file instead of
+         * reading them into new buffers. This avoids a system call and a copy
+         * for each page read from the file, but uses the address space of the
+         * process. Encrypted files are read as usual.
+         *
+         * @return this
+         */
+        public Builder memoryMapped() {
+            return set("memoryMapped", 1);
+        }
+
+        /**
+         * Set the size of the second level cache in MB. This cache keeps
+         * serialized (and possibly compressed) pages in direct buffers outside
+         * of the heap, so the page cache may be kept small. The maximum size
+         * of direct memory of the JVM (-XX:MaxDirectMemorySize) should be
+         * larger than this value. The default is 0 (disabled).
+         *
+         * @param mb the cache size in megabytes
+         * @return this
+         */
+        public Builder offHeapCacheSize(int mb) {
+            return set("offHeapCacheSize", mb);
+        }
+
         /**
          * Compress data before writing using the LZF algorithm. This will save
          * about 50% of the disk space, but will slow down read and write
@@ -3959,6 +4429,53 @@ public class MVStore implements AutoCloseable {
             return set("compress", 2);
         }
 
+        /**
+         * Compress data before writing using the LZ4 algorithm. The
+         * compression ratio is similar to LZF, but pages are expanded faster
+         * when they are read.
+         * <p>
+         * This setting only affects writes; it is not necessary to enable
+         * compression when reading, even if compression was enabled when
+         * writing. Compression of individual maps may be changed with
+         * {@link MVMap#setCompressionLevel(int)}.
+         *
+         * @return this
+         */
+        public Builder compressLZ4() {
+            return set("compress", COMPRESSION_LEVEL_LZ4);
+        }
+
+        /**
+         * Store keys of new pages in the compact form. Sorted long keys are
+         * stored as differences between adjacent keys, and other keys are
+         * stored without the prefix shared with the previous key. This
+         * reduces the size on disk of pages with long string keys, such as
+         * pages of indexes on VARCHAR columns, and with increasing long keys.
+         * <p>
+         * This setting only affects writes; pages are decoded when they are
+         * read, so pages in the cache use as much memory as without the
+         * encoding.
+         *
+         * @return this
+         */
+        public Builder encodeKeys() {
+            return set("encodeKeys", 1);
+        }
+
+        /**
+         * Set the maximum number of threads used to serialize and compress
+         * leaf pages when a chunk is written. Pages are serialized by tasks in
+         * the common fork-join pool, the layout of written chunks does not
+         * depend on this setting. The default is the number of available
+         * processors, 1 disables parallel serialization.
+         *
+         * @param threads the maximum number of threads
+         * @return this
+         */
+        public Builder serializationThreads(int threads) {
+            return set("serializationThreads", threads);
+        }
+
         /**
          * Set the amount of memory a page should contain at most, in bytes,
          * before it is split. The default is 16 KB for persistent stores and 4
@@ -18,6 +18,7 @@ import java.util.Map.Entry;
 import java.util.TreeMap;
 
 import org.guinsoo.compress.CompressDeflate;
+import org.guinsoo.compress.CompressLZ4;
 import org.guinsoo.compress.CompressLZF;
 import org.guinsoo.mvstore.tx.TransactionStore;
 import org.guinsoo.mvstore.type.BasicDataType;
@@ -235,8 +236,7 @@ public class MVStoreTool {
                     if (mapId == 0 && details) {
                         ByteBuffer data;
                         if (compressed) {
-                            boolean fast = (type & DataUtils.PAGE_COMPRESSED_HIGH) != DataUtils.PAGE_COMPRESSED_HIGH;
-                            Compressor compressor = getCompressor(fast);
+                            Compressor compressor = getCompressor(type);
                             int lenAdd = DataUtils.readVarInt(chunk);
                             int compLen = pageSize + start - chunk.position();
                             byte[] comp = Utils.newBytes(compLen);
@@ -247,9 +247,13 @@ public class MVStoreTool {
                         } else {
                             data = chunk;
                         }
-                        for (int i = 0; i < entries; i++) {
-                            String k = StringDataType.INSTANCE.read(data);
-                            keys[i] = k;
+                        if ((type & DataUtils.PAGE_ENCODED_KEYS) != 0) {
+                            KeyEncoder.read(StringDataType.INSTANCE, data, keys, entries);
+                        } else {
+                            for (int i = 0; i < entries; i++) {
+                                String k = StringDataType.INSTANCE.read(data);
+                                keys[i] = k;
+                            }
                         }
                         if (node) {
                             // meta map node
@@ -331,8 +335,12 @@ public class MVStoreTool {
         pw.flush();
     }
 
-    private static Compressor getCompressor(boolean fast) {
-        return fast ? new CompressLZF() : new CompressDeflate();
+    private static Compressor getCompressor(int type) {
+        if ((type & DataUtils.PAGE_COMPRESSED_LZ4) == DataUtils.PAGE_COMPRESSED_LZ4) {
+            return new CompressLZ4();
+        }
+        return (type & DataUtils.PAGE_COMPRESSED_HIGH) != DataUtils.PAGE_COMPRESSED_HIGH ? new CompressLZF()
+                : new CompressDeflate();
     }
 
     /**
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.mvstore;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.TreeSet;
+
+import org.guinsoo.mvstore.cache.CacheLongKeyLIRS;
+
+/**
+ * The second level cache of serialized pages, as they are stored in the file.
+ * Pages are kept outside of the heap in slices of a few large direct buffers.
+ * <p>
+ * Slices are allocated with a buddy allocator: their sizes are powers of two,
+ * and free neighbours are merged. A slice is released as soon as its page is
+ * evicted or removed from the cache, so the direct memory never exceeds the
+ * size of the cache by more than one buffer, and it doesn't depend on the
+ * garbage collector. A page is not cached if there is no free slice for it.
+ * <p>
+ * Pages are copied from the slice while the slice is locked, so a slice is
+ * never reused while it is read.
+ */
+final class OffHeapPageCache extends CacheLongKeyLIRS<OffHeapPageCache.Slice> {
+
+    /**
+     * The binary logarithm of the size of the smallest slice.
+     */
+    private static final int MIN_SHIFT = 6;
+
+    /**
+     * The binary logarithm of the size of the largest buffer.
+     */
+    private static final int MAX_BLOCK_SHIFT = 22;
+
+    /**
+     * A slice with a cached page.
+     */
+    static final class Slice {
+
+        /**
+         * The version of the chunk of the page, because ids of chunks are
+         * reused.
+         */
+        final long version;
+
+        /**
+         * The position of the slice, the number of its buffer in the upper
+         * bits and the offset in the buffer in the lower bits.
+         */
+        final long address;
+
+        /**
+         * The binary logarithm of the size of the slice.
+         */
+        final int shift;
+
+        /**
+         * The length of the page.
+         */
+        final int length;
+
+        /**
+         * Whether the slice was released, guarded by the slice.
+         */
+        boolean released;
+
+        Slice(long version, long address, int shift, int length) {
+            this.version = version;
+            this.address = address;
+            this.shift = shift;
+            this.length = length;
+        }
+    }
+
+    private final int blockShift;
+
+    private ByteBuffer[] blocks;
+
+    private int blockCount;
+
+    /**
+     * The addresses of free slices for each size, from the smallest size.
+     */
+    private final ArrayList<TreeSet<Long>> freeSlices;
+
+    /**
+     * Create a new cache.
+     *
+     * @param config the configuration of the cache, weak references must be
+     *        disabled
+     */
+    OffHeapPageCache(Config config) {
+        super(config);
+        long maxMemory = config.maxMemory;
+        blockShift = Math.min(MAX_BLOCK_SHIFT, 63 - Long.numberOfLeadingZeros(maxMemory));
+        // one more buffer, because new pages are allocated before other pages
+        // are evicted
+        blocks = new ByteBuffer[(int) ((maxMemory + (1L << blockShift) - 1) >>> blockShift) + 1];
+        freeSlices = new ArrayList<>(blockShift - MIN_SHIFT + 1);
+        for (int shift = MIN_SHIFT; shift <= blockShift; shift++) {
+            freeSlices.add(new TreeSet<>());
+        }
+    }
+
+    /**
+     * Get a copy of a cached page.
+     *
+     * @param pos the position of the page
+     * @param version the version of the chunk of the page
+     * @return the page, or null if it is not cached
+     */
+    ByteBuffer getPage(long pos, long version) {
+        Slice slice = get(pos);
+        if (slice != null) {
+            synchronized (slice) {
+                // the slice may be evicted concurrently
+                if (!slice.released && slice.version == version) {
+                    ByteBuffer buff = ByteBuffer.allocate(slice.length);
+                    buff.put(getSliceBuffer(slice)).flip();
+                    return buff;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copy a page to the cache.
+     *
+     * @param pos the position of the page
+     * @param version the version of the chunk of the page
+     * @param buff the page, its position is not changed
+     */
+    void putPage(long pos, long version, ByteBuffer buff) {
+        int length = buff.remaining();
+        int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(length - 1));
+        if (shift > blockShift || 1L << shift > getMaxItemSize()) {
+            return;
+        }
+        long address = allocate(shift);
+        if (address < 0) {
+            return;
+        }
+        Slice slice = new Slice(version, address, shift, length);
+        synchronized (slice) {
+            getSliceBuffer(slice).put(buff.duplicate());
+        }
+        put(pos, slice, 1 << shift);
+    }
+
+    @Override
+    protected void onRemove(Slice slice) {
+        synchronized (slice) {
+            if (slice.released) {
+                return;
+            }
+            slice.released = true;
+        }
+        free(slice.address, slice.shift);
+    }
+
+    /**
+     * Remove all pages and release the buffers.
+     */
+    void close() {
+        clear();
+        synchronized (this) {
+            blocks = new ByteBuffer[0];
+            blockCount = 0;
+            for (TreeSet<Long> set : freeSlices) {
+                set.clear();
+            }
+        }
+    }
+
+    private ByteBuffer getSliceBuffer(Slice slice) {
+        ByteBuffer buff = blocks[(int) (slice.address >>> blockShift)].duplicate();
+        int offset = (int) slice.address & (1 << blockShift) - 1;
+        buff.limit(offset + slice.length).position(offset);
+        return buff;
+    }
+
+    private synchronized long allocate(int shift) {
+        Long free = null;
+        int s = shift;
+        for (; s <= blockShift; s++) {
+            free = freeSlices.get(s - MIN_SHIFT).pollFirst();
+            if (free != null) {
+                break;
+            }
+        }
+        long address;
+        if (free != null) {
+            address = free;
+        } else if (blockCount < blocks.length) {
+            blocks[blockCount] = ByteBuffer.allocateDirect(1 << blockShift);
+            address = (long) blockCount++ << blockShift;
+            s = blockShift;
+        } else {
+            return -1;
+        }
+        // split the slice, the upper halves become free
+        while (s > shift) {
+            s--;
+            freeSlices.get(s - MIN_SHIFT).add(address | 1L << s);
+        }
+        return address;
+    }
+
+    private synchronized void free(long address, int shift) {
+        if (blockCount == 0) {
+            // closed
+            return;
+        }
+        // merge with free buddies
+        for (; shift < blockShift; shift++) {
+            long buddy = address ^ 1L << shift;
+            if (!freeSlices.get(shift - MIN_SHIFT).remove(buddy)) {
+                break;
+            }
+            address &= ~(1L << shift);
+        }
+        freeSlices.get(shift - MIN_SHIFT).add(address);
+    }
+}
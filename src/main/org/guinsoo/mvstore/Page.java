@@ -618,7 +618,10 @@ public abstract class Page<K,V> implements Cloneable {
         boolean compressed = (type & DataUtils.PAGE_COMPRESSED) != 0;
         if (compressed) {
             Compressor compressor;
-            if ((type & DataUtils.PAGE_COMPRESSED_HIGH) ==
+            if ((type & DataUtils.PAGE_COMPRESSED_LZ4) ==
+                    DataUtils.PAGE_COMPRESSED_LZ4) {
+                compressor = map.getStore().getCompressorLZ4();
+            } else if ((type & DataUtils.PAGE_COMPRESSED_HIGH) ==
                     DataUtils.PAGE_COMPRESSED_HIGH) {
                 compressor = map.getStore().getCompressorHigh();
             } else {
@@ -640,7 +643,11 @@ public abstract class Page<K,V> implements Cloneable {
             compressor.expand(comp, pos, compLen, buff.array(),
                     buff.arrayOffset(), l);
         }
-        map.getKeyType().read(buff, keys, len);
+        if ((type & DataUtils.PAGE_ENCODED_KEYS) != 0) {
+            KeyEncoder.read(map.getKeyType(), buff, keys, len);
+        } else {
+            map.getKeyType().read(buff, keys, len);
+        }
         if (isLeaf()) {
             readPayLoad(buff);
         }
@@ -703,47 +710,33 @@ public abstract class Page<K,V> implements Cloneable {
             putVarInt(map.getId()).
             putVarInt(len);
         int typePos = buff.position();
-        buff.put((byte) (type | DataUtils.PAGE_HAS_PAGE_NO));
+        MVStore store = map.getStore();
+        int flags = DataUtils.PAGE_HAS_PAGE_NO;
+        if (store.isKeyEncoding()) {
+            flags |= DataUtils.PAGE_ENCODED_KEYS;
+        }
+        buff.put((byte) (type | flags));
         int childrenPos = buff.position();
         writeChildren(buff, true);
         int compressStart = buff.position();
-        map.getKeyType().write(buff, keys, len);
-        writeValues(buff);
-        MVStore store = map.getStore();
-        int expLen = buff.position() - compressStart;
-        if (expLen > 16) {
-            int compressionLevel = store.getCompressionLevel();
-            if (compressionLevel > 0) {
-                Compressor compressor;
-                int compressType;
-                if (compressionLevel == 1) {
-                    compressor = store.getCompressorFast();
-                    compressType = DataUtils.PAGE_COMPRESSED;
-                } else {
-                    compressor = store.getCompressorHigh();
-                    compressType = DataUtils.PAGE_COMPRESSED_HIGH;
-                }
-                byte[] comp = new byte[expLen * 2];
-                ByteBuffer byteBuffer = buff.getBuffer();
-                int pos = 0;
-                byte[] exp;
-                if (byteBuffer.hasArray()) {
-                    exp = byteBuffer.array();
-                    pos = byteBuffer.arrayOffset()  + compressStart;
-                } else {
-                    exp = Utils.newBytes(expLen);
-                    buff.position(compressStart).get(exp);
-                }
-                int compLen = compressor.compress(exp, pos, expLen, comp, 0);
-                int plus = DataUtils.getVarIntLen(compLen - expLen);
-                if (compLen + plus < expLen) {
-                    buff.position(typePos)
-                        .put((byte) (type | DataUtils.PAGE_HAS_PAGE_NO | compressType));
-                    buff.position(compressStart)
-                        .putVarInt(expLen - compLen)
-                        .put(comp, 0, compLen);
-                }
-            }
+        byte[] serialized = store.removeSerializedPage(this);
+        int compressType;
+        if (serialized != null) {
+            // keys and values were serialized and compressed by a worker
+            compressType = serialized[0];
+            buff.put(serialized, 1, serialized.length - 1);
+        } else {
+            writeKeys(buff, len);
+            writeValues(buff);
+            int compressionLevel = map.getCompressionLevel();
+            compressType = compressionLevel == 0 ? 0
+                    : compress(buff, compressStart, compressionLevel, store.getCompressor(compressionLevel));
+        }
+        if (compressType != 0) {
+            int end = buff.position();
+            buff.position(typePos)
+                .put((byte) (type | flags | compressType))
+                .position(end);
         }
         int pageLength = buff.position() - start;
         if (pageNo >= 0) {
@@ -782,6 +775,91 @@ public abstract class Page<K,V> implements Cloneable {
         return childrenPos;
     }
 
+    /**
+     * Serialize keys and values of this leaf page in advance, so the page may
+     * be written into a chunk later without serialization. This method may be
+     * invoked concurrently for different pages.
+     *
+     * @param buff the temporary buffer
+     * @param compressors the compressors owned by the current thread indexed
+     *            by compression level, missing compressors are created
+     * @return the compression flag of the page type followed by serialized
+     *         (and possibly compressed) keys and values
+     */
+    final byte[] serializeKeysAndValues(WriteBuffer buff, Compressor[] compressors) {
+        buff.clear();
+        buff.put((byte) 0);
+        writeKeys(buff, getKeyCount());
+        writeValues(buff);
+        int compressionLevel = map.getCompressionLevel();
+        int compressType = 0;
+        if (compressionLevel > 0) {
+            Compressor compressor = compressors[compressionLevel];
+            if (compressor == null) {
+                compressors[compressionLevel] = compressor = MVStore.createCompressor(compressionLevel);
+            }
+            compressType = compress(buff, 1, compressionLevel, compressor);
+        }
+        int length = buff.position();
+        buff.position(0).put((byte) compressType);
+        byte[] serialized = new byte[length];
+        buff.position(0).get(serialized);
+        return serialized;
+    }
+
+    private void writeKeys(WriteBuffer buff, int len) {
+        if (map.getStore().isKeyEncoding()) {
+            KeyEncoder.write(map.getKeyType(), buff, keys, len);
+        } else {
+            map.getKeyType().write(buff, keys, len);
+        }
+    }
+
+    /**
+     * Compress serialized keys and values in the buffer if compression is
+     * enabled and it reduces the size.
+     *
+     * @param buff the buffer positioned at the end of data
+     * @param compressStart the start of data
+     * @param compressionLevel the compression level
+     * @param compressor the compressor for this level
+     * @return the compression flag of the page type, or 0 if data was not
+     *         compressed
+     */
+    private static int compress(WriteBuffer buff, int compressStart, int compressionLevel, Compressor compressor) {
+        int expLen = buff.position() - compressStart;
+        if (expLen > 16 && compressionLevel > 0) {
+            byte[] comp = new byte[expLen * 2];
+            ByteBuffer byteBuffer = buff.getBuffer();
+            int pos = 0;
+            byte[] exp;
+            if (byteBuffer.hasArray()) {
+                exp = byteBuffer.array();
+                pos = byteBuffer.arrayOffset()  + compressStart;
+            } else {
+                exp = Utils.newBytes(expLen);
+                buff.position(compressStart).get(exp);
+            }
+            int compLen = compressor.compress(exp, pos, expLen, comp, 0);
+            int plus = DataUtils.getVarIntLen(compLen - expLen);
+            if (compLen + plus < expLen) {
+                buff.position(compressStart)
+                    .putVarInt(expLen - compLen)
+                    .put(comp, 0, compLen);
+                switch (compressionLevel) {
+                case 1:
+                    return DataUtils.PAGE_COMPRESSED;
+                case 2:
+                    return DataUtils.PAGE_COMPRESSED_HIGH;
+                default:
+                    return DataUtils.PAGE_COMPRESSED_LZ4;
+                }
+            }
+            buff.position(compressStart + expLen);
+        }
+        return 0;
+    }
+
     /**
      * Write values that the buffer contains to the buff.
      *
@@ -806,6 +884,14 @@ public abstract class Page<K,V> implements Cloneable {
      */
     abstract void writeUnsavedRecursive(Chunk chunk, WriteBuffer buff, List<Long> toc);
 
+    /**
+     * Collect unsaved leaf pages that will be stored by
+     * {@link #writeUnsavedRecursive(Chunk, WriteBuffer, List)}.
+     *
+     * @param leaves the target list
+     */
+    abstract void collectUnsavedLeaves(List<Page<?,?>> leaves);
+
     /**
      * Unlink the children recursively after all data is written.
      */
@@ -1314,6 +1400,23 @@ public abstract class Page<K,V> implements Cloneable {
             }
         }
 
+        @Override
+        void collectUnsavedLeaves(List<Page<?,?>> leaves) {
+            if (!isSaved()) {
+                collectChildrenUnsavedLeaves(leaves);
+            }
+        }
+
+        void collectChildrenUnsavedLeaves(List<Page<?,?>> leaves) {
+            int len = getRawChildPageCount();
+            for (int i = 0; i < len; i++) {
+                Page<K,V> p = children[i].getPage();
+                if (p != null) {
+                    p.collectUnsavedLeaves(leaves);
+                }
+            }
+        }
+
         void writeChildrenRecursive(Chunk chunk, WriteBuffer buff, List<Long> toc) {
             int len = getRawChildPageCount();
             for (int i = 0; i < len; i++) {
@@ -1386,6 +1489,15 @@ public abstract class Page<K,V> implements Cloneable {
             }
         }
 
+        @Override
+        void collectUnsavedLeaves(List<Page<?,?>> leaves) {
+            if (complete) {
+                super.collectUnsavedLeaves(leaves);
+            } else if (!isSaved()) {
+                collectChildrenUnsavedLeaves(leaves);
+            }
+        }
+
         @Override
         public boolean isComplete() {
             return complete;
@@ -1598,6 +1710,13 @@ public abstract class Page<K,V> implements Cloneable {
             }
         }
 
+        @Override
+        void collectUnsavedLeaves(List<Page<?,?>> leaves) {
+            if (!isSaved()) {
+                leaves.add(this);
+            }
+        }
+
         @Override
         void releaseSavedPages() {}
 
@@ -12,6 +12,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import org.guinsoo.mvstore.DataUtils;
 
 /**
@@ -38,7 +42,14 @@ import org.guinsoo.mvstore.DataUtils;
  * Accessed entries are only moved to the top of the stack if at least a number
  * of other entries have been moved to the front (8 per segment by default).
  * Write access and moving entries to the top of the stack is synchronized per
- * segment.
+ * segment. If this number is not 0, cache hits don't lock: accessed entries are
+ * recorded in a small lossy buffer of the segment, and the buffer is drained by
+ * the next writer or by a reader when it is filled.
+ * <p>
+ * Optionally, new entries are only admitted to a full segment if they were
+ * requested more frequently than the entry that would be evicted (TinyLFU).
+ * Frequencies of keys are estimated by a count-min sketch with 4-bit counters
+ * that are halved periodically.
  *
  * @author Thomas Mueller
  * @param <V> the value type
@@ -58,6 +69,12 @@ public class CacheLongKeyLIRS<V> {
     private final int stackMoveDistance;
     private final int nonResidentQueueSize;
     private final int nonResidentQueueSizeHigh;
+    private final boolean admissionFilter;
+    private final boolean weakReferences;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
 
     /**
      * Create a new cache with the given memory size.
@@ -75,6 +92,8 @@ public class CacheLongKeyLIRS<V> {
         this.segmentCount = config.segmentCount;
         this.segmentMask = segmentCount - 1;
         this.stackMoveDistance = config.stackMoveDistance;
+        this.admissionFilter = config.admissionFilter;
+        this.weakReferences = config.weakReferences;
         segments = new Segment[segmentCount];
         clear();
         // use the high bits for the segment
@@ -87,9 +106,15 @@ public class CacheLongKeyLIRS<V> {
     public void clear() {
         long max = getMaxItemSize();
         for (int i = 0; i < segmentCount; i++) {
-            segments[i] = new Segment<>(max, stackMoveDistance, 8, nonResidentQueueSize,
-                                        nonResidentQueueSizeHigh);
+            Segment<V> old = segments[i];
+            segments[i] = new Segment<>(this, max, stackMoveDistance, 8, nonResidentQueueSize,
+                                        nonResidentQueueSizeHigh, admissionFilter);
+            if (old != null) {
+                old.removeAll();
+            }
         }
+        hits.reset();
+        misses.reset();
     }
 
     /**
@@ -194,6 +219,19 @@ public class CacheLongKeyLIRS<V> {
         return 1;
     }
 
+    /**
+     * Called when a value leaves the cache: when it is evicted, removed or
+     * replaced, when it is not admitted, and for all values when the cache is
+     * cleared. Unless weak references are disabled, evicted values may still
+     * be returned by {@link #get(long)} and {@link #remove(long)} until they
+     * are garbage collected. The default implementation does nothing.
+     *
+     * @param value the value
+     */
+    @SuppressWarnings("unused")
+    protected void onRemove(V value) {
+    }
+
     /**
      * Remove an entry. Both resident and non-resident entries can be
      * removed.
@@ -237,7 +275,16 @@ public class CacheLongKeyLIRS<V> {
         int hash = getHash(key);
         Segment<V> s = getSegment(hash);
         Entry<V> e = s.find(key, hash);
-        return s.get(e);
+        V value = e == null ? null : e.getValue();
+        if (value == null) {
+            // the entry was not found
+            // or it was a non-resident entry
+            misses.increment();
+        } else {
+            hits.increment();
+            s.recordAccess(e);
+        }
+        return value;
     }
 
     private Segment<V> getSegment(int hash) {
@@ -374,11 +421,7 @@ public class CacheLongKeyLIRS<V> {
      * @return the cache hits
      */
     public long getHits() {
-        long x = 0;
-        for (Segment<V> s : segments) {
-            x += s.hits;
-        }
-        return x;
+        return hits.sum();
     }
 
     /**
@@ -387,9 +430,20 @@ public class CacheLongKeyLIRS<V> {
      * @return the cache misses
      */
     public long getMisses() {
-        int x = 0;
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of resident entries that became non-resident or were
+     * removed to free memory, including new entries that were rejected by the
+     * admission filter.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        long x = 0;
         for (Segment<V> s : segments) {
-            x += s.misses;
+            x += s.evictions;
         }
         return x;
     }
@@ -497,6 +551,17 @@ public class CacheLongKeyLIRS<V> {
         }
     }
 
+    /**
+     * The size of read buffers of segments (must be a power of 2).
+     */
+    static final int READ_BUFFER_SIZE = 32;
+
+    /**
+     * The number of pending entries in a read buffer that causes a reader to
+     * drain it.
+     */
+    static final int READ_BUFFER_DRAIN_THRESHOLD = 16;
+
     /**
      * A cache segment
      *
@@ -504,6 +569,11 @@ public class CacheLongKeyLIRS<V> {
      */
     private static class Segment<V> {
 
+        /**
+         * The cache that owns this segment.
+         */
+        private final CacheLongKeyLIRS<V> cache;
+
         /**
          * The number of (hot, cold, and non-resident) entries in the map.
          */
@@ -520,14 +590,9 @@ public class CacheLongKeyLIRS<V> {
         int queue2Size;
 
         /**
-         * The number of cache hits.
+         * The number of evicted entries.
          */
-        long hits;
-
-        /**
-         * The number of cache misses.
-         */
-        long misses;
+        long evictions;
 
         /**
          * The map array. The size is always a power of 2.
@@ -602,17 +667,49 @@ public class CacheLongKeyLIRS<V> {
          */
         private int stackMoveCounter;
 
+        /**
+         * The estimated frequencies of keys, or null if new entries are
+         * always admitted.
+         */
+        private final FrequencySketch sketch;
+
+        /**
+         * Recently accessed entries that aren't processed yet, or null if
+         * accessed entries are processed immediately.
+         */
+        private final AtomicReferenceArray<Entry<V>> readBuffer;
+
+        /**
+         * The number of entries added to the read buffer.
+         */
+        private final AtomicLong readBufferWriteCount;
+
+        /**
+         * The number of processed entries of the read buffer.
+         */
+        private volatile long readBufferReadCount;
+
+        /**
+         * Whether a reader drains the read buffer.
+         */
+        private final AtomicBoolean draining;
+
         /**
          * Create a new cache segment.
-         *  @param maxMemory the maximum memory to use
+         *
+         * @param cache the cache that owns this segment
+         * @param maxMemory the maximum memory to use
          * @param stackMoveDistance the number of other entries to be moved to
          *        the top of the stack before moving an entry to the top
          * @param len the number of hash table buckets (must be a power of 2)
          * @param nonResidentQueueSize the non-resident queue size low watermark factor
          * @param nonResidentQueueSizeHigh  the non-resident queue size high watermark factor
+         * @param admissionFilter whether new entries are admitted to a full
+         *        segment only if they are used more frequently
          */
-        Segment(long maxMemory, int stackMoveDistance, int len,
-                int nonResidentQueueSize, int nonResidentQueueSizeHigh) {
+        Segment(CacheLongKeyLIRS<V> cache, long maxMemory, int stackMoveDistance, int len,
+                int nonResidentQueueSize, int nonResidentQueueSizeHigh, boolean admissionFilter) {
+            this.cache = cache;
             setMaxMemory(maxMemory);
             this.stackMoveDistance = stackMoveDistance;
             this.nonResidentQueueSize = nonResidentQueueSize;
@@ -632,6 +729,16 @@ public class CacheLongKeyLIRS<V> {
             @SuppressWarnings("unchecked")
             Entry<V>[] e = new Entry[len];
             entries = e;
+            sketch = admissionFilter ? new FrequencySketch(len) : null;
+            if (stackMoveDistance != 0) {
+                readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+                readBufferWriteCount = new AtomicLong();
+                draining = new AtomicBoolean();
+            } else {
+                readBuffer = null;
+                readBufferWriteCount = null;
+                draining = null;
+            }
         }
 
         /**
@@ -643,10 +750,13 @@ public class CacheLongKeyLIRS<V> {
          * @param len the number of hash table buckets (must be a power of 2)
          */
         Segment(Segment<V> old, int len) {
-            this(old.maxMemory, old.stackMoveDistance, len,
-                    old.nonResidentQueueSize, old.nonResidentQueueSizeHigh);
-            hits = old.hits;
-            misses = old.misses;
+            this(old.cache, old.maxMemory, old.stackMoveDistance, len,
+                    old.nonResidentQueueSize, old.nonResidentQueueSizeHigh, old.sketch != null);
+            evictions = old.evictions;
+            if (sketch != null) {
+                sketch.copy(old.sketch);
+            }
+            old.drainReadBuffer();
             Entry<V> s = old.stack.stackPrev;
             while (s != old.stack) {
                 Entry<V> e = new Entry<>(s);
@@ -703,24 +813,67 @@ public class CacheLongKeyLIRS<V> {
         }
 
         /**
-         * Get the value from the given entry.
-         * This method adjusts the internal state of the cache sometimes,
-         * to ensure commonly used entries stay in the cache.
+         * Record access to the entry with a value. If read buffer is used,
+         * this method does not lock the segment, unless the buffer needs to
+         * be drained.
          *
          * @param e the entry
-         * @return the value, or null if there is no resident entry
          */
-        synchronized V get(Entry<V> e) {
-            V value = e == null ? null : e.getValue();
-            if (value == null) {
-                // the entry was not found
-                // or it was a non-resident entry
-                misses++;
-            } else {
+        void recordAccess(Entry<V> e) {
+            AtomicReferenceArray<Entry<V>> readBuffer = this.readBuffer;
+            if (readBuffer == null) {
+                synchronized (this) {
+                    if (sketch != null) {
+                        sketch.increment(getHash(e.key));
+                    }
+                    access(e);
+                }
+                return;
+            }
+            long w = readBufferWriteCount.get();
+            long pending = w - readBufferReadCount;
+            if (pending < READ_BUFFER_SIZE && readBufferWriteCount.compareAndSet(w, w + 1)) {
+                readBuffer.lazySet((int) w & (READ_BUFFER_SIZE - 1), e);
+                pending++;
+            }
+            // if the buffer is full or contended, the access is not recorded
+            if (pending >= READ_BUFFER_DRAIN_THRESHOLD && draining.compareAndSet(false, true)) {
+                try {
+                    synchronized (this) {
+                        drainReadBuffer();
+                    }
+                } finally {
+                    draining.set(false);
+                }
+            }
+        }
+
+        /**
+         * Process entries of the read buffer. The caller must synchronize on
+         * this segment.
+         */
+        void drainReadBuffer() {
+            AtomicReferenceArray<Entry<V>> readBuffer = this.readBuffer;
+            if (readBuffer == null) {
+                return;
+            }
+            long r = readBufferReadCount, w = readBufferWriteCount.get();
+            for (; r < w; r++) {
+                int index = (int) r & (READ_BUFFER_SIZE - 1);
+                Entry<V> e = readBuffer.get(index);
+                if (e == null) {
+                    // not published yet
+                    break;
+                }
+                readBuffer.lazySet(index, null);
+                if (sketch != null) {
+                    sketch.increment(getHash(e.key));
+                }
+                // entries that were removed in the meantime are neither in
+                // the stack nor in a queue and are ignored by access()
                 access(e);
-                hits++;
             }
-            return value;
+            readBufferReadCount = r;
         }
 
         /**
@@ -788,6 +941,10 @@ public class CacheLongKeyLIRS<V> {
          * @return the old value, or null if there was no resident entry
          */
         synchronized V put(long key, int hash, V value, int memory) {
+            drainReadBuffer();
+            if (sketch != null) {
+                sketch.increment(hash);
+            }
             Entry<V> e = find(key, hash);
             boolean existed = e != null;
             V old = null;
@@ -797,6 +954,15 @@ public class CacheLongKeyLIRS<V> {
             }
             if (memory > maxMemory) {
                 // the new entry is too big to fit
+                cache.onRemove(value);
+                return old;
+            }
+            if (!existed && sketch != null && usedMemory + memory > maxMemory && queueSize > 0
+                    && sketch.frequency(hash) <= sketch.frequency(getHash(queue.queuePrev.key))) {
+                // unknown entry isn't used more frequently than the entry
+                // that would be evicted
+                evictions++;
+                cache.onRemove(value);
                 return old;
             }
             e = new Entry<>(key, value, memory);
@@ -852,6 +1018,9 @@ public class CacheLongKeyLIRS<V> {
                 last.mapNext = e.mapNext;
             }
             V old = e.getValue();
+            if (e.value != null) {
+                cache.onRemove(old);
+            }
             mapSize--;
             usedMemory -= e.getMemory();
             if (e.stackNext != null) {
@@ -896,8 +1065,12 @@ public class CacheLongKeyLIRS<V> {
             while (usedMemory > maxMemory && queueSize > 0) {
                 Entry<V> e = queue.queuePrev;
                 usedMemory -= e.memory;
+                evictions++;
                 removeFromQueue(e);
-                e.reference = new WeakReference<>(e.value);
+                cache.onRemove(e.value);
+                if (cache.weakReferences) {
+                    e.reference = new WeakReference<>(e.value);
+                }
                 e.value = null;
                 addToQueue(queue2, e);
                 // the size of the non-resident-cold entries needs to be limited
@@ -905,6 +1078,20 @@ public class CacheLongKeyLIRS<V> {
             }
         }
 
+        /**
+         * Notify the cache about all resident values of this segment after it
+         * was replaced by a new segment.
+         */
+        synchronized void removeAll() {
+            for (Entry<V> e : entries) {
+                for (; e != null; e = e.mapNext) {
+                    if (e.value != null) {
+                        cache.onRemove(e.value);
+                    }
+                }
+            }
+        }
+
         void trimNonResidentQueue() {
             int residentCount = mapSize - queue2Size;
             int maxQueue2SizeHigh = nonResidentQueueSizeHigh * residentCount;
@@ -1032,6 +1219,7 @@ public class CacheLongKeyLIRS<V> {
          * @return the key list
          */
         synchronized List<Long> keys(boolean cold, boolean nonResident) {
+            drainReadBuffer();
             ArrayList<Long> keys = new ArrayList<>();
             if (cold) {
                 Entry<V> start = nonResident ? queue2 : queue;
@@ -1054,6 +1242,7 @@ public class CacheLongKeyLIRS<V> {
          * @return the set of keys
          */
         synchronized Set<Long> keySet() {
+            drainReadBuffer();
             HashSet<Long> set = new HashSet<>();
             for (Entry<V> e = stack.stackNext; e != stack; e = e.stackNext) {
                 set.add(e.key);
@@ -1166,7 +1355,7 @@ public class CacheLongKeyLIRS<V> {
         }
 
         V getValue() {
-            return value == null ? reference.get() : value;
+            return value != null ? value : reference != null ? reference.get() : null;
         }
 
         int getMemory() {
@@ -1174,6 +1363,109 @@ public class CacheLongKeyLIRS<V> {
         }
     }
 
+    /**
+     * A count-min sketch with four 4-bit counters per key for estimation of
+     * frequencies of keys. All counters are halved when the number of
+     * increments reaches ten times the number of counter groups, so old
+     * accesses are forgotten. The caller must synchronize on the segment.
+     */
+    static final class FrequencySketch {
+
+        private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+                0xcbf29ce484222325L };
+
+        private final long[] table;
+
+        private final int sampleSize;
+
+        private int size;
+
+        /**
+         * Create a new sketch.
+         *
+         * @param len the number of groups of 16 counters (must be a power of
+         *            2)
+         */
+        FrequencySketch(int len) {
+            table = new long[len];
+            sampleSize = 10 * len;
+        }
+
+        /**
+         * Copy counters from a sketch of a different size.
+         *
+         * @param old the old sketch
+         */
+        void copy(FrequencySketch old) {
+            long[] oldTable = old.table;
+            int mask = table.length - 1;
+            for (int i = 0, l = oldTable.length; i < l; i++) {
+                // counters of the same group are merged when the sketch
+                // shrinks
+                int index = i & mask;
+                table[index] = max(table[index], oldTable[i]);
+            }
+            size = Math.min(old.size, sampleSize - 1);
+        }
+
+        private static long max(long a, long b) {
+            long r = 0;
+            for (int shift = 0; shift < 64; shift += 4) {
+                r |= Math.max(a >>> shift & 0xf, b >>> shift & 0xf) << shift;
+            }
+            return r;
+        }
+
+        /**
+         * Get the estimated frequency of a key.
+         *
+         * @param hash the hash code of the key
+         * @return the estimated frequency, from 0 to 15
+         */
+        int frequency(int hash) {
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                long v = table[index(hash, i)] >>> offset(hash, i);
+                frequency = Math.min(frequency, (int) v & 0xf);
+            }
+            return frequency;
+        }
+
+        /**
+         * Increment the frequency of a key.
+         *
+         * @param hash the hash code of the key
+         */
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = index(hash, i), offset = offset(hash, i);
+                if ((table[index] >>> offset & 0xf) != 0xf) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++size >= sampleSize) {
+                for (int i = 0, l = table.length; i < l; i++) {
+                    table[i] = table[i] >>> 1 & 0x7777_7777_7777_7777L;
+                }
+                size >>>= 1;
+            }
+        }
+
+        private int index(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & table.length - 1;
+        }
+
+        private static int offset(int hash, int i) {
+            // each of four hash functions uses its own quarter of a group
+            return ((hash >>> 8 + i * 2 & 3) + (i << 2)) << 2;
+        }
+
+    }
+
     /**
      * The cache configuration.
      */
@@ -1206,5 +1498,17 @@ public class CacheLongKeyLIRS<V> {
          * as a factor of the number of all other entries in the map
          */
         public final int nonResidentQueueSizeHigh = 12;
+
+        /**
+         * Whether new entries are admitted to a full segment only if they are
+         * used more frequently than the entry that would be evicted.
+         */
+        public boolean admissionFilter;
+
+        /**
+         * Whether values of evicted entries are kept with weak references, so
+         * that they may be returned until they are garbage collected.
+         */
+        public boolean weakReferences = true;
     }
 }
@@ -27,7 +27,6 @@ import org.guinsoo.result.SortOrder;
 import org.guinsoo.table.Column;
 import org.guinsoo.table.IndexColumn;
 import org.guinsoo.table.TableFilter;
-import org.guinsoo.util.FastList;
 import org.guinsoo.value.Value;
 import org.guinsoo.value.ValueLob;
 import org.guinsoo.value.ValueNull;
@@ -389,15 +388,37 @@ public class MVPrimaryIndex extends MVIndex<Long, SearchRow> {
             ensureRowKey(row, first);
             return new SingleRowCursor(row);
         }
-        /// load(session);
         return new MVStoreCursor(map.entryIterator(first, last));
     }
 
-    private void load(SessionLocal session) {
+    /**
+     * Split all rows into ranges of keys with approximately the same number
+     * of rows, using counts of entries stored in pages of the map. All cursors
+     * are created in the current thread and see the same data, but each cursor
+     * may be used by a different thread.
+     *
+     * @param session the session
+     * @param count the maximum number of ranges
+     * @return the cursors, one per range of keys
+     */
+    public ArrayList<Cursor> findRanges(SessionLocal session, int count) {
         TransactionMap<Long, SearchRow> map = getMap(session);
-        FastList<Map.Entry<Long, SearchRow>> fastList = new FastList<>(Map.Entry.class);
-        /// !!!
-        map.entrySet().parallelStream().forEach(fastList::add);
+        MVMap<Long, VersionedValue<SearchRow>> mvMap = dataMap.map;
+        long size = mvMap.sizeAsLong();
+        ArrayList<Cursor> list = new ArrayList<>(count);
+        long from = Long.MIN_VALUE;
+        for (int i = 1; i < count; i++) {
+            Long key = mvMap.getKey(size * i / count);
+            if (key == null) {
+                break;
+            }
+            if (key > from) {
+                list.add(new MVStoreCursor(map.entryIterator(from, key - 1)));
+                from = key;
+            }
+        }
+        list.add(new MVStoreCursor(map.entryIterator(from, Long.MAX_VALUE)));
+        return list;
     }
 
     @Override
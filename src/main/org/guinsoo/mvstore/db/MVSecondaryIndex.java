@@ -5,8 +5,10 @@
  */
 package org.guinsoo.mvstore.db;
 
+import java.util.AbstractMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.PriorityQueue;
 import java.util.Queue;
@@ -58,6 +60,9 @@ public final class MVSecondaryIndex extends MVIndex<SearchRow, Value> {
         Transaction t = mvTable.getTransactionBegin();
         dataMap = t.openMap(mapName, keyType, valueType);
         dataMap.map.setVolatile(!table.isPersistData() || !indexType.isPersistent());
+        if (!db.getSettings().compressIndexes) {
+            dataMap.map.setCompressionLevel(0);
+        }
         if (!db.isStarting()) {
             dataMap.clear();
         } else if (database.upgradeTo2_0()) {
@@ -138,18 +143,48 @@ public final class MVSecondaryIndex extends MVIndex<SearchRow, Value> {
         }
 
         try {
-            while (!queue.isEmpty()) {
-                Source s = queue.poll();
-                SearchRow row = s.next();
-
-                if (indexType.isUnique() && !mayHaveNullDuplicates(row)) {
-                    checkUnique(true, dataMap, row, Long.MIN_VALUE);
-                }
-
-                dataMap.putCommitted(row, ValueNull.INSTANCE);
-
-                if (s.hasNext()) {
-                    queue.offer(s);
+            if (dataMap.map.isEmpty()) {
+                // the rows are sorted, so pages are built from the leaves up
+                dataMap.bulkLoadCommitted(new Iterator<Map.Entry<SearchRow,Value>>() {
+
+                    private SearchRow previous;
+
+                    @Override
+                    public boolean hasNext() {
+                        return !queue.isEmpty();
+                    }
+
+                    @Override
+                    public Map.Entry<SearchRow,Value> next() {
+                        Source s = queue.poll();
+                        SearchRow row = s.next();
+                        // duplicates are adjacent to each other
+                        if (previous != null && indexType.isUnique() && !mayHaveNullDuplicates(row)
+                                && compareRows(row, previous) == 0) {
+                            throw getDuplicateKeyException(previous.toString());
+                        }
+                        previous = row;
+                        if (s.hasNext()) {
+                            queue.offer(s);
+                        }
+                        return new AbstractMap.SimpleImmutableEntry<>(row, ValueNull.INSTANCE);
+                    }
+
+                });
+            } else {
+                while (!queue.isEmpty()) {
+                    Source s = queue.poll();
+                    SearchRow row = s.next();
+
+                    if (indexType.isUnique() && !mayHaveNullDuplicates(row)) {
+                        checkUnique(true, dataMap, row, Long.MIN_VALUE);
+                    }
+
+                    dataMap.putCommitted(row, ValueNull.INSTANCE);
+
+                    if (s.hasNext()) {
+                        queue.offer(s);
+                    }
                 }
             }
         } finally {
@@ -7,6 +7,8 @@ package org.guinsoo.mvstore.db;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -384,8 +386,10 @@ public class MVTable extends RegularTable {
         // record are read. Merge all maps to the target (using merge sort;
         // duplicates are detected in the target). For randomly ordered data,
         // this should use relatively few write operations.
-        // A possible optimization is: change the buffer size from "row count"
-        // to "amount of memory", and buffer index keys instead of rows.
+        // Blocks are sorted and written by other threads while the table is
+        // scanned; the merged rows are loaded into the index from the leaves
+        // up. A possible optimization is: change the buffer size from "row
+        // count" to "amount of memory", and buffer index keys instead of rows.
         Index scan = getScanIndex(session);
         long remaining = scan.getRowCount(session);
         long total = remaining;
@@ -393,22 +397,37 @@ public class MVTable extends RegularTable {
         long i = 0;
         Store store = session.getDatabase().getStore();
 
-        int bufferSize = database.getMaxMemoryRows() / 2;
+        int threads = ForkJoinPool.getCommonPoolParallelism();
+        // the memory is shared by the blocks being sorted
+        int bufferSize = Math.max(database.getMaxMemoryRows() / (threads + 1), 1_000);
         ArrayList<Row> buffer = new ArrayList<>(bufferSize);
         String n = getName() + ':' + index.getName();
         ArrayList<String> bufferNames = Utils.newSmallArrayList();
-        while (cursor.next()) {
-            Row row = cursor.get();
-            buffer.add(row);
-            database.setProgress(DatabaseEventListener.STATE_CREATE_INDEX, n, i++, total);
-            if (buffer.size() >= bufferSize) {
-                sortRows(buffer, index);
-                String mapName = store.nextTemporaryMapName();
-                index.addRowsToBuffer(buffer, mapName);
-                bufferNames.add(mapName);
-                buffer.clear();
+        ArrayDeque<ForkJoinTask<?>> tasks = new ArrayDeque<>();
+        try {
+            while (cursor.next()) {
+                Row row = cursor.get();
+                buffer.add(row);
+                database.setProgress(DatabaseEventListener.STATE_CREATE_INDEX, n, i++, total);
+                if (buffer.size() >= bufferSize) {
+                    String mapName = store.nextTemporaryMapName();
+                    bufferNames.add(mapName);
+                    ArrayList<Row> rows = buffer;
+                    if (tasks.size() >= threads) {
+                        tasks.poll().join();
+                    }
+                    tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                        sortRows(rows, index);
+                        index.addRowsToBuffer(rows, mapName);
+                    }));
+                    buffer = new ArrayList<>(bufferSize);
+                }
+                remaining--;
+            }
+        } finally {
+            for (ForkJoinTask<?> task; (task = tasks.poll()) != null;) {
+                task.join();
             }
-            remaining--;
         }
         sortRows(buffer, index);
         if (!bufferNames.isEmpty()) {
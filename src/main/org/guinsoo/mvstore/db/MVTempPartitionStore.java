@@ -0,0 +1,221 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.mvstore.db;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+
+import org.guinsoo.engine.Constants;
+import org.guinsoo.engine.Database;
+import org.guinsoo.message.DbException;
+import org.guinsoo.mvstore.Cursor;
+import org.guinsoo.mvstore.MVMap;
+import org.guinsoo.mvstore.MVStore;
+import org.guinsoo.result.RowFactory.DefaultRowFactory;
+import org.guinsoo.result.SortOrder;
+import org.guinsoo.store.fs.FileUtils;
+import org.guinsoo.util.TempFileDeleter;
+import org.guinsoo.value.TypeInfo;
+import org.guinsoo.value.Value;
+import org.guinsoo.value.ValueBigint;
+import org.guinsoo.value.ValueRow;
+
+/**
+ * Temporary storage for hash partitions that do not fit into memory.
+ *
+ * <p>
+ * Each partition is stored in an own map of a separate MVStore in a temporary
+ * file. Entries are sorted by their keys, so all entries with the same key can
+ * be found with a single lookup. The file is removed when this storage is
+ * closed. {@link TempFileDeleter} is also used to delete this file if the
+ * storage is not closed properly.
+ * </p>
+ */
+public final class MVTempPartitionStore implements AutoCloseable {
+
+    private static final class CloseImpl implements AutoCloseable {
+        /**
+         * MVStore.
+         */
+        private final MVStore store;
+
+        /**
+         * File name.
+         */
+        private final String fileName;
+
+        CloseImpl(MVStore store, String fileName) {
+            this.store = store;
+            this.fileName = fileName;
+        }
+
+        @Override
+        public void close() throws Exception {
+            store.closeImmediately();
+            FileUtils.tryDelete(fileName);
+        }
+
+    }
+
+    private final Database database;
+
+    private final MVStore store;
+
+    private final TempFileDeleter tempFileDeleter;
+
+    private final CloseImpl closeable;
+
+    private final Reference<?> fileRef;
+
+    private final ValueDataType keyType;
+
+    private final ValueDataType valueType;
+
+    private final int keyLength;
+
+    private final ArrayList<MVMap<ValueRow, ValueRow>> maps;
+
+    /**
+     * Counter used to make keys of entries unique.
+     */
+    private long counter;
+
+    private boolean closed;
+
+    /**
+     * Creates a new partition storage.
+     *
+     * @param database
+     *            the database
+     * @param keyTypes
+     *            the types of the key columns
+     * @param valueTypes
+     *            the types of the value columns
+     * @param partitionCount
+     *            the number of partitions
+     */
+    public MVTempPartitionStore(Database database, TypeInfo[] keyTypes, TypeInfo[] valueTypes,
+            int partitionCount) {
+        this.database = database;
+        keyLength = keyTypes.length;
+        TypeInfo[] storedKeyTypes = new TypeInfo[keyLength + 1];
+        System.arraycopy(keyTypes, 0, storedKeyTypes, 0, keyLength);
+        storedKeyTypes[keyLength] = TypeInfo.TYPE_BIGINT;
+        keyType = new ValueDataType(database, SortOrder.addNullOrdering(database, new int[keyLength + 1]));
+        keyType.setRowFactory(DefaultRowFactory.INSTANCE.createRowFactory(database, database.getCompareMode(),
+                database.getMode(), database, storedKeyTypes, null));
+        valueType = new ValueDataType(database, new int[valueTypes.length]);
+        valueType.setRowFactory(DefaultRowFactory.INSTANCE.createRowFactory(database, database.getCompareMode(),
+                database.getMode(), database, valueTypes, null));
+        maps = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            maps.add(null);
+        }
+        try {
+            String fileName = FileUtils.createTempFile("guinsootmp", Constants.SUFFIX_TEMP_FILE, true);
+            MVStore.Builder builder = new MVStore.Builder().fileName(fileName).cacheSize(0).autoCommitDisabled();
+            byte[] key = database.getFileEncryptionKey();
+            if (key != null) {
+                builder.encryptionKey(Store.decodePassword(key));
+            }
+            store = builder.open();
+            tempFileDeleter = database.getTempFileDeleter();
+            closeable = new CloseImpl(store, fileName);
+            fileRef = tempFileDeleter.addFile(closeable, this);
+        } catch (IOException e) {
+            throw DbException.convert(e);
+        }
+    }
+
+    /**
+     * Add an entry to the specified partition. Duplicate keys are allowed.
+     *
+     * @param partition
+     *            the partition
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     */
+    public void put(int partition, Value[] key, Value[] value) {
+        MVMap<ValueRow, ValueRow> map = maps.get(partition);
+        if (map == null) {
+            map = store.openMap("p" + partition,
+                    new MVMap.Builder<ValueRow, ValueRow>().keyType(keyType).valueType(valueType).singleWriter());
+            maps.set(partition, map);
+        }
+        Value[] k = new Value[keyLength + 1];
+        System.arraycopy(key, 0, k, 0, keyLength);
+        k[keyLength] = ValueBigint.get(counter++);
+        map.put(ValueRow.get(k), ValueRow.get(value));
+    }
+
+    /**
+     * Returns all values with the specified key from the specified partition.
+     *
+     * @param partition
+     *            the partition
+     * @param key
+     *            the key
+     * @return the list of values, may be empty
+     */
+    public ArrayList<Value[]> get(int partition, Value[] key) {
+        ArrayList<Value[]> list = new ArrayList<>();
+        MVMap<ValueRow, ValueRow> map = maps.get(partition);
+        if (map == null) {
+            return list;
+        }
+        Value[] k = new Value[keyLength + 1];
+        System.arraycopy(key, 0, k, 0, keyLength);
+        k[keyLength] = ValueBigint.get(Long.MIN_VALUE);
+        for (Cursor<ValueRow, ValueRow> cursor = map.cursor(ValueRow.get(k)); cursor.hasNext();) {
+            Value[] found = cursor.next().getList();
+            for (int i = 0; i < keyLength; i++) {
+                if (found[i].compareTo(key[i], database, database.getCompareMode()) != 0) {
+                    return list;
+                }
+            }
+            list.add(cursor.getValue().getList());
+        }
+        return list;
+    }
+
+    /**
+     * Returns a cursor over all entries of the specified partition in order of
+     * their keys. Entries with the same key are returned in order of their
+     * insertion. Keys of entries have an additional last column.
+     *
+     * @param partition
+     *            the partition
+     * @return the cursor, or {@code null} if the partition is empty
+     */
+    public Cursor<ValueRow, ValueRow> cursor(int partition) {
+        MVMap<ValueRow, ValueRow> map = maps.get(partition);
+        return map == null ? null : map.cursor(null);
+    }
+
+    /**
+     * Returns the number of entries in the specified partition.
+     *
+     * @param partition
+     *            the partition
+     * @return the number of entries
+     */
+    public long size(int partition) {
+        MVMap<ValueRow, ValueRow> map = maps.get(partition);
+        return map == null ? 0L : map.sizeAsLong();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            tempFileDeleter.deleteFile(fileRef, closeable);
+        }
+    }
+
+}
@@ -77,6 +77,11 @@ public final class Store {
 
     private final String fileName;
 
+    /**
+     * The version of the store contained in the last backup.
+     */
+    private volatile long backupVersion;
+
     /**
      * Creates the store.
      *
@@ -107,6 +112,7 @@ public final class Store {
                 if (autoCompactFillRate <= 100) {
                     builder.autoCompactFillRate(autoCompactFillRate);
                 }
+                builder.compactionRate(db.getSettings().compactionRate);
             }
             if (key != null) {
                 encrypted = true;
@@ -117,6 +123,13 @@ public final class Store {
                 // use a larger page split size to improve the compression ratio
                 builder.pageSplitSize(64 * 1024);
             }
+            if (db.getSettings().encodeKeys) {
+                builder.encodeKeys();
+            }
+            builder.offHeapCacheSize(db.getSettings().offHeapCacheSize);
+            if (db.getSettings().memoryMapped) {
+                builder.memoryMapped();
+            }
             builder.backgroundExceptionHandler((t, e) -> db.setBackgroundException(DbException.convert(e)));
             // always start without background thread first, and if necessary,
             // it will be set up later, after db has been fully started,
@@ -137,6 +150,7 @@ public final class Store {
             this.transactionStore = new TransactionStore(mvStore,
                     new MetaType<>(db, mvStore.backgroundExceptionHandler), new ValueDataType(db, null),
                     db.getLockTimeout());
+            transactionStore.setGroupCommit(db.getSettings().groupCommitDelay, db.getSettings().syncCommit);
         } catch (MVStoreException e) {
             throw convertMVStoreException(e);
         }
@@ -172,6 +186,25 @@ public final class Store {
         return mvStore;
     }
 
+    /**
+     * Get the version of the store contained in the last backup. Later
+     * backups may be taken incrementally since this version.
+     *
+     * @return the version, or 0 if there was no backup
+     */
+    public long getBackupVersion() {
+        return backupVersion;
+    }
+
+    /**
+     * Set the version of the store contained in the last backup.
+     *
+     * @param version the version
+     */
+    public void setBackupVersion(long version) {
+        backupVersion = version;
+    }
+
     public TransactionStore getTransactionStore() {
         return transactionStore;
     }
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.mvstore.tx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import org.guinsoo.mvstore.MVStore;
+
+/**
+ * Persists changes of committed transactions in groups.
+ *
+ * <p>
+ * Each committing transaction takes a ticket. The first of them becomes the
+ * leader, optionally waits a short time for other transactions to commit,
+ * stores the changes of all transactions with tickets taken so far with one
+ * commit of the store (and one sync of the file, if enabled), and releases
+ * them together. Transactions that committed while the leader was writing
+ * are persisted by the next leader.
+ * </p>
+ */
+final class GroupCommit {
+
+    private final MVStore store;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when a transaction takes a ticket.
+     */
+    private final Condition arrived = lock.newCondition();
+
+    /**
+     * Signalled when the leader has finished.
+     */
+    private final Condition released = lock.newCondition();
+
+    /**
+     * The maximum time the leader waits for other transactions, in
+     * nanoseconds.
+     */
+    private volatile long maxDelay;
+
+    /**
+     * Whether the file should be synchronized after each group.
+     */
+    private volatile boolean sync;
+
+    /**
+     * The last taken ticket.
+     */
+    private long requested;
+
+    /**
+     * The last ticket whose changes were persisted.
+     */
+    private long completed;
+
+    /**
+     * Whether some thread is persisting a group now.
+     */
+    private boolean leader;
+
+    private final AtomicLong groups = new AtomicLong();
+
+    private final AtomicLong transactions = new AtomicLong();
+
+    GroupCommit(MVStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Sets the parameters of group commit.
+     *
+     * @param maxDelayMicros the maximum time the leader waits for other
+     *            transactions, in microseconds, 0 to write immediately
+     * @param sync whether the file should be synchronized
+     */
+    void setParameters(int maxDelayMicros, boolean sync) {
+        maxDelay = TimeUnit.MICROSECONDS.toNanos(Math.max(maxDelayMicros, 0));
+        this.sync = sync;
+    }
+
+    /**
+     * Persists the changes of the current thread together with the changes of
+     * other committing transactions.
+     *
+     * @param othersOpen returns whether other transactions are still open and
+     *            may join the group
+     */
+    void commit(BooleanSupplier othersOpen) {
+        lock.lock();
+        try {
+            long ticket = ++requested;
+            arrived.signal();
+            while (completed < ticket) {
+                if (leader) {
+                    released.awaitUninterruptibly();
+                    continue;
+                }
+                leader = true;
+                try {
+                    long delay = maxDelay;
+                    while (delay > 0L && othersOpen.getAsBoolean()) {
+                        try {
+                            delay = arrived.awaitNanos(delay);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                    long target = requested;
+                    lock.unlock();
+                    try {
+                        store.commit();
+                        if (sync) {
+                            store.sync();
+                        }
+                    } finally {
+                        lock.lock();
+                    }
+                    groups.incrementAndGet();
+                    transactions.addAndGet(target - completed);
+                    completed = target;
+                } finally {
+                    leader = false;
+                    released.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getMaxDelayMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxDelay);
+    }
+
+    boolean isSync() {
+        return sync;
+    }
+
+    long getGroupCount() {
+        return groups.get();
+    }
+
+    long getTransactionCount() {
+        return transactions.get();
+    }
+
+}
@@ -330,6 +330,33 @@ public final class TransactionMap<K, V> extends AbstractMap<K,V> {
         return result;
     }
 
+    /**
+     * Fill this empty map with committed entries, without adding undo log
+     * entries. The keys must be unique and sorted in ascending order.
+     *
+     * @param entries the entries
+     * @see MVMap#bulkLoad(Iterator)
+     */
+    public void bulkLoadCommitted(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        map.bulkLoad(new Iterator<Map.Entry<K,VersionedValue<V>>>() {
+
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Map.Entry<K,VersionedValue<V>> next() {
+                Map.Entry<? extends K, ? extends V> e = entries.next();
+                V value = e.getValue();
+                DataUtils.checkArgument(value != null, "The value may not be null");
+                return new AbstractMap.SimpleImmutableEntry<>(e.getKey(),
+                        VersionedValueCommitted.getInstance(value));
+            }
+
+        });
+    }
+
     private V set(K key, V value) {
         txDecisionMaker.initialize(key, value);
         return set(key, txDecisionMaker);
@@ -73,6 +73,11 @@ public class TransactionStore {
 
     private final DataType<?> dataType;
 
+    /**
+     * Persists changes of committed transactions in groups.
+     */
+    private final GroupCommit groupCommit;
+
     /**
      * This BitSet is used as vacancy indicator for transaction slots in transactions[].
      * It provides easy way to find first unoccupied slot, and also allows for copy-on-write
@@ -162,6 +167,7 @@ public class TransactionStore {
         this.typeRegistry = openTypeRegistry(store, metaDataType);
         this.preparedTransactions = store.openMap("openTransactions", new MVMap.Builder<>());
         this.undoLogBuilder = createUndoLogBuilder();
+        this.groupCommit = new GroupCommit(store);
     }
 
     @SuppressWarnings({"unchecked","rawtypes"})
@@ -278,6 +284,37 @@ public class TransactionStore {
         this.maxTransactionId = max;
     }
 
+    /**
+     * Set the parameters of group commit. Transactions that need to be
+     * persisted on commit are written to the store together, the first of them
+     * waits up to the specified time for other open transactions to commit.
+     *
+     * @param maxDelayMicros the maximum wait time in microseconds, 0 to write
+     *            immediately
+     * @param sync whether the file should be synchronized after each group
+     */
+    public void setGroupCommit(int maxDelayMicros, boolean sync) {
+        groupCommit.setParameters(maxDelayMicros, sync);
+    }
+
+    /**
+     * Get the number of groups of transactions persisted together.
+     *
+     * @return the number of groups
+     */
+    public long getGroupCommitCount() {
+        return groupCommit.getGroupCount();
+    }
+
+    /**
+     * Get the number of transactions persisted by group commit.
+     *
+     * @return the number of transactions
+     */
+    public long getGroupCommitTransactionCount() {
+        return groupCommit.getTransactionCount();
+    }
+
     /**
      * Check whether a given map exists.
      *
@@ -615,7 +652,11 @@ public class TransactionStore {
             }
 
             if (wasStored || store.getAutoCommitDelay() == 0) {
-                store.commit();
+                if (store.getFileStore() == null) {
+                    store.commit();
+                } else {
+                    groupCommit.commit(() -> !openTransactions.get().isEmpty());
+                }
             } else {
                 if (isUndoEmpty()) {
                     // to avoid having to store the transaction log,
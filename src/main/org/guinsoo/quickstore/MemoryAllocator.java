@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.guinsoo.quickstore;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * MemoryAllocator
+ *
+ * <p>
+ * Allocates slices of off-heap memory from direct byte buffers of a fixed size. Sizes of slices are rounded up to
+ * one of four size classes for each power of two. Released slices are kept in free lists of their size classes and
+ * are reused by later allocations, blocks are only released when the allocator is closed.
+ *
+ * <p>
+ * A slice is identified by a reference, a positive long value with the number of the block, the offset of the slice
+ * in the block and the size class of the slice. Each slice starts with the length of its content.
+ *
+ * @author cius.ji
+ * @since 1.8+
+ */
+final class MemoryAllocator {
+
+    /**
+     * The default size of a memory block.
+     */
+    static final int DEFAULT_BLOCK_SIZE = 8 << 20;
+
+    /**
+     * The size of the header of a slice.
+     */
+    static final int HEADER_SIZE = Integer.BYTES;
+
+    /**
+     * The binary logarithm of the minimal size of a slice.
+     */
+    private static final int MIN_SIZE_SHIFT = 4;
+
+    private final int blockSize;
+
+    private final long[][] freeLists;
+
+    private final int[] freeCounts;
+
+    /**
+     * The memory blocks, the block 0 is not used.
+     */
+    private volatile ByteBuffer[] blocks = new ByteBuffer[1];
+
+    private int position;
+
+    private long allocatedMemory;
+
+    private long usedMemory;
+
+    MemoryAllocator(int blockSize) {
+        if (blockSize < 1 << 16 || Integer.bitCount(blockSize) != 1) {
+            throw new QuickStoreException(QuickStoreException.ERROR_ILLEGAL_ARGUMENT,
+                    "Block size must be a power of two of at least 64 KB: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        int classes = getSizeClass(blockSize) + 1;
+        freeLists = new long[classes][];
+        freeCounts = new int[classes];
+        position = blockSize;
+    }
+
+    /**
+     * Returns the size class for the specified size of a slice.
+     *
+     * @param size the size including the header
+     * @return the size class
+     */
+    static int getSizeClass(int size) {
+        if (size <= 1 << MIN_SIZE_SHIFT) {
+            return 0;
+        }
+        int highBit = 31 - Integer.numberOfLeadingZeros(size - 1);
+        int shift = highBit - 2;
+        return (highBit - MIN_SIZE_SHIFT << 2) + ((size + (1 << shift) - 1) >>> shift) - 4;
+    }
+
+    /**
+     * Returns the size of slices of the specified size class.
+     *
+     * @param sizeClass the size class
+     * @return the size including the header
+     */
+    static int getSize(int sizeClass) {
+        return 4 + (sizeClass & 3) << (sizeClass >>> 2) + MIN_SIZE_SHIFT - 2;
+    }
+
+    /**
+     * Allocates a slice. The header of the slice is initialized with the specified length.
+     *
+     * @param length the length of the content
+     * @return the reference to the slice
+     */
+    long allocate(int length) {
+        int size = length + HEADER_SIZE;
+        if (length < 0 || size > blockSize) {
+            throw new QuickStoreException(QuickStoreException.ERROR_TOO_LARGE,
+                    "Length " + length + " exceeds the block size " + blockSize);
+        }
+        int sizeClass = getSizeClass(size);
+        long ref;
+        synchronized (this) {
+            checkOpen();
+            int count = freeCounts[sizeClass];
+            if (count > 0) {
+                freeCounts[sizeClass] = --count;
+                ref = freeLists[sizeClass][count];
+            } else {
+                size = getSize(sizeClass);
+                if (position + size > blockSize) {
+                    ByteBuffer[] blocks = this.blocks;
+                    if (blocks.length == 1 << 23) {
+                        throw new QuickStoreException(QuickStoreException.ERROR_OUT_OF_MEMORY,
+                                "Too many memory blocks");
+                    }
+                    blocks = Arrays.copyOf(blocks, blocks.length + 1);
+                    blocks[blocks.length - 1] = ByteBuffer.allocateDirect(blockSize);
+                    this.blocks = blocks;
+                    allocatedMemory += blockSize;
+                    position = 0;
+                }
+                ref = (long) (blocks.length - 1) << 40 | (long) position << 8 | sizeClass;
+                position += size;
+            }
+            usedMemory += getSize(sizeClass);
+        }
+        getBlock(ref).putInt(getOffset(ref), length);
+        return ref;
+    }
+
+    /**
+     * Releases a slice. The slice may be reused immediately, readers must
+     * verify that it wasn't released during the read.
+     *
+     * @param ref the reference to the slice
+     */
+    synchronized void free(long ref) {
+        if (blocks.length == 0) {
+            return;
+        }
+        int sizeClass = (int) ref & 0xff;
+        long[] list = freeLists[sizeClass];
+        int count = freeCounts[sizeClass];
+        if (list == null) {
+            freeLists[sizeClass] = list = new long[16];
+        } else if (count == list.length) {
+            freeLists[sizeClass] = list = Arrays.copyOf(list, count * 2);
+        }
+        list[count] = ref;
+        freeCounts[sizeClass] = count + 1;
+        usedMemory -= getSize(sizeClass);
+    }
+
+    /**
+     * Returns the memory block of the specified slice.
+     *
+     * @param ref the reference to the slice
+     * @return the memory block
+     */
+    ByteBuffer getBlock(long ref) {
+        return blocks[(int) (ref >>> 40)];
+    }
+
+    /**
+     * Returns the offset of the specified slice in its memory block.
+     *
+     * @param ref the reference to the slice
+     * @return the offset
+     */
+    static int getOffset(long ref) {
+        return (int) (ref >>> 8);
+    }
+
+    /**
+     * Returns the maximal length of the content of the specified slice.
+     *
+     * @param ref the reference to the slice
+     * @return the maximal length of the content
+     */
+    static int getCapacity(long ref) {
+        return getSize((int) ref & 0xff) - HEADER_SIZE;
+    }
+
+    /**
+     * Points the specified buffer to the content of a slice.
+     *
+     * @param buffer the buffer
+     * @param ref    the reference to the slice
+     * @param length the length of the content
+     */
+    void initBuffer(ScopedReadBuffer buffer, long ref, int length) {
+        buffer.init(getBlock(ref), getOffset(ref) + HEADER_SIZE, length);
+    }
+
+    /**
+     * Points the specified buffer to the content of a slice, the length is read from the header of the slice. If
+     * the slice is modified concurrently, the length is limited by the capacity of the slice.
+     *
+     * @param buffer the buffer
+     * @param ref    the reference to the slice
+     */
+    void initBuffer(ScopedReadBuffer buffer, long ref) {
+        ByteBuffer block = getBlock(ref);
+        int offset = getOffset(ref);
+        int length = Math.min(Math.max(block.getInt(offset), 0), getCapacity(ref));
+        buffer.init(block, offset + HEADER_SIZE, length);
+    }
+
+    /**
+     * Sets the length of the content of a slice.
+     *
+     * @param ref    the reference to the slice
+     * @param length the new length
+     */
+    void setLength(long ref, int length) {
+        getBlock(ref).putInt(getOffset(ref), length);
+    }
+
+    /**
+     * Returns the total size of allocated memory blocks.
+     *
+     * @return the size in bytes
+     */
+    synchronized long getAllocatedMemory() {
+        return allocatedMemory;
+    }
+
+    /**
+     * Returns the total size of slices in use.
+     *
+     * @return the size in bytes
+     */
+    synchronized long getUsedMemory() {
+        return usedMemory;
+    }
+
+    /**
+     * Closes this allocator. Memory blocks are released by the garbage collector when no thread uses them.
+     */
+    synchronized void close() {
+        blocks = new ByteBuffer[0];
+        Arrays.fill(freeLists, null);
+        Arrays.fill(freeCounts, 0);
+        allocatedMemory = 0;
+        usedMemory = 0;
+    }
+
+    private void checkOpen() {
+        if (blocks.length == 0) {
+            throw new QuickStoreException(QuickStoreException.ERROR_CLOSED, "This store is closed");
+        }
+    }
+}
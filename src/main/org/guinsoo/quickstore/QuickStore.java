@@ -19,19 +19,132 @@
 
 package org.guinsoo.quickstore;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.guinsoo.engine.ConnectionInfo;
+import org.guinsoo.quickstore.common.StoreComparator;
 
 /**
  * QuickStore
  *
+ * <p>
+ * An in-memory store of named ordered maps with keys and values in off-heap memory, see {@link QuickStoreMap}. All
+ * maps of a store share the same memory blocks.
+ *
  * @author cius.ji
  * @since 1.8+
  */
 public class QuickStore {
 
+    private final MemoryAllocator allocator;
+
+    private final ConcurrentHashMap<String, QuickStoreMap<?, ?>> maps = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
     public QuickStore() {
+        this(MemoryAllocator.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new store.
+     *
+     * @param blockSize the size of memory blocks, a power of two
+     */
+    public QuickStore(int blockSize) {
+        allocator = new MemoryAllocator(blockSize);
     }
 
     public QuickStore(ConnectionInfo info) {
+        this();
+    }
+
+    /**
+     * Opens a map with the specified name, the map is created if it doesn't exist.
+     *
+     * @param name            the name of the map
+     * @param keyComparator   the comparator of keys
+     * @param keySerializer   the serializer of keys
+     * @param valueSerializer the serializer of values
+     * @param <K>             the key type
+     * @param <V>             the value type
+     * @return the map
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> QuickStoreMap<K, V> openMap(String name, StoreComparator<K> keyComparator,
+            StoreSerializer<K> keySerializer, StoreSerializer<V> valueSerializer) {
+        checkOpen();
+        return (QuickStoreMap<K, V>) maps.computeIfAbsent(name,
+                n -> new QuickStoreMap<>(this, n, allocator, keyComparator, keySerializer, valueSerializer));
+    }
+
+    /**
+     * Returns whether a map with the specified name exists.
+     *
+     * @param name the name of the map
+     * @return whether the map exists
+     */
+    public boolean hasMap(String name) {
+        return maps.containsKey(name);
+    }
+
+    /**
+     * Removes the map with the specified name and releases memory of its keys and values. The map must not be used
+     * by other threads.
+     *
+     * @param name the name of the map
+     */
+    public void removeMap(String name) {
+        checkOpen();
+        QuickStoreMap<?, ?> map = maps.remove(name);
+        if (map != null) {
+            map.release();
+        }
+    }
+
+    public Set<String> getMapNames() {
+        return maps.keySet();
+    }
+
+    /**
+     * Returns the total size of allocated off-heap memory.
+     *
+     * @return the size in bytes
+     */
+    public long getAllocatedMemory() {
+        return allocator.getAllocatedMemory();
+    }
+
+    /**
+     * Returns the size of off-heap memory used by keys and values.
+     *
+     * @return the size in bytes
+     */
+    public long getUsedMemory() {
+        return allocator.getUsedMemory();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes this store. Off-heap memory is released when it isn't referenced
+     * by any thread.
+     */
+    public void close() {
+        closed = true;
+        maps.clear();
+        allocator.close();
+    }
+
+    /**
+     * Throws an exception if this store is closed.
+     */
+    void checkOpen() {
+        if (closed) {
+            throw new QuickStoreException(QuickStoreException.ERROR_CLOSED, "This store is closed");
+        }
     }
 }
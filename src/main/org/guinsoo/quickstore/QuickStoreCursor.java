@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.guinsoo.quickstore;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * QuickStoreCursor
+ *
+ * <p>
+ * A cursor to iterate over entries of a {@link QuickStoreMap} in ascending order of keys. The cursor is weakly
+ * consistent: it doesn't fail on concurrent modifications and may or may not see them. Entries removed before the
+ * cursor reaches them are skipped.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author cius.ji
+ * @since 1.8+
+ */
+public class QuickStoreCursor<K, V> implements Iterator<K> {
+
+    private final QuickStoreMap<K, V> map;
+
+    private final K to;
+
+    private final ScopedReadBuffer keyBuffer = new ScopedReadBuffer();
+
+    private final ValueBuffer valueBuffer;
+
+    /**
+     * The next node to check.
+     */
+    private int next;
+
+    /**
+     * The node with the current entry.
+     */
+    private int current;
+
+    QuickStoreCursor(QuickStoreMap<K, V> map, int first, K to) {
+        this.map = map;
+        this.to = to;
+        this.next = first;
+        valueBuffer = new ValueBuffer(map.getAllocator());
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next != 0) {
+            if (to != null && map.compare(to, next, keyBuffer) < 0) {
+                next = 0;
+                break;
+            }
+            if (map.hasValue(next)) {
+                return true;
+            }
+            next = map.getNext(next, 0);
+        }
+        return false;
+    }
+
+    @Override
+    public K next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        current = next;
+        next = map.getNext(next, 0);
+        return map.readKey(current, keyBuffer);
+    }
+
+    /**
+     * Returns the key of the current entry.
+     *
+     * @return the key
+     */
+    public K getKey() {
+        return map.readKey(checkCurrent(), keyBuffer);
+    }
+
+    /**
+     * Reads the key of the current entry directly from off-heap memory.
+     *
+     * @param transformer the function that reads the serialized key
+     * @param <T>         the type of the result
+     * @return the result of the transformer
+     */
+    public <T> T getKey(StoreTransformer<T> transformer) {
+        return map.readKey(checkCurrent(), keyBuffer, transformer);
+    }
+
+    /**
+     * Returns a copy of the value of the current entry.
+     *
+     * @return the value, or {@code null} if the entry was removed
+     */
+    public V getValue() {
+        return map.readValue(checkCurrent(), valueBuffer, map.getValueSerializer()::deserialize);
+    }
+
+    /**
+     * Reads the value of the current entry directly from off-heap memory.
+     *
+     * @param transformer the function that reads the serialized value
+     * @param <T>         the type of the result
+     * @return the result of the transformer, or {@code null} if the entry was removed
+     */
+    public <T> T getValue(StoreTransformer<T> transformer) {
+        return map.readValue(checkCurrent(), valueBuffer, transformer);
+    }
+
+    private int checkCurrent() {
+        if (current == 0) {
+            throw new IllegalStateException();
+        }
+        map.getStore().checkOpen();
+        return current;
+    }
+}
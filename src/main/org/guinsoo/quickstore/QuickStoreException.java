@@ -29,6 +29,26 @@ public class QuickStoreException extends RuntimeException {
 
     private static final long serialVersionUID = 2847042930249663807L;
 
+    /**
+     * The error code used if the store is closed.
+     */
+    public static final int ERROR_CLOSED = 1;
+
+    /**
+     * The error code used if a key or a value is too large.
+     */
+    public static final int ERROR_TOO_LARGE = 2;
+
+    /**
+     * The error code used if no more memory can be allocated.
+     */
+    public static final int ERROR_OUT_OF_MEMORY = 3;
+
+    /**
+     * The error code used if an argument is not valid.
+     */
+    public static final int ERROR_ILLEGAL_ARGUMENT = 4;
+
     private final int errorCode;
 
     public QuickStoreException(int errorCode, String message) {
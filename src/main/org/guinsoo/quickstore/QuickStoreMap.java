@@ -0,0 +1,670 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.guinsoo.quickstore;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+import org.guinsoo.quickstore.common.StoreComparator;
+
+/**
+ * QuickStoreMap
+ *
+ * <p>
+ * A concurrent ordered map with keys and values in off-heap memory. Entries are kept in a skip list. Nodes of the
+ * list are stored in segments of primitive arrays, so the garbage collector sees only a few large arrays regardless
+ * of the number of entries.
+ *
+ * <p>
+ * Reads are lock-free. Lookups read keys directly from off-heap memory, values are read optimistically: the version of the entry is checked after the read and the read is retried if the value was
+ * modified concurrently. Modifications of a value increment the version of its entry with compare-and-set, a value is
+ * updated in place if the new value fits into its slice. New nodes are linked into the list with compare-and-set, but
+ * the allocation of their off-heap memory is synchronized by the allocator.
+ *
+ * <p>
+ * Removal of an entry releases its value, but keeps the key in the list, so the key may be inserted again without
+ * changes of the list.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author cius.ji
+ * @since 1.8+
+ */
+public class QuickStoreMap<K, V> {
+
+    private static final int SEGMENT_SHIFT = 12;
+
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    private static final int MAX_LEVEL = 16;
+
+    /**
+     * The null node.
+     */
+    private static final int NIL = 0;
+
+    /**
+     * The head node. It doesn't have a key and has the maximum level.
+     */
+    private static final int HEAD = 1;
+
+    /**
+     * The number of spins before a writer waiting for an entry yields.
+     */
+    private static final int SPINS = 64;
+
+    /**
+     * A segment of nodes.
+     */
+    private static final class Segment {
+
+        /**
+         * References to keys, they are written before the publication of a node.
+         */
+        final long[] keys = new long[SEGMENT_SIZE];
+
+        final byte[] heights = new byte[SEGMENT_SIZE];
+
+        /**
+         * Positions of upper levels of nodes in {@link #upper}.
+         */
+        final int[] towers = new int[SEGMENT_SIZE];
+
+        final AtomicLongArray values = new AtomicLongArray(SEGMENT_SIZE);
+
+        final AtomicIntegerArray versions = new AtomicIntegerArray(SEGMENT_SIZE);
+
+        /**
+         * Next nodes on level 0.
+         */
+        final AtomicIntegerArray next = new AtomicIntegerArray(SEGMENT_SIZE);
+
+        /**
+         * Next nodes on upper levels. On average a node has 1/3 upper level,
+         * nodes created when the space is exhausted have only level 0.
+         */
+        final AtomicIntegerArray upper = new AtomicIntegerArray(SEGMENT_SIZE / 2);
+
+        final AtomicInteger upperPosition = new AtomicInteger();
+
+        Segment() {
+        }
+    }
+
+    private final QuickStore store;
+
+    private final String name;
+
+    private final MemoryAllocator allocator;
+
+    private final StoreComparator<K> keyComparator;
+
+    private final StoreSerializer<K> keySerializer;
+
+    private final StoreSerializer<V> valueSerializer;
+
+    private final AtomicInteger nodeCount = new AtomicInteger(HEAD + 1);
+
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Nodes that were created by writers that lost a race for the same key and
+     * were never linked into the list.
+     */
+    private int[] unusedNodes = new int[4];
+
+    private int unusedNodeCount;
+
+    private volatile Segment[] segments = new Segment[0];
+
+    QuickStoreMap(QuickStore store, String name, MemoryAllocator allocator, StoreComparator<K> keyComparator,
+            StoreSerializer<K> keySerializer, StoreSerializer<V> valueSerializer) {
+        this.store = store;
+        this.name = name;
+        this.allocator = allocator;
+        this.keyComparator = keyComparator;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        Segment segment = getSegment(HEAD);
+        segment.heights[HEAD] = MAX_LEVEL;
+        segment.upperPosition.set(MAX_LEVEL - 1);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries
+     */
+    public long size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * Returns a copy of the value for the specified key.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if there is no such entry
+     */
+    public V get(K key) {
+        return get(key, valueSerializer::deserialize);
+    }
+
+    /**
+     * Reads the value for the specified key directly from off-heap memory. The transformer may be invoked several
+     * times if the value is modified concurrently.
+     *
+     * @param key         the key
+     * @param transformer the function that reads the serialized value
+     * @param <T>         the type of the result
+     * @return the result of the transformer, or {@code null} if there is no such entry
+     */
+    public <T> T get(K key, StoreTransformer<T> transformer) {
+        store.checkOpen();
+        int node = findNode(key, new ScopedReadBuffer());
+        return node == NIL ? null : readValue(node, new ValueBuffer(allocator), transformer);
+    }
+
+    /**
+     * Returns whether the map contains the specified key.
+     *
+     * @param key the key
+     * @return whether there is such entry
+     */
+    public boolean containsKey(K key) {
+        store.checkOpen();
+        int node = findNode(key, new ScopedReadBuffer());
+        return node != NIL && getSegment(node).values.get(node & SEGMENT_SIZE - 1) != 0;
+    }
+
+    /**
+     * Adds or replaces an entry.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(K key, V value) {
+        put(key, value, false);
+    }
+
+    /**
+     * Adds an entry if there is no entry with the specified key.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return whether the entry was added
+     */
+    public boolean putIfAbsent(K key, V value) {
+        return put(key, value, true);
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @param key the key
+     * @return whether the entry was removed
+     */
+    public boolean remove(K key) {
+        store.checkOpen();
+        int node = findNode(key, new ScopedReadBuffer());
+        if (node == NIL) {
+            return false;
+        }
+        Segment segment = getSegment(node);
+        int index = node & SEGMENT_SIZE - 1;
+        int version = lock(segment, index);
+        long ref = segment.values.get(index);
+        if (ref == 0) {
+            segment.versions.set(index, version);
+            return false;
+        }
+        segment.values.set(index, 0);
+        allocator.free(ref);
+        size.decrementAndGet();
+        segment.versions.set(index, version + 2);
+        return true;
+    }
+
+    /**
+     * Modifies the serialized value of an existing entry in place. Concurrent readers of the entry wait for the end
+     * of the modification.
+     *
+     * @param key      the key
+     * @param computer the function that modifies the serialized value
+     * @return whether there was such entry
+     */
+    public boolean computeIfPresent(K key, Consumer<StoreScopedWriteBuffer> computer) {
+        store.checkOpen();
+        int node = findNode(key, new ScopedReadBuffer());
+        if (node == NIL) {
+            return false;
+        }
+        Segment segment = getSegment(node);
+        int index = node & SEGMENT_SIZE - 1;
+        int version = lock(segment, index);
+        long ref = segment.values.get(index);
+        if (ref == 0) {
+            segment.versions.set(index, version);
+            return false;
+        }
+        try {
+            ScopedWriteBuffer buffer = new ScopedWriteBuffer();
+            allocator.initBuffer(buffer, ref);
+            computer.accept(buffer);
+        } finally {
+            segment.versions.set(index, version + 2);
+        }
+        return true;
+    }
+
+    /**
+     * Returns a cursor over the entries in ascending order of keys.
+     *
+     * @param from the first key (inclusive), or {@code null} to start from the first key
+     * @return the cursor
+     */
+    public QuickStoreCursor<K, V> cursor(K from) {
+        return cursor(from, null);
+    }
+
+    /**
+     * Returns a cursor over the entries in ascending order of keys.
+     *
+     * @param from the first key (inclusive), or {@code null} to start from the first key
+     * @param to   the last key (inclusive), or {@code null} if there is no boundary
+     * @return the cursor
+     */
+    public QuickStoreCursor<K, V> cursor(K from, K to) {
+        store.checkOpen();
+        return new QuickStoreCursor<>(this, from == null ? getNext(HEAD, 0)
+                : findCeiling(from, new ScopedReadBuffer()), to);
+    }
+
+    private boolean put(K key, V value, boolean onlyIfAbsent) {
+        store.checkOpen();
+        ScopedReadBuffer keyBuffer = new ScopedReadBuffer();
+        int[] preds = new int[MAX_LEVEL], succs = new int[MAX_LEVEL];
+        int node = NIL;
+        for (;;) {
+            int found = findPosition(key, preds, succs, keyBuffer);
+            if (found != NIL) {
+                if (node != NIL) {
+                    // another thread inserted this key, our node is not used
+                    discardNode(node);
+                }
+                return setValue(found, value, onlyIfAbsent);
+            }
+            if (node == NIL) {
+                node = createNode(key, value);
+            }
+            setNext(node, 0, succs[0]);
+            if (casNext(preds[0], 0, succs[0], node)) {
+                break;
+            }
+        }
+        size.incrementAndGet();
+        for (int level = 1, height = getHeight(node); level < height; level++) {
+            for (;;) {
+                setNext(node, level, succs[level]);
+                if (casNext(preds[level], level, succs[level], node)) {
+                    break;
+                }
+                findPosition(key, preds, succs, keyBuffer);
+            }
+        }
+        return true;
+    }
+
+    private boolean setValue(int node, V value, boolean onlyIfAbsent) {
+        Segment segment = getSegment(node);
+        int index = node & SEGMENT_SIZE - 1;
+        int version = lock(segment, index);
+        long ref = segment.values.get(index);
+        if (ref != 0 && onlyIfAbsent) {
+            segment.versions.set(index, version);
+            return false;
+        }
+        try {
+            int length = valueSerializer.calculateSize(value);
+            if (ref != 0 && MemoryAllocator.getCapacity(ref) >= length) {
+                allocator.setLength(ref, length);
+                writeValue(ref, length, value);
+            } else {
+                long newRef = allocator.allocate(length);
+                writeValue(newRef, length, value);
+                segment.values.set(index, newRef);
+                if (ref != 0) {
+                    allocator.free(ref);
+                } else {
+                    size.incrementAndGet();
+                }
+            }
+        } finally {
+            segment.versions.set(index, version + 2);
+        }
+        return true;
+    }
+
+    private int createNode(K key, V value) {
+        int keyLength = keySerializer.calculateSize(key);
+        long keyRef = allocator.allocate(keyLength);
+        ScopedWriteBuffer buffer = new ScopedWriteBuffer();
+        allocator.initBuffer(buffer, keyRef, keyLength);
+        keySerializer.serialize(key, buffer);
+        int valueLength = valueSerializer.calculateSize(value);
+        long valueRef = allocator.allocate(valueLength);
+        writeValue(valueRef, valueLength, value);
+        int node = pollUnusedNode();
+        if (node != NIL) {
+            // the height and the tower of the node are kept
+            Segment segment = getSegment(node);
+            int index = node & SEGMENT_SIZE - 1;
+            segment.keys[index] = keyRef;
+            segment.values.set(index, valueRef);
+            return node;
+        }
+        node = nodeCount.getAndIncrement();
+        if (node < 0) {
+            throw new QuickStoreException(QuickStoreException.ERROR_OUT_OF_MEMORY, "Too many keys in map " + name);
+        }
+        Segment segment = getSegment(node);
+        int index = node & SEGMENT_SIZE - 1;
+        int height = 1;
+        for (ThreadLocalRandom random = ThreadLocalRandom.current(); height < MAX_LEVEL
+                && (random.nextInt() & 3) == 0;) {
+            height++;
+        }
+        if (height > 1) {
+            int position = segment.upperPosition.getAndAdd(height - 1);
+            if (position + height - 1 > segment.upper.length()) {
+                height = 1;
+            } else {
+                segment.towers[index] = position;
+            }
+        }
+        segment.heights[index] = (byte) height;
+        segment.keys[index] = keyRef;
+        segment.values.set(index, valueRef);
+        return node;
+    }
+
+    /**
+     * Releases the key and the value of a node that was not linked into the
+     * list and makes the node available for reuse. The references are cleared
+     * first, so {@link #release()} does not free them again.
+     */
+    private void discardNode(int node) {
+        Segment segment = getSegment(node);
+        int index = node & SEGMENT_SIZE - 1;
+        long keyRef = segment.keys[index];
+        segment.keys[index] = 0;
+        allocator.free(keyRef);
+        allocator.free(segment.values.getAndSet(index, 0));
+        synchronized (this) {
+            int[] nodes = unusedNodes;
+            if (unusedNodeCount == nodes.length) {
+                unusedNodes = nodes = Arrays.copyOf(nodes, nodes.length << 1);
+            }
+            nodes[unusedNodeCount++] = node;
+        }
+    }
+
+    private synchronized int pollUnusedNode() {
+        return unusedNodeCount > 0 ? unusedNodes[--unusedNodeCount] : NIL;
+    }
+
+    private void writeValue(long ref, int length, V value) {
+        ScopedWriteBuffer buffer = new ScopedWriteBuffer();
+        allocator.initBuffer(buffer, ref, length);
+        valueSerializer.serialize(value, buffer);
+    }
+
+    /**
+     * Locks the entry for modification.
+     *
+     * @return the version of the entry before the lock
+     */
+    private static int lock(Segment segment, int index) {
+        AtomicIntegerArray versions = segment.versions;
+        for (int spins = 0;; spins++) {
+            int version = versions.get(index);
+            if ((version & 1) == 0 && versions.compareAndSet(index, version, version + 1)) {
+                return version;
+            }
+            if (spins >= SPINS) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Reads the value of the specified node.
+     *
+     * @return the result of the transformer, or {@code null} if the node
+     *         doesn't have a value
+     */
+    <T> T readValue(int node, ValueBuffer valueBuffer, StoreTransformer<T> transformer) {
+        Segment segment = getSegment(node);
+        valueBuffer.set(segment.versions, segment.values, node & SEGMENT_SIZE - 1);
+        Result result = new Result();
+        for (int spins = 0;; spins++) {
+            ValueUtils.transform(result, valueBuffer, transformer);
+            switch (result.operationResult) {
+            case TRUE:
+                @SuppressWarnings("unchecked")
+                T value = (T) result.value;
+                return value;
+            case FALSE:
+                return null;
+            default:
+                if (spins >= SPINS) {
+                    Thread.yield();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the specified node has a value.
+     */
+    boolean hasValue(int node) {
+        return getSegment(node).values.get(node & SEGMENT_SIZE - 1) != 0;
+    }
+
+    /**
+     * Reads the key of the specified node.
+     */
+    <T> T readKey(int node, ScopedReadBuffer keyBuffer, StoreTransformer<T> transformer) {
+        allocator.initBuffer(keyBuffer, getSegment(node).keys[node & SEGMENT_SIZE - 1]);
+        return transformer.apply(keyBuffer);
+    }
+
+    K readKey(int node, ScopedReadBuffer keyBuffer) {
+        return readKey(node, keyBuffer, keySerializer::deserialize);
+    }
+
+    /**
+     * Compares the specified key with the key of the node.
+     */
+    int compare(K key, int node, ScopedReadBuffer keyBuffer) {
+        allocator.initBuffer(keyBuffer, getSegment(node).keys[node & SEGMENT_SIZE - 1]);
+        return keyComparator.compareKeyAndSerializedKey(key, keyBuffer);
+    }
+
+    private int findNode(K key, ScopedReadBuffer keyBuffer) {
+        int pred = HEAD;
+        for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+            for (int curr = getNext(pred, level); curr != NIL; curr = getNext(pred, level)) {
+                int cmp = compare(key, curr, keyBuffer);
+                if (cmp == 0) {
+                    return curr;
+                } else if (cmp < 0) {
+                    break;
+                }
+                pred = curr;
+            }
+        }
+        return NIL;
+    }
+
+    private int findCeiling(K key, ScopedReadBuffer keyBuffer) {
+        int pred = HEAD, curr = NIL;
+        for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+            for (curr = getNext(pred, level); curr != NIL; curr = getNext(pred, level)) {
+                if (compare(key, curr, keyBuffer) <= 0) {
+                    break;
+                }
+                pred = curr;
+            }
+        }
+        return curr;
+    }
+
+    /**
+     * Finds predecessors and successors of the key on all levels.
+     *
+     * @return the node with this key, or {@link #NIL}
+     */
+    private int findPosition(K key, int[] preds, int[] succs, ScopedReadBuffer keyBuffer) {
+        int pred = HEAD, found = NIL;
+        for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+            int curr = getNext(pred, level);
+            while (curr != NIL) {
+                int cmp = compare(key, curr, keyBuffer);
+                if (cmp <= 0) {
+                    if (cmp == 0) {
+                        found = curr;
+                    }
+                    break;
+                }
+                pred = curr;
+                curr = getNext(pred, level);
+            }
+            preds[level] = pred;
+            succs[level] = curr;
+        }
+        return found;
+    }
+
+    private int getHeight(int node) {
+        return getSegment(node).heights[node & SEGMENT_SIZE - 1];
+    }
+
+    /**
+     * Returns the next node on the specified level.
+     */
+    int getNext(int node, int level) {
+        Segment segment = getSegment(node);
+        int index = node & SEGMENT_SIZE - 1;
+        if (level == 0) {
+            return segment.next.get(index);
+        }
+        return level < segment.heights[index] ? segment.upper.get(segment.towers[index] + level - 1) : NIL;
+    }
+
+    private void setNext(int node, int level, int next) {
+        Segment segment = getSegment(node);
+        int index = node & SEGMENT_SIZE - 1;
+        if (level == 0) {
+            segment.next.set(index, next);
+        } else {
+            segment.upper.set(segment.towers[index] + level - 1, next);
+        }
+    }
+
+    private boolean casNext(int node, int level, int expect, int update) {
+        Segment segment = getSegment(node);
+        int index = node & SEGMENT_SIZE - 1;
+        if (level == 0) {
+            return segment.next.compareAndSet(index, expect, update);
+        }
+        return segment.upper.compareAndSet(segment.towers[index] + level - 1, expect, update);
+    }
+
+    private Segment getSegment(int node) {
+        int s = node >>> SEGMENT_SHIFT;
+        Segment[] segments = this.segments;
+        if (s < segments.length) {
+            return segments[s];
+        }
+        return addSegment(s);
+    }
+
+    private synchronized Segment addSegment(int s) {
+        Segment[] segments = this.segments;
+        int length = segments.length;
+        if (s >= length) {
+            segments = Arrays.copyOf(segments, s + 1);
+            for (int i = length; i <= s; i++) {
+                segments[i] = new Segment();
+            }
+            this.segments = segments;
+        }
+        return segments[s];
+    }
+
+    /**
+     * Releases memory of all keys and values of this map.
+     */
+    void release() {
+        synchronized (this) {
+            unusedNodeCount = 0;
+        }
+        for (int node = HEAD + 1, count = Math.min(nodeCount.get(), segments.length << SEGMENT_SHIFT); node < count;
+                node++) {
+            Segment segment = getSegment(node);
+            int index = node & SEGMENT_SIZE - 1;
+            long ref = segment.keys[index];
+            if (ref != 0) {
+                segment.keys[index] = 0;
+                allocator.free(ref);
+            }
+            ref = segment.values.getAndSet(index, 0);
+            if (ref != 0) {
+                allocator.free(ref);
+            }
+        }
+        size.set(0);
+    }
+
+    QuickStore getStore() {
+        return store;
+    }
+
+    StoreSerializer<V> getValueSerializer() {
+        return valueSerializer;
+    }
+
+    MemoryAllocator getAllocator() {
+        return allocator;
+    }
+}
@@ -19,12 +19,97 @@
 
 package org.guinsoo.quickstore;
 
+import java.nio.ByteBuffer;
+
 /**
  * ScopedReadBuffer
  *
+ * <p>
+ * A view of a slice of off-heap memory. Values are read directly from the memory block without copying. Instances
+ * are reused, so a buffer must not be used after the method that received it returned.
+ *
  * @author cius.ji
  * @since 1.8+
  */
-public class ScopedReadBuffer {
-    // TODO: ...
+public class ScopedReadBuffer implements StoreScopedReadBuffer {
+
+    ByteBuffer block;
+
+    int offset;
+
+    int length;
+
+    /**
+     * Points this buffer to the specified slice.
+     *
+     * @param block  the memory block
+     * @param offset the offset of the slice in the block
+     * @param length the length of the slice
+     */
+    void init(ByteBuffer block, int offset, int length) {
+        this.block = block;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Checks the index and returns the position in the block.
+     *
+     * @param index the index in this buffer
+     * @param size  the number of bytes to access
+     * @return the position in the block
+     */
+    final int position(int index, int size) {
+        if (index < 0 || index > length - size) {
+            throw new IndexOutOfBoundsException("index=" + index + ", length=" + length);
+        }
+        return offset + index;
+    }
+
+    @Override
+    public int capacity() {
+        return length;
+    }
+
+    @Override
+    public byte get(int index) {
+        return block.get(position(index, Byte.BYTES));
+    }
+
+    @Override
+    public char getChar(int index) {
+        return block.getChar(position(index, Character.BYTES));
+    }
+
+    @Override
+    public short getShort(int index) {
+        return block.getShort(position(index, Short.BYTES));
+    }
+
+    @Override
+    public int getInt(int index) {
+        return block.getInt(position(index, Integer.BYTES));
+    }
+
+    @Override
+    public long getLong(int index) {
+        return block.getLong(position(index, Long.BYTES));
+    }
+
+    @Override
+    public float getFloat(int index) {
+        return block.getFloat(position(index, Float.BYTES));
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return block.getDouble(position(index, Double.BYTES));
+    }
+
+    @Override
+    public ByteBuffer toByteBuffer() {
+        ByteBuffer buffer = block.duplicate();
+        buffer.limit(offset + length).position(offset);
+        return buffer.slice();
+    }
 }
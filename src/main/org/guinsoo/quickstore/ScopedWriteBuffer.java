@@ -22,9 +22,46 @@ package org.guinsoo.quickstore;
 /**
  * ScopedWriteBuffer
  *
+ * <p>
+ * A view of a slice of off-heap memory for write access. Values are written directly to the memory block.
+ *
  * @author cius.ji
  * @since 1.8+
  */
-public class ScopedWriteBuffer {
-    // TODO ...
+public class ScopedWriteBuffer extends ScopedReadBuffer implements StoreScopedWriteBuffer {
+
+    @Override
+    public void put(int index, byte value) {
+        block.put(position(index, Byte.BYTES), value);
+    }
+
+    @Override
+    public void putChar(int index, char value) {
+        block.putChar(position(index, Character.BYTES), value);
+    }
+
+    @Override
+    public void putShort(int index, short value) {
+        block.putShort(position(index, Short.BYTES), value);
+    }
+
+    @Override
+    public void putInt(int index, int value) {
+        block.putInt(position(index, Integer.BYTES), value);
+    }
+
+    @Override
+    public void putLong(int index, long value) {
+        block.putLong(position(index, Long.BYTES), value);
+    }
+
+    @Override
+    public void putFloat(int index, float value) {
+        block.putFloat(position(index, Float.BYTES), value);
+    }
+
+    @Override
+    public void putDouble(int index, double value) {
+        block.putDouble(position(index, Double.BYTES), value);
+    }
 }
@@ -19,6 +19,8 @@
 
 package org.guinsoo.quickstore;
 
+import java.nio.ByteBuffer;
+
 /**
  * StoreBuffer
  *
@@ -54,6 +56,14 @@ public interface StoreBuffer {
      */
     char getChar(int index);
 
+    /**
+     * Reading a short value.
+     *
+     * @param index read index.
+     * @return the short value at the given index.
+     */
+    short getShort(int index);
+
     /**
      * Reading an int value.
      * @param index reading index.
@@ -61,5 +71,35 @@ public interface StoreBuffer {
      */
     int getInt(int index);
 
-    // TODO: add other types of get* method.
+    /**
+     * Reading a long value.
+     *
+     * @param index read index.
+     * @return the long value at the given index.
+     */
+    long getLong(int index);
+
+    /**
+     * Reading a float value.
+     *
+     * @param index read index.
+     * @return the float value at the given index.
+     */
+    float getFloat(int index);
+
+    /**
+     * Reading a double value.
+     *
+     * @param index read index.
+     * @return the double value at the given index.
+     */
+    double getDouble(int index);
+
+    /**
+     * Returns a view of this buffer. The view shares the memory with this buffer, its position is 0 and its limit is
+     * the capacity of this buffer.
+     *
+     * @return the view of this buffer.
+     */
+    ByteBuffer toByteBuffer();
 }
@@ -20,6 +20,8 @@
 package org.guinsoo.quickstore;
 
 import org.guinsoo.quickstore.common.StoreComparator;
+import org.guinsoo.quickstore.common.bigint.StoreLongComparator;
+import org.guinsoo.quickstore.common.bigint.StoreLongSerializer;
 import org.guinsoo.quickstore.common.integer.StoreIntComparator;
 import org.guinsoo.quickstore.common.integer.StoreIntSerializer;
 
@@ -35,4 +37,8 @@ public class StoreBuildersFactory {
     public static final StoreComparator<Integer> DEFAULT_INT_COMPARATOR = new StoreIntComparator();
     public static final StoreSerializer<Integer> DEFAULT_INT_SERIALIZER = new StoreIntSerializer();
 
+    // Long factories
+    public static final StoreComparator<Long> DEFAULT_LONG_COMPARATOR = new StoreLongComparator();
+    public static final StoreSerializer<Long> DEFAULT_LONG_SERIALIZER = new StoreLongSerializer();
+
 }
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.guinsoo.quickstore;
+
+/**
+ * StoreScopedWriteBuffer
+ *
+ * <p>
+ * A buffer for write access to a serialized key or value. It is valid only inside of the method that received it,
+ * for example, {@link StoreSerializer#serialize(Object, StoreScopedWriteBuffer)}.
+ *
+ * @author cius.ji
+ * @since 1.8+
+ */
+public interface StoreScopedWriteBuffer extends StoreBuffer {
+
+    /**
+     * Writes the byte at the given index.
+     *
+     * @param index write index.
+     * @param value the value.
+     */
+    void put(int index, byte value);
+
+    /**
+     * Writing a char value.
+     *
+     * @param index write index.
+     * @param value the value.
+     */
+    void putChar(int index, char value);
+
+    /**
+     * Writing a short value.
+     *
+     * @param index write index.
+     * @param value the value.
+     */
+    void putShort(int index, short value);
+
+    /**
+     * Writing an int value.
+     *
+     * @param index write index.
+     * @param value the value.
+     */
+    void putInt(int index, int value);
+
+    /**
+     * Writing a long value.
+     *
+     * @param index write index.
+     * @param value the value.
+     */
+    void putLong(int index, long value);
+
+    /**
+     * Writing a float value.
+     *
+     * @param index write index.
+     * @param value the value.
+     */
+    void putFloat(int index, float value);
+
+    /**
+     * Writing a double value.
+     *
+     * @param index write index.
+     * @param value the value.
+     */
+    void putDouble(int index, double value);
+}
@@ -23,12 +23,15 @@ package org.guinsoo.quickstore;
  * StoreSerializer
  * An interface to be supported by keys and values provided for store mappping.
  *
+ * <p>
+ * {@link #calculateSize(Object)} is called first, then the object is written to a buffer of this size.
+ *
  * @author cius.ji
  * @since 1.8+
  */
 public interface StoreSerializer<T> {
 
-    void serialize(T object, StoreScopedReadBuffer targetBuffer);
+    void serialize(T object, StoreScopedWriteBuffer targetBuffer);
 
     T deserialize(StoreScopedReadBuffer byteBuffer);
 
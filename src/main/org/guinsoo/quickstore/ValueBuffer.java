@@ -19,12 +19,75 @@
 
 package org.guinsoo.quickstore;
 
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 /**
  * ValueBuffer
  *
+ * <p>
+ * A handle of a value of an entry of a {@link QuickStoreMap}. The entry has a version that is odd while the value is
+ * being modified and is incremented by each modification, and a reference to the off-heap slice with the value, or 0
+ * if the entry doesn't have a value. Instances are reused for different entries.
+ *
  * @author cius.ji
  * @since 1.8+
  */
 public class ValueBuffer {
-    // todo
+
+    private final MemoryAllocator allocator;
+
+    private final ScopedReadBuffer buffer = new ScopedReadBuffer();
+
+    private AtomicIntegerArray versions;
+
+    private AtomicLongArray references;
+
+    private int index;
+
+    ValueBuffer(MemoryAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    /**
+     * Points this handle to the specified entry.
+     *
+     * @param versions   the versions of entries
+     * @param references the references to values of entries
+     * @param index      the index of the entry in the arrays
+     */
+    void set(AtomicIntegerArray versions, AtomicLongArray references, int index) {
+        this.versions = versions;
+        this.references = references;
+        this.index = index;
+    }
+
+    /**
+     * Returns the current version of the entry.
+     *
+     * @return the version
+     */
+    int getVersion() {
+        return versions.get(index);
+    }
+
+    /**
+     * Returns the current reference to the value of the entry.
+     *
+     * @return the reference, or 0
+     */
+    long getReference() {
+        return references.get(index);
+    }
+
+    /**
+     * Returns the buffer for the content of the specified slice.
+     *
+     * @param ref the reference to the slice
+     * @return the buffer
+     */
+    StoreScopedReadBuffer getBuffer(long ref) {
+        allocator.initBuffer(buffer, ref);
+        return buffer;
+    }
 }
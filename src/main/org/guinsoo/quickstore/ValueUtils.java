@@ -38,15 +38,33 @@ public class ValueUtils {
      * @param value       the value's off-heap Slice object
      * @param transformer value deserializer
      * @param <T>         the type of {@code transformer}'s output
-     * @return {@code TRUE} if the value was read successfully
+     * @return {@code TRUE} if the value was read successfully,
      * {@code FALSE} if the value is deleted
      * {@code RETRY} if the value was moved, or the version of the off-heap value does not match {@code version}.
      * In case of {@code TRUE}, the read value is stored in the returned Result, otherwise, the value is {@code null}.
      */
-    <T> Result transform(Result result, ValueBuffer value, StoreTransformer<T> transformer) {
-        // TODO: ???
-        return null;
+    static <T> Result transform(Result result, ValueBuffer value, StoreTransformer<T> transformer) {
+        int version = value.getVersion();
+        if ((version & 1) != 0) {
+            return result.withFlag(ValueResult.RETRY);
+        }
+        long ref = value.getReference();
+        if (ref == 0) {
+            return result.withFlag(version == value.getVersion() ? ValueResult.FALSE : ValueResult.RETRY);
+        }
+        T t;
+        try {
+            t = transformer.apply(value.getBuffer(ref));
+        } catch (RuntimeException e) {
+            // the slice may be reused by another value during the read
+            if (version != value.getVersion()) {
+                return result.withFlag(ValueResult.RETRY);
+            }
+            throw e;
+        }
+        if (version != value.getVersion()) {
+            return result.withFlag(ValueResult.RETRY);
+        }
+        return result.withValue(t);
     }
-
-
 }
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.guinsoo.quickstore.common.bigint;
+
+import org.guinsoo.quickstore.StoreScopedReadBuffer;
+import org.guinsoo.quickstore.common.StoreComparator;
+
+/**
+ * StoreLongComparator
+ *
+ * @author cius.ji
+ * @since 1.8+
+ */
+public class StoreLongComparator implements StoreComparator<Long> {
+
+    @Override
+    public int compareKeys(Long key1, Long key2) {
+        return Long.compare(key1, key2);
+    }
+
+    @Override
+    public int compareSerializedKeys(StoreScopedReadBuffer serializedKey1, StoreScopedReadBuffer serializedKey2) {
+        return Long.compare(serializedKey1.getLong(0), serializedKey2.getLong(0));
+    }
+
+    @Override
+    public int compareKeyAndSerializedKey(Long key, StoreScopedReadBuffer serializedKey) {
+        return Long.compare(key, serializedKey.getLong(0));
+    }
+}
@@ -17,23 +17,32 @@
  * under the License.
  */
 
-package org.guinsoo.quickstore.db;
+package org.guinsoo.quickstore.common.bigint;
 
-import org.guinsoo.engine.Database;
-import org.guinsoo.quickstore.QuickStoreException;
+import org.guinsoo.quickstore.StoreScopedReadBuffer;
+import org.guinsoo.quickstore.StoreScopedWriteBuffer;
+import org.guinsoo.quickstore.StoreSerializer;
 
 /**
- * Store
+ * StoreLongSerializer
  *
  * @author cius.ji
  * @since 1.8+
  */
-public class Store {
+public class StoreLongSerializer implements StoreSerializer<Long> {
 
-    public Store(Database db) {
-        String dbPath = db.getDatabasePath();
-        System.out.println(dbPath);
+    @Override
+    public void serialize(Long object, StoreScopedWriteBuffer targetBuffer) {
+        targetBuffer.putLong(0, object);
+    }
+
+    @Override
+    public Long deserialize(StoreScopedReadBuffer byteBuffer) {
+        return byteBuffer.getLong(0);
+    }
 
-        new QuickStoreException(-1, "QUICK STORE IS COMING");
+    @Override
+    public int calculateSize(Long object) {
+        return Long.BYTES;
     }
 }
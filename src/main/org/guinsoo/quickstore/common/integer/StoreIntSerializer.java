@@ -20,6 +20,7 @@
 package org.guinsoo.quickstore.common.integer;
 
 import org.guinsoo.quickstore.StoreScopedReadBuffer;
+import org.guinsoo.quickstore.StoreScopedWriteBuffer;
 import org.guinsoo.quickstore.StoreSerializer;
 
 /**
@@ -41,14 +42,13 @@ public class StoreIntSerializer implements StoreSerializer<Integer> {
     }
 
     @Override
-    public void serialize(Integer object, StoreScopedReadBuffer targetBuffer) {
-        // TODO: write buffer
+    public void serialize(Integer object, StoreScopedWriteBuffer targetBuffer) {
+        targetBuffer.putInt(0, object);
     }
 
     @Override
     public Integer deserialize(StoreScopedReadBuffer byteBuffer) {
-        // TODO: get buffer
-        return null;
+        return byteBuffer.getInt(0);
     }
 
     @Override
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.guinsoo.quickstore.db;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.guinsoo.api.ErrorCode;
+import org.guinsoo.command.query.AllColumnsForPlan;
+import org.guinsoo.engine.SessionLocal;
+import org.guinsoo.index.Cursor;
+import org.guinsoo.index.Index;
+import org.guinsoo.index.IndexType;
+import org.guinsoo.index.SingleRowCursor;
+import org.guinsoo.message.DbException;
+import org.guinsoo.quickstore.QuickStoreCursor;
+import org.guinsoo.quickstore.QuickStoreException;
+import org.guinsoo.quickstore.QuickStoreMap;
+import org.guinsoo.quickstore.StoreBuildersFactory;
+import org.guinsoo.result.Row;
+import org.guinsoo.result.SearchRow;
+import org.guinsoo.result.SortOrder;
+import org.guinsoo.table.Column;
+import org.guinsoo.table.IndexColumn;
+import org.guinsoo.table.TableFilter;
+import org.guinsoo.value.Value;
+import org.guinsoo.value.ValueLob;
+
+/**
+ * QuickPrimaryIndex
+ *
+ * <p>
+ * The primary index of a {@link QuickTable}. It maps row keys to rows.
+ *
+ * @author cius.ji
+ * @since 1.8+
+ */
+public class QuickPrimaryIndex extends Index {
+
+    private final QuickTable quickTable;
+
+    private final String mapName;
+
+    private QuickStoreMap<Long, SearchRow> dataMap;
+
+    private final AtomicLong lastKey = new AtomicLong();
+
+    public QuickPrimaryIndex(QuickTable table, int id, IndexColumn[] columns, IndexType indexType) {
+        super(table, id, table.getName() + "_DATA", columns, indexType);
+        this.quickTable = table;
+        mapName = "table." + getId();
+        dataMap = openMap();
+    }
+
+    private QuickStoreMap<Long, SearchRow> openMap() {
+        return quickTable.getQuickStore().openMap(mapName, StoreBuildersFactory.DEFAULT_LONG_COMPARATOR,
+                StoreBuildersFactory.DEFAULT_LONG_SERIALIZER, new StoreRowSerializer(table.getRowFactory().getRowDataType()));
+    }
+
+    @Override
+    public String getCreateSQL() {
+        return null;
+    }
+
+    @Override
+    public String getPlanSQL() {
+        return table.getSQL(new StringBuilder(), TRACE_SQL_FLAGS).append(".tableScan").toString();
+    }
+
+    @Override
+    public void close(SessionLocal session) {
+        // ok
+    }
+
+    @Override
+    public void add(SessionLocal session, Row row) {
+        if (row.getKey() == 0) {
+            row.setKey(lastKey.incrementAndGet());
+        }
+        if (quickTable.getContainsLargeObject()) {
+            for (int i = 0, len = row.getColumnCount(); i < len; i++) {
+                Value v = row.getValue(i);
+                if (v instanceof ValueLob) {
+                    ValueLob lob = ((ValueLob) v).copy(database, getId());
+                    session.removeAtCommitStop(lob);
+                    if (v != lob) {
+                        row.setValue(i, lob);
+                    }
+                }
+            }
+        }
+        long rowKey = row.getKey();
+        try {
+            if (!dataMap.putIfAbsent(rowKey, row)) {
+                DbException e = DbException.get(ErrorCode.DUPLICATE_KEY_1,
+                        getDuplicatePrimaryKeyMessage(SearchRow.ROWID_INDEX).append(' ').append(rowKey).toString());
+                e.setSource(this);
+                throw e;
+            }
+        } catch (QuickStoreException e) {
+            throw quickTable.convertException(e);
+        }
+        // because it's possible to directly update the key using the _rowid_
+        // syntax
+        long last;
+        while (rowKey > (last = lastKey.get())) {
+            if (lastKey.compareAndSet(last, rowKey)) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void remove(SessionLocal session, Row row) {
+        if (quickTable.getContainsLargeObject()) {
+            for (int i = 0, len = row.getColumnCount(); i < len; i++) {
+                Value v = row.getValue(i);
+                if (v instanceof ValueLob) {
+                    session.removeAtCommit((ValueLob) v);
+                }
+            }
+        }
+        try {
+            if (!dataMap.remove(row.getKey())) {
+                StringBuilder builder = new StringBuilder();
+                getSQL(builder, TRACE_SQL_FLAGS).append(": ").append(row.getKey());
+                throw DbException.get(ErrorCode.ROW_NOT_FOUND_WHEN_DELETING_1, builder.toString());
+            }
+        } catch (QuickStoreException e) {
+            throw quickTable.convertException(e);
+        }
+    }
+
+    @Override
+    public Cursor find(SessionLocal session, SearchRow first, SearchRow last) {
+        long min = first == null ? Long.MIN_VALUE : first.getKey();
+        long max = last == null ? Long.MAX_VALUE : last.getKey();
+        try {
+            if (min == max) {
+                return new SingleRowCursor((Row) dataMap.get(min));
+            }
+            return new QuickPrimaryCursor(dataMap.cursor(min, max));
+        } catch (QuickStoreException e) {
+            throw quickTable.convertException(e);
+        }
+    }
+
+    @Override
+    public QuickTable getTable() {
+        return quickTable;
+    }
+
+    @Override
+    public Row getRow(SessionLocal session, long key) {
+        Row row;
+        try {
+            row = (Row) dataMap.get(key);
+        } catch (QuickStoreException e) {
+            throw quickTable.convertException(e);
+        }
+        if (row == null) {
+            throw DbException.get(ErrorCode.ROW_NOT_FOUND_IN_PRIMARY_INDEX, getTraceSQL(), String.valueOf(key));
+        }
+        return row;
+    }
+
+    @Override
+    public double getCost(SessionLocal session, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        return 10 * getCostRangeIndex(masks, dataMap.size(), filters, filter, sortOrder, true, allColumnsSet);
+    }
+
+    @Override
+    public int getColumnIndex(Column col) {
+        // can not use this index - use the secondary index instead
+        return SearchRow.ROWID_INDEX;
+    }
+
+    @Override
+    public boolean isFirstColumn(Column column) {
+        return false;
+    }
+
+    @Override
+    public void remove(SessionLocal session) {
+        quickTable.getQuickStore().removeMap(mapName);
+    }
+
+    @Override
+    public void truncate(SessionLocal session) {
+        if (quickTable.getContainsLargeObject()) {
+            database.getLobStorage().removeAllForTable(table.getId());
+        }
+        quickTable.getQuickStore().removeMap(mapName);
+        dataMap = openMap();
+    }
+
+    @Override
+    public boolean needRebuild() {
+        return false;
+    }
+
+    @Override
+    public long getRowCount(SessionLocal session) {
+        return dataMap.size();
+    }
+
+    @Override
+    public long getRowCountApproximation(SessionLocal session) {
+        return dataMap.size();
+    }
+
+    @Override
+    public boolean isRowIdIndex() {
+        return true;
+    }
+
+    /**
+     * A cursor over rows of the primary index.
+     */
+    private static final class QuickPrimaryCursor implements Cursor {
+
+        private final QuickStoreCursor<Long, SearchRow> cursor;
+
+        private Row row;
+
+        QuickPrimaryCursor(QuickStoreCursor<Long, SearchRow> cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public Row get() {
+            return row;
+        }
+
+        @Override
+        public SearchRow getSearchRow() {
+            return row;
+        }
+
+        @Override
+        public boolean next() {
+            while (cursor.hasNext()) {
+                cursor.next();
+                row = (Row) cursor.getValue();
+                if (row != null) {
+                    return true;
+                }
+            }
+            row = null;
+            return false;
+        }
+
+        @Override
+        public boolean previous() {
+            throw DbException.getUnsupportedException("previous");
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.guinsoo.quickstore.db;
+
+import org.guinsoo.api.ErrorCode;
+import org.guinsoo.command.query.AllColumnsForPlan;
+import org.guinsoo.engine.SessionLocal;
+import org.guinsoo.index.Cursor;
+import org.guinsoo.index.Index;
+import org.guinsoo.index.IndexType;
+import org.guinsoo.message.DbException;
+import org.guinsoo.quickstore.QuickStoreCursor;
+import org.guinsoo.quickstore.QuickStoreException;
+import org.guinsoo.quickstore.QuickStoreMap;
+import org.guinsoo.quickstore.StoreBuildersFactory;
+import org.guinsoo.result.Row;
+import org.guinsoo.result.SearchRow;
+import org.guinsoo.result.SortOrder;
+import org.guinsoo.table.IndexColumn;
+import org.guinsoo.table.TableFilter;
+
+/**
+ * QuickSecondaryIndex
+ *
+ * <p>
+ * A secondary index of a {@link QuickTable}. Keys of the map are values of indexed columns with the row key, values
+ * of the map are row keys.
+ *
+ * @author cius.ji
+ * @since 1.8+
+ */
+public class QuickSecondaryIndex extends Index {
+
+    private final QuickTable quickTable;
+
+    private final String mapName;
+
+    private QuickStoreMap<SearchRow, Long> dataMap;
+
+    public QuickSecondaryIndex(QuickTable table, int id, String indexName, IndexColumn[] columns,
+            IndexType indexType) {
+        super(table, id, indexName, columns, indexType);
+        this.quickTable = table;
+        if (!database.isStarting()) {
+            checkIndexColumnTypes(columns);
+        }
+        mapName = "index." + getId();
+        dataMap = openMap();
+    }
+
+    private QuickStoreMap<SearchRow, Long> openMap() {
+        StoreRowSerializer keyType = new StoreRowSerializer(getRowFactory().getRowDataType());
+        return quickTable.getQuickStore().openMap(mapName, keyType, keyType,
+                StoreBuildersFactory.DEFAULT_LONG_SERIALIZER);
+    }
+
+    @Override
+    public void close(SessionLocal session) {
+        // ok
+    }
+
+    @Override
+    public void add(SessionLocal session, Row row) {
+        SearchRow key = convertToKey(row, null);
+        try {
+            if (indexType.isUnique() && !mayHaveNullDuplicates(row)) {
+                QuickStoreCursor<SearchRow, Long> cursor = dataMap.cursor(convertToKey(row, Boolean.FALSE),
+                        convertToKey(row, Boolean.TRUE));
+                if (cursor.hasNext()) {
+                    throw getDuplicateKeyException(cursor.next().toString());
+                }
+            }
+            dataMap.put(key, row.getKey());
+        } catch (QuickStoreException e) {
+            throw quickTable.convertException(e);
+        }
+    }
+
+    @Override
+    public void remove(SessionLocal session, Row row) {
+        try {
+            if (!dataMap.remove(convertToKey(row, null))) {
+                StringBuilder builder = new StringBuilder();
+                getSQL(builder, TRACE_SQL_FLAGS).append(": ").append(row.getKey());
+                throw DbException.get(ErrorCode.ROW_NOT_FOUND_WHEN_DELETING_1, builder.toString());
+            }
+        } catch (QuickStoreException e) {
+            throw quickTable.convertException(e);
+        }
+    }
+
+    @Override
+    public Cursor find(SessionLocal session, SearchRow first, SearchRow last) {
+        try {
+            return new QuickSecondaryCursor(session, dataMap.cursor(convertToKey(first, Boolean.FALSE),
+                    convertToKey(last, Boolean.TRUE)));
+        } catch (QuickStoreException e) {
+            throw quickTable.convertException(e);
+        }
+    }
+
+    private SearchRow convertToKey(SearchRow r, Boolean minMax) {
+        if (r == null) {
+            return null;
+        }
+        SearchRow row = getRowFactory().createRow();
+        row.copyFrom(r);
+        if (minMax != null) {
+            row.setKey(minMax ? Long.MAX_VALUE : Long.MIN_VALUE);
+        }
+        return row;
+    }
+
+    @Override
+    public QuickTable getTable() {
+        return quickTable;
+    }
+
+    @Override
+    public double getCost(SessionLocal session, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        return 10 * getCostRangeIndex(masks, dataMap.size(), filters, filter, sortOrder, false, allColumnsSet);
+    }
+
+    @Override
+    public void remove(SessionLocal session) {
+        quickTable.getQuickStore().removeMap(mapName);
+    }
+
+    @Override
+    public void truncate(SessionLocal session) {
+        quickTable.getQuickStore().removeMap(mapName);
+        dataMap = openMap();
+    }
+
+    @Override
+    public boolean needRebuild() {
+        return dataMap.isEmpty();
+    }
+
+    @Override
+    public long getRowCount(SessionLocal session) {
+        return dataMap.size();
+    }
+
+    @Override
+    public long getRowCountApproximation(SessionLocal session) {
+        return dataMap.size();
+    }
+
+    /**
+     * A cursor over rows of a secondary index.
+     */
+    private final class QuickSecondaryCursor implements Cursor {
+
+        private final SessionLocal session;
+
+        private final QuickStoreCursor<SearchRow, Long> cursor;
+
+        private Long rowKey;
+
+        private SearchRow searchRow;
+
+        private Row row;
+
+        QuickSecondaryCursor(SessionLocal session, QuickStoreCursor<SearchRow, Long> cursor) {
+            this.session = session;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public Row get() {
+            if (row == null && rowKey != null) {
+                row = quickTable.getRow(session, rowKey);
+            }
+            return row;
+        }
+
+        @Override
+        public SearchRow getSearchRow() {
+            return searchRow;
+        }
+
+        @Override
+        public boolean next() {
+            row = null;
+            while (cursor.hasNext()) {
+                searchRow = cursor.next();
+                rowKey = cursor.getValue();
+                if (rowKey != null) {
+                    return true;
+                }
+            }
+            searchRow = null;
+            rowKey = null;
+            return false;
+        }
+
+        @Override
+        public boolean previous() {
+            throw DbException.getUnsupportedException("previous");
+        }
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.guinsoo.quickstore.db;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import org.guinsoo.api.DatabaseEventListener;
+import org.guinsoo.api.ErrorCode;
+import org.guinsoo.command.ddl.CreateTableData;
+import org.guinsoo.engine.Constants;
+import org.guinsoo.engine.SessionLocal;
+import org.guinsoo.index.Cursor;
+import org.guinsoo.index.Index;
+import org.guinsoo.index.IndexType;
+import org.guinsoo.message.DbException;
+import org.guinsoo.message.Trace;
+import org.guinsoo.quickstore.QuickStore;
+import org.guinsoo.quickstore.QuickStoreException;
+import org.guinsoo.result.Row;
+import org.guinsoo.table.IndexColumn;
+import org.guinsoo.table.RegularTable;
+import org.guinsoo.util.Utils;
+
+/**
+ * QuickTable
+ *
+ * <p>
+ * A table stored in a {@link QuickStore}. Rows are kept in off-heap maps of the store, the primary index maps row keys
+ * to rows and each secondary index maps index entries to row keys.
+ *
+ * <p>
+ * Transactions are isolated with table locks: a modified table is locked exclusively until the end of the
+ * transaction and readers hold shared locks. Changes are rolled back with the undo log of the session.
+ *
+ * @author cius.ji
+ * @since 1.8+
+ */
+public class QuickTable extends RegularTable {
+
+    private final QuickStore quickStore;
+
+    private final QuickPrimaryIndex primaryIndex;
+
+    private final ArrayList<Index> indexes = Utils.newSmallArrayList();
+
+    /**
+     * The queue of sessions waiting to lock the table. It is a FIFO queue to prevent starvation, since Java's
+     * synchronized locking is biased.
+     */
+    private final ArrayDeque<SessionLocal> waitingSessions = new ArrayDeque<>();
+
+    private final Trace traceLock;
+
+    private long lastModificationId;
+
+    private int changesSinceAnalyze;
+
+    private int nextAnalyze;
+
+    public QuickTable(CreateTableData data, QuickStore quickStore) {
+        super(data);
+        this.quickStore = quickStore;
+        nextAnalyze = database.getSettings().analyzeAuto;
+        primaryIndex = new QuickPrimaryIndex(this, getId(), IndexColumn.wrap(getColumns()), IndexType.createScan(true));
+        indexes.add(primaryIndex);
+        traceLock = database.getTrace(Trace.LOCK);
+    }
+
+    /**
+     * Returns the store of this table.
+     *
+     * @return the store
+     */
+    QuickStore getQuickStore() {
+        return quickStore;
+    }
+
+    @Override
+    public void close(SessionLocal session) {
+        // ok
+    }
+
+    @Override
+    public Row getRow(SessionLocal session, long key) {
+        return primaryIndex.getRow(session, key);
+    }
+
+    @Override
+    public void addRow(SessionLocal session, Row row) {
+        lastModificationId = database.getNextModificationDataId();
+        int i = 0;
+        try {
+            for (int size = indexes.size(); i < size; i++) {
+                indexes.get(i).add(session, row);
+            }
+        } catch (Throwable e) {
+            try {
+                while (--i >= 0) {
+                    indexes.get(i).remove(session, row);
+                }
+            } catch (DbException e2) {
+                // this could happen, for example on failure in the storage
+                // but if that is not the case it means there is something wrong
+                // with the database
+                trace.error(e2, "could not undo operation");
+                throw e2;
+            }
+            throw DbException.convert(e);
+        }
+        analyzeIfRequired(session);
+    }
+
+    @Override
+    public void removeRow(SessionLocal session, Row row) {
+        lastModificationId = database.getNextModificationDataId();
+        int i = indexes.size() - 1;
+        try {
+            for (; i >= 0; i--) {
+                indexes.get(i).remove(session, row);
+            }
+        } catch (Throwable e) {
+            try {
+                while (++i < indexes.size()) {
+                    indexes.get(i).add(session, row);
+                }
+            } catch (DbException e2) {
+                // this could happen, for example on failure in the storage
+                // but if that is not the case it means there is something wrong
+                // with the database
+                trace.error(e2, "could not undo operation");
+                throw e2;
+            }
+            throw DbException.convert(e);
+        }
+        analyzeIfRequired(session);
+    }
+
+    @Override
+    public long truncate(SessionLocal session) {
+        lastModificationId = database.getNextModificationDataId();
+        long result = primaryIndex.getRowCount(session);
+        for (int i = indexes.size() - 1; i >= 0; i--) {
+            indexes.get(i).truncate(session);
+        }
+        changesSinceAnalyze = 0;
+        return result;
+    }
+
+    private void analyzeIfRequired(SessionLocal session) {
+        if (nextAnalyze == 0 || nextAnalyze > changesSinceAnalyze++) {
+            return;
+        }
+        changesSinceAnalyze = 0;
+        int n = 2 * nextAnalyze;
+        if (n > 0) {
+            nextAnalyze = n;
+        }
+        session.markTableForAnalyze(this);
+    }
+
+    @Override
+    public Index getScanIndex(SessionLocal session) {
+        return primaryIndex;
+    }
+
+    @Override
+    public Index getUniqueIndex() {
+        for (Index idx : indexes) {
+            if (idx.getIndexType().isUnique()) {
+                return idx;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public ArrayList<Index> getIndexes() {
+        return indexes;
+    }
+
+    @Override
+    public Index addIndex(SessionLocal session, String indexName, int indexId, IndexColumn[] cols,
+            IndexType indexType, boolean create, String indexComment) {
+        if (indexType.isSpatial()) {
+            throw DbException.getUnsupportedException("STORE=QUICK && SPATIAL INDEX");
+        }
+        cols = prepareColumns(database, cols, indexType);
+        boolean isSessionTemporary = isTemporary() && !isGlobalTemporary();
+        if (!isSessionTemporary) {
+            database.lockMeta(session);
+        }
+        QuickSecondaryIndex index = new QuickSecondaryIndex(this, indexId, indexName, cols, indexType);
+        long rowCount = primaryIndex.getRowCount(session);
+        if (rowCount > 0) {
+            try {
+                Cursor cursor = primaryIndex.find(session, null, null);
+                long i = 0;
+                int bufferSize = (int) Math.min(rowCount, database.getMaxMemoryRows());
+                ArrayList<Row> buffer = new ArrayList<>(bufferSize);
+                String n = getName() + ":" + index.getName();
+                while (cursor.next()) {
+                    database.setProgress(DatabaseEventListener.STATE_CREATE_INDEX, n, i++, rowCount);
+                    buffer.add(cursor.get());
+                    if (buffer.size() >= bufferSize) {
+                        addRowsToIndex(session, buffer, index);
+                    }
+                }
+                addRowsToIndex(session, buffer, index);
+            } catch (DbException e) {
+                getSchema().freeUniqueName(indexName);
+                try {
+                    index.remove(session);
+                } catch (DbException e2) {
+                    // this could happen, for example on failure in the storage
+                    // but if that is not the case it means
+                    // there is something wrong with the database
+                    trace.error(e2, "could not remove index");
+                    throw e2;
+                }
+                throw e;
+            }
+        }
+        index.setTemporary(isTemporary());
+        if (index.getCreateSQL() != null) {
+            index.setComment(indexComment);
+            if (isSessionTemporary) {
+                session.addLocalTempTableIndex(index);
+            } else {
+                database.addSchemaObject(session, index);
+            }
+        }
+        indexes.add(index);
+        setModified();
+        return index;
+    }
+
+    @Override
+    public long getRowCount(SessionLocal session) {
+        return primaryIndex.getRowCount(session);
+    }
+
+    @Override
+    public long getRowCountApproximation(SessionLocal session) {
+        return primaryIndex.getRowCountApproximation(session);
+    }
+
+    @Override
+    public boolean lock(SessionLocal session, boolean exclusive, boolean forceLockEvenInMvcc) {
+        int lockMode = database.getLockMode();
+        if (lockMode == Constants.LOCK_MODE_OFF) {
+            return lockExclusiveSession != null;
+        }
+        if (lockExclusiveSession == session) {
+            return true;
+        }
+        if (!exclusive && lockSharedSessions.containsKey(session)) {
+            return true;
+        }
+        synchronized (database) {
+            if (!exclusive && lockSharedSessions.containsKey(session)) {
+                return true;
+            }
+            session.setWaitForLock(this, Thread.currentThread());
+            waitingSessions.addLast(session);
+            try {
+                doLock1(session, exclusive);
+            } finally {
+                session.setWaitForLock(null, null);
+                waitingSessions.remove(session);
+            }
+        }
+        return false;
+    }
+
+    private void doLock1(SessionLocal session, boolean exclusive) {
+        traceLock(session, exclusive, "requesting for");
+        // don't get the current time unless necessary
+        long max = 0;
+        boolean checkDeadlock = false;
+        while (true) {
+            // if I'm the next one in the queue
+            if (waitingSessions.getFirst() == session && doLock2(session, exclusive)) {
+                return;
+            }
+            if (checkDeadlock) {
+                ArrayList<SessionLocal> sessions = checkDeadlock(session, null, null);
+                if (sessions != null) {
+                    throw DbException.get(ErrorCode.DEADLOCK_1, getDeadlockDetails(sessions, exclusive));
+                }
+            } else {
+                // check for deadlocks from now on
+                checkDeadlock = true;
+            }
+            long now = System.nanoTime();
+            if (max == 0L) {
+                // try at least one more time
+                max = Utils.nanoTimePlusMillis(now, session.getLockTimeout());
+            } else if (now - max >= 0L) {
+                traceLock(session, exclusive, "timeout after " + session.getLockTimeout());
+                throw DbException.get(ErrorCode.LOCK_TIMEOUT_1, getName());
+            }
+            try {
+                traceLock(session, exclusive, "waiting for");
+                // don't wait too long so that deadlocks are detected early
+                long sleep = Math.min(Constants.DEADLOCK_CHECK, (max - now) / 1_000_000);
+                if (sleep == 0) {
+                    sleep = 1;
+                }
+                database.wait(sleep);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }
+    }
+
+    private boolean doLock2(SessionLocal session, boolean exclusive) {
+        if (lockExclusiveSession != null) {
+            return false;
+        }
+        if (exclusive) {
+            if (lockSharedSessions.isEmpty()) {
+                traceLock(session, exclusive, "added for");
+                session.registerTableAsLocked(this);
+                lockExclusiveSession = session;
+                return true;
+            } else if (lockSharedSessions.size() == 1 && lockSharedSessions.containsKey(session)) {
+                traceLock(session, exclusive, "add (upgraded) for ");
+                lockExclusiveSession = session;
+                return true;
+            }
+            return false;
+        }
+        // sessions run concurrently, so shared locks are required in all lock
+        // modes to prevent reads of uncommitted changes
+        traceLock(session, exclusive, "ok");
+        session.registerTableAsLocked(this);
+        lockSharedSessions.put(session, session);
+        return true;
+    }
+
+    private void traceLock(SessionLocal session, boolean exclusive, String s) {
+        if (traceLock.isDebugEnabled()) {
+            traceLock.debug("{0} {1} {2} {3}", session.getId(),
+                    exclusive ? "exclusive write lock" : "shared read lock", s, getName());
+        }
+    }
+
+    @Override
+    public void unlock(SessionLocal s) {
+        if (database != null) {
+            traceLock(s, lockExclusiveSession == s, "unlock");
+            if (lockExclusiveSession == s) {
+                lockSharedSessions.remove(s);
+                lockExclusiveSession = null;
+            }
+            synchronized (database) {
+                if (!lockSharedSessions.isEmpty()) {
+                    lockSharedSessions.remove(s);
+                }
+                if (!waitingSessions.isEmpty()) {
+                    database.notifyAll();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void removeChildrenAndResources(SessionLocal session) {
+        if (containsLargeObject) {
+            // unfortunately, the data is gone on rollback
+            truncate(session);
+            database.getLobStorage().removeAllForTable(getId());
+            database.lockMeta(session);
+        }
+        super.removeChildrenAndResources(session);
+        // go backwards because database.removeIndex will call table.removeIndex
+        while (indexes.size() > 1) {
+            Index index = indexes.get(1);
+            index.remove(session);
+            if (index.getName() != null) {
+                database.removeSchemaObject(session, index);
+            }
+            // needed for session temporary indexes
+            indexes.remove(index);
+        }
+        primaryIndex.remove(session);
+        indexes.clear();
+        database.removeMeta(session, getId());
+        lockExclusiveSession = null;
+        lockSharedSessions.clear();
+        invalidate();
+    }
+
+    @Override
+    public long getMaxDataModificationId() {
+        return lastModificationId;
+    }
+
+    /**
+     * Converts the specified exception from the store.
+     *
+     * @param e the exception
+     * @return the database exception
+     */
+    DbException convertException(QuickStoreException e) {
+        switch (e.getErrorCode()) {
+        case QuickStoreException.ERROR_CLOSED:
+            return DbException.get(ErrorCode.DATABASE_IS_CLOSED, e, e.getMessage());
+        case QuickStoreException.ERROR_OUT_OF_MEMORY:
+            return DbException.get(ErrorCode.OUT_OF_MEMORY, e, e.getMessage());
+        default:
+            return DbException.get(ErrorCode.GENERAL_ERROR_1, e, e.getMessage());
+        }
+    }
+
+}
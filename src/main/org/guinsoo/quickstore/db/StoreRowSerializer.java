@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.guinsoo.quickstore.db;
+
+import java.nio.ByteBuffer;
+
+import org.guinsoo.mvstore.WriteBuffer;
+import org.guinsoo.mvstore.db.RowDataType;
+import org.guinsoo.quickstore.StoreScopedReadBuffer;
+import org.guinsoo.quickstore.StoreScopedWriteBuffer;
+import org.guinsoo.quickstore.StoreSerializer;
+import org.guinsoo.quickstore.common.StoreComparator;
+import org.guinsoo.result.SearchRow;
+
+/**
+ * StoreRowSerializer
+ *
+ * <p>
+ * The serializer and the comparator of rows. Rows are serialized in the same format as rows of MVStore tables, so
+ * values of all data types are supported. Serialized rows are decoded directly from off-heap memory.
+ *
+ * <p>
+ * A map computes the size of a key or a value and serializes it right after that, so the last serialized row is
+ * cached until it is serialized.
+ *
+ * @author cius.ji
+ * @since 1.8+
+ */
+final class StoreRowSerializer implements StoreSerializer<SearchRow>, StoreComparator<SearchRow> {
+
+    private final RowDataType rowDataType;
+
+    private final WriteBuffer writeBuffer = new WriteBuffer();
+
+    private SearchRow lastRow;
+
+    StoreRowSerializer(RowDataType rowDataType) {
+        this.rowDataType = rowDataType;
+    }
+
+    @Override
+    public synchronized void serialize(SearchRow object, StoreScopedWriteBuffer targetBuffer) {
+        ByteBuffer buffer = write(object).duplicate();
+        lastRow = null;
+        buffer.flip();
+        targetBuffer.toByteBuffer().put(buffer);
+    }
+
+    @Override
+    public SearchRow deserialize(StoreScopedReadBuffer byteBuffer) {
+        return rowDataType.read(byteBuffer.toByteBuffer());
+    }
+
+    @Override
+    public synchronized int calculateSize(SearchRow object) {
+        return write(object).position();
+    }
+
+    private ByteBuffer write(SearchRow row) {
+        if (lastRow != row) {
+            lastRow = null;
+            rowDataType.write(writeBuffer.clear(), row);
+            lastRow = row;
+        }
+        return writeBuffer.getBuffer();
+    }
+
+    @Override
+    public int compareKeys(SearchRow key1, SearchRow key2) {
+        return rowDataType.compare(key1, key2);
+    }
+
+    @Override
+    public int compareSerializedKeys(StoreScopedReadBuffer serializedKey1, StoreScopedReadBuffer serializedKey2) {
+        return rowDataType.compare(deserialize(serializedKey1), deserialize(serializedKey2));
+    }
+
+    @Override
+    public int compareKeyAndSerializedKey(SearchRow key, StoreScopedReadBuffer serializedKey) {
+        return rowDataType.compare(key, deserialize(serializedKey));
+    }
+}
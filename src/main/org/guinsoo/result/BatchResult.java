@@ -0,0 +1,68 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.result;
+
+import java.util.ArrayList;
+
+import org.guinsoo.message.DbException;
+
+/**
+ * Result of a batch of update commands with optional generated keys.
+ */
+public final class BatchResult {
+
+    private final long[] updateCounts;
+
+    private final ResultInterface generatedKeys;
+
+    private final ArrayList<DbException> exceptions;
+
+    /**
+     * Creates a result of a batch.
+     *
+     * @param updateCounts
+     *            update counts, {@link java.sql.Statement#EXECUTE_FAILED} for
+     *            failed commands
+     * @param generatedKeys
+     *            generated keys of all commands, or {@code null}
+     * @param exceptions
+     *            exceptions of failed commands in order of execution
+     */
+    public BatchResult(long[] updateCounts, ResultInterface generatedKeys, ArrayList<DbException> exceptions) {
+        this.updateCounts = updateCounts;
+        this.generatedKeys = generatedKeys;
+        this.exceptions = exceptions;
+    }
+
+    /**
+     * Returns update counts, {@link java.sql.Statement#EXECUTE_FAILED} for
+     * failed commands.
+     *
+     * @return update counts
+     */
+    public long[] getUpdateCounts() {
+        return updateCounts;
+    }
+
+    /**
+     * Returns generated keys of all commands, or {@code null}.
+     *
+     * @return generated keys, or {@code null}
+     */
+    public ResultInterface getGeneratedKeys() {
+        return generatedKeys;
+    }
+
+    /**
+     * Returns exceptions of failed commands in order of execution.
+     *
+     * @return exceptions, may be empty
+     */
+    public ArrayList<DbException> getExceptions() {
+        return exceptions;
+    }
+
+}
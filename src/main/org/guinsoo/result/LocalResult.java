@@ -7,6 +7,7 @@ package org.guinsoo.result;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
 
 import org.guinsoo.expression.Expression;
@@ -45,6 +46,19 @@ public class LocalResult implements ResultInterface, ResultTarget {
      * different type or scale properly.
      */
     private TreeMap<Value, Value[]> distinctRows;
+    /**
+     * The first rows in the sort order with the last of them in the head of
+     * the queue, used instead of {@link #rows} when only some first rows are
+     * needed.
+     */
+    private PriorityQueue<Value[]> topRows;
+    private int topRowCount;
+    /**
+     * Rows tied with the head of {@link #topRows}, or {@code null} if tied
+     * rows aren't needed. If there are too many tied rows to keep them in
+     * memory, all remaining rows are sorted as usual.
+     */
+    private ArrayList<Value[]> tiedRows;
     private Value[] currentRow;
     private long offset;
     private long limit = -1;
@@ -375,6 +389,8 @@ public class LocalResult implements ResultInterface, ResultTarget {
             } else {
                 rowCount = external.addRow(values);
             }
+        } else if (topRows != null) {
+            addTopRow(values);
         } else {
             rows.add(values);
             rowCount++;
@@ -384,6 +400,42 @@ public class LocalResult implements ResultInterface, ResultTarget {
         }
     }
 
+    private void addTopRow(Value[] values) {
+        PriorityQueue<Value[]> topRows = this.topRows;
+        rowCount++;
+        if (topRows.size() < topRowCount) {
+            topRows.add(values);
+            return;
+        }
+        Value[] last = topRows.peek();
+        int comp = sort.compare(values, last);
+        if (comp < 0) {
+            topRows.poll();
+            topRows.add(values);
+            if (tiedRows != null) {
+                if (sort.compare(topRows.peek(), last) == 0) {
+                    tiedRows.add(last);
+                } else {
+                    // all tied rows are after the new last row
+                    tiedRows.clear();
+                }
+            }
+        } else if (comp == 0 && tiedRows != null) {
+            tiedRows.add(values);
+            if (tiedRows.size() > maxMemoryRows - topRowCount) {
+                // too many tied rows, use the sorted result instead
+                rows.addAll(topRows);
+                rows.addAll(tiedRows);
+                this.topRows = null;
+                tiedRows = null;
+                rowCount = rows.size();
+                if (rowCount > maxMemoryRows) {
+                    addRowsToDisk();
+                }
+            }
+        }
+    }
+
     private void addRowsToDisk() {
         if (external == null) {
             createExternalResult();
@@ -407,6 +459,14 @@ public class LocalResult implements ResultInterface, ResultTarget {
         } else {
             if (isAnyDistinct()) {
                 rows = new ArrayList<>(distinctRows.values());
+            } else if (topRows != null) {
+                rows = new ArrayList<>(topRows);
+                if (tiedRows != null) {
+                    rows.addAll(tiedRows);
+                    tiedRows = null;
+                }
+                topRows = null;
+                rowCount = rows.size();
             }
             if (sort != null && limit != 0 && !limitsWereApplied) {
                 boolean withLimit = limit > 0 && withTiesSortOrder == null;
@@ -616,6 +676,31 @@ public class LocalResult implements ResultInterface, ResultTarget {
         this.offset = offset;
     }
 
+    /**
+     * Keeps only the rows that can be returned with the specified offset and
+     * limit while rows are added, other rows are discarded immediately. Must
+     * be called after the sort order and distinct mode were set and before
+     * rows are added. Has no effect if this result isn't sorted, is distinct,
+     * or the rows to keep don't fit into memory.
+     *
+     * @param offset the offset
+     * @param limit the limit (-1 means no limit)
+     * @param withTies whether rows tied with the last row should be kept
+     */
+    public void setTopN(long offset, long limit, boolean withTies) {
+        if (sort == null || isAnyDistinct() || limit <= 0) {
+            return;
+        }
+        long count = Math.max(offset, 0L) + limit;
+        if (count < 0 || count > maxMemoryRows || count > Integer.MAX_VALUE - 8) {
+            return;
+        }
+        topRowCount = (int) count;
+        SortOrder sort = this.sort;
+        topRows = new PriorityQueue<>((int) Math.min(count, 1_024), (a, b) -> sort.compare(b, a));
+        tiedRows = withTies ? new ArrayList<>() : null;
+    }
+
     @Override
     public String toString() {
         return super.toString() + " columns: " + visibleColumnCount +
@@ -21,10 +21,20 @@ import org.guinsoo.value.Value;
  * The client side part of a result set that is kept on the server.
  * In many cases, the complete data is kept on the client side,
  * but for large results only a subset is in-memory.
+ * <p>
+ * When rows of a large result are fetched, the request for the next rows is
+ * sent immediately, so the server sends them while the application reads the
+ * current rows. With the default fetch size, the number of fetched rows grows
+ * depending on the size of rows.
+ * </p>
  */
 public final class ResultRemote extends FetchedResult {
 
     private int fetchSize;
+    /**
+     * The number of rows to fetch at once.
+     */
+    private int fetchWindow;
     private SessionRemote session;
     private Transfer transfer;
     private int id;
@@ -34,6 +44,15 @@ public final class ResultRemote extends FetchedResult {
     private ArrayList<Value[]> result;
     private final Trace trace;
 
+    /**
+     * The number of rows requested by a sent fetch request whose response was
+     * not read yet, or 0.
+     */
+    private int prefetchCount;
+    private ArrayList<Value[]> prefetchedRows;
+    private boolean prefetchedEnd;
+    private DbException prefetchException;
+
     public ResultRemote(SessionRemote session, Transfer transfer, int id,
             int columnCount, int fetchSize) throws IOException {
         this.session = session;
@@ -47,6 +66,7 @@ public final class ResultRemote extends FetchedResult {
         }
         rowId = -1;
         this.fetchSize = fetchSize;
+        fetchWindow = fetchSize;
         if (rowCount >= 0) {
             fetchSize = (int) Math.min(rowCount, fetchSize);
             result = new ArrayList<>(fetchSize);
@@ -58,6 +78,8 @@ public final class ResultRemote extends FetchedResult {
                 if (fetchRows(fetchSize)) {
                     rowCount = result.size();
                 }
+                adjustFetchWindow();
+                prefetch();
             } catch (IOException e) {
                 throw DbException.convertIOException(e, null);
             }
@@ -119,6 +141,11 @@ public final class ResultRemote extends FetchedResult {
         synchronized (session) {
             session.checkClosed();
             try {
+                if (prefetchCount > 0) {
+                    session.readPendingFetch(transfer);
+                }
+                prefetchedRows = null;
+                prefetchException = null;
                 session.traceOperation("RESULT_RESET", id);
                 transfer.writeInt(SessionRemote.RESULT_RESET).writeInt(id).flush();
             } catch (IOException e) {
@@ -208,23 +235,126 @@ public final class ResultRemote extends FetchedResult {
             try {
                 rowOffset += result.size();
                 result.clear();
-                int fetch = fetchSize;
-                if (rowCount >= 0) {
-                    fetch = (int) Math.min(fetch, rowCount - rowOffset);
-                } else if (fetch == Integer.MAX_VALUE) {
-                    fetch = SysProperties.SERVER_RESULT_SET_FETCH_SIZE;
+                if (prefetchCount > 0 || prefetchedRows != null || prefetchException != null) {
+                    if (prefetchCount > 0) {
+                        session.readPendingFetch(transfer);
+                        if (prefetchCount > 0) {
+                            // the session was connected again
+                            prefetchCount = 0;
+                            throw DbException.get(ErrorCode.OBJECT_CLOSED);
+                        }
+                    }
+                    DbException e = prefetchException;
+                    if (e != null) {
+                        prefetchException = null;
+                        throw e;
+                    }
+                    result = prefetchedRows;
+                    prefetchedRows = null;
+                    if (prefetchedEnd || rowCount >= 0L && rowOffset + result.size() >= rowCount) {
+                        sendClose();
+                    }
+                } else {
+                    int fetch = getFetchCount(rowOffset);
+                    session.traceOperation("RESULT_FETCH_ROWS", id);
+                    transfer.writeInt(SessionRemote.RESULT_FETCH_ROWS).writeInt(id).writeInt(fetch);
+                    session.done(transfer);
+                    fetchRows(fetch);
                 }
-                session.traceOperation("RESULT_FETCH_ROWS", id);
-                transfer.writeInt(SessionRemote.RESULT_FETCH_ROWS).writeInt(id).writeInt(fetch);
-                session.done(transfer);
-                fetchRows(fetch);
+                adjustFetchWindow();
+                prefetch();
             } catch (IOException e) {
                 throw DbException.convertIOException(e, null);
             }
         }
     }
 
+    private int getFetchCount(long offset) {
+        int fetch = fetchWindow;
+        if (rowCount >= 0) {
+            fetch = (int) Math.min(fetch, rowCount - offset);
+        } else if (fetch == Integer.MAX_VALUE) {
+            fetch = SysProperties.SERVER_RESULT_SET_FETCH_SIZE;
+        }
+        return fetch;
+    }
+
+    /**
+     * Grow the number of rows to fetch at once if the default fetch size is
+     * used and the fetched rows are small.
+     */
+    private void adjustFetchWindow() {
+        int size = result.size();
+        if (fetchSize != SysProperties.SERVER_RESULT_SET_FETCH_SIZE || size < fetchWindow) {
+            return;
+        }
+        long memory = 0L;
+        for (Value[] row : result) {
+            for (Value v : row) {
+                memory += v.getMemory();
+            }
+        }
+        long rows = SysProperties.SERVER_RESULT_SET_FETCH_MEMORY * (long) size / Math.max(memory, 1L);
+        if (rows > fetchWindow) {
+            fetchWindow = (int) Math.min(rows, Math.min(fetchWindow * 2L, Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Send the request for the next rows of a result with known row count,
+     * the response is read when the rows are needed or before the response to
+     * the next request of the session.
+     */
+    private void prefetch() throws IOException {
+        if (session == null || rowCount < 0L || session.isClustered()) {
+            return;
+        }
+        long offset = rowOffset + result.size();
+        if (offset >= rowCount) {
+            return;
+        }
+        int fetch = getFetchCount(offset);
+        remapIfOld();
+        session.traceOperation("RESULT_FETCH_ROWS", id);
+        transfer.writeInt(SessionRemote.RESULT_FETCH_ROWS).writeInt(id).writeInt(fetch).flush();
+        prefetchCount = fetch;
+        session.setPendingFetch(this, transfer);
+    }
+
+    /**
+     * Read the response to the sent request for the next rows. A database
+     * exception is thrown later, when the rows are needed.
+     *
+     * @param session the session
+     * @param transfer the transfer object
+     * @throws IOException if there is a communication problem between client
+     *             and server
+     */
+    public void readPrefetchedRows(SessionRemote session, Transfer transfer) throws IOException {
+        int fetch = prefetchCount;
+        prefetchCount = 0;
+        ArrayList<Value[]> rows = new ArrayList<>(fetch);
+        try {
+            session.done(transfer);
+            prefetchedEnd = readRows(transfer, rows, fetch);
+            prefetchedRows = rows;
+        } catch (DbException e) {
+            prefetchException = e;
+        }
+    }
+
     private boolean fetchRows(int fetch) throws IOException {
+        if (readRows(transfer, result, fetch)) {
+            sendClose();
+            return true;
+        }
+        if (rowCount >= 0L && rowOffset + result.size() >= rowCount) {
+            sendClose();
+        }
+        return false;
+    }
+
+    private boolean readRows(Transfer transfer, ArrayList<Value[]> rows, int fetch) throws IOException {
         int len = columns.length;
         for (int r = 0; r < fetch; r++) {
             switch (transfer.readByte()) {
@@ -233,11 +363,10 @@ public final class ResultRemote extends FetchedResult {
                 for (int i = 0; i < len; i++) {
                     values[i] = transfer.readValue(columns[i].columnType);
                 }
-                result.add(values);
+                rows.add(values);
                 break;
             }
             case 0:
-                sendClose();
                 return true;
             case -1:
                 throw SessionRemote.readException(transfer);
@@ -245,9 +374,6 @@ public final class ResultRemote extends FetchedResult {
                 throw DbException.getInternalError();
             }
         }
-        if (rowCount >= 0L && rowOffset + result.size() >= rowCount) {
-            sendClose();
-        }
         return false;
     }
 
@@ -264,6 +390,7 @@ public final class ResultRemote extends FetchedResult {
     @Override
     public void setFetchSize(int fetchSize) {
         this.fetchSize = fetchSize;
+        fetchWindow = fetchSize;
     }
 
     @Override
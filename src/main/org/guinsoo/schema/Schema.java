@@ -26,6 +26,8 @@ import org.guinsoo.engine.SessionLocal;
 import org.guinsoo.engine.SysProperties;
 import org.guinsoo.index.Index;
 import org.guinsoo.pagestore.db.PageStoreTable;
+import org.guinsoo.quickstore.QuickStore;
+import org.guinsoo.quickstore.db.QuickTable;
 import org.guinsoo.table.MetaTable;
 import org.guinsoo.table.Table;
 import org.guinsoo.table.TableLink;
@@ -780,6 +782,10 @@ public class Schema extends DbObject {
                 tableEngine = s.defaultTableEngine;
                 if (tableEngine == null) {
                     if (s.mvStore) {
+                        QuickStore quickStore = database.getQuickStore();
+                        if (quickStore != null && !database.isStarting()) {
+                            return new QuickTable(data, quickStore);
+                        }
                         return database.getStore().createTable(data);
                     } else {
                         return new PageStoreTable(data);
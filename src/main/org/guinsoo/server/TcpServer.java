@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -67,6 +68,9 @@ public class TcpServer implements Service {
     private PreparedStatement managementDbRemove;
     private String managementPassword = "";
     private Thread listenerThread;
+    private volatile TcpServerDispatcher dispatcher;
+    private int workerCount;
+    private boolean virtualThreads;
     private int nextThreadId;
     private String key, keyDatabase;
 
@@ -181,6 +185,10 @@ public class TcpServer implements Service {
                 allowOthers = true;
             } else if (Tool.isOption(a, "-tcpDaemon")) {
                 isDaemon = true;
+            } else if (Tool.isOption(a, "-tcpWorkers")) {
+                workerCount = Integer.decode(args[++i]);
+            } else if (Tool.isOption(a, "-tcpVirtualThreads")) {
+                virtualThreads = true;
             } else if (Tool.isOption(a, "-ifExists")) {
                 ifExists = true;
             } else if (Tool.isOption(a, "-ifNotExists")) {
@@ -231,12 +239,16 @@ public class TcpServer implements Service {
     @Override
     public synchronized void start() throws SQLException {
         stop = false;
+        if (virtualThreads && newVirtualThread(() -> {}, "") == null) {
+            trace("Virtual threads are not supported");
+            virtualThreads = false;
+        }
         try {
-            serverSocket = NetUtils.createServerSocket(port, ssl);
+            serverSocket = createServerSocket(port);
         } catch (DbException e) {
             if (!portIsSet) {
                 //  port=0 that port is automatically allocated
-                serverSocket = NetUtils.createServerSocket(0, ssl);
+                serverSocket = createServerSocket(0);
             } else {
                 throw e;
             }
@@ -245,21 +257,41 @@ public class TcpServer implements Service {
         initManagementDb();
     }
 
+    private ServerSocket createServerSocket(int port) {
+        if (workerCount > 0 && !virtualThreads && !ssl) {
+            return NetUtils.createServerSocketChannel(port).socket();
+        }
+        return NetUtils.createServerSocket(port, ssl);
+    }
+
     @Override
     public void listen() {
         listenerThread = Thread.currentThread();
         String threadName = listenerThread.getName();
         try {
-            while (!stop) {
-                Socket s = serverSocket.accept();
-                Utils10.setTcpQuickack(s, true);
-                int id = nextThreadId++;
-                TcpServerThread c = new TcpServerThread(s, this, id);
-                running.add(c);
-                Thread thread = new Thread(c, threadName + " thread-" + id);
-                thread.setDaemon(isDaemon);
-                c.setThread(thread);
-                thread.start();
+            ServerSocketChannel channel = serverSocket.getChannel();
+            if (channel != null) {
+                dispatcher = new TcpServerDispatcher(this, channel, workerCount, threadName, isDaemon);
+                if (stop) {
+                    dispatcher.stop();
+                }
+                dispatcher.run();
+            } else {
+                while (!stop) {
+                    Socket s = serverSocket.accept();
+                    Utils10.setTcpQuickack(s, true);
+                    TcpServerThread c = createConnection(s);
+                    String name = threadName + " thread-" + c.getThreadId();
+                    Thread thread;
+                    if (virtualThreads) {
+                        thread = newVirtualThread(c, name);
+                    } else {
+                        thread = new Thread(c, name);
+                        thread.setDaemon(isDaemon);
+                    }
+                    c.setThread(thread);
+                    thread.start();
+                }
             }
             serverSocket = NetUtils.closeSilently(serverSocket);
         } catch (Exception e) {
@@ -270,6 +302,38 @@ public class TcpServer implements Service {
         stopManagementDb();
     }
 
+    /**
+     * Create a new connection and add it to the list of running connections.
+     *
+     * @param socket the socket
+     * @return the connection
+     */
+    TcpServerThread createConnection(Socket socket) {
+        TcpServerThread c = new TcpServerThread(socket, this, nextThreadId++);
+        running.add(c);
+        return c;
+    }
+
+    /**
+     * Create an unstarted virtual thread.
+     *
+     * @param task the task
+     * @param name the name of the thread
+     * @return the thread, or {@code null} if virtual threads are not supported
+     *         by the runtime
+     */
+    private static Thread newVirtualThread(Runnable task, String name) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class).invoke(builder, name);
+            return (Thread) builderClass.getMethod("unstarted", Runnable.class).invoke(builder, task);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 20 and older versions
+            return null;
+        }
+    }
+
     @Override
     public synchronized boolean isRunning(boolean traceError) {
         if (serverSocket == null) {
@@ -306,6 +370,10 @@ public class TcpServer implements Service {
                 }
                 serverSocket = null;
             }
+            TcpServerDispatcher d = dispatcher;
+            if (d != null) {
+                d.stop();
+            }
             if (listenerThread != null) {
                 try {
                     listenerThread.join(1000);
@@ -318,10 +386,13 @@ public class TcpServer implements Service {
         for (TcpServerThread c : new ArrayList<>(running)) {
             if (c != null) {
                 c.close();
-                try {
-                    c.getThread().join(100);
-                } catch (Exception e) {
-                    DbException.traceThrowable(e);
+                Thread thread = c.getThread();
+                if (thread != null) {
+                    try {
+                        thread.join(100);
+                    } catch (Exception e) {
+                        DbException.traceThrowable(e);
+                    }
                 }
             }
         }
@@ -354,6 +425,10 @@ public class TcpServer implements Service {
         if (shutdownMode == SHUTDOWN_NORMAL) {
             server.stopManagementDb();
             server.stop = true;
+            TcpServerDispatcher d = server.dispatcher;
+            if (d != null) {
+                d.stop();
+            }
             try {
                 Socket s = NetUtils.createLoopbackSocket(port, false);
                 s.close();
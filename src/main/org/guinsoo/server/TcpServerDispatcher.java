@@ -0,0 +1,203 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.server;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.guinsoo.message.DbException;
+import org.guinsoo.util.Utils10;
+
+/**
+ * Serves the connections of a TCP server with a fixed number of worker
+ * threads.
+ *
+ * <p>
+ * A single thread accepts new connections and watches idle connections with a
+ * selector. When data arrives on a connection, the connection is removed from
+ * the selector and passed to a worker, which processes all requests that can
+ * be read without waiting for the client and then returns the connection to
+ * the selector. The protocol has no length prefix, so a worker reads the rest
+ * of a request that was not received completely from the blocking socket.
+ * </p>
+ *
+ * <p>
+ * A statement waiting for a lock held by another session occupies its worker,
+ * so the number of workers should be larger than the expected number of
+ * concurrently running statements.
+ * </p>
+ */
+final class TcpServerDispatcher {
+
+    private final TcpServer server;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final Selector selector;
+
+    private final ExecutorService workers;
+
+    /**
+     * Connections returned by workers that need to be registered with the
+     * selector again.
+     */
+    private final ConcurrentLinkedQueue<TcpServerThread> idle = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean stop;
+
+    /**
+     * Creates a new dispatcher.
+     *
+     * @param server the server
+     * @param serverChannel the server socket channel
+     * @param workerCount the number of worker threads
+     * @param threadName the prefix of names of worker threads
+     * @param daemon whether worker threads are daemon threads
+     */
+    TcpServerDispatcher(TcpServer server, ServerSocketChannel serverChannel, int workerCount,
+            String threadName, boolean daemon) throws IOException {
+        this.server = server;
+        this.serverChannel = serverChannel;
+        selector = Selector.open();
+        AtomicInteger nextWorkerId = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), r -> {
+                    Thread thread = new Thread(r, threadName + " worker-" + nextWorkerId.getAndIncrement());
+                    thread.setDaemon(daemon);
+                    return thread;
+                });
+    }
+
+    /**
+     * Accepts and serves connections until the server is stopped. Idle
+     * connections are closed afterwards.
+     */
+    void run() {
+        try {
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+            ArrayList<SelectionKey> ready = new ArrayList<>();
+            while (!stop) {
+                selector.select();
+                for (TcpServerThread c; (c = idle.poll()) != null;) {
+                    register(c);
+                }
+                for (Iterator<SelectionKey> i = selector.selectedKeys().iterator(); i.hasNext();) {
+                    SelectionKey key = i.next();
+                    i.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        key.cancel();
+                        ready.add(key);
+                    }
+                }
+                if (!ready.isEmpty()) {
+                    // deregister the cancelled keys, a registered channel
+                    // can't be switched to blocking mode
+                    selector.selectNow();
+                    for (SelectionKey key : ready) {
+                        dispatch((TcpServerThread) key.attachment(), (SocketChannel) key.channel());
+                    }
+                    ready.clear();
+                }
+            }
+        } catch (Exception e) {
+            if (!stop) {
+                DbException.traceThrowable(e);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            Utils10.setTcpQuickack(channel.socket(), true);
+            TcpServerThread c = server.createConnection(channel.socket());
+            register(c);
+        }
+    }
+
+    private void register(TcpServerThread c) {
+        SocketChannel channel = c.transfer.getSocket().getChannel();
+        try {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, c);
+        } catch (ClosedChannelException e) {
+            // closed concurrently
+            c.close();
+        } catch (IOException e) {
+            server.traceError(e);
+            c.close();
+        }
+    }
+
+    private void dispatch(TcpServerThread c, SocketChannel channel) {
+        try {
+            channel.configureBlocking(true);
+            workers.execute(() -> {
+                if (c.processAvailable()) {
+                    idle.add(c);
+                    selector.wakeup();
+                    if (stop) {
+                        closeIdle();
+                    }
+                }
+            });
+        } catch (Exception e) {
+            server.traceError(e);
+            c.close();
+        }
+    }
+
+    /**
+     * Stop accepting and serving connections.
+     */
+    void stop() {
+        stop = true;
+        selector.wakeup();
+    }
+
+    private void close() {
+        for (SelectionKey key : selector.keys()) {
+            Object c = key.attachment();
+            if (c != null) {
+                ((TcpServerThread) c).close();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            DbException.traceThrowable(e);
+        }
+        workers.shutdown();
+        closeIdle();
+    }
+
+    private void closeIdle() {
+        for (TcpServerThread c; (c = idle.poll()) != null;) {
+            c.close();
+        }
+    }
+
+}
@@ -31,6 +31,7 @@ import org.guinsoo.engine.SessionLocal;
 import org.guinsoo.engine.SessionRemote;
 import org.guinsoo.engine.SysProperties;
 import org.guinsoo.jdbc.JdbcException;
+import org.guinsoo.result.MergedResult;
 import org.guinsoo.result.ResultColumn;
 import org.guinsoo.result.ResultInterface;
 import org.guinsoo.result.ResultWithGeneratedKeys;
@@ -46,7 +47,8 @@ import org.guinsoo.value.Value;
 import org.guinsoo.value.ValueLob;
 
 /**
- * One server thread is opened per client connection.
+ * One server thread is opened per client connection, unless the connections
+ * are served by a pool of worker threads.
  */
 public class TcpServerThread implements Runnable {
 
@@ -54,6 +56,7 @@ public class TcpServerThread implements Runnable {
     private final TcpServer server;
     private SessionLocal session;
     private boolean stop;
+    private boolean connected;
     private Thread thread;
     private Command commit;
     private final SmallMap cache =
@@ -80,117 +83,9 @@ public class TcpServerThread implements Runnable {
     @Override
     public void run() {
         try {
-            transfer.init();
-            trace("Connect");
-            // TODO server: should support a list of allowed databases
-            // and a list of allowed clients
-            try {
-                Socket socket = transfer.getSocket();
-                if (socket == null) {
-                    // the transfer is already closed, prevent NPE in TcpServer#allow(Socket)
-                    return;
-                }
-                if (!server.allow(transfer.getSocket())) {
-                    throw DbException.get(ErrorCode.REMOTE_CONNECTION_NOT_ALLOWED);
-                }
-                int minClientVersion = transfer.readInt();
-                if (minClientVersion < 6) {
-                    throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
-                            Integer.toString(minClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED);
-                }
-                int maxClientVersion = transfer.readInt();
-                if (maxClientVersion < Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED) {
-                    throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
-                            Integer.toString(maxClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED);
-                } else if (minClientVersion > Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED) {
-                    throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
-                            Integer.toString(minClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED);
-                }
-                if (maxClientVersion >= Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED) {
-                    clientVersion = Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED;
-                } else {
-                    clientVersion = maxClientVersion;
-                }
-                transfer.setVersion(clientVersion);
-                String db = transfer.readString();
-                String originalURL = transfer.readString();
-                if (db == null && originalURL == null) {
-                    String targetSessionId = transfer.readString();
-                    int command = transfer.readInt();
-                    stop = true;
-                    if (command == SessionRemote.SESSION_CANCEL_STATEMENT) {
-                        // cancel a running statement
-                        int statementId = transfer.readInt();
-                        server.cancelStatement(targetSessionId, statementId);
-                    } else if (command == SessionRemote.SESSION_CHECK_KEY) {
-                        // check if this is the correct server
-                        db = server.checkKeyAndGetDatabaseName(targetSessionId);
-                        if (!targetSessionId.equals(db)) {
-                            transfer.writeInt(SessionRemote.STATUS_OK);
-                        } else {
-                            transfer.writeInt(SessionRemote.STATUS_ERROR);
-                        }
-                    }
-                }
-                String baseDir = server.getBaseDir();
-                if (baseDir == null) {
-                    baseDir = SysProperties.getBaseDir();
-                }
-                db = server.checkKeyAndGetDatabaseName(db);
-                ConnectionInfo ci = new ConnectionInfo(db);
-                ci.setOriginalURL(originalURL);
-                ci.setUserName(transfer.readString());
-                ci.setUserPasswordHash(transfer.readBytes());
-                ci.setFilePasswordHash(transfer.readBytes());
-                int len = transfer.readInt();
-                for (int i = 0; i < len; i++) {
-                    ci.setProperty(transfer.readString(), transfer.readString());
-                }
-                // override client's requested properties with server settings
-                if (baseDir != null) {
-                    ci.setBaseDir(baseDir);
-                }
-                if (server.getIfExists()) {
-                    ci.setProperty("FORBID_CREATION", "TRUE");
-                }
-                transfer.writeInt(SessionRemote.STATUS_OK);
-                transfer.writeInt(clientVersion);
-                transfer.flush();
-                if (ci.getFilePasswordHash() != null) {
-                    ci.setFileEncryptionKey(transfer.readBytes());
-                }
-                ci.setNetworkConnectionInfo(new NetworkConnectionInfo(
-                        NetUtils.ipToShortForm(new StringBuilder(server.getSSL() ? "ssl://" : "tcp://"),
-                                socket.getLocalAddress().getAddress(), true) //
-                                .append(':').append(socket.getLocalPort()).toString(), //
-                        socket.getInetAddress().getAddress(), socket.getPort(),
-                        new StringBuilder().append('P').append(clientVersion).toString()));
-                if (clientVersion < Constants.TCP_PROTOCOL_VERSION_20) {
-                    // For DatabaseMetaData
-                    ci.setProperty("OLD_INFORMATION_SCHEMA", "TRUE");
-                    // For Guinsoo Console
-                    ci.setProperty("NON_KEYWORDS", "VALUE");
-                }
-                session = Engine.createSession(ci);
-                transfer.setSession(session);
-                server.addConnection(threadId, originalURL, ci.getUserName());
-                trace("Connected");
-                lastRemoteSettingsId = session.getDatabase().getRemoteSettingsId();
-            } catch (OutOfMemoryError e) {
-                // catch this separately otherwise such errors will never hit the console
-                server.traceError(e);
-                sendError(e, true);
-                stop = true;
-            } catch (Throwable e) {
-                sendError(e,true);
-                stop = true;
-            }
+            connect();
             while (!stop) {
-                try {
-                    process();
-                } catch (Throwable e) {
-                    sendError(e, true);
-                }
+                processRequest();
             }
             trace("Disconnect");
         } catch (Throwable e) {
@@ -200,6 +95,156 @@ public class TcpServerThread implements Runnable {
         }
     }
 
+    /**
+     * Process the requests of this connection that can be read without
+     * waiting for the client. The first call reads the connection handshake.
+     * This method is used when idle connections are watched by a selector
+     * instead of a thread.
+     *
+     * @return whether the connection is still open
+     */
+    boolean processAvailable() {
+        try {
+            if (connected) {
+                processRequest();
+            } else {
+                connected = true;
+                connect();
+            }
+            while (!stop && transfer.available() > 0) {
+                processRequest();
+            }
+            if (!stop) {
+                return true;
+            }
+            trace("Disconnect");
+        } catch (Throwable e) {
+            server.traceError(e);
+        }
+        close();
+        return false;
+    }
+
+    private void connect() throws IOException {
+        transfer.init();
+        trace("Connect");
+        // TODO server: should support a list of allowed databases
+        // and a list of allowed clients
+        try {
+            Socket socket = transfer.getSocket();
+            if (socket == null) {
+                // the transfer is already closed, prevent NPE in TcpServer#allow(Socket)
+                stop = true;
+                return;
+            }
+            if (!server.allow(transfer.getSocket())) {
+                throw DbException.get(ErrorCode.REMOTE_CONNECTION_NOT_ALLOWED);
+            }
+            int minClientVersion = transfer.readInt();
+            if (minClientVersion < 6) {
+                throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
+                        Integer.toString(minClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED);
+            }
+            int maxClientVersion = transfer.readInt();
+            if (maxClientVersion < Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED) {
+                throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
+                        Integer.toString(maxClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED);
+            } else if (minClientVersion > Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED) {
+                throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
+                        Integer.toString(minClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED);
+            }
+            if (maxClientVersion >= Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED) {
+                clientVersion = Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED;
+            } else {
+                clientVersion = maxClientVersion;
+            }
+            transfer.setVersion(clientVersion);
+            String db = transfer.readString();
+            String originalURL = transfer.readString();
+            if (db == null && originalURL == null) {
+                String targetSessionId = transfer.readString();
+                int command = transfer.readInt();
+                stop = true;
+                if (command == SessionRemote.SESSION_CANCEL_STATEMENT) {
+                    // cancel a running statement
+                    int statementId = transfer.readInt();
+                    server.cancelStatement(targetSessionId, statementId);
+                } else if (command == SessionRemote.SESSION_CHECK_KEY) {
+                    // check if this is the correct server
+                    db = server.checkKeyAndGetDatabaseName(targetSessionId);
+                    if (!targetSessionId.equals(db)) {
+                        transfer.writeInt(SessionRemote.STATUS_OK);
+                    } else {
+                        transfer.writeInt(SessionRemote.STATUS_ERROR);
+                    }
+                }
+            }
+            String baseDir = server.getBaseDir();
+            if (baseDir == null) {
+                baseDir = SysProperties.getBaseDir();
+            }
+            db = server.checkKeyAndGetDatabaseName(db);
+            ConnectionInfo ci = new ConnectionInfo(db);
+            ci.setOriginalURL(originalURL);
+            ci.setUserName(transfer.readString());
+            ci.setUserPasswordHash(transfer.readBytes());
+            ci.setFilePasswordHash(transfer.readBytes());
+            int len = transfer.readInt();
+            for (int i = 0; i < len; i++) {
+                ci.setProperty(transfer.readString(), transfer.readString());
+            }
+            // override client's requested properties with server settings
+            if (baseDir != null) {
+                ci.setBaseDir(baseDir);
+            }
+            if (server.getIfExists()) {
+                ci.setProperty("FORBID_CREATION", "TRUE");
+            }
+            transfer.writeInt(SessionRemote.STATUS_OK);
+            transfer.writeInt(clientVersion);
+            transfer.flush();
+            if (clientVersion >= Constants.TCP_PROTOCOL_VERSION_22 && transfer.readBoolean()) {
+                transfer.setCompressed();
+            }
+            if (ci.getFilePasswordHash() != null) {
+                ci.setFileEncryptionKey(transfer.readBytes());
+            }
+            ci.setNetworkConnectionInfo(new NetworkConnectionInfo(
+                    NetUtils.ipToShortForm(new StringBuilder(server.getSSL() ? "ssl://" : "tcp://"),
+                            socket.getLocalAddress().getAddress(), true) //
+                            .append(':').append(socket.getLocalPort()).toString(), //
+                    socket.getInetAddress().getAddress(), socket.getPort(),
+                    new StringBuilder().append('P').append(clientVersion).toString()));
+            if (clientVersion < Constants.TCP_PROTOCOL_VERSION_20) {
+                // For DatabaseMetaData
+                ci.setProperty("OLD_INFORMATION_SCHEMA", "TRUE");
+                // For Guinsoo Console
+                ci.setProperty("NON_KEYWORDS", "VALUE");
+            }
+            session = Engine.createSession(ci);
+            transfer.setSession(session);
+            server.addConnection(threadId, originalURL, ci.getUserName());
+            trace("Connected");
+            lastRemoteSettingsId = session.getDatabase().getRemoteSettingsId();
+        } catch (OutOfMemoryError e) {
+            // catch this separately otherwise such errors will never hit the console
+            server.traceError(e);
+            sendError(e, true);
+            stop = true;
+        } catch (Throwable e) {
+            sendError(e,true);
+            stop = true;
+        }
+    }
+
+    private void processRequest() {
+        try {
+            process();
+        } catch (Throwable e) {
+            sendError(e, true);
+        }
+    }
+
     private void closeSession() {
         if (session != null) {
             RuntimeException closeError = null;
@@ -238,26 +283,11 @@ public class TcpServerThread implements Runnable {
 
     private void sendError(Throwable t, boolean withStatus) {
         try {
-            SQLException e = DbException.convert(t).getSQLException();
-            StringWriter writer = new StringWriter();
-            e.printStackTrace(new PrintWriter(writer));
-            String trace = writer.toString();
-            String message;
-            String sql;
-            if (e instanceof JdbcException) {
-                JdbcException j = (JdbcException) e;
-                message = j.getOriginalMessage();
-                sql = j.getSQL();
-            } else {
-                message = e.getMessage();
-                sql = null;
-            }
             if (withStatus) {
                 transfer.writeInt(SessionRemote.STATUS_ERROR);
             }
-            transfer.
-                    writeString(e.getSQLState()).writeString(message).
-                    writeString(sql).writeInt(e.getErrorCode()).writeString(trace).flush();
+            writeError(t);
+            transfer.flush();
         } catch (Exception e2) {
             if (!transfer.isClosed()) {
                 server.traceError(e2);
@@ -267,6 +297,26 @@ public class TcpServerThread implements Runnable {
         }
     }
 
+    private void writeError(Throwable t) throws IOException {
+        SQLException e = DbException.convert(t).getSQLException();
+        StringWriter writer = new StringWriter();
+        e.printStackTrace(new PrintWriter(writer));
+        String trace = writer.toString();
+        String message;
+        String sql;
+        if (e instanceof JdbcException) {
+            JdbcException j = (JdbcException) e;
+            message = j.getOriginalMessage();
+            sql = j.getSQL();
+        } else {
+            message = e.getMessage();
+            sql = null;
+        }
+        transfer.
+                writeString(e.getSQLState()).writeString(message).
+                writeString(sql).writeInt(e.getErrorCode()).writeString(trace);
+    }
+
     private void setParameters(Command command) throws IOException {
         int len = transfer.readInt();
         ArrayList<? extends ParameterInterface> params = command.getParameters();
@@ -369,43 +419,14 @@ public class TcpServerThread implements Runnable {
             int id = transfer.readInt();
             Command command = (Command) cache.getObject(id, false);
             setParameters(command);
-            boolean supportsGeneratedKeys = clientVersion >= Constants.TCP_PROTOCOL_VERSION_17;
-            boolean writeGeneratedKeys = supportsGeneratedKeys;
+            boolean writeGeneratedKeys;
             Object generatedKeysRequest;
-            if (supportsGeneratedKeys) {
-                int mode = transfer.readInt();
-                switch (mode) {
-                case GeneratedKeysMode.NONE:
-                    generatedKeysRequest = false;
-                    writeGeneratedKeys = false;
-                    break;
-                case GeneratedKeysMode.AUTO:
-                    generatedKeysRequest = true;
-                    break;
-                case GeneratedKeysMode.COLUMN_NUMBERS: {
-                    int len = transfer.readInt();
-                    int[] keys = new int[len];
-                    for (int i = 0; i < len; i++) {
-                        keys[i] = transfer.readInt();
-                    }
-                    generatedKeysRequest = keys;
-                    break;
-                }
-                case GeneratedKeysMode.COLUMN_NAMES: {
-                    int len = transfer.readInt();
-                    String[] keys = new String[len];
-                    for (int i = 0; i < len; i++) {
-                        keys[i] = transfer.readString();
-                    }
-                    generatedKeysRequest = keys;
-                    break;
-                }
-                default:
-                    throw DbException.get(ErrorCode.CONNECTION_BROKEN_1,
-                            "Unsupported generated keys' mode " + mode);
-                }
+            if (clientVersion >= Constants.TCP_PROTOCOL_VERSION_17) {
+                generatedKeysRequest = readGeneratedKeysRequest();
+                writeGeneratedKeys = !Boolean.FALSE.equals(generatedKeysRequest);
             } else {
                 generatedKeysRequest = false;
+                writeGeneratedKeys = false;
             }
             int old = session.getModificationId();
             ResultWithGeneratedKeys result;
@@ -437,6 +458,66 @@ public class TcpServerThread implements Runnable {
             transfer.flush();
             break;
         }
+        case SessionRemote.COMMAND_EXECUTE_BATCH_UPDATE: {
+            int id = transfer.readInt();
+            Command command = (Command) cache.getObject(id, false);
+            Object generatedKeysRequest = readGeneratedKeysRequest();
+            boolean writeGeneratedKeys = !Boolean.FALSE.equals(generatedKeysRequest);
+            int size = transfer.readInt();
+            long[] updateCounts = new long[size];
+            Throwable[] exceptions = new Throwable[size];
+            MergedResult generatedKeys = new MergedResult();
+            int old = session.getModificationId();
+            // execute each set of parameters as soon as it is read
+            for (int i = 0; i < size; i++) {
+                setParameters(command);
+                try {
+                    ResultWithGeneratedKeys result;
+                    synchronized (session) {
+                        result = command.executeUpdate(generatedKeysRequest);
+                    }
+                    updateCounts[i] = result.getUpdateCount();
+                    ResultInterface keys = result.getGeneratedKeys();
+                    if (keys != null) {
+                        generatedKeys.add(keys);
+                        keys.close();
+                    }
+                } catch (Exception e) {
+                    exceptions[i] = e;
+                }
+            }
+            int status;
+            if (session.isClosed()) {
+                status = SessionRemote.STATUS_CLOSED;
+                stop = true;
+            } else {
+                status = getState(old);
+            }
+            transfer.writeInt(status);
+            for (int i = 0; i < size; i++) {
+                Throwable e = exceptions[i];
+                if (e == null) {
+                    transfer.writeBoolean(true).writeRowCount(updateCounts[i]);
+                } else {
+                    transfer.writeBoolean(false);
+                    writeError(e);
+                }
+            }
+            transfer.writeBoolean(session.getAutoCommit());
+            if (writeGeneratedKeys) {
+                ResultInterface result = generatedKeys.getResult();
+                int columnCount = result.getVisibleColumnCount();
+                transfer.writeInt(columnCount);
+                long rowCount = result.getRowCount();
+                transfer.writeRowCount(rowCount);
+                for (int i = 0; i < columnCount; i++) {
+                    ResultColumn.writeColumn(transfer, result, i);
+                }
+                sendRows(result, rowCount);
+            }
+            transfer.flush();
+            break;
+        }
         case SessionRemote.COMMAND_CLOSE: {
             int id = transfer.readInt();
             Command command = (Command) cache.getObject(id, true);
@@ -556,6 +637,35 @@ public class TcpServerThread implements Runnable {
         }
     }
 
+    private Object readGeneratedKeysRequest() throws IOException {
+        int mode = transfer.readInt();
+        switch (mode) {
+        case GeneratedKeysMode.NONE:
+            return false;
+        case GeneratedKeysMode.AUTO:
+            return true;
+        case GeneratedKeysMode.COLUMN_NUMBERS: {
+            int len = transfer.readInt();
+            int[] keys = new int[len];
+            for (int i = 0; i < len; i++) {
+                keys[i] = transfer.readInt();
+            }
+            return keys;
+        }
+        case GeneratedKeysMode.COLUMN_NAMES: {
+            int len = transfer.readInt();
+            String[] keys = new String[len];
+            for (int i = 0; i < len; i++) {
+                keys[i] = transfer.readString();
+            }
+            return keys;
+        }
+        default:
+            throw DbException.get(ErrorCode.CONNECTION_BROKEN_1,
+                    "Unsupported generated keys' mode " + mode);
+        }
+    }
+
     private int getState(int oldModificationId) {
         if (session == null) {
             return SessionRemote.STATUS_CLOSED;
@@ -602,6 +712,10 @@ public class TcpServerThread implements Runnable {
         }
     }
 
+    int getThreadId() {
+        return threadId;
+    }
+
     void setThread(Thread thread) {
         this.thread = thread;
     }
@@ -53,12 +53,19 @@ public class PgServer implements Service {
     public static final int PG_TYPE_INT2 = 21;
     public static final int PG_TYPE_INT4 = 23;
     public static final int PG_TYPE_TEXT = 25;
+    public static final int PG_TYPE_JSON = 114;
     public static final int PG_TYPE_FLOAT4 = 700;
     public static final int PG_TYPE_FLOAT8 = 701;
     public static final int PG_TYPE_UNKNOWN = 705;
+    public static final int PG_TYPE_BOOL_ARRAY = 1000;
     public static final int PG_TYPE_INT2_ARRAY = 1005;
     public static final int PG_TYPE_INT4_ARRAY = 1007;
     public static final int PG_TYPE_VARCHAR_ARRAY = 1015;
+    public static final int PG_TYPE_INT8_ARRAY = 1016;
+    public static final int PG_TYPE_FLOAT4_ARRAY = 1021;
+    public static final int PG_TYPE_FLOAT8_ARRAY = 1022;
+    public static final int PG_TYPE_NUMERIC_ARRAY = 1231;
+    public static final int PG_TYPE_UUID = 2950;
     public static final int PG_TYPE_DATE = 1082;
     public static final int PG_TYPE_TIME = 1083;
     public static final int PG_TYPE_TIMETZ = 1266;
@@ -333,6 +340,9 @@ public class PgServer implements Service {
         case PG_TYPE_TEXT:
             valueType = Value.CLOB;
             break;
+        case PG_TYPE_JSON:
+            valueType = Value.JSON;
+            break;
         case PG_TYPE_FLOAT4:
             valueType = Value.REAL;
             break;
@@ -345,6 +355,16 @@ public class PgServer implements Service {
             return "integer[]";
         case PG_TYPE_VARCHAR_ARRAY:
             return "character varying[]";
+        case PG_TYPE_BOOL_ARRAY:
+            return "boolean[]";
+        case PG_TYPE_INT8_ARRAY:
+            return "bigint[]";
+        case PG_TYPE_FLOAT4_ARRAY:
+            return "real[]";
+        case PG_TYPE_FLOAT8_ARRAY:
+            return "double precision[]";
+        case PG_TYPE_NUMERIC_ARRAY:
+            return "numeric[]";
         case PG_TYPE_BPCHAR:
             valueType = Value.CHAR;
             break;
@@ -369,6 +389,9 @@ public class PgServer implements Service {
         case PG_TYPE_NUMERIC:
             valueType = Value.NUMERIC;
             break;
+        case PG_TYPE_UUID:
+            valueType = Value.UUID;
+            break;
         case 2205:
             return "regclass";
         default:
@@ -420,13 +443,26 @@ public class PgServer implements Service {
         case Value.BINARY:
         case Value.VARBINARY:
             return PG_TYPE_BYTEA;
+        case Value.JSON:
+            return PG_TYPE_JSON;
         case Value.ARRAY: {
             type = (TypeInfo) type.getExtTypeInfo();
             switch (type.getValueType()) {
+            case Value.BOOLEAN:
+                return PG_TYPE_BOOL_ARRAY;
             case Value.SMALLINT:
                 return PG_TYPE_INT2_ARRAY;
             case Value.INTEGER:
                 return PG_TYPE_INT4_ARRAY;
+            case Value.BIGINT:
+                return PG_TYPE_INT8_ARRAY;
+            case Value.REAL:
+                return PG_TYPE_FLOAT4_ARRAY;
+            case Value.DOUBLE:
+                return PG_TYPE_FLOAT8_ARRAY;
+            case Value.NUMERIC:
+            case Value.DECFLOAT:
+                return PG_TYPE_NUMERIC_ARRAY;
             case Value.VARCHAR:
                 return PG_TYPE_VARCHAR_ARRAY;
             default:
@@ -438,6 +474,36 @@ public class PgServer implements Service {
         }
     }
 
+    /**
+     * Returns the type of elements of an array type.
+     *
+     * @param pgType the array type
+     * @return the type of elements, or {@link #PG_TYPE_UNKNOWN} if the
+     *         specified type is not an array type
+     */
+    public static int getElementType(int pgType) {
+        switch (pgType) {
+        case PG_TYPE_BOOL_ARRAY:
+            return PG_TYPE_BOOL;
+        case PG_TYPE_INT2_ARRAY:
+            return PG_TYPE_INT2;
+        case PG_TYPE_INT4_ARRAY:
+            return PG_TYPE_INT4;
+        case PG_TYPE_INT8_ARRAY:
+            return PG_TYPE_INT8;
+        case PG_TYPE_FLOAT4_ARRAY:
+            return PG_TYPE_FLOAT4;
+        case PG_TYPE_FLOAT8_ARRAY:
+            return PG_TYPE_FLOAT8;
+        case PG_TYPE_NUMERIC_ARRAY:
+            return PG_TYPE_NUMERIC;
+        case PG_TYPE_VARCHAR_ARRAY:
+            return PG_TYPE_VARCHAR;
+        default:
+            return PG_TYPE_UNKNOWN;
+        }
+    }
+
     /**
      * Get the type hash set.
      *
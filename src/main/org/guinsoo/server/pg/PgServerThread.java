@@ -5,6 +5,8 @@
  */
 package org.guinsoo.server.pg;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
@@ -12,19 +14,24 @@ import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.PushbackReader;
 import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.net.Socket;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.guinsoo.api.ErrorCode;
@@ -55,16 +62,20 @@ import org.guinsoo.value.TypeInfo;
 import org.guinsoo.value.Value;
 import org.guinsoo.value.ValueArray;
 import org.guinsoo.value.ValueBigint;
+import org.guinsoo.value.ValueBoolean;
 import org.guinsoo.value.ValueDate;
 import org.guinsoo.value.ValueDouble;
 import org.guinsoo.value.ValueInteger;
+import org.guinsoo.value.ValueJson;
 import org.guinsoo.value.ValueNull;
+import org.guinsoo.value.ValueNumeric;
 import org.guinsoo.value.ValueReal;
 import org.guinsoo.value.ValueSmallint;
 import org.guinsoo.value.ValueTime;
 import org.guinsoo.value.ValueTimeTimeZone;
 import org.guinsoo.value.ValueTimestamp;
 import org.guinsoo.value.ValueTimestampTimeZone;
+import org.guinsoo.value.ValueUuid;
 import org.guinsoo.value.ValueVarbinary;
 import org.guinsoo.value.ValueVarchar;
 
@@ -77,6 +88,17 @@ public final class PgServerThread implements Runnable {
 
     private static final Pattern SHOULD_QUOTE = Pattern.compile(".*[\",\\\\{}].*");
 
+    /**
+     * COPY target FROM STDIN or COPY target TO STDOUT with options.
+     */
+    private static final Pattern COPY = Pattern.compile("\\s*COPY\\s+(.+)\\s+(FROM\\s+STDIN|TO\\s+STDOUT)\\b(.*)",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /**
+     * The signature of the binary format of COPY.
+     */
+    private static final byte[] COPY_SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0 };
+
     private static String pgTimeZone(String value) {
         if (value.startsWith("GMT+")) {
             return convertTimeZone(value, "GMT-");
@@ -132,7 +154,7 @@ public final class PgServerThread implements Runnable {
         try {
             server.trace("Connect");
             InputStream ins = socket.getInputStream();
-            out = socket.getOutputStream();
+            out = new BufferedOutputStream(socket.getOutputStream());
             dataInRaw = new DataInputStream(ins);
             while (!stop) {
                 process();
@@ -342,7 +364,12 @@ public final class PgServerThread implements Runnable {
                 break;
             }
             portal.prep = prep;
-            portals.put(portal.name, portal);
+            Portal old = portals.put(portal.name, portal);
+            if (old != null) {
+                old.closeResult();
+            }
+            // parameters of the command of an open lazy result can't be changed
+            prep.closeResult();
             int formatCodeCount = readShort();
             int[] formatCodes = new int[formatCodeCount];
             for (int i = 0; i < formatCodeCount; i++) {
@@ -378,7 +405,7 @@ public final class PgServerThread implements Runnable {
             } else if (type == 'P') {
                 Portal p = portals.remove(name);
                 if (p != null) {
-                    p.prep.closeResult();
+                    p.closeResult();
                 }
             } else {
                 server.trace("expected S or P, got " + type);
@@ -437,7 +464,7 @@ public final class PgServerThread implements Runnable {
             try {
                 setActiveRequest(prep);
                 if (prep.isQuery()) {
-                    executeQuery(prepared, prep, p.resultColumnFormat, maxRows);
+                    executeQuery(p, prep, maxRows);
                 } else {
                     sendCommandComplete(prep, prep.executeUpdate(null).getUpdateCount());
                 }
@@ -464,6 +491,16 @@ public final class PgServerThread implements Runnable {
                     break;
                 }
                 s = getSQL(s);
+                Matcher copy = COPY.matcher(s);
+                if (copy.matches()) {
+                    try {
+                        copy(copy);
+                    } catch (Exception e) {
+                        sendErrorOrCancelResponse(e);
+                        break;
+                    }
+                    continue;
+                }
                 try (CommandInterface command = session.prepareLocal(s)) {
                     setActiveRequest(command);
                     if (command.isQuery()) {
@@ -492,42 +529,519 @@ public final class PgServerThread implements Runnable {
             close();
             break;
         }
+        case 'd':
+        case 'c':
+        case 'f':
+            // CopyData, CopyDone, or CopyFail after a failed COPY FROM STDIN
+            break;
         default:
             server.trace("Unsupported: " + x + " (" + (char) x + ")");
             break;
         }
     }
 
-    private void executeQuery(Prepared prepared, CommandInterface prep, int[] resultColumnFormat, int maxRows)
-            throws Exception {
-        ResultInterface result = prepared.result;
+    /**
+     * Execute a query of a portal, or continue a suspended portal. The query
+     * is executed lazily, so a client that fetches rows in chunks pages
+     * through the result without materializing it on the server.
+     */
+    private void executeQuery(Portal portal, CommandInterface prep, int maxRows) throws Exception {
+        ResultInterface result = portal.result;
         if (result == null) {
-            result = prep.executeQuery(0L, false);
+            Prepared prepared = portal.prep;
+            prepared.closeResult();
+            boolean lazy = session.isLazyQueryExecution();
+            session.setLazyQueryExecution(true);
+            try {
+                result = prep.executeQuery(0L, false);
+            } finally {
+                session.setLazyQueryExecution(lazy);
+            }
+            portal.result = result;
+            prepared.portal = portal;
         }
         try {
+            int[] formatCodes = portal.resultColumnFormat;
             // the meta-data is sent in the prior 'Describe'
             if (maxRows == 0) {
                 while (result.next()) {
-                    sendDataRow(result, resultColumnFormat);
+                    sendDataRow(result, formatCodes);
                 }
             } else {
                 for (; maxRows > 0 && result.next(); maxRows--) {
-                    sendDataRow(result, resultColumnFormat);
+                    sendDataRow(result, formatCodes);
                 }
                 if (result.hasNext()) {
-                    prepared.result = result;
                     sendCommandSuspended();
                     return;
                 }
             }
-            prepared.closeResult();
+            portal.closeResult();
             sendCommandComplete(prep, 0);
         } catch (Exception e) {
-            prepared.closeResult();
+            portal.closeResult();
             throw e;
         }
     }
 
+    /**
+     * Execute COPY FROM STDIN or COPY TO STDOUT.
+     *
+     * @param copy the matched COPY command
+     */
+    private void copy(Matcher copy) throws IOException {
+        String target = copy.group(1).trim();
+        CopyOptions options = new CopyOptions(copy.group(3), getEncoding());
+        String query, table = null, columns = null;
+        int length = target.length();
+        if (target.charAt(0) == '(' && target.charAt(length - 1) == ')') {
+            query = target.substring(1, length - 1);
+        } else {
+            int index = target.indexOf('(');
+            if (index > 0 && target.charAt(length - 1) == ')') {
+                table = target.substring(0, index).trim();
+                columns = target.substring(index + 1, length - 1);
+            } else {
+                table = target;
+            }
+            query = "SELECT " + (columns != null ? columns : "*") + " FROM " + table;
+        }
+        if (Character.toUpperCase(copy.group(2).charAt(0)) == 'F') {
+            if (table == null) {
+                throw DbException.getSyntaxError(copy.group(), copy.start(2), "table");
+            }
+            copyIn(query, table, columns, options);
+        } else {
+            copyOut(query, options);
+        }
+    }
+
+    /**
+     * Insert rows sent by the client into a table. All rows are inserted in
+     * one transaction in auto-commit mode.
+     */
+    private void copyIn(String query, String table, String columns, CopyOptions options) throws IOException {
+        int[] pgTypes;
+        try (CommandInterface command = session.prepareLocal(query)) {
+            pgTypes = getPgTypes(command.getMetaData());
+        }
+        int columnCount = pgTypes.length;
+        StringBuilder builder = new StringBuilder("INSERT INTO ").append(table);
+        if (columns != null) {
+            builder.append('(').append(columns).append(')');
+        }
+        builder.append(" VALUES(");
+        for (int i = 0; i < columnCount; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append('?');
+        }
+        String sql = builder.append(')').toString();
+        server.trace(sql);
+        try (CommandInterface command = session.prepareLocal(sql)) {
+            ArrayList<? extends ParameterInterface> parameters = command.getParameters();
+            sendCopyResponse('G', options.binary, columnCount);
+            out.flush();
+            CopyInputStream in = new CopyInputStream();
+            boolean autoCommit = session.getAutoCommit();
+            if (autoCommit) {
+                session.setAutoCommit(false);
+            }
+            setActiveRequest(command);
+            long count = 0L;
+            try {
+                if (options.binary) {
+                    DataInputStream data = new DataInputStream(in);
+                    byte[] signature = new byte[COPY_SIGNATURE.length];
+                    data.readFully(signature);
+                    if (!Arrays.equals(signature, COPY_SIGNATURE)) {
+                        throw DbException.get(ErrorCode.DATA_CONVERSION_ERROR_1, "COPY file signature not recognized");
+                    }
+                    data.readInt();
+                    data.readFully(new byte[data.readInt()]);
+                    dataIn = data;
+                    int[] formatCodes = { 1 };
+                    for (int b; (b = data.read()) >= 0;) {
+                        int fieldCount = (short) (b << 8 | data.readUnsignedByte());
+                        if (fieldCount == -1) {
+                            break;
+                        } else if (fieldCount != columnCount) {
+                            throw DbException.get(ErrorCode.COLUMN_COUNT_DOES_NOT_MATCH);
+                        }
+                        for (int i = 0; i < columnCount; i++) {
+                            setParameter(parameters, pgTypes[i], i, formatCodes);
+                        }
+                        command.executeUpdate(null);
+                        count++;
+                    }
+                } else {
+                    PushbackReader reader = new PushbackReader(
+                            new BufferedReader(new InputStreamReader(in, options.encoding)), 2);
+                    ArrayList<String> row = new ArrayList<>(columnCount);
+                    if (options.header) {
+                        readCopyRow(reader, options, row);
+                    }
+                    while (readCopyRow(reader, options, row)) {
+                        if (row.size() != columnCount) {
+                            throw DbException.get(ErrorCode.COLUMN_COUNT_DOES_NOT_MATCH);
+                        }
+                        for (int i = 0; i < columnCount; i++) {
+                            String value = row.get(i);
+                            parameters.get(i).setValue(value == null ? ValueNull.INSTANCE
+                                    : pgTypes[i] == PgServer.PG_TYPE_BYTEA ? ValueVarbinary.getNoCopy(getBytea(value))
+                                    : ValueVarchar.get(value, session), true);
+                        }
+                        command.executeUpdate(null);
+                        count++;
+                    }
+                }
+                // skip data after the end marker, and fail on CopyFail
+                in.skipRemaining();
+                if (autoCommit) {
+                    session.commit(false);
+                }
+            } catch (Exception e) {
+                if (autoCommit) {
+                    session.rollback();
+                }
+                throw e;
+            } finally {
+                if (autoCommit) {
+                    session.setAutoCommit(true);
+                }
+                setActiveRequest(null);
+            }
+            sendCopyComplete(count);
+        }
+    }
+
+    /**
+     * Send rows of a query to the client. The query is executed lazily, so
+     * rows are sent as they are produced.
+     */
+    private void copyOut(String query, CopyOptions options) throws IOException {
+        boolean lazy = session.isLazyQueryExecution();
+        session.setLazyQueryExecution(true);
+        try (CommandInterface command = session.prepareLocal(query)) {
+            if (!command.isQuery()) {
+                throw DbException.get(ErrorCode.METHOD_ONLY_ALLOWED_FOR_QUERY);
+            }
+            setActiveRequest(command);
+            ResultInterface result = command.executeQuery(0L, false);
+            try {
+                int[] pgTypes = getPgTypes(result);
+                int columnCount = pgTypes.length;
+                sendCopyResponse('H', options.binary, columnCount);
+                StringBuilder builder = new StringBuilder();
+                if (options.binary) {
+                    startMessage('d');
+                    write(COPY_SIGNATURE);
+                    writeInt(0);
+                    writeInt(0);
+                    sendMessage();
+                } else if (options.header) {
+                    for (int i = 0; i < columnCount; i++) {
+                        if (i > 0) {
+                            builder.append(options.delimiter);
+                        }
+                        appendCopyValue(builder, StringUtils.toLowerEnglish(result.getColumnName(i)), options);
+                    }
+                    sendCopyData(builder.append('\n'), options);
+                }
+                long count = 0L;
+                while (result.next()) {
+                    Value[] row = result.currentRow();
+                    if (options.binary) {
+                        startMessage('d');
+                        writeShort(columnCount);
+                        for (int i = 0; i < columnCount; i++) {
+                            writeDataColumn(row[i], pgTypes[i], false);
+                        }
+                        sendMessage();
+                    } else {
+                        builder.setLength(0);
+                        for (int i = 0; i < columnCount; i++) {
+                            if (i > 0) {
+                                builder.append(options.delimiter);
+                            }
+                            Value v = row[i];
+                            if (v == ValueNull.INSTANCE) {
+                                builder.append(options.nullString);
+                            } else {
+                                appendCopyValue(builder, getText(v, pgTypes[i]), options);
+                            }
+                        }
+                        sendCopyData(builder.append('\n'), options);
+                    }
+                    count++;
+                }
+                if (options.binary) {
+                    startMessage('d');
+                    writeShort(-1);
+                    sendMessage();
+                }
+                startMessage('c');
+                sendMessage();
+                sendCopyComplete(count);
+            } finally {
+                result.close();
+                if (result.isLazy()) {
+                    command.stop();
+                }
+            }
+        } finally {
+            session.setLazyQueryExecution(lazy);
+            setActiveRequest(null);
+        }
+    }
+
+    private static int[] getPgTypes(ResultInterface result) {
+        int columnCount = result.getVisibleColumnCount();
+        int[] pgTypes = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            pgTypes[i] = PgServer.convertType(result.getColumnType(i));
+        }
+        return pgTypes;
+    }
+
+    /**
+     * Read a row in the text or CSV format of COPY.
+     *
+     * @param reader the reader
+     * @param options the options
+     * @param row the list for values of fields, {@code null} for NULL
+     * @return {@code false} if there are no more rows
+     */
+    private static boolean readCopyRow(PushbackReader reader, CopyOptions options, ArrayList<String> row)
+            throws IOException {
+        row.clear();
+        int c = reader.read();
+        if (c < 0) {
+            return false;
+        }
+        StringBuilder raw = new StringBuilder(), value = new StringBuilder();
+        boolean quoted = false;
+        for (;; c = reader.read()) {
+            if (c < 0 || c == '\n' || c == options.delimiter) {
+                String s = value.toString();
+                row.add(!quoted && (options.csv ? s : raw.toString()).equals(options.nullString) ? null : s);
+                if (c != options.delimiter) {
+                    break;
+                }
+                raw.setLength(0);
+                value.setLength(0);
+                quoted = false;
+            } else if (c == '\r') {
+                // line end
+            } else if (options.csv) {
+                if (c == options.quote) {
+                    quoted = true;
+                    readCsvQuoted(reader, options, value);
+                } else {
+                    value.append((char) c);
+                }
+            } else if (c == '\\') {
+                c = reader.read();
+                if (c == '.' && row.isEmpty() && raw.length() == 0) {
+                    // end of data marker
+                    return false;
+                }
+                raw.append('\\');
+                if (c >= 0) {
+                    raw.append((char) c);
+                }
+                readTextEscape(reader, c, raw, value);
+            } else {
+                raw.append((char) c);
+                value.append((char) c);
+            }
+        }
+        // end of data marker
+        return !options.csv || row.size() != 1 || quoted || !"\\.".equals(row.get(0));
+    }
+
+    private static void readCsvQuoted(PushbackReader reader, CopyOptions options, StringBuilder value)
+            throws IOException {
+        for (;;) {
+            int c = reader.read();
+            if (c < 0) {
+                throw DbException.get(ErrorCode.DATA_CONVERSION_ERROR_1, "unterminated CSV quoted field");
+            } else if (c == options.escape && options.escape != options.quote) {
+                int next = reader.read();
+                if (next == options.quote || next == options.escape) {
+                    value.append((char) next);
+                } else {
+                    value.append((char) c);
+                    if (next >= 0) {
+                        reader.unread(next);
+                    }
+                }
+            } else if (c == options.quote) {
+                int next = reader.read();
+                if (next != options.quote || options.escape != options.quote) {
+                    if (next >= 0) {
+                        reader.unread(next);
+                    }
+                    return;
+                }
+                value.append((char) next);
+            } else {
+                value.append((char) c);
+            }
+        }
+    }
+
+    private static void readTextEscape(PushbackReader reader, int c, StringBuilder raw, StringBuilder value)
+            throws IOException {
+        switch (c) {
+        case -1:
+            value.append('\\');
+            break;
+        case 'b':
+            value.append('\b');
+            break;
+        case 'f':
+            value.append('\f');
+            break;
+        case 'n':
+            value.append('\n');
+            break;
+        case 'r':
+            value.append('\r');
+            break;
+        case 't':
+            value.append('\t');
+            break;
+        case 'v':
+            value.append('\u000b');
+            break;
+        case 'x':
+        case '0':
+        case '1':
+        case '2':
+        case '3':
+        case '4':
+        case '5':
+        case '6':
+        case '7': {
+            int radix = c == 'x' ? 16 : 8, d = c == 'x' ? 0 : c - '0';
+            int digits = c == 'x' ? 0 : 1;
+            for (; digits < (c == 'x' ? 2 : 3); digits++) {
+                int next = reader.read();
+                int digit = Character.digit(next, radix);
+                if (digit < 0) {
+                    if (next >= 0) {
+                        reader.unread(next);
+                    }
+                    break;
+                }
+                raw.append((char) next);
+                d = d * radix + digit;
+            }
+            value.append(digits == 0 ? 'x' : (char) d);
+            break;
+        }
+        default:
+            value.append((char) c);
+        }
+    }
+
+    /**
+     * Parse the hex or escape format of BYTEA.
+     */
+    private static byte[] getBytea(String s) {
+        int length = s.length();
+        if (length >= 2 && s.charAt(0) == '\\' && s.charAt(1) == 'x') {
+            return StringUtils.convertHexToBytes(s.substring(2));
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(length);
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < length && s.charAt(i + 1) == '\\') {
+                    i++;
+                } else if (i + 3 < length) {
+                    c = (char) Integer.parseInt(s.substring(i + 1, i + 4), 8);
+                    i += 3;
+                } else {
+                    throw DbException.get(ErrorCode.DATA_CONVERSION_ERROR_1, s);
+                }
+            }
+            baos.write(c);
+        }
+        return baos.toByteArray();
+    }
+
+    private static void appendCopyValue(StringBuilder builder, String s, CopyOptions options) {
+        int length = s.length();
+        if (options.csv) {
+            boolean quote = s.equals(options.nullString) || s.startsWith("\\.");
+            for (int i = 0; !quote && i < length; i++) {
+                char c = s.charAt(i);
+                quote = c == options.delimiter || c == options.quote || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                builder.append(s);
+                return;
+            }
+            builder.append(options.quote);
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c == options.quote || c == options.escape) {
+                    builder.append(options.escape);
+                }
+                builder.append(c);
+            }
+            builder.append(options.quote);
+        } else {
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c == options.delimiter) {
+                        builder.append('\\');
+                    }
+                    builder.append(c);
+                }
+            }
+        }
+    }
+
+    private void sendCopyResponse(int type, boolean binary, int columnCount) throws IOException {
+        startMessage(type);
+        write(binary ? 1 : 0);
+        writeShort(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            writeShort(binary ? 1 : 0);
+        }
+        sendMessage();
+    }
+
+    private void sendCopyData(StringBuilder builder, CopyOptions options) throws IOException {
+        startMessage('d');
+        write(builder.toString().getBytes(options.encoding));
+        sendMessage();
+    }
+
+    private void sendCopyComplete(long count) throws IOException {
+        startMessage('C');
+        writeString("COPY " + count);
+        sendMessage();
+    }
+
     private String getSQL(String s) {
         String lower = StringUtils.toLowerEnglish(s);
         if (lower.startsWith("show max_identifier_length")) {
@@ -601,142 +1115,210 @@ public final class PgServerThread implements Runnable {
         }
         if (text) {
             // plain text
-            switch (pgType) {
-            case PgServer.PG_TYPE_BOOL:
-                writeInt(1);
-                dataOut.writeByte(v.getBoolean() ? 't' : 'f');
-                break;
-            case PgServer.PG_TYPE_BYTEA: {
-                byte[] bytes = v.getBytesNoCopy();
-                int length = bytes.length;
-                int cnt = length;
-                for (int i = 0; i < length; i++) {
-                    byte b = bytes[i];
-                    if (b < 32 || b > 126) {
-                        cnt += 3;
-                    } else if (b == 92) {
-                        cnt++;
-                    }
-                }
-                byte[] data = new byte[cnt];
-                for (int i = 0, j = 0; i < length; i++) {
-                    byte b = bytes[i];
-                    if (b < 32 || b > 126) {
-                        data[j++] = '\\';
-                        data[j++] = (byte) (((b >>> 6) & 3) + '0');
-                        data[j++] = (byte) (((b >>> 3) & 7) + '0');
-                        data[j++] = (byte) ((b & 7) + '0');
-                    } else if (b == 92) {
-                        data[j++] = '\\';
-                        data[j++] = '\\';
-                    } else {
-                        data[j++] = b;
-                    }
-                }
-                writeInt(data.length);
-                write(data);
-                break;
-            }
-            case PgServer.PG_TYPE_INT2_ARRAY:
-            case PgServer.PG_TYPE_INT4_ARRAY:
-            case PgServer.PG_TYPE_VARCHAR_ARRAY:
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                baos.write('{');
-                Value[] values = ((ValueArray) v).getList();
-                Charset encoding = getEncoding();
-                for (int i = 0; i < values.length; i++) {
-                    if (i > 0) {
-                        baos.write(',');
-                    }
-                    String s = values[i].getString();
-                    if (SHOULD_QUOTE.matcher(s).matches()) {
-                        List<String> ss = new ArrayList<>();
-                        for (String s0 : s.split("\\\\")) {
-                            ss.add(s0.replace("\"", "\\\""));
-                        }
-                        s = "\"" + String.join("\\\\", ss) + "\"";
-                    }
-                    baos.write(s.getBytes(encoding));
-                }
-                baos.write('}');
-                writeInt(baos.size());
-                write(baos);
-                break;
-            default:
-                byte[] data = v.getString().getBytes(getEncoding());
-                writeInt(data.length);
-                write(data);
-            }
+            byte[] data = getText(v, pgType).getBytes(getEncoding());
+            writeInt(data.length);
+            write(data);
         } else {
             // binary
-            switch (pgType) {
-            case PgServer.PG_TYPE_BOOL:
-                writeInt(1);
-                dataOut.writeByte(v.getBoolean() ? 1 : 0);
-                break;
-            case PgServer.PG_TYPE_INT2:
-                writeInt(2);
-                writeShort(v.getShort());
-                break;
-            case PgServer.PG_TYPE_INT4:
-                writeInt(4);
-                writeInt(v.getInt());
-                break;
-            case PgServer.PG_TYPE_INT8:
-                writeInt(8);
-                dataOut.writeLong(v.getLong());
-                break;
-            case PgServer.PG_TYPE_FLOAT4:
-                writeInt(4);
-                dataOut.writeFloat(v.getFloat());
-                break;
-            case PgServer.PG_TYPE_FLOAT8:
-                writeInt(8);
-                dataOut.writeDouble(v.getDouble());
-                break;
-            case PgServer.PG_TYPE_NUMERIC:
-                writeNumericBinary(v.getBigDecimal());
-                break;
-            case PgServer.PG_TYPE_BYTEA: {
-                byte[] data = v.getBytesNoCopy();
-                writeInt(data.length);
-                write(data);
-                break;
+            writeBinary(v, pgType);
+        }
+    }
+
+    private void writeBinary(Value v, int pgType) throws IOException {
+        switch (pgType) {
+        case PgServer.PG_TYPE_BOOL:
+            writeInt(1);
+            dataOut.writeByte(v.getBoolean() ? 1 : 0);
+            break;
+        case PgServer.PG_TYPE_INT2:
+            writeInt(2);
+            writeShort(v.getShort());
+            break;
+        case PgServer.PG_TYPE_INT4:
+            writeInt(4);
+            writeInt(v.getInt());
+            break;
+        case PgServer.PG_TYPE_INT8:
+            writeInt(8);
+            dataOut.writeLong(v.getLong());
+            break;
+        case PgServer.PG_TYPE_FLOAT4:
+            writeInt(4);
+            dataOut.writeFloat(v.getFloat());
+            break;
+        case PgServer.PG_TYPE_FLOAT8:
+            writeInt(8);
+            dataOut.writeDouble(v.getDouble());
+            break;
+        case PgServer.PG_TYPE_NUMERIC:
+            writeNumericBinary(v.getBigDecimal());
+            break;
+        case PgServer.PG_TYPE_BYTEA: {
+            byte[] data = v.getBytesNoCopy();
+            writeInt(data.length);
+            write(data);
+            break;
+        }
+        case PgServer.PG_TYPE_TEXT:
+        case PgServer.PG_TYPE_VARCHAR:
+        case PgServer.PG_TYPE_BPCHAR: {
+            byte[] data = v.getString().getBytes(getEncoding());
+            writeInt(data.length);
+            write(data);
+            break;
+        }
+        case PgServer.PG_TYPE_DATE:
+            writeInt(4);
+            writeInt((int) (toPostgreDays(((ValueDate) v).getDateValue())));
+            break;
+        case PgServer.PG_TYPE_TIME:
+            writeTimeBinary(((ValueTime) v).getNanos(), 8);
+            break;
+        case PgServer.PG_TYPE_TIMETZ: {
+            ValueTimeTimeZone t = (ValueTimeTimeZone) v;
+            long m = t.getNanos();
+            writeTimeBinary(m, 12);
+            dataOut.writeInt(-t.getTimeZoneOffsetSeconds());
+            break;
+        }
+        case PgServer.PG_TYPE_TIMESTAMP: {
+            ValueTimestamp t = (ValueTimestamp) v;
+            long m = toPostgreDays(t.getDateValue()) * 86_400;
+            long nanos = t.getTimeNanos();
+            writeTimestampBinary(m, nanos);
+            break;
+        }
+        case PgServer.PG_TYPE_TIMESTAMPTZ: {
+            ValueTimestampTimeZone t = (ValueTimestampTimeZone) v;
+            long m = toPostgreDays(t.getDateValue()) * 86_400;
+            long nanos = t.getTimeNanos() - t.getTimeZoneOffsetSeconds() * 1_000_000_000L;
+            if (nanos < 0L) {
+                m--;
+                nanos += DateTimeUtils.NANOS_PER_DAY;
             }
-            case PgServer.PG_TYPE_DATE:
-                writeInt(4);
-                writeInt((int) (toPostgreDays(((ValueDate) v).getDateValue())));
-                break;
-            case PgServer.PG_TYPE_TIME:
-                writeTimeBinary(((ValueTime) v).getNanos(), 8);
-                break;
-            case PgServer.PG_TYPE_TIMETZ: {
-                ValueTimeTimeZone t = (ValueTimeTimeZone) v;
-                long m = t.getNanos();
-                writeTimeBinary(m, 12);
-                dataOut.writeInt(-t.getTimeZoneOffsetSeconds());
+            writeTimestampBinary(m, nanos);
+            break;
+        }
+        case PgServer.PG_TYPE_INT2_ARRAY:
+        case PgServer.PG_TYPE_INT4_ARRAY:
+        case PgServer.PG_TYPE_VARCHAR_ARRAY:
+        case PgServer.PG_TYPE_BOOL_ARRAY:
+        case PgServer.PG_TYPE_INT8_ARRAY:
+        case PgServer.PG_TYPE_FLOAT4_ARRAY:
+        case PgServer.PG_TYPE_FLOAT8_ARRAY:
+        case PgServer.PG_TYPE_NUMERIC_ARRAY:
+            writeArrayBinary((ValueArray) v, pgType);
+            break;
+        default: {
+            // the binary format of text types, JSON, and unknown types
+            byte[] data = v.getString().getBytes(getEncoding());
+            writeInt(data.length);
+            write(data);
+        }
+        }
+    }
+
+    /**
+     * Write an array in the binary format: the number of dimensions, a flag
+     * for NULL elements, the type of elements, the length and the lower bound
+     * of the dimension, and the elements with their lengths.
+     */
+    private void writeArrayBinary(ValueArray array, int pgType) throws IOException {
+        int elementType = PgServer.getElementType(pgType);
+        Value[] values = array.getList();
+        int length = values.length;
+        boolean hasNull = false;
+        for (Value e : values) {
+            if (e == ValueNull.INSTANCE) {
+                hasNull = true;
                 break;
             }
-            case PgServer.PG_TYPE_TIMESTAMP: {
-                ValueTimestamp t = (ValueTimestamp) v;
-                long m = toPostgreDays(t.getDateValue()) * 86_400;
-                long nanos = t.getTimeNanos();
-                writeTimestampBinary(m, nanos);
-                break;
+        }
+        // the length is known only after the elements are written
+        ByteArrayOutputStream buffer = outBuffer;
+        DataOutputStream out = dataOut;
+        outBuffer = new ByteArrayOutputStream();
+        dataOut = new DataOutputStream(outBuffer);
+        byte[] data;
+        try {
+            writeInt(length == 0 ? 0 : 1);
+            writeInt(hasNull ? 1 : 0);
+            writeInt(elementType);
+            if (length > 0) {
+                writeInt(length);
+                writeInt(1);
             }
-            case PgServer.PG_TYPE_TIMESTAMPTZ: {
-                ValueTimestampTimeZone t = (ValueTimestampTimeZone) v;
-                long m = toPostgreDays(t.getDateValue()) * 86_400;
-                long nanos = t.getTimeNanos() - t.getTimeZoneOffsetSeconds() * 1_000_000_000L;
-                if (nanos < 0L) {
-                    m--;
-                    nanos += DateTimeUtils.NANOS_PER_DAY;
+            for (Value e : values) {
+                if (e == ValueNull.INSTANCE) {
+                    writeInt(-1);
+                } else {
+                    writeBinary(e, elementType);
                 }
-                writeTimestampBinary(m, nanos);
-                break;
             }
-            default: throw new IllegalStateException("output binary format is undefined");
+            data = outBuffer.toByteArray();
+        } finally {
+            outBuffer = buffer;
+            dataOut = out;
+        }
+        writeInt(data.length);
+        write(data);
+    }
+
+    private String getText(Value v, int pgType) {
+        switch (pgType) {
+        case PgServer.PG_TYPE_BOOL:
+            return v.getBoolean() ? "t" : "f";
+        case PgServer.PG_TYPE_BYTEA: {
+            byte[] bytes = v.getBytesNoCopy();
+            StringBuilder builder = new StringBuilder(bytes.length);
+            for (byte b : bytes) {
+                if (b < 32 || b > 126) {
+                    builder.append('\\') //
+                            .append((char) (((b >>> 6) & 3) + '0')) //
+                            .append((char) (((b >>> 3) & 7) + '0')) //
+                            .append((char) ((b & 7) + '0'));
+                } else if (b == 92) {
+                    builder.append("\\\\");
+                } else {
+                    builder.append((char) b);
+                }
+            }
+            return builder.toString();
+        }
+        case PgServer.PG_TYPE_INT2_ARRAY:
+        case PgServer.PG_TYPE_INT4_ARRAY:
+        case PgServer.PG_TYPE_VARCHAR_ARRAY:
+        case PgServer.PG_TYPE_BOOL_ARRAY:
+        case PgServer.PG_TYPE_INT8_ARRAY:
+        case PgServer.PG_TYPE_FLOAT4_ARRAY:
+        case PgServer.PG_TYPE_FLOAT8_ARRAY:
+        case PgServer.PG_TYPE_NUMERIC_ARRAY: {
+            int elementType = PgServer.getElementType(pgType);
+            StringBuilder builder = new StringBuilder().append('{');
+            Value[] values = ((ValueArray) v).getList();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                Value e = values[i];
+                if (e == ValueNull.INSTANCE) {
+                    builder.append("NULL");
+                    continue;
+                }
+                String s = getText(e, elementType);
+                if (SHOULD_QUOTE.matcher(s).matches()) {
+                    List<String> ss = new ArrayList<>();
+                    for (String s0 : s.split("\\\\")) {
+                        ss.add(s0.replace("\"", "\\\""));
+                    }
+                    s = "\"" + String.join("\\\\", ss) + "\"";
+                }
+                builder.append(s);
             }
+            return builder.append('}').toString();
+        }
+        default:
+            return v.getString();
         }
     }
 
@@ -874,42 +1456,138 @@ public final class PgServerThread implements Runnable {
             value = ValueVarchar.get(str, session);
         } else {
             // binary
-            switch (pgType) {
-            case PgServer.PG_TYPE_INT2:
-                checkParamLength(2, paramLen);
-                value = ValueSmallint.get(readShort());
-                break;
-            case PgServer.PG_TYPE_INT4:
-                checkParamLength(4, paramLen);
-                value = ValueInteger.get(readInt());
-                break;
-            case PgServer.PG_TYPE_INT8:
-                checkParamLength(8, paramLen);
-                value = ValueBigint.get(dataIn.readLong());
-                break;
-            case PgServer.PG_TYPE_FLOAT4:
-                checkParamLength(4, paramLen);
-                value = ValueReal.get(dataIn.readFloat());
-                break;
-            case PgServer.PG_TYPE_FLOAT8:
-                checkParamLength(8, paramLen);
-                value = ValueDouble.get(dataIn.readDouble());
-                break;
-            case PgServer.PG_TYPE_BYTEA:
-                byte[] d1 = Utils.newBytes(paramLen);
-                readFully(d1);
-                value = ValueVarbinary.getNoCopy(d1);
-                break;
-            default:
-                server.trace("Binary format for type: "+pgType+" is unsupported");
-                byte[] d2 = Utils.newBytes(paramLen);
-                readFully(d2);
-                value = ValueVarchar.get(new String(d2, getEncoding()), session);
-            }
+            value = readBinaryValue(pgType, paramLen);
         }
         parameters.get(i).setValue(value, true);
     }
 
+    private Value readBinaryValue(int pgType, int length) throws IOException {
+        switch (pgType) {
+        case PgServer.PG_TYPE_BOOL:
+            checkParamLength(1, length);
+            return ValueBoolean.get(readByte() != 0);
+        case PgServer.PG_TYPE_INT2:
+            checkParamLength(2, length);
+            return ValueSmallint.get(readShort());
+        case PgServer.PG_TYPE_INT4:
+            checkParamLength(4, length);
+            return ValueInteger.get(readInt());
+        case PgServer.PG_TYPE_INT8:
+            checkParamLength(8, length);
+            return ValueBigint.get(dataIn.readLong());
+        case PgServer.PG_TYPE_FLOAT4:
+            checkParamLength(4, length);
+            return ValueReal.get(dataIn.readFloat());
+        case PgServer.PG_TYPE_FLOAT8:
+            checkParamLength(8, length);
+            return ValueDouble.get(dataIn.readDouble());
+        case PgServer.PG_TYPE_NUMERIC:
+            return readNumericBinary(length);
+        case PgServer.PG_TYPE_BYTEA: {
+            byte[] data = Utils.newBytes(length);
+            readFully(data);
+            return ValueVarbinary.getNoCopy(data);
+        }
+        case PgServer.PG_TYPE_UUID:
+            checkParamLength(16, length);
+            return ValueUuid.get(dataIn.readLong(), dataIn.readLong());
+        case PgServer.PG_TYPE_DATE:
+            checkParamLength(4, length);
+            return ValueDate.fromDateValue(DateTimeUtils.dateValueFromAbsoluteDay(readInt() + 10_957L));
+        case PgServer.PG_TYPE_TIME:
+            checkParamLength(8, length);
+            return ValueTime.fromNanos(readTimeBinary());
+        case PgServer.PG_TYPE_TIMETZ: {
+            checkParamLength(12, length);
+            long nanos = readTimeBinary();
+            return ValueTimeTimeZone.fromNanos(nanos, -readInt());
+        }
+        case PgServer.PG_TYPE_TIMESTAMP:
+        case PgServer.PG_TYPE_TIMESTAMPTZ: {
+            checkParamLength(8, length);
+            long nanos = readTimeBinary();
+            long dateValue = DateTimeUtils.dateValueFromAbsoluteDay(
+                    Math.floorDiv(nanos, DateTimeUtils.NANOS_PER_DAY) + 10_957L);
+            nanos = Math.floorMod(nanos, DateTimeUtils.NANOS_PER_DAY);
+            return pgType == PgServer.PG_TYPE_TIMESTAMP ? ValueTimestamp.fromDateValueAndNanos(dateValue, nanos)
+                    : ValueTimestampTimeZone.fromDateValueAndNanos(dateValue, nanos, 0);
+        }
+        case PgServer.PG_TYPE_INT2_ARRAY:
+        case PgServer.PG_TYPE_INT4_ARRAY:
+        case PgServer.PG_TYPE_VARCHAR_ARRAY:
+        case PgServer.PG_TYPE_BOOL_ARRAY:
+        case PgServer.PG_TYPE_INT8_ARRAY:
+        case PgServer.PG_TYPE_FLOAT4_ARRAY:
+        case PgServer.PG_TYPE_FLOAT8_ARRAY:
+        case PgServer.PG_TYPE_NUMERIC_ARRAY:
+            return readArrayBinary();
+        case PgServer.PG_TYPE_JSON: {
+            byte[] data = Utils.newBytes(length);
+            readFully(data);
+            return ValueJson.fromJson(new String(data, getEncoding()));
+        }
+        default: {
+            byte[] data = Utils.newBytes(length);
+            readFully(data);
+            return ValueVarchar.get(new String(data, getEncoding()), session);
+        }
+        }
+    }
+
+    /**
+     * Read a time or a timestamp in the binary format.
+     *
+     * @return nanoseconds since midnight or since 2000-01-01
+     */
+    private long readTimeBinary() throws IOException {
+        if (INTEGER_DATE_TYPES) {
+            // long format
+            return dataIn.readLong() * 1_000L;
+        } else {
+            // double format
+            return Math.round(dataIn.readDouble() * 1_000_000L) * 1_000L;
+        }
+    }
+
+    private Value readNumericBinary(int length) throws IOException {
+        int count = readShort();
+        checkParamLength(8 + count * 2, length);
+        int weight = readShort();
+        int sign = readShort() & 0xffff;
+        int scale = readShort();
+        if (sign != 0 && sign != 0x4000) {
+            throw DbException.getInvalidValueException("numeric sign", sign);
+        }
+        BigInteger unscaled = BigInteger.ZERO;
+        for (int i = 0; i < count; i++) {
+            unscaled = unscaled.multiply(BigInteger.valueOf(MAX_GROUP_SIZE)).add(BigInteger.valueOf(readShort()));
+        }
+        BigDecimal value = new BigDecimal(unscaled, (count - 1 - weight) * MAX_GROUP_SCALE).setScale(scale,
+                RoundingMode.DOWN);
+        return ValueNumeric.get(sign == 0 ? value : value.negate());
+    }
+
+    private Value readArrayBinary() throws IOException {
+        int dimensions = readInt();
+        // the flag for NULL elements
+        readInt();
+        int elementType = readInt();
+        if (dimensions == 0) {
+            return ValueArray.get(Value.EMPTY_VALUES, session);
+        } else if (dimensions != 1) {
+            throw DbException.getUnsupportedException("array with " + dimensions + " dimensions");
+        }
+        int count = readInt();
+        // the lower bound
+        readInt();
+        Value[] values = new Value[count];
+        for (int i = 0; i < count; i++) {
+            int length = readInt();
+            values[i] = length == -1 ? ValueNull.INSTANCE : readBinaryValue(elementType, length);
+        }
+        return ValueArray.get(values, session);
+    }
+
     private static void checkParamLength(int expected, int got) {
         if (expected != got) {
             throw DbException.getInvalidValueException("paramLen", got);
@@ -1283,9 +1961,9 @@ public final class PgServerThread implements Runnable {
         CommandInterface prep;
 
         /**
-         * The current result (for suspended portal).
+         * The portal with an open result of this statement, if any.
          */
-        ResultInterface result;
+        Portal portal;
 
         /**
          * The list of parameter types (if set).
@@ -1305,15 +1983,286 @@ public final class PgServerThread implements Runnable {
         }
 
         /**
-         * Closes the result, if any.
+         * Closes the open result of a portal, if any.
          */
         void closeResult() {
-            ResultInterface result = this.result;
-            if (result != null) {
-                this.result = null;
-                result.close();
+            Portal portal = this.portal;
+            if (portal != null) {
+                portal.closeResult();
+            }
+        }
+    }
+
+    /**
+     * The data sent by the client in CopyData messages during COPY FROM STDIN.
+     */
+    private final class CopyInputStream extends InputStream {
+
+        private byte[] buffer = Utils.EMPTY_BYTES;
+
+        private int pos;
+
+        private boolean done;
+
+        CopyInputStream() {
+        }
+
+        private boolean next() throws IOException {
+            while (!done) {
+                int x = dataInRaw.read();
+                if (x < 0) {
+                    throw new EOFException();
+                }
+                int len = dataInRaw.readInt() - 4;
+                byte[] data = Utils.newBytes(len);
+                dataInRaw.readFully(data, 0, len);
+                switch (x) {
+                case 'd':
+                    buffer = data;
+                    pos = 0;
+                    if (len > 0) {
+                        return true;
+                    }
+                    break;
+                case 'c':
+                    done = true;
+                    break;
+                case 'f':
+                    done = true;
+                    throw DbException.get(ErrorCode.GENERAL_ERROR_1, "COPY from stdin failed: "
+                            + new String(data, 0, Math.max(len - 1, 0), getEncoding()));
+                case 'H':
+                case 'S':
+                    // Flush and Sync are ignored during COPY
+                    break;
+                default:
+                    done = true;
+                    throw DbException.get(ErrorCode.GENERAL_ERROR_1,
+                            "unexpected message type " + (char) x + " during COPY from stdin");
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos >= buffer.length && !next()) {
+                return -1;
             }
+            return buffer[pos++] & 255;
         }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= buffer.length && !next()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.length - pos);
+            System.arraycopy(buffer, pos, b, off, len);
+            pos += len;
+            return len;
+        }
+
+        /**
+         * Skip the remaining data until CopyDone or CopyFail.
+         */
+        void skipRemaining() throws IOException {
+            pos = buffer.length;
+            while (next()) {
+                pos = buffer.length;
+            }
+        }
+
+    }
+
+    /**
+     * Options of a COPY command.
+     */
+    static final class CopyOptions {
+
+        /**
+         * Whether the binary format is used.
+         */
+        boolean binary;
+
+        /**
+         * Whether the CSV format is used.
+         */
+        boolean csv;
+
+        /**
+         * Whether the first line contains names of columns.
+         */
+        boolean header;
+
+        /**
+         * The delimiter of fields.
+         */
+        char delimiter;
+
+        /**
+         * The representation of NULL.
+         */
+        String nullString;
+
+        /**
+         * The quote character of the CSV format.
+         */
+        char quote = '"';
+
+        /**
+         * The escape character of the CSV format.
+         */
+        char escape;
+
+        /**
+         * The encoding of text.
+         */
+        Charset encoding;
+
+        /**
+         * Parse the options of a COPY command, both the list in parentheses
+         * and the old syntax are accepted.
+         *
+         * @param options the options
+         * @param encoding the default encoding
+         */
+        CopyOptions(String options, Charset encoding) {
+            this.encoding = encoding;
+            ArrayList<String> tokens = tokenize(options);
+            Character delimiter = null, escape = null;
+            for (int i = 0, size = tokens.size(); i < size; i++) {
+                String token = tokens.get(i);
+                switch (token) {
+                case "WITH":
+                case "FREEZE":
+                    break;
+                case "BINARY":
+                    binary = true;
+                    break;
+                case "CSV":
+                    csv = true;
+                    break;
+                case "TEXT":
+                    break;
+                case "FORMAT": {
+                    String format = getValue(tokens, ++i);
+                    binary = "BINARY".equals(format);
+                    csv = "CSV".equals(format);
+                    if (!binary && !csv && !"TEXT".equals(format)) {
+                        throw DbException.getInvalidValueException("COPY format", format);
+                    }
+                    break;
+                }
+                case "HEADER":
+                    header = true;
+                    if (i + 1 < size) {
+                        switch (tokens.get(i + 1)) {
+                        case "FALSE":
+                        case "OFF":
+                        case "0":
+                            header = false;
+                            //$FALL-THROUGH$
+                        case "TRUE":
+                        case "ON":
+                        case "1":
+                            i++;
+                        }
+                    }
+                    break;
+                case "DELIMITER":
+                    delimiter = getChar(tokens, ++i);
+                    break;
+                case "NULL":
+                    nullString = getValue(tokens, ++i);
+                    break;
+                case "QUOTE":
+                    quote = getChar(tokens, ++i);
+                    break;
+                case "ESCAPE":
+                    escape = getChar(tokens, ++i);
+                    break;
+                case "ENCODING":
+                    this.encoding = Charset.forName(getValue(tokens, ++i));
+                    break;
+                default:
+                    throw DbException.getUnsupportedException("COPY option " + token);
+                }
+            }
+            if (binary && (csv || header)) {
+                throw DbException.getUnsupportedException("COPY BINARY with CSV or HEADER");
+            }
+            this.delimiter = delimiter != null ? delimiter : csv ? ',' : '\t';
+            this.escape = escape != null ? escape : quote;
+            if (nullString == null) {
+                nullString = csv ? "" : "\\N";
+            }
+        }
+
+        private static String getValue(ArrayList<String> tokens, int i) {
+            if (i < tokens.size()) {
+                String token = tokens.get(i);
+                if ("AS".equals(token) && i + 1 < tokens.size()) {
+                    tokens.remove(i);
+                    token = tokens.get(i);
+                }
+                return token.charAt(0) == '\'' ? token.substring(1) : token;
+            }
+            throw DbException.getInvalidValueException("COPY option", null);
+        }
+
+        private static char getChar(ArrayList<String> tokens, int i) {
+            String value = getValue(tokens, i);
+            if (value.length() != 1) {
+                throw DbException.getInvalidValueException("COPY option", value);
+            }
+            return value.charAt(0);
+        }
+
+        /**
+         * Split options into upper case words and string literals, string
+         * literals start with a quote character.
+         */
+        private static ArrayList<String> tokenize(String options) {
+            ArrayList<String> tokens = new ArrayList<>();
+            for (int i = 0, length = options.length(); i < length;) {
+                char c = options.charAt(i);
+                if (Character.isWhitespace(c) || c == '(' || c == ')' || c == ',') {
+                    i++;
+                } else if (c == '\'' || (c == 'E' || c == 'e') && i + 1 < length && options.charAt(i + 1) == '\'') {
+                    boolean escaped = c != '\'';
+                    StringBuilder builder = new StringBuilder().append('\'');
+                    for (i += escaped ? 2 : 1; i < length; i++) {
+                        c = options.charAt(i);
+                        if (c == '\'') {
+                            if (i + 1 < length && options.charAt(i + 1) == '\'') {
+                                i++;
+                            } else {
+                                break;
+                            }
+                        } else if (escaped && c == '\\' && i + 1 < length) {
+                            c = options.charAt(++i);
+                            c = c == 't' ? '\t' : c == 'n' ? '\n' : c == 'r' ? '\r' : c;
+                        }
+                        builder.append(c);
+                    }
+                    i++;
+                    tokens.add(builder.toString());
+                } else {
+                    int start = i;
+                    while (i < length && !Character.isWhitespace(c = options.charAt(i)) && c != '(' && c != ')'
+                            && c != ',' && c != '\'') {
+                        i++;
+                    }
+                    tokens.add(StringUtils.toUpperEnglish(options.substring(start, i)));
+                }
+            }
+            return tokens;
+        }
+
     }
 
     /**
@@ -1335,5 +2284,27 @@ public final class PgServerThread implements Runnable {
          * The prepared object.
          */
         Prepared prep;
+
+        /**
+         * The current result (for suspended portal).
+         */
+        ResultInterface result;
+
+        /**
+         * Closes the result, if any.
+         */
+        void closeResult() {
+            ResultInterface result = this.result;
+            if (result != null) {
+                this.result = null;
+                if (prep.portal == this) {
+                    prep.portal = null;
+                }
+                result.close();
+                if (result.isLazy()) {
+                    prep.prep.stop();
+                }
+            }
+        }
     }
 }
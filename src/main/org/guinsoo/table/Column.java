@@ -72,6 +72,7 @@ public final class Column implements HasSQL, Typed, ColumnTemplate {
     private boolean isGeneratedAlways;
     private GeneratedColumnResolver generatedTableFilter;
     private int selectivity;
+    private ColumnStatistics statistics;
     private String comment;
     private boolean primaryKey;
     private boolean visible = true;
@@ -535,6 +536,9 @@ public final class Column implements HasSQL, Typed, ColumnTemplate {
         if (selectivity != 0) {
             builder.append(" SELECTIVITY ").append(selectivity);
         }
+        if (forMeta && statistics != null) {
+            statistics.getSQL(builder.append(" STATISTICS "), DEFAULT_SQL_FLAGS);
+        }
         if (comment != null) {
             StringUtils.quoteStringSQL(builder.append(" COMMENT "), comment);
         }
@@ -684,6 +688,24 @@ public final class Column implements HasSQL, Typed, ColumnTemplate {
         this.selectivity = selectivity;
     }
 
+    /**
+     * Get the statistics of values of the column collected by ANALYZE.
+     *
+     * @return the statistics, or {@code null}
+     */
+    public ColumnStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Set the statistics of values of the column.
+     *
+     * @param statistics the statistics, or {@code null}
+     */
+    public void setStatistics(ColumnStatistics statistics) {
+        this.statistics = statistics;
+    }
+
     @Override
     public String getDefaultSQL() {
         return defaultExpression == null ? null
@@ -797,6 +819,8 @@ public final class Column implements HasSQL, Typed, ColumnTemplate {
      * @param source the source column
      */
     public void copy(Column source) {
+        // statistics of values of another data type are not valid
+        boolean sameType = type.equals(source.type);
         name = source.name;
         type = source.type;
         domain = source.domain;
@@ -812,6 +836,7 @@ public final class Column implements HasSQL, Typed, ColumnTemplate {
         generatedTableFilter = source.generatedTableFilter;
         isGeneratedAlways = source.isGeneratedAlways;
         selectivity = source.selectivity;
+        statistics = sameType ? source.statistics : null;
         primaryKey = source.primaryKey;
         visible = source.visible;
     }
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.table;
+
+import java.util.ArrayList;
+
+import org.guinsoo.engine.SessionLocal;
+import org.guinsoo.util.HasSQL;
+import org.guinsoo.value.DataType;
+import org.guinsoo.value.TypeInfo;
+import org.guinsoo.value.Value;
+import org.guinsoo.value.ValueNull;
+
+/**
+ * Statistics of values of a column collected by the ANALYZE statement.
+ *
+ * <p>
+ * Statistics contain the number of analyzed rows, the number of NULL values,
+ * the estimated number of distinct values, the list of most common values with
+ * their numbers of occurrences, and an equi-depth histogram of other values.
+ * All numbers are related to the analyzed rows, estimations are scaled to the
+ * current number of rows in the table by the caller.
+ * </p>
+ */
+public final class ColumnStatistics implements HasSQL {
+
+    /**
+     * The maximum number of most common values.
+     */
+    private static final int MAX_MOST_COMMON_VALUES = 16;
+
+    /**
+     * The maximum number of buckets in the histogram.
+     */
+    private static final int MAX_HISTOGRAM_BUCKETS = 32;
+
+    private final long rowCount;
+
+    private final long nullCount;
+
+    private final long distinctCount;
+
+    /**
+     * The most common values in ascending order.
+     */
+    private final Value[] commonValues;
+
+    private final long[] commonCounts;
+
+    /**
+     * The bounds of the buckets of the histogram in ascending order.
+     */
+    private final Value[] bounds;
+
+    private final long histogramCount;
+
+    /**
+     * Returns whether statistics may be collected for values of the specified
+     * data type.
+     *
+     * @param type
+     *            the data type
+     * @return whether statistics are supported
+     */
+    public static boolean isSupported(TypeInfo type) {
+        switch (type.getValueType()) {
+        case Value.ARRAY:
+        case Value.ROW:
+        case Value.JSON:
+        case Value.GEOMETRY:
+            return false;
+        default:
+            return DataType.isIndexable(type);
+        }
+    }
+
+    /**
+     * Creates statistics from the sample of values.
+     *
+     * @param session
+     *            the session
+     * @param rowCount
+     *            the number of analyzed rows
+     * @param nullCount
+     *            the number of NULL values in analyzed rows
+     * @param distinctCount
+     *            the estimated number of distinct non-NULL values in analyzed
+     *            rows
+     * @param sample
+     *            the sorted sample of non-NULL values
+     * @return the statistics
+     */
+    public static ColumnStatistics create(SessionLocal session, long rowCount, long nullCount, long distinctCount,
+            Value[] sample) {
+        int sampleSize = sample.length;
+        double scale = sampleSize > 0 ? (double) (rowCount - nullCount) / sampleSize : 0d;
+        // numbers of occurrences of distinct values in the sample
+        ArrayList<Value> values = new ArrayList<>();
+        ArrayList<Integer> counts = new ArrayList<>();
+        for (int i = 0; i < sampleSize;) {
+            Value v = sample[i];
+            int j = i + 1;
+            while (j < sampleSize && session.compareTypeSafe(v, sample[j]) == 0) {
+                j++;
+            }
+            values.add(v);
+            counts.add(j - i);
+            i = j;
+        }
+        int sampleDistinct = values.size();
+        if (distinctCount < sampleDistinct) {
+            distinctCount = sampleDistinct;
+        }
+        // values that occur more often than the average are the most common
+        // values, but only if they aren't unique in the sample
+        int threshold = Math.max(sampleSize / sampleDistinct, 1) + 1;
+        boolean[] common = new boolean[sampleDistinct];
+        int commonCount = 0;
+        for (;;) {
+            int max = threshold - 1, maxIndex = -1;
+            for (int i = 0; i < sampleDistinct; i++) {
+                int c = counts.get(i);
+                if (c > max && !common[i]) {
+                    max = c;
+                    maxIndex = i;
+                }
+            }
+            if (maxIndex < 0 || commonCount == MAX_MOST_COMMON_VALUES) {
+                break;
+            }
+            common[maxIndex] = true;
+            commonCount++;
+        }
+        Value[] commonValues = new Value[commonCount];
+        long[] commonCounts = new long[commonCount];
+        Value[] other = new Value[sampleSize];
+        int otherCount = 0;
+        for (int i = 0, c = 0, p = 0; i < sampleDistinct; i++) {
+            int count = counts.get(i);
+            if (common[i]) {
+                commonValues[c] = values.get(i);
+                commonCounts[c++] = Math.max(Math.round(count * scale), 1);
+            } else {
+                for (int k = 0; k < count; k++) {
+                    other[otherCount++] = sample[p + k];
+                }
+            }
+            p += count;
+        }
+        // equi-depth histogram of other values
+        ArrayList<Value> bounds = new ArrayList<>();
+        if (otherCount > 0) {
+            int buckets = Math.min(MAX_HISTOGRAM_BUCKETS, otherCount - 1);
+            bounds.add(other[0]);
+            for (int i = 1; i <= buckets; i++) {
+                Value v = other[(int) ((long) i * (otherCount - 1) / buckets)];
+                if (session.compareTypeSafe(bounds.get(bounds.size() - 1), v) != 0) {
+                    bounds.add(v);
+                }
+            }
+        }
+        return new ColumnStatistics(rowCount, nullCount, distinctCount, commonValues, commonCounts,
+                bounds.toArray(new Value[0]));
+    }
+
+    /**
+     * Creates new statistics.
+     *
+     * @param rowCount
+     *            the number of analyzed rows
+     * @param nullCount
+     *            the number of NULL values in analyzed rows
+     * @param distinctCount
+     *            the estimated number of distinct non-NULL values
+     * @param commonValues
+     *            the most common values in ascending order
+     * @param commonCounts
+     *            the numbers of occurrences of the most common values
+     * @param bounds
+     *            the bounds of buckets of the histogram in ascending order
+     */
+    public ColumnStatistics(long rowCount, long nullCount, long distinctCount, Value[] commonValues,
+            long[] commonCounts, Value[] bounds) {
+        this.rowCount = rowCount;
+        this.nullCount = nullCount;
+        this.distinctCount = distinctCount;
+        this.commonValues = commonValues;
+        this.commonCounts = commonCounts;
+        this.bounds = bounds;
+        long histogramCount = rowCount - nullCount;
+        for (long c : commonCounts) {
+            histogramCount -= c;
+        }
+        this.histogramCount = Math.max(histogramCount, 0L);
+    }
+
+    /**
+     * Returns the estimated fraction of rows with the specified value.
+     *
+     * @param session
+     *            the session
+     * @param v
+     *            the value
+     * @return the fraction of rows, from 0 to 1
+     */
+    public double getEqualFraction(SessionLocal session, Value v) {
+        if (rowCount == 0) {
+            return 0d;
+        }
+        if (v == ValueNull.INSTANCE) {
+            return (double) nullCount / rowCount;
+        }
+        int index = findCommonValue(session, v);
+        if (index >= 0) {
+            return (double) commonCounts[index] / rowCount;
+        }
+        int length = bounds.length;
+        if (length == 0 || session.compare(v, bounds[0]) < 0 || session.compare(v, bounds[length - 1]) > 0) {
+            return 0d;
+        }
+        return histogramCount / (double) Math.max(distinctCount - commonValues.length, 1) / rowCount;
+    }
+
+    /**
+     * Returns the estimated fraction of rows with values in the specified
+     * range.
+     *
+     * @param session
+     *            the session
+     * @param low
+     *            the lower bound, or {@code null}
+     * @param lowInclusive
+     *            whether the lower bound is inclusive
+     * @param high
+     *            the upper bound, or {@code null}
+     * @param highInclusive
+     *            whether the upper bound is inclusive
+     * @return the fraction of rows, from 0 to 1
+     */
+    public double getRangeFraction(SessionLocal session, Value low, boolean lowInclusive, Value high,
+            boolean highInclusive) {
+        if (rowCount == 0) {
+            return 0d;
+        }
+        if (low != null && high != null) {
+            int cmp = session.compare(low, high);
+            if (cmp > 0 || cmp == 0 && !(lowInclusive && highInclusive)) {
+                return 0d;
+            }
+        }
+        double count = 0d;
+        for (int i = 0, l = commonValues.length; i < l; i++) {
+            Value v = commonValues[i];
+            if (low != null) {
+                int cmp = session.compare(v, low);
+                if (cmp < 0 || cmp == 0 && !lowInclusive) {
+                    continue;
+                }
+            }
+            if (high != null) {
+                int cmp = session.compare(v, high);
+                if (cmp > 0 || cmp == 0 && !highInclusive) {
+                    continue;
+                }
+            }
+            count += commonCounts[i];
+        }
+        double position = (high != null ? getPosition(session, high) : 1d)
+                - (low != null ? getPosition(session, low) : 0d);
+        if (position > 0d) {
+            count += histogramCount * position;
+        }
+        return Math.min(count / rowCount, 1d);
+    }
+
+    /**
+     * Returns the class of the specified value. All non-NULL values of the
+     * same class have the same estimated fraction of equal rows and are
+     * between the same bounds of the histogram, so a plan chosen for one of
+     * them is also suitable for others.
+     *
+     * @param session
+     *            the session
+     * @param v
+     *            the value
+     * @return -1 for NULL, -2 and less for the most common values, 0 and
+     *         greater for the other values
+     */
+    public int getValueClass(SessionLocal session, Value v) {
+        if (v == ValueNull.INSTANCE) {
+            return -1;
+        }
+        int index = findCommonValue(session, v);
+        if (index >= 0) {
+            return -2 - index;
+        }
+        // values equal to a bound have own classes
+        int smaller = 0, notBigger = 0;
+        for (Value bound : bounds) {
+            int cmp = session.compare(bound, v);
+            if (cmp > 0) {
+                break;
+            }
+            notBigger++;
+            if (cmp < 0) {
+                smaller++;
+            }
+        }
+        return smaller + notBigger;
+    }
+
+    /**
+     * Returns the estimated fraction of values in the histogram that are
+     * smaller than the specified value.
+     */
+    private double getPosition(SessionLocal session, Value v) {
+        Value[] bounds = this.bounds;
+        int n = bounds.length - 1;
+        if (n < 0) {
+            return 0d;
+        }
+        if (session.compare(v, bounds[0]) <= 0) {
+            return n == 0 && session.compare(v, bounds[0]) == 0 ? 0.5d : 0d;
+        }
+        if (session.compare(v, bounds[n]) >= 0) {
+            return 1d;
+        }
+        int l = 0, h = n;
+        while (h - l > 1) {
+            int m = (l + h) >>> 1;
+            if (session.compare(bounds[m], v) <= 0) {
+                l = m;
+            } else {
+                h = m;
+            }
+        }
+        double inBucket = 0.5d;
+        Value a = bounds[l], b = bounds[h];
+        if (DataType.isNumericType(a.getValueType()) && DataType.isNumericType(v.getValueType())) {
+            double da = a.getDouble(), db = b.getDouble();
+            if (db > da) {
+                inBucket = Math.min(Math.max((v.getDouble() - da) / (db - da), 0d), 1d);
+            }
+        }
+        return (l + inBucket) / n;
+    }
+
+    private int findCommonValue(SessionLocal session, Value v) {
+        int l = 0, h = commonValues.length - 1;
+        while (l <= h) {
+            int m = (l + h) >>> 1;
+            int cmp = session.compare(commonValues[m], v);
+            if (cmp < 0) {
+                l = m + 1;
+            } else if (cmp > 0) {
+                h = m - 1;
+            } else {
+                return m;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of analyzed rows.
+     *
+     * @return the number of analyzed rows
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the estimated number of distinct non-NULL values.
+     *
+     * @return the estimated number of distinct values
+     */
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    @Override
+    public StringBuilder getSQL(StringBuilder builder, int sqlFlags) {
+        builder.append('(').append(rowCount).append(", ").append(nullCount).append(", ").append(distinctCount)
+                .append(", ");
+        appendValues(builder, commonValues, sqlFlags).append(", ARRAY [");
+        for (int i = 0, l = commonCounts.length; i < l; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(commonCounts[i]);
+        }
+        return appendValues(builder.append("], "), bounds, sqlFlags).append(')');
+    }
+
+    private static StringBuilder appendValues(StringBuilder builder, Value[] values, int sqlFlags) {
+        builder.append("ARRAY [");
+        for (int i = 0, l = values.length; i < l; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            values[i].getSQL(builder, sqlFlags);
+        }
+        return builder.append(']');
+    }
+
+}
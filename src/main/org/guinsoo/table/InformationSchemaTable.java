@@ -14,6 +14,7 @@ import java.util.Map;
 
 import org.guinsoo.command.Command;
 import org.guinsoo.command.Parser;
+import org.guinsoo.command.PlanCache;
 import org.guinsoo.expression.Expression;
 import org.guinsoo.expression.ExpressionVisitor;
 import org.guinsoo.expression.ValueExpression;
@@ -21,6 +22,7 @@ import org.guinsoo.message.DbException;
 import org.guinsoo.mvstore.FileStore;
 import org.guinsoo.mvstore.MVStore;
 import org.guinsoo.mvstore.db.Store;
+import org.guinsoo.mvstore.tx.TransactionStore;
 import org.guinsoo.pagestore.PageStore;
 import org.guinsoo.result.Row;
 import org.guinsoo.result.SearchRow;
@@ -2952,6 +2954,7 @@ public final class InformationSchemaTable extends MetaTable {
         add(session, rows, "QUERY_TIMEOUT", Integer.toString(session.getQueryTimeout()));
         add(session, rows, "TIME ZONE", session.currentTimeZone().getId());
         add(session, rows, "TRUNCATE_LARGE_LENGTH", session.isTruncateLargeLength() ? "TRUE" : "FALSE");
+        add(session, rows, "MAX_PARALLELISM", Integer.toString(session.getMaxParallelism()));
         add(session, rows, "VARIABLE_BINARY", session.isVariableBinary() ? "TRUE" : "FALSE");
         add(session, rows, "OLD_INFORMATION_SCHEMA", session.isOldInformationSchema() ? "TRUE" : "FALSE");
         BitSet nonKeywords = session.getNonKeywords();
@@ -2963,6 +2966,11 @@ public final class InformationSchemaTable extends MetaTable {
         for (Map.Entry<String, String> entry : database.getSettings().getSortedSettings()) {
             add(session, rows, entry.getKey(), entry.getValue());
         }
+        PlanCache planCache = database.getPlanCache();
+        if (planCache != null) {
+            add(session, rows, "info.PLAN_CACHE_HITS", Long.toString(planCache.getHits()));
+            add(session, rows, "info.PLAN_CACHE_MISSES", Long.toString(planCache.getMisses()));
+        }
         if (database.isPersistent()) {
             Store store = database.getStore();
             if (store != null) {
@@ -2992,6 +3000,8 @@ public final class InformationSchemaTable extends MetaTable {
                     } catch (IOException ignore) {/**/}
                     add(session, rows,
                             "info.CHUNK_COUNT", Long.toString(mvStore.getChunkCount()));
+                    add(session, rows,
+                            "info.BACKUP_VERSION", Long.toString(store.getBackupVersion()));
                     add(session, rows,
                             "info.PAGE_COUNT", Long.toString(mvStore.getPageCount()));
                     add(session, rows,
@@ -3004,10 +3014,36 @@ public final class InformationSchemaTable extends MetaTable {
                             "info.CACHE_SIZE", Integer.toString(mvStore.getCacheSizeUsed()));
                     add(session, rows,
                             "info.CACHE_HIT_RATIO", Integer.toString(mvStore.getCacheHitRatio()));
+                    add(session, rows, "info.CACHE_HITS", Long.toString(mvStore.getCacheHits()));
+                    add(session, rows, "info.CACHE_MISSES", Long.toString(mvStore.getCacheMisses()));
+                    add(session, rows, "info.CACHE_EVICTIONS", Long.toString(mvStore.getCacheEvictions()));
+                    add(session, rows, "info.OFF_HEAP_CACHE_MAX_SIZE",
+                            Integer.toString(mvStore.getOffHeapCacheSize()));
+                    add(session, rows, "info.OFF_HEAP_CACHE_SIZE",
+                            Integer.toString(mvStore.getOffHeapCacheSizeUsed()));
+                    add(session, rows, "info.OFF_HEAP_CACHE_HIT_RATIO",
+                            Integer.toString(mvStore.getOffHeapCacheHitRatio()));
                     add(session, rows, "info.TOC_CACHE_HIT_RATIO",
                             Integer.toString(mvStore.getTocCacheHitRatio()));
+                    add(session, rows, "info.COMPACTION_RATE",
+                            Integer.toString(mvStore.getCompactionRate()));
+                    add(session, rows, "info.COMPACTION_REWRITTEN_CHUNKS",
+                            Long.toString(mvStore.getRewrittenChunkCount()));
+                    add(session, rows, "info.COMPACTION_REWRITTEN_BYTES",
+                            Long.toString(mvStore.getRewrittenBytes()));
+                    add(session, rows, "info.COMPACTION_MOVED_CHUNKS",
+                            Long.toString(mvStore.getMovedChunkCount()));
+                    add(session, rows, "info.COMPACTION_MOVED_BYTES",
+                            Long.toString(mvStore.getMovedBytes()));
+                    add(session, rows, "info.COMPACTION_THROTTLED",
+                            Long.toString(mvStore.getCompactionThrottledCount()));
                     add(session, rows,
                             "info.LEAF_RATIO", Integer.toString(mvStore.getLeafRatio()));
+                    TransactionStore transactionStore = store.getTransactionStore();
+                    add(session, rows, "info.GROUP_COMMITS",
+                            Long.toString(transactionStore.getGroupCommitCount()));
+                    add(session, rows, "info.GROUP_COMMIT_TRANSACTIONS",
+                            Long.toString(transactionStore.getGroupCommitTransactionCount()));
                 }
             } else {
                 PageStore pageStore = database.getPageStore();
@@ -25,6 +25,7 @@ public class Plan {
     private final HashMap<TableFilter, PlanItem> planItems = new HashMap<>();
     private final Expression[] allConditions;
     private final TableFilter[] allFilters;
+    private final int[] allFiltersOffsets;
 
     /**
      * Create a query plan with the given order.
@@ -41,8 +42,10 @@ public class Plan {
         if (condition != null) {
             allCond.add(condition);
         }
+        allFiltersOffsets = new int[count];
         for (int i = 0; i < count; i++) {
             TableFilter f = filters[i];
+            allFiltersOffsets[i] = all.size();
             f.visit(f1 -> {
                 all.add(f1);
                 if (f1.getJoinCondition() != null) {
@@ -101,24 +104,53 @@ public class Plan {
      * @return the cost
      */
     public double calculateCost(SessionLocal session, AllColumnsForPlan allColumnsSet) {
+        return calculateCost(session, allColumnsSet, 0, 1);
+    }
+
+    /**
+     * Calculate the cost of this query plan using the known cost of a plan
+     * with the same first tables. Plan items are calculated only for the
+     * remaining tables.
+     *
+     * @param session the session
+     * @param allColumnsSet calculates all columns on-demand
+     * @param prefixCount the number of the first tables in the known plan
+     * @param prefixCost the cost of the known plan
+     * @return the cost
+     */
+    public double calculateCost(SessionLocal session, AllColumnsForPlan allColumnsSet, int prefixCount,
+            double prefixCost) {
         Trace t = session.getTrace();
         if (t.isDebugEnabled()) {
             t.debug("Plan       : calculate cost for plan {0}", Arrays.toString(allFilters));
         }
-        double cost = 1;
+        double cost = prefixCost;
         boolean invalidPlan = false;
-        for (int i = 0; i < allFilters.length; i++) {
+        int start = prefixCount < filters.length ? allFiltersOffsets[prefixCount] : allFilters.length;
+        for (int i = 0; i < start; i++) {
+            setEvaluatable(allFilters[i], true);
+        }
+        for (int i = start; i < allFilters.length; i++) {
             TableFilter tableFilter = allFilters[i];
             if (t.isDebugEnabled()) {
                 t.debug("Plan       :   for table filter {0}", tableFilter);
             }
             PlanItem item = tableFilter.getBestPlanItem(session, allFilters, i, allColumnsSet);
+            if (i > 0 && isTopFilter(tableFilter)) {
+                PlanItem hashJoinItem = tableFilter.getHashJoinPlanItem(session, allFilters, i, allColumnsSet);
+                // the hash table is built once, only the lookups are paid
+                // for each row of the preceding tables
+                if (hashJoinItem != null
+                        && cost * hashJoinItem.cost + hashJoinItem.buildCost < cost * item.cost) {
+                    item = hashJoinItem;
+                }
+            }
             planItems.put(tableFilter, item);
             if (t.isDebugEnabled()) {
                 t.debug("Plan       :   best plan item cost {0} index {1}",
                         item.cost, item.getIndex().getPlanSQL());
             }
-            cost += cost * item.cost;
+            cost += cost * item.cost + item.buildCost;
             setEvaluatable(tableFilter, true);
             Expression on = tableFilter.getJoinCondition();
             if (on != null) {
@@ -140,6 +172,15 @@ public class Plan {
         return cost;
     }
 
+    private boolean isTopFilter(TableFilter filter) {
+        for (TableFilter f : filters) {
+            if (f == filter) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void setEvaluatable(TableFilter filter, boolean b) {
         filter.setEvaluatable(filter, b);
         for (Expression e : allConditions) {
@@ -18,6 +18,12 @@ public class PlanItem {
      */
     double cost;
 
+    /**
+     * The cost that is paid once for each execution of the query, not for
+     * each lookup.
+     */
+    double buildCost;
+
     private int[] masks;
     private Index index;
     private PlanItem joinPlan;
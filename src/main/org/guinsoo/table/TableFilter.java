@@ -17,6 +17,7 @@ import org.guinsoo.engine.Database;
 import org.guinsoo.engine.Right;
 import org.guinsoo.engine.SessionLocal;
 import org.guinsoo.expression.Expression;
+import org.guinsoo.expression.ExpressionVisitor;
 import org.guinsoo.message.DbException;
 import org.guinsoo.result.Row;
 import org.guinsoo.result.SearchRow;
@@ -24,6 +25,7 @@ import org.guinsoo.result.SortOrder;
 import org.guinsoo.api.ErrorCode;
 import org.guinsoo.expression.condition.Comparison;
 import org.guinsoo.expression.condition.ConditionAndOr;
+import org.guinsoo.index.HashJoinIndex;
 import org.guinsoo.index.Index;
 import org.guinsoo.index.IndexCondition;
 import org.guinsoo.index.IndexCursor;
@@ -31,6 +33,8 @@ import org.guinsoo.util.HasSQL;
 import org.guinsoo.util.ParserUtil;
 import org.guinsoo.util.StringUtils;
 import org.guinsoo.util.Utils;
+import org.guinsoo.value.CompareMode;
+import org.guinsoo.value.DataType;
 import org.guinsoo.value.TypeInfo;
 import org.guinsoo.value.Value;
 import org.guinsoo.value.ValueBigint;
@@ -276,6 +280,94 @@ public class TableFilter implements ColumnResolver {
         return item;
     }
 
+    /**
+     * Get the plan item for a hash join with this table as the build side, or
+     * {@code null} if a hash join can't be used. A hash join is possible if
+     * there are equality conditions on columns of this table with expressions
+     * that can be evaluated with the preceding tables only. Conditions that
+     * need only this table are applied while the hash table is built.
+     *
+     * @param s the session
+     * @param filters all joined table filters
+     * @param filter the current table filter index
+     * @param allColumnsSet the set of all columns
+     * @return the plan item, or {@code null}
+     */
+    PlanItem getHashJoinPlanItem(SessionLocal s, TableFilter[] filters, int filter,
+            AllColumnsForPlan allColumnsSet) {
+        if (join != null || nestedJoin != null || !s.getDatabase().getSettings().optimizeHashJoin) {
+            return null;
+        }
+        TableType tableType = table.getTableType();
+        if (tableType == TableType.VIEW) {
+            if (((TableView) table).isRecursive()) {
+                return null;
+            }
+        } else if (tableType != TableType.TABLE) {
+            return null;
+        }
+        CompareMode compareMode = s.getDatabase().getCompareMode();
+        ArrayList<Column> keyColumns = Utils.newSmallArrayList();
+        ArrayList<IndexCondition> buildConditions = Utils.newSmallArrayList();
+        int len = table.getColumns().length;
+        int[] buildMasks = new int[len];
+        long rowCount = table.getRowCountApproximation(s);
+        double buildRows = rowCount;
+        for (IndexCondition condition : indexConditions) {
+            if (!condition.isEvaluatable() || condition.isAlwaysFalse()) {
+                continue;
+            }
+            Column column = condition.getColumn();
+            int columnId = column.getColumnId();
+            int compareType = condition.getCompareType();
+            if (isBuildCondition(condition, filters)) {
+                // comparisons with constants are not join conditions
+                if (columnId >= 0) {
+                    buildConditions.add(condition);
+                    buildMasks[columnId] |= condition.getMask(indexConditions);
+                    if (compareType == Comparison.EQUAL || compareType == Comparison.EQUAL_NULL_SAFE) {
+                        buildRows /= Math.max(rowCount * column.getSelectivity() / 100, 1);
+                    } else if (condition.isStart() || condition.isEnd()) {
+                        buildRows /= 3;
+                    }
+                }
+            } else if ((compareType == Comparison.EQUAL || compareType == Comparison.EQUAL_NULL_SAFE)
+                    && columnId >= 0 && !keyColumns.contains(column)
+                    && DataType.isHashable(column.getType(), compareMode)) {
+                keyColumns.add(column);
+            }
+        }
+        if (keyColumns.isEmpty()) {
+            return null;
+        }
+        PlanItem buildItem = table.getBestPlanItem(s, buildMasks, filters, filter, null, allColumnsSet);
+        HashJoinIndex hashJoinIndex = new HashJoinIndex(table, buildItem.getIndex(), buildConditions,
+                keyColumns.toArray(new Column[0]));
+        int[] masks = new int[len];
+        for (Column column : keyColumns) {
+            masks[column.getColumnId()] = IndexCondition.EQUALITY;
+        }
+        PlanItem item = new PlanItem();
+        item.setIndex(hashJoinIndex);
+        item.setMasks(masks);
+        item.cost = hashJoinIndex.getProbeCost(s);
+        item.buildCost = HashJoinIndex.getBuildCost(buildItem.cost, Math.max(buildRows, 1d));
+        return item;
+    }
+
+    /**
+     * Check if the condition needs only this table, so it can be evaluated
+     * before the rows of other tables are known.
+     */
+    private boolean isBuildCondition(IndexCondition condition, TableFilter[] filters) {
+        for (TableFilter f : filters) {
+            if (f != this && !condition.isEverything(ExpressionVisitor.getNotFromResolverVisitor(f))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Set what plan item (index, cost, masks) to use.
      *
@@ -327,11 +419,20 @@ public class TableFilter implements ColumnResolver {
     public void prepare() {
         // forget all unused index conditions
         // the indexConditions list may be modified here
+        boolean hashJoin = index instanceof HashJoinIndex;
         for (int i = 0; i < indexConditions.size(); i++) {
             IndexCondition condition = indexConditions.get(i);
             if (!condition.isAlwaysFalse()) {
                 Column col = condition.getColumn();
-                if (col.getColumnId() >= 0) {
+                if (hashJoin) {
+                    // hash join can use only equality conditions
+                    int compareType = condition.getCompareType();
+                    if (col.getColumnId() < 0 || index.getColumnIndex(col) < 0
+                            || compareType != Comparison.EQUAL && compareType != Comparison.EQUAL_NULL_SAFE) {
+                        indexConditions.remove(i);
+                        i--;
+                    }
+                } else if (col.getColumnId() >= 0) {
                     if (index.getColumnIndex(col) < 0) {
                         indexConditions.remove(i);
                         i--;
@@ -367,6 +468,9 @@ public class TableFilter implements ColumnResolver {
     public void startQuery(SessionLocal s) {
         this.session = s;
         scanCount = 0;
+        if (index instanceof HashJoinIndex) {
+            ((HashJoinIndex) index).reset();
+        }
         if (nestedJoin != null) {
             nestedJoin.startQuery(s);
         }
@@ -20,6 +20,7 @@ import org.guinsoo.engine.Constants;
 import org.guinsoo.message.DbException;
 import org.guinsoo.api.ErrorCode;
 import org.guinsoo.compress.CompressDeflate;
+import org.guinsoo.compress.CompressLZ4;
 import org.guinsoo.compress.CompressLZF;
 import org.guinsoo.compress.CompressNo;
 import org.guinsoo.compress.Compressor;
@@ -68,7 +69,7 @@ public class CompressTool {
      * supplied, LZF is used
      *
      * @param in the byte array with the original data
-     * @param algorithm the algorithm (LZF, DEFLATE)
+     * @param algorithm the algorithm (LZF, DEFLATE, LZ4)
      * @return the compressed data
      */
     public byte[] compress(byte[] in, String algorithm) {
@@ -249,6 +250,8 @@ public class CompressTool {
             return Compressor.LZF;
         } else if ("DEFLATE".equals(algorithm)) {
             return Compressor.DEFLATE;
+        } else if ("LZ4".equals(algorithm)) {
+            return Compressor.LZ4;
         } else {
             throw DbException.get(
                     ErrorCode.UNSUPPORTED_COMPRESSION_ALGORITHM_1,
@@ -264,6 +267,8 @@ public class CompressTool {
             return new CompressLZF();
         case Compressor.DEFLATE:
             return new CompressDeflate();
+        case Compressor.LZ4:
+            return new CompressLZ4();
         default:
             throw DbException.get(
                     ErrorCode.UNSUPPORTED_COMPRESSION_ALGORITHM_1,
@@ -145,6 +145,10 @@ public class Console extends Tool implements ShutdownHandler {
                     // no parameters
                 } else if ("-tcpPort".equals(arg)) {
                     i++;
+                } else if ("-tcpWorkers".equals(arg)) {
+                    i++;
+                } else if ("-tcpVirtualThreads".equals(arg)) {
+                    // no parameters
                 } else if ("-tcpPassword".equals(arg)) {
                     tcpPassword = args[++i];
                 } else if ("-tcpShutdown".equals(arg)) {
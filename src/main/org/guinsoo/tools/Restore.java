@@ -10,11 +10,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import org.guinsoo.engine.Constants;
 import org.guinsoo.message.DbException;
+import org.guinsoo.mvstore.IncrementalBackup;
 import org.guinsoo.store.fs.FileUtils;
 import org.guinsoo.util.IOUtils;
 import org.guinsoo.util.Tool;
@@ -35,6 +37,8 @@ public class Restore extends Tool {
      * <td>The target directory (default: .)</td></tr>
      * <tr><td>[-db &lt;database&gt;]</td>
      * <td>The target database name (as stored if not set)</td></tr>
+     * <tr><td>[-increment &lt;filename&gt;]</td>
+     * <td>An incremental backup to apply (may be repeated)</td></tr>
      * <tr><td>[-quiet]</td>
      * <td>Do not print progress information</td></tr>
      * </table>
@@ -50,6 +54,7 @@ public class Restore extends Tool {
         String zipFileName = "backup.zip";
         String dir = ".";
         String db = null;
+        ArrayList<String> increments = new ArrayList<>();
         for (int i = 0; args != null && i < args.length; i++) {
             String arg = args[i];
             if (arg.equals("-dir")) {
@@ -58,6 +63,8 @@ public class Restore extends Tool {
                 zipFileName = args[++i];
             } else if (arg.equals("-db")) {
                 db = args[++i];
+            } else if (arg.equals("-increment")) {
+                increments.add(args[++i]);
             } else if (arg.equals("-quiet")) {
                 // ignore
             } else if (arg.equals("-help") || arg.equals("-?")) {
@@ -68,6 +75,9 @@ public class Restore extends Tool {
             }
         }
         execute(zipFileName, dir, db);
+        if (!increments.isEmpty()) {
+            executeIncremental(dir, db, increments.toArray(new String[0]));
+        }
     }
 
     private static String getOriginalDbName(String fileName, String db)
@@ -194,4 +204,29 @@ public class Restore extends Tool {
         }
     }
 
+    /**
+     * Applies incremental backups to a restored database. Each backup must be
+     * taken since a version that is not newer than the version of the
+     * previous backup.
+     *
+     * @param directory the directory of the restored database
+     * @param db the database name (as stored if not set)
+     * @param fileNames the incremental backups in the order they were taken
+     * @throws DbException if a backup can't be applied
+     */
+    public static void executeIncremental(String directory, String db, String... fileNames) {
+        for (String fileName : fileNames) {
+            String name = db != null ? db + Constants.SUFFIX_MV_FILE : IncrementalBackup.getStoreFileName(fileName);
+            String target = directory + File.separatorChar + name;
+            String temp = target + Constants.SUFFIX_TEMP_FILE;
+            try {
+                IncrementalBackup.restore(target, fileName, temp);
+            } catch (RuntimeException e) {
+                FileUtils.delete(temp);
+                throw DbException.convert(e);
+            }
+            FileUtils.moveAtomicReplace(temp, target);
+        }
+    }
+
 }
@@ -13,6 +13,7 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 
 import org.guinsoo.engine.SysProperties;
 import org.guinsoo.message.DbException;
@@ -173,6 +174,31 @@ public class NetUtils {
         }
     }
 
+    /**
+     * Create a server socket channel. The system property guinsoo.bindAddress
+     * is used if set. The channel is in blocking mode.
+     *
+     * @param port the port to listen on
+     * @return the server socket channel
+     */
+    public static ServerSocketChannel createServerSocketChannel(int port) {
+        try {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            try {
+                channel.socket().bind(new InetSocketAddress(getBindAddress(), port));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            return channel;
+        } catch (BindException be) {
+            throw DbException.get(ErrorCode.EXCEPTION_OPENING_PORT_2,
+                    be, Integer.toString(port), be.toString());
+        } catch (IOException e) {
+            throw DbException.convertIOException(e, "port: " + port);
+        }
+    }
+
     /**
      * Get the bind address if the system property guinsoo.bindAddress is set, or
      * null if not.
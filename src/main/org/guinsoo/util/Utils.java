@@ -97,6 +97,21 @@ public class Utils {
         return h;
     }
 
+    /**
+     * Calculate the 64-bit hash code of all bytes of the given byte array.
+     *
+     * @param value the byte array
+     * @return the hash code
+     */
+    public static long getByteArrayHash64(byte[] value) {
+        // FNV-1a
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
     /**
      * Compare two byte arrays. This method will always loop over all bytes and
      * doesn't use conditional operations in the loop to make sure an attacker
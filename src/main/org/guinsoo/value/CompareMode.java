@@ -165,6 +165,27 @@ public class CompareMode implements Comparator<Value> {
         return a.compareTo(b);
     }
 
+    /**
+     * Calculate the 64-bit hash code of a string. Strings that are equal in
+     * this compare mode have the same hash code.
+     *
+     * @param s the string
+     * @param ignoreCase true if a case-insensitive comparison should be made
+     * @return the hash code
+     */
+    public long getStringHash64(String s, boolean ignoreCase) {
+        // FNV-1a
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, l = s.length(); i < l; i++) {
+            char c = s.charAt(i);
+            if (ignoreCase) {
+                c = Character.toLowerCase(Character.toUpperCase(c));
+            }
+            h = (h ^ c) * 0x100000001b3L;
+        }
+        return h;
+    }
+
     /**
      * Get the collation name.
      *
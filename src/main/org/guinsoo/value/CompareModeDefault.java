@@ -11,6 +11,7 @@ import java.text.Collator;
 import org.guinsoo.engine.SysProperties;
 import org.guinsoo.message.DbException;
 import org.guinsoo.util.SmallLRUCache;
+import org.guinsoo.util.Utils;
 
 /**
  * The default implementation of CompareMode. It uses java.text.Collator.
@@ -57,6 +58,19 @@ public class CompareModeDefault extends CompareMode {
         return comp;
     }
 
+    @Override
+    public long getStringHash64(String s, boolean ignoreCase) {
+        if (ignoreCase && getStrength() > Collator.SECONDARY) {
+            CompareModeDefault i = caseInsensitive;
+            if (i == null) {
+                caseInsensitive = i = new CompareModeDefault(getName(), Collator.SECONDARY);
+            }
+            return i.getStringHash64(s, false);
+        }
+        CollationKey key = collationKeys != null ? getKey(s) : collator.getCollationKey(s);
+        return Utils.getByteArrayHash64(key.toByteArray());
+    }
+
     @Override
     public boolean equalsChars(String a, int ai, String b, int bi,
             boolean ignoreCase) {
@@ -13,6 +13,7 @@ import java.util.Locale;
 import org.guinsoo.message.DbException;
 import org.guinsoo.util.JdbcUtils;
 import org.guinsoo.util.StringUtils;
+import org.guinsoo.util.Utils;
 
 /**
  * An implementation of CompareMode that uses the ICU4J Collator.
@@ -40,6 +41,23 @@ public class CompareModeIcu4J extends CompareMode {
         return collator.compare(a, b);
     }
 
+    @Override
+    public long getStringHash64(String s, boolean ignoreCase) {
+        if (ignoreCase && getStrength() > Collator.SECONDARY) {
+            CompareModeIcu4J i = caseInsensitive;
+            if (i == null) {
+                caseInsensitive = i = new CompareModeIcu4J(getName(), Collator.SECONDARY);
+            }
+            return i.getStringHash64(s, false);
+        }
+        try {
+            Object key = Utils.callMethod(collator, "getCollationKey", s);
+            return Utils.getByteArrayHash64((byte[]) Utils.callMethod(key, "toByteArray"));
+        } catch (Exception e) {
+            throw DbException.convert(e);
+        }
+    }
+
     @Override
     public boolean equalsChars(String a, int ai, String b, int bi,
             boolean ignoreCase) {
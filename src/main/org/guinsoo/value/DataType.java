@@ -548,6 +548,35 @@ public class DataType {
         return result;
     }
 
+    /**
+     * Check whether equality of values of the specified type is consistent
+     * with their hash codes.
+     *
+     * @param type the data type
+     * @param compareMode the compare mode of the database
+     * @return whether the type can be used as a key of a hash table
+     */
+    public static boolean isHashable(TypeInfo type, CompareMode compareMode) {
+        switch (type.getValueType()) {
+        case Value.BOOLEAN:
+        case Value.TINYINT:
+        case Value.SMALLINT:
+        case Value.INTEGER:
+        case Value.BIGINT:
+        case Value.DATE:
+        case Value.TIME:
+        case Value.TIMESTAMP:
+        case Value.BINARY:
+        case Value.VARBINARY:
+        case Value.UUID:
+            return true;
+        case Value.VARCHAR:
+            return CompareMode.OFF.equals(compareMode.getName());
+        default:
+            return false;
+        }
+    }
+
     /**
      * Returns whether columns with the specified data type may have an index.
      *
@@ -20,6 +20,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
 
+import org.guinsoo.compress.LZFInputStream;
+import org.guinsoo.compress.LZFOutputStream;
 import org.guinsoo.engine.Constants;
 import org.guinsoo.engine.Session;
 import org.guinsoo.message.DbException;
@@ -170,6 +172,17 @@ public final class Transfer {
         }
     }
 
+    /**
+     * Compress all data sent and received from now on. Both sides of the
+     * connection must switch to compression at the same point of the
+     * protocol. Pending changes are written before the switch.
+     */
+    public synchronized void setCompressed() throws IOException {
+        out = new DataOutputStream(new LZFOutputStream(out));
+        out.flush();
+        in = new DataInputStream(new LZFInputStream(in));
+    }
+
     /**
      * Write pending changes.
      */
@@ -177,6 +190,15 @@ public final class Transfer {
         out.flush();
     }
 
+    /**
+     * Returns the number of bytes that can be read without blocking.
+     *
+     * @return the number of available bytes
+     */
+    public int available() throws IOException {
+        return in.available();
+    }
+
     /**
      * Write a boolean.
      *
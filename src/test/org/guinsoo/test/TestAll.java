@@ -142,6 +142,7 @@ import org.guinsoo.test.store.TestMVStoreStopCompact;
 import org.guinsoo.test.store.TestMVStoreTool;
 import org.guinsoo.test.store.TestMVTableEngine;
 import org.guinsoo.test.store.TestObjectDataType;
+import org.guinsoo.test.store.TestQuickStore;
 import org.guinsoo.test.store.TestRandomMapOps;
 import org.guinsoo.test.store.TestSpinLock;
 import org.guinsoo.test.store.TestStreamStore;
@@ -932,6 +933,7 @@ kill -9 `jps -l | grep "org.guinsoo.test." | cut -d " " -f 1`
         addTest(new TestMVStoreStopCompact());
         addTest(new TestMVStoreTool());
         addTest(new TestObjectDataType());
+        addTest(new TestQuickStore());
         addTest(new TestRandomMapOps());
         addTest(new TestSpinLock());
         addTest(new TestStreamStore());
@@ -13,6 +13,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.guinsoo.api.DatabaseEventListener;
+import org.guinsoo.api.ErrorCode;
 import org.guinsoo.store.fs.FileUtils;
 import org.guinsoo.test.TestBase;
 import org.guinsoo.test.TestDb;
@@ -48,6 +49,7 @@ public class TestBackup extends TestDb {
         testBackupRestoreLobStatement();
         testBackupRestoreLob();
         testBackup();
+        testIncrementalBackup();
         deleteDb("backup");
         FileUtils.delete(getBaseDir() + "/backup.zip");
     }
@@ -192,4 +194,49 @@ public class TestBackup extends TestDb {
         deleteDb("restored");
     }
 
+    private void testIncrementalBackup() throws SQLException {
+        if (!config.mvStore || config.cipher != null) {
+            return;
+        }
+        deleteDb("backup");
+        deleteDb("restored");
+        String dir = getBaseDir();
+        Connection conn = getConnection("backup");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, name varchar)");
+        stat.execute("insert into test select x, space(100) from system_range(1, 10000)");
+        stat.execute("backup to '" + dir + "/backup.zip'");
+        long version = getBackupVersion(stat);
+        stat.execute("update test set name = 'Hello' where id <= 10");
+        stat.execute("insert into test values (20000, 'new')");
+        stat.execute("backup to '" + dir + "/backup1.inc' incremental since " + version);
+        long version1 = getBackupVersion(stat);
+        assertTrue(FileUtils.size(dir + "/backup1.inc") < FileUtils.size(dir + "/backup.mv.db") / 2);
+        stat.execute("delete from test where id between 100 and 199");
+        stat.execute("create index idx_name on test(name)");
+        stat.execute("backup to '" + dir + "/backup2.inc' incremental since " + version1);
+        Restore.execute(dir + "/backup.zip", dir, "restored");
+        Restore.executeIncremental(dir, "restored", dir + "/backup1.inc", dir + "/backup2.inc");
+        Connection conn2 = getConnection("restored");
+        assertEqualDatabases(stat, conn2.createStatement());
+        conn2.close();
+        deleteDb("restored");
+        Restore.execute(dir + "/backup.zip", dir, "restored");
+        assertThrows(ErrorCode.GENERAL_ERROR_1, () -> {
+            Restore.executeIncremental(dir, "restored", dir + "/backup2.inc");
+            return null;
+        });
+        conn.close();
+        deleteDb("restored");
+        FileUtils.delete(dir + "/backup1.inc");
+        FileUtils.delete(dir + "/backup2.inc");
+    }
+
+    private static long getBackupVersion(Statement stat) throws SQLException {
+        ResultSet rs = stat.executeQuery("select setting_value from information_schema.settings "
+                + "where setting_name = 'info.BACKUP_VERSION'");
+        rs.next();
+        return rs.getLong(1);
+    }
+
 }
@@ -53,6 +53,7 @@ public class TestBigResult extends TestDb {
         testLargeUpdateDelete();
         testCloseConnectionDelete();
         testOrderGroup();
+        testGroupSpill();
         testLimitBufferedResult();
         deleteDb("bigResult");
     }
@@ -424,6 +425,43 @@ public class TestBigResult extends TestDb {
         conn.close();
     }
 
+    private void testGroupSpill() throws SQLException {
+        deleteDb("bigResult");
+        Connection conn = getConnection("bigResult");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, G INT, NAME VARCHAR) AS "
+                + "SELECT X, MOD(X * 7, 500), 'Name ' || X FROM SYSTEM_RANGE(1, 5000)");
+        stat.execute("CREATE TABLE T2(G INT PRIMARY KEY, V INT) AS SELECT X, X * 2 FROM SYSTEM_RANGE(0, 499)");
+        String[] queries = {
+                "SELECT G, COUNT(*), SUM(ID), MAX(NAME), LISTAGG(ID, ',') WITHIN GROUP (ORDER BY ID DESC) "
+                        + "FROM TEST GROUP BY G ORDER BY G",
+                "SELECT T.G, SUM(T.ID + T2.V), ARRAY_AGG(T.ID) FROM TEST T JOIN T2 ON T.G = T2.G "
+                        + "WHERE T.ID > 100 GROUP BY T.G HAVING COUNT(*) > 9 ORDER BY 1",
+                "SELECT MOD(ID, 333) K, COUNT(DISTINCT G) FROM TEST GROUP BY K ORDER BY K OFFSET 20 ROWS",
+        };
+        ArrayList<String> expected = new ArrayList<>();
+        for (String query : queries) {
+            expected.add(getResult(stat.executeQuery(query)));
+        }
+        // groups that don't fit into memory are spilled to a temporary file
+        stat.execute("SET MAX_MEMORY_ROWS 10");
+        for (int i = 0; i < queries.length; i++) {
+            assertEquals(queries[i], expected.get(i), getResult(stat.executeQuery(queries[i])));
+        }
+        conn.close();
+    }
+
+    private static String getResult(ResultSet rs) throws SQLException {
+        StringBuilder builder = new StringBuilder();
+        for (int columnCount = rs.getMetaData().getColumnCount(); rs.next();) {
+            for (int i = 1; i <= columnCount; i++) {
+                builder.append(rs.getString(i)).append(';');
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
     private void testOrderGroup() throws SQLException {
         deleteDb("bigResult");
         Connection conn = getConnection("bigResult");
@@ -33,6 +33,8 @@ public class TestQueryCache extends TestDb {
         deleteDb("queryCache");
         test1();
         testClearingCacheWithTableStructureChanges();
+        testSharedPlanCache();
+        testSharedPlanCacheWithStatistics();
         deleteDb("queryCache");
     }
 
@@ -107,4 +109,97 @@ public class TestQueryCache extends TestDb {
                     prepareStatement("SELECT * FROM TEST");
         }
     }
+
+    private void testSharedPlanCache() throws Exception {
+        deleteDb("queryCache");
+        try (Connection conn = getConnection("queryCache");
+                Connection conn2 = getConnection("queryCache")) {
+            Statement stat = conn.createStatement();
+            Statement stat2 = conn2.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR)");
+            for (int i = 1; i <= 3; i++) {
+                stat.execute("INSERT INTO TEST VALUES (" + i + ", 'n" + i + "')");
+            }
+            long hits = getPlanCacheHits(stat);
+            ResultSet rs = stat.executeQuery("SELECT NAME FROM TEST WHERE ID = 1");
+            assertTrue(rs.next());
+            assertEquals("n1", rs.getString(1));
+            // the same plan with different literals in another session
+            rs = stat2.executeQuery("SELECT NAME FROM TEST WHERE ID = 2");
+            assertTrue(rs.next());
+            assertEquals("n2", rs.getString(1));
+            rs = stat2.executeQuery("SELECT NAME FROM TEST WHERE ID = 4");
+            assertFalse(rs.next());
+            assertTrue(getPlanCacheHits(stat) >= hits + 2);
+            assertEquals(1, stat2.executeUpdate("UPDATE TEST SET NAME = 'x' WHERE ID = 3"));
+            assertEquals(1, stat.executeUpdate("UPDATE TEST SET NAME = 'y' WHERE ID = 2"));
+            rs = stat.executeQuery("SELECT NAME FROM TEST WHERE ID = 3");
+            assertTrue(rs.next());
+            assertEquals("x", rs.getString(1));
+            // equal literals may be merged by the optimizer
+            rs = stat.executeQuery("SELECT COUNT(*) FROM TEST WHERE (ID = 1 AND NAME = 'n1') OR (ID = 1 AND NAME = 'x')");
+            rs.next();
+            assertEquals(1, rs.getInt(1));
+            rs = stat.executeQuery("SELECT COUNT(*) FROM TEST WHERE (ID = 1 AND NAME = 'n1') OR (ID = 3 AND NAME = 'x')");
+            rs.next();
+            assertEquals(2, rs.getInt(1));
+            rs = stat2.executeQuery("SELECT ID FROM TEST ORDER BY ID OFFSET 1 ROW FETCH FIRST 1 ROW ONLY");
+            rs.next();
+            assertEquals(2, rs.getInt(1));
+            rs = stat2.executeQuery("SELECT ID FROM TEST ORDER BY ID OFFSET 2 ROWS FETCH FIRST 1 ROW ONLY");
+            rs.next();
+            assertEquals(3, rs.getInt(1));
+            // plans are invalidated by changes of meta data
+            stat.execute("ALTER TABLE TEST ADD COLUMN V INT DEFAULT 5");
+            rs = stat2.executeQuery("SELECT * FROM TEST WHERE ID = 1");
+            assertTrue(rs.next());
+            assertEquals(3, rs.getMetaData().getColumnCount());
+            assertEquals(5, rs.getInt(3));
+            assertThrows(ErrorCode.DATA_CONVERSION_ERROR_1, stat2).executeQuery("SELECT * FROM TEST WHERE ID = 'a'");
+            stat.execute("DROP TABLE TEST");
+        }
+        deleteDb("queryCache");
+    }
+
+    private void testSharedPlanCacheWithStatistics() throws Exception {
+        deleteDb("queryCache");
+        try (Connection conn = getConnection("queryCache")) {
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V INT, N INT)");
+            // V = 0 in 990 rows, V from 1010 down to 1001 in other rows
+            stat.execute("INSERT INTO TEST SELECT X, CASE WHEN X <= 990 THEN 0 ELSE 2001 - X END, X"
+                    + " FROM SYSTEM_RANGE(1, 1000)");
+            stat.execute("CREATE INDEX TEST_V ON TEST(V)");
+            stat.execute("ANALYZE");
+            // the index returns rows ordered by V, the table scan by ID
+            assertEquals(991, getLastId(stat, "SELECT ID, N FROM TEST WHERE V >= 1001"));
+            long hits = getPlanCacheHits(stat);
+            assertEquals(1000, getLastId(stat, "SELECT ID, N FROM TEST WHERE V >= 0"));
+            assertEquals(hits, getPlanCacheHits(stat));
+            assertEquals(991, getLastId(stat, "SELECT ID, N FROM TEST WHERE V >= 1001"));
+            assertEquals(hits + 1, getPlanCacheHits(stat));
+            // plans are chosen again with new statistics
+            stat.execute("UPDATE TEST SET V = 1001 WHERE V = 0");
+            stat.execute("ANALYZE");
+            assertEquals(1000, getLastId(stat, "SELECT ID, N FROM TEST WHERE V >= 1001"));
+            stat.execute("DROP TABLE TEST");
+        }
+        deleteDb("queryCache");
+    }
+
+    private static int getLastId(Statement stat, String sql) throws Exception {
+        ResultSet rs = stat.executeQuery(sql);
+        int id = -1;
+        while (rs.next()) {
+            id = rs.getInt(1);
+        }
+        return id;
+    }
+
+    private static long getPlanCacheHits(Statement stat) throws Exception {
+        ResultSet rs = stat.executeQuery(
+                "SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = 'info.PLAN_CACHE_HITS'");
+        rs.next();
+        return rs.getLong(1);
+    }
 }
@@ -17,6 +17,7 @@ import java.sql.Statement;
 import org.guinsoo.api.ErrorCode;
 import org.guinsoo.test.TestBase;
 import org.guinsoo.test.TestDb;
+import org.guinsoo.Server;
 
 /**
  * Test for batch updates.
@@ -66,6 +67,7 @@ public class TestBatchUpdates extends TestDb {
         testExecuteCall();
         testException();
         testCoffee();
+        testRemoteBatch();
         deleteDb("batchUpdates");
     }
 
@@ -157,6 +159,53 @@ public class TestBatchUpdates extends TestDb {
         conn.close();
     }
 
+    private void testRemoteBatch() throws SQLException {
+        Server server = Server.createTcpServer("-ifNotExists").start();
+        try {
+            conn = getConnection("jdbc:guinsoo:tcp://localhost:" + server.getPort() + "/mem:batchUpdates", "sa", "");
+            stat = conn.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, V INT UNIQUE)");
+            prep = conn.prepareStatement("INSERT INTO TEST(V) VALUES(?)", Statement.RETURN_GENERATED_KEYS);
+            for (int i = 0; i < 1000; i++) {
+                prep.setInt(1, i == 500 ? 0 : i);
+                prep.addBatch();
+            }
+            try {
+                prep.executeBatch();
+                fail();
+            } catch (BatchUpdateException e) {
+                int[] updateCounts = e.getUpdateCounts();
+                assertEquals(1000, updateCounts.length);
+                assertEquals(Statement.EXECUTE_FAILED, updateCounts[500]);
+                assertEquals(1, updateCounts[501]);
+                assertEquals(ErrorCode.DUPLICATE_KEY_1, e.getNextException().getErrorCode());
+                assertNull(e.getNextException().getNextException());
+            }
+            ResultSet rs = prep.getGeneratedKeys();
+            int count = 0;
+            while (rs.next()) {
+                count++;
+            }
+            assertEquals(999, count);
+            rs = stat.executeQuery("SELECT COUNT(*), SUM(V) FROM TEST");
+            rs.next();
+            assertEquals(999, rs.getInt(1));
+            assertEquals(999 * 1000 / 2 - 500, rs.getInt(2));
+            prep = conn.prepareStatement("UPDATE TEST SET V = -V WHERE V BETWEEN 1 AND ?");
+            prep.setInt(1, 10);
+            prep.addBatch();
+            prep.setInt(1, 0);
+            prep.addBatch();
+            long[] largeCounts = prep.executeLargeBatch();
+            assertEquals(10, largeCounts[0]);
+            assertEquals(0, largeCounts[1]);
+            assertEquals(0, prep.executeBatch().length);
+            conn.close();
+        } finally {
+            server.stop();
+        }
+    }
+
     private void testCoffee() throws SQLException {
         deleteDb("batchUpdates");
         conn = getConnection("batchUpdates");
@@ -92,6 +92,7 @@ public class TestResultSet extends TestDb {
         testColumnLabelColumnName();
         testAbsolute();
         testFetchSize();
+        testLargeRemoteResult();
         testOwnUpdates();
         testUpdatePrimaryKey();
         testFindColumn();
@@ -433,6 +434,40 @@ public class TestResultSet extends TestDb {
         assertEquals(a + 1, b);
     }
 
+    private void testLargeRemoteResult() throws SQLException {
+        if (!config.networked || config.memory) {
+            return;
+        }
+        Connection conn2 = getConnection("resultSet;NETWORK_COMPRESSION=TRUE");
+        Statement stat2 = conn2.createStatement();
+        stat2.execute("CREATE TABLE TEST_LARGE(ID INT PRIMARY KEY, V VARCHAR) "
+                + "AS SELECT X, REPEAT('x', MOD(X, 100)) FROM SYSTEM_RANGE(1, 20000)");
+        ResultSet rs = stat2.executeQuery("SELECT * FROM TEST_LARGE ORDER BY ID");
+        Statement stat3 = conn2.createStatement();
+        stat3.setFetchSize(7);
+        ResultSet rs2 = stat3.executeQuery("SELECT ID FROM TEST_LARGE ORDER BY ID DESC");
+        PreparedStatement prep = conn2.prepareStatement("SELECT V FROM TEST_LARGE WHERE ID = ?");
+        for (int i = 1; i <= 20000; i++) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+            assertEquals(i % 100, rs.getString(2).length());
+            if (i % 3 == 0) {
+                assertTrue(rs2.next());
+                assertEquals(20001 - i / 3, rs2.getInt(1));
+            }
+            if (i % 1000 == 0) {
+                prep.setInt(1, i / 2);
+                ResultSet rs3 = prep.executeQuery();
+                assertTrue(rs3.next());
+                assertEquals(i / 2 % 100, rs3.getString(1).length());
+            }
+        }
+        assertFalse(rs.next());
+        rs2.close();
+        stat2.execute("DROP TABLE TEST_LARGE");
+        conn2.close();
+    }
+
     private void testOwnUpdates() throws SQLException {
         DatabaseMetaData meta = conn.getMetaData();
         for (int i = 0; i < 3; i++) {
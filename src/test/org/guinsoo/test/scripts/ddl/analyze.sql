@@ -65,3 +65,56 @@ SELECT SELECTIVITY FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'TEST' AND
 
 DROP TABLE TEST;
 > ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, A INT, B INT, V VARCHAR) AS
+    SELECT X, CASE WHEN X <= 9900 THEN 1 ELSE X END, MOD(X, 1000), 'V' || X FROM SYSTEM_RANGE(1, 10000);
+> ok
+
+CREATE INDEX TEST_A_IDX ON TEST(A);
+> ok
+
+CREATE INDEX TEST_B_IDX ON TEST(B);
+> ok
+
+ANALYZE TABLE TEST;
+> ok
+
+EXPLAIN SELECT * FROM TEST WHERE A = 1;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."V" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE "A" = 1
+
+EXPLAIN SELECT * FROM TEST WHERE A = 9950;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."V" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_A_IDX: A = 9950 */ WHERE "A" = 9950
+
+EXPLAIN SELECT * FROM TEST WHERE A = 1 AND B = 5;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."V" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_B_IDX: B = 5 */ WHERE ("A" = 1) AND ("B" = 5)
+
+EXPLAIN SELECT * FROM TEST WHERE A IN (9950, 9960) AND B = 5;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."V" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_A_IDX: A IN(9950, 9960) */ WHERE ("A" IN(9950, 9960)) AND ("B" = 5)
+
+EXPLAIN SELECT * FROM TEST WHERE A BETWEEN 9950 AND 9960 AND B < 500;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."V" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_A_IDX: A >= 9950 AND A <= 9960 */ WHERE ("A" BETWEEN 9950 AND 9960) AND ("B" < 500)
+
+EXPLAIN SELECT * FROM TEST WHERE A < 100 AND B BETWEEN 1 AND 3;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."V" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_B_IDX: B >= 1 AND B <= 3 */ WHERE ("A" < 100) AND ("B" BETWEEN 1 AND 3)
+
+ALTER TABLE TEST ALTER COLUMN A SET DATA TYPE BIGINT;
+> ok
+
+EXPLAIN SELECT * FROM TEST WHERE A = 1;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."V" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE "A" = CAST(1 AS BIGINT)
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(V VARCHAR_IGNORECASE) AS SELECT CASE MOD(X, 3) WHEN 0 THEN 'x' ELSE 'X' END || MOD(X, 5)
+    FROM SYSTEM_RANGE(1, 1000);
+> ok
+
+ANALYZE TABLE TEST;
+> ok
+
+SELECT SELECTIVITY FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'TEST' AND COLUMN_NAME = 'V';
+>> 1
+
+DROP TABLE TEST;
+> ok
@@ -336,7 +336,7 @@ EXPLAIN SELECT * FROM TEST WHERE A = 0 AND B >= 0;
 >> SELECT "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."C" FROM "PUBLIC"."TEST" /* PUBLIC.T_A_B: A = 0 AND B >= 0 */ WHERE ("A" = 0) AND ("B" >= 0)
 
 EXPLAIN SELECT * FROM TEST WHERE A > 0 AND B >= 0;
->> SELECT "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."C" FROM "PUBLIC"."TEST" /* PUBLIC.T_A_B: A > 0 AND B >= 0 */ WHERE ("A" > 0) AND ("B" >= 0)
+>> SELECT "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."C" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE ("A" > 0) AND ("B" >= 0)
 
 -- Test that creation order of indexes has no effect
 CREATE INDEX T_A2 ON TEST(A);
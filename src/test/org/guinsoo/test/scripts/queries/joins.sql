@@ -40,10 +40,10 @@ create table test(a int, b int) as select x, x from system_range(1, 100);
 
 -- the table t1 should be processed first
 explain select * from test t2, test t1 where t1.a=1 and t1.b = t2.b;
->> SELECT "T2"."A", "T2"."B", "T1"."A", "T1"."B" FROM "PUBLIC"."TEST" "T1" /* PUBLIC.TEST.tableScan */ /* WHERE T1.A = 1 */ INNER JOIN "PUBLIC"."TEST" "T2" /* PUBLIC.TEST.tableScan */ ON 1=1 WHERE ("T1"."A" = 1) AND ("T1"."B" = "T2"."B")
+>> SELECT "T2"."A", "T2"."B", "T1"."A", "T1"."B" FROM "PUBLIC"."TEST" "T1" /* PUBLIC.TEST.tableScan */ /* WHERE T1.A = 1 */ INNER JOIN "PUBLIC"."TEST" "T2" /* PUBLIC.TEST.hashJoin: B = T1.B */ ON 1=1 WHERE ("T1"."A" = 1) AND ("T1"."B" = "T2"."B")
 
 explain select * from test t1, test t2 where t1.a=1 and t1.b = t2.b;
->> SELECT "T1"."A", "T1"."B", "T2"."A", "T2"."B" FROM "PUBLIC"."TEST" "T1" /* PUBLIC.TEST.tableScan */ /* WHERE T1.A = 1 */ INNER JOIN "PUBLIC"."TEST" "T2" /* PUBLIC.TEST.tableScan */ ON 1=1 WHERE ("T1"."A" = 1) AND ("T1"."B" = "T2"."B")
+>> SELECT "T1"."A", "T1"."B", "T2"."A", "T2"."B" FROM "PUBLIC"."TEST" "T1" /* PUBLIC.TEST.tableScan */ /* WHERE T1.A = 1 */ INNER JOIN "PUBLIC"."TEST" "T2" /* PUBLIC.TEST.hashJoin: B = T1.B */ ON 1=1 WHERE ("T1"."A" = 1) AND ("T1"."B" = "T2"."B")
 
 drop table test;
 > ok
@@ -570,7 +570,7 @@ select * from t1 natural join t2;
 > rows: 0
 
 explain select * from t1 natural join t2;
->> SELECT "PUBLIC"."T1"."ID", "PUBLIC"."T1"."NAME" FROM "PUBLIC"."T1" /* PUBLIC.T1.tableScan */ INNER JOIN "PUBLIC"."T2" /* PUBLIC.T2.tableScan */ ON 1=1 WHERE ("PUBLIC"."T1"."ID" = "PUBLIC"."T2"."ID") AND ("PUBLIC"."T1"."NAME" = "PUBLIC"."T2"."NAME")
+>> SELECT "PUBLIC"."T1"."ID", "PUBLIC"."T1"."NAME" FROM "PUBLIC"."T1" /* PUBLIC.T1.tableScan */ INNER JOIN "PUBLIC"."T2" /* PUBLIC.T2.hashJoin: ID = PUBLIC.T1.ID AND NAME = PUBLIC.T1.NAME */ ON 1=1 WHERE ("PUBLIC"."T1"."ID" = "PUBLIC"."T2"."ID") AND ("PUBLIC"."T1"."NAME" = "PUBLIC"."T2"."NAME")
 
 drop table t1;
 > ok
@@ -604,7 +604,7 @@ select * from customer c natural join invoice i natural join INVOICE_LINE l;
 > rows: 2
 
 explain select * from customer c natural join invoice i natural join INVOICE_LINE l;
->> SELECT "C"."CUSTOMERID", "C"."CUSTOMER_NAME", "I"."INVOICEID", "I"."INVOICE_TEXT", "L"."LINE_ID", "L"."LINE_TEXT" FROM "PUBLIC"."INVOICE" "I" /* PUBLIC.INVOICE.tableScan */ INNER JOIN "PUBLIC"."INVOICE_LINE" "L" /* PUBLIC.INVOICE_LINE.tableScan */ ON 1=1 /* WHERE (I.CUSTOMERID = L.CUSTOMERID) AND (I.INVOICEID = L.INVOICEID) */ INNER JOIN "PUBLIC"."CUSTOMER" "C" /* PUBLIC.CUSTOMER.tableScan */ ON 1=1 WHERE ("C"."CUSTOMERID" = "I"."CUSTOMERID") AND ("I"."CUSTOMERID" = "L"."CUSTOMERID") AND ("I"."INVOICEID" = "L"."INVOICEID")
+>> SELECT "C"."CUSTOMERID", "C"."CUSTOMER_NAME", "I"."INVOICEID", "I"."INVOICE_TEXT", "L"."LINE_ID", "L"."LINE_TEXT" FROM "PUBLIC"."INVOICE" "I" /* PUBLIC.INVOICE.tableScan */ INNER JOIN "PUBLIC"."CUSTOMER" "C" /* PUBLIC.CUSTOMER.hashJoin: CUSTOMERID = I.CUSTOMERID */ ON 1=1 /* WHERE C.CUSTOMERID = I.CUSTOMERID */ INNER JOIN "PUBLIC"."INVOICE_LINE" "L" /* PUBLIC.INVOICE_LINE.hashJoin: CUSTOMERID = I.CUSTOMERID AND INVOICEID = I.INVOICEID */ ON 1=1 WHERE ("C"."CUSTOMERID" = "I"."CUSTOMERID") AND ("I"."CUSTOMERID" = "L"."CUSTOMERID") AND ("I"."INVOICEID" = "L"."INVOICEID")
 
 select c.*, i.*, l.* from customer c natural join invoice i natural join INVOICE_LINE l;
 > CUSTOMERID CUSTOMER_NAME CUSTOMERID INVOICEID INVOICE_TEXT LINE_ID INVOICEID CUSTOMERID LINE_TEXT
@@ -614,7 +614,7 @@ select c.*, i.*, l.* from customer c natural join invoice i natural join INVOICE
 > rows: 2
 
 explain select c.*, i.*, l.* from customer c natural join invoice i natural join INVOICE_LINE l;
->> SELECT "C"."CUSTOMERID", "C"."CUSTOMER_NAME", "I"."CUSTOMERID", "I"."INVOICEID", "I"."INVOICE_TEXT", "L"."LINE_ID", "L"."INVOICEID", "L"."CUSTOMERID", "L"."LINE_TEXT" FROM "PUBLIC"."INVOICE" "I" /* PUBLIC.INVOICE.tableScan */ INNER JOIN "PUBLIC"."INVOICE_LINE" "L" /* PUBLIC.INVOICE_LINE.tableScan */ ON 1=1 /* WHERE (I.CUSTOMERID = L.CUSTOMERID) AND (I.INVOICEID = L.INVOICEID) */ INNER JOIN "PUBLIC"."CUSTOMER" "C" /* PUBLIC.CUSTOMER.tableScan */ ON 1=1 WHERE ("C"."CUSTOMERID" = "I"."CUSTOMERID") AND ("I"."CUSTOMERID" = "L"."CUSTOMERID") AND ("I"."INVOICEID" = "L"."INVOICEID")
+>> SELECT "C"."CUSTOMERID", "C"."CUSTOMER_NAME", "I"."CUSTOMERID", "I"."INVOICEID", "I"."INVOICE_TEXT", "L"."LINE_ID", "L"."INVOICEID", "L"."CUSTOMERID", "L"."LINE_TEXT" FROM "PUBLIC"."INVOICE" "I" /* PUBLIC.INVOICE.tableScan */ INNER JOIN "PUBLIC"."CUSTOMER" "C" /* PUBLIC.CUSTOMER.hashJoin: CUSTOMERID = I.CUSTOMERID */ ON 1=1 /* WHERE C.CUSTOMERID = I.CUSTOMERID */ INNER JOIN "PUBLIC"."INVOICE_LINE" "L" /* PUBLIC.INVOICE_LINE.hashJoin: CUSTOMERID = I.CUSTOMERID AND INVOICEID = I.INVOICEID */ ON 1=1 WHERE ("C"."CUSTOMERID" = "I"."CUSTOMERID") AND ("I"."CUSTOMERID" = "L"."CUSTOMERID") AND ("I"."INVOICEID" = "L"."INVOICEID")
 
 drop table customer;
 > ok
@@ -1005,3 +1005,120 @@ DROP SCHEMA S1 CASCADE;
 
 DROP SCHEMA S2 CASCADE;
 > ok
+
+CREATE TABLE T1(ID INT, K INT) AS SELECT X, MOD(X, 10) FROM SYSTEM_RANGE(1, 100);
+> ok
+
+CREATE TABLE T2(ID INT, K INT) AS SELECT X, MOD(X, 5) FROM SYSTEM_RANGE(1, 50);
+> ok
+
+EXPLAIN SELECT COUNT(*) FROM T1 JOIN T2 ON T1.K = T2.K;
+>> SELECT COUNT(*) FROM "PUBLIC"."T2" /* PUBLIC.T2.tableScan */ INNER JOIN "PUBLIC"."T1" /* PUBLIC.T1.hashJoin: K = T2.K */ ON 1=1 WHERE "T1"."K" = "T2"."K"
+
+SELECT COUNT(*), SUM(T1.ID + T2.ID) FROM T1 JOIN T2 ON T1.K = T2.K;
+> COUNT(*) SUM(T1.ID + T2.ID)
+> -------- ------------------
+> 500      37250
+> rows: 1
+
+SET MAX_MEMORY_ROWS 10;
+> ok
+
+SELECT COUNT(*), SUM(T1.ID + T2.ID) FROM T1 JOIN T2 ON T1.K = T2.K;
+> COUNT(*) SUM(T1.ID + T2.ID)
+> -------- ------------------
+> 500      37250
+> rows: 1
+
+SET MAX_MEMORY_ROWS 40000;
+> ok
+
+CREATE TABLE T3(ID INT, K INT, V INT) AS SELECT X, MOD(X, 10), X FROM SYSTEM_RANGE(1, 1000);
+> ok
+
+CREATE INDEX T3_V ON T3(V);
+> ok
+
+-- the condition on T3.V is applied while the hash table is built
+EXPLAIN SELECT COUNT(*) FROM T1 JOIN T3 ON T1.K = T3.K WHERE T3.V < 500;
+>> SELECT COUNT(*) FROM "PUBLIC"."T1" /* PUBLIC.T1.tableScan */ INNER JOIN "PUBLIC"."T3" /* PUBLIC.T3.hashJoin: K = T1.K */ ON 1=1 WHERE ("T3"."V" < 500) AND ("T1"."K" = "T3"."K")
+
+SELECT COUNT(*) FROM T1 JOIN T3 ON T1.K = T3.K WHERE T3.V < 500;
+>> 4990
+
+SELECT COUNT(*), SUM(T3.ID) FROM T1 JOIN T3 ON T1.K = T3.K WHERE T3.ID IN (1, 2, 900, NULL) AND T3.V >= 2;
+> COUNT(*) SUM(T3.ID)
+> -------- ----------
+> 20       9020
+> rows: 1
+
+DROP TABLE T1, T2, T3;
+> ok
+
+CREATE TABLE C1(ID INT NOT NULL, N INT, V INT) AS SELECT X, MOD(X * 7, 100), MOD(X, 10) FROM SYSTEM_RANGE(0, 99);
+> ok
+
+CREATE UNIQUE INDEX C1_ID ON C1(ID);
+> ok
+
+CREATE TABLE C2(ID INT NOT NULL, N INT, V INT) AS SELECT X, MOD(X * 7, 100), MOD(X, 10) FROM SYSTEM_RANGE(0, 99);
+> ok
+
+CREATE UNIQUE INDEX C2_ID ON C2(ID);
+> ok
+
+CREATE TABLE C3(ID INT NOT NULL, N INT, V INT) AS SELECT X, MOD(X * 7, 100), MOD(X, 10) FROM SYSTEM_RANGE(0, 99);
+> ok
+
+CREATE UNIQUE INDEX C3_ID ON C3(ID);
+> ok
+
+CREATE TABLE C4(ID INT NOT NULL, N INT, V INT) AS SELECT X, MOD(X * 7, 100), MOD(X, 10) FROM SYSTEM_RANGE(0, 99);
+> ok
+
+CREATE UNIQUE INDEX C4_ID ON C4(ID);
+> ok
+
+CREATE TABLE C5(ID INT NOT NULL, N INT, V INT) AS SELECT X, MOD(X * 7, 100), MOD(X, 10) FROM SYSTEM_RANGE(0, 99);
+> ok
+
+CREATE UNIQUE INDEX C5_ID ON C5(ID);
+> ok
+
+CREATE TABLE C6(ID INT NOT NULL, N INT, V INT) AS SELECT X, MOD(X * 7, 100), MOD(X, 10) FROM SYSTEM_RANGE(0, 99);
+> ok
+
+CREATE UNIQUE INDEX C6_ID ON C6(ID);
+> ok
+
+CREATE TABLE C7(ID INT NOT NULL, N INT, V INT) AS SELECT X, MOD(X * 7, 100), MOD(X, 10) FROM SYSTEM_RANGE(0, 99);
+> ok
+
+CREATE UNIQUE INDEX C7_ID ON C7(ID);
+> ok
+
+CREATE TABLE C8(ID INT NOT NULL, N INT, V INT) AS SELECT X, MOD(X * 7, 100), MOD(X, 10) FROM SYSTEM_RANGE(0, 99);
+> ok
+
+CREATE UNIQUE INDEX C8_ID ON C8(ID);
+> ok
+
+CREATE TABLE C9(ID INT NOT NULL, N INT, V INT) AS SELECT X, MOD(X * 7, 100), MOD(X, 10) FROM SYSTEM_RANGE(0, 99);
+> ok
+
+CREATE UNIQUE INDEX C9_ID ON C9(ID);
+> ok
+
+EXPLAIN SELECT COUNT(*), SUM(C9.ID) FROM C1, C2, C3, C4, C5, C6, C7, C8, C9 WHERE C1.N = C2.ID AND C2.N = C3.ID
+    AND C3.N = C4.ID AND C4.N = C5.ID AND C5.N = C6.ID AND C6.N = C7.ID AND C7.N = C8.ID AND C8.N = C9.ID AND C5.V = 3;
+>> SELECT COUNT(*), SUM("C9"."ID") FROM "PUBLIC"."C1" /* PUBLIC.C1.tableScan */ INNER JOIN "PUBLIC"."C2" /* PUBLIC.C2_ID: ID = C1.N */ ON 1=1 /* WHERE C1.N = C2.ID */ INNER JOIN "PUBLIC"."C3" /* PUBLIC.C3_ID: ID = C2.N */ ON 1=1 /* WHERE C2.N = C3.ID */ INNER JOIN "PUBLIC"."C4" /* PUBLIC.C4_ID: ID = C3.N */ ON 1=1 /* WHERE C3.N = C4.ID */ INNER JOIN "PUBLIC"."C5" /* PUBLIC.C5_ID: ID = C4.N */ ON 1=1 /* WHERE (C5.V = 3) AND (C4.N = C5.ID) */ INNER JOIN "PUBLIC"."C6" /* PUBLIC.C6_ID: ID = C5.N */ ON 1=1 /* WHERE C5.N = C6.ID */ INNER JOIN "PUBLIC"."C7" /* PUBLIC.C7_ID: ID = C6.N */ ON 1=1 /* WHERE C6.N = C7.ID */ INNER JOIN "PUBLIC"."C8" /* PUBLIC.C8_ID: ID = C7.N */ ON 1=1 /* WHERE C7.N = C8.ID */ INNER JOIN "PUBLIC"."C9" /* PUBLIC.C9_ID: ID = C8.N */ ON 1=1 WHERE ("C5"."V" = 3) AND ("C3"."N" = "C4"."ID") AND ("C4"."N" = "C5"."ID") AND ("C5"."N" = "C6"."ID") AND ("C6"."N" = "C7"."ID") AND ("C7"."N" = "C8"."ID") AND ("C8"."N" = "C9"."ID") AND ("C1"."N" = "C2"."ID") AND ("C2"."N" = "C3"."ID")
+
+SELECT COUNT(*), SUM(C9.ID) FROM C1, C2, C3, C4, C5, C6, C7, C8, C9 WHERE C1.N = C2.ID AND C2.N = C3.ID
+    AND C3.N = C4.ID AND C4.N = C5.ID AND C5.N = C6.ID AND C6.N = C7.ID AND C7.N = C8.ID AND C8.N = C9.ID AND C5.V = 3;
+> COUNT(*) SUM(C9.ID)
+> -------- ----------
+> 10       480
+> rows: 1
+
+DROP TABLE C1, C2, C3, C4, C5, C6, C7, C8, C9;
+> ok
@@ -1179,3 +1179,168 @@ SELECT X FROM SYSTEM_RANGE(1, 2) ORDER BY X DESC FETCH FIRST 0xFFFFFFFF ROWS ONL
 > 2
 > 1
 > rows (ordered): 2
+
+CREATE TABLE TEST(A INT, B VARCHAR, C INT) AS (VALUES (1, 'a', 1), (2, 'b', 2), (1, 'a', 3), (NULL, NULL, 4),
+    (2, 'c', 5), (NULL, NULL, 6), (3, 'a', 7));
+> ok
+
+SELECT A, B, SUM(C) FROM TEST GROUP BY A, B ORDER BY A, B;
+> A    B    SUM(C)
+> ---- ---- ------
+> null null 10
+> 1    a    4
+> 2    b    2
+> 2    c    5
+> 3    a    7
+> rows (ordered): 5
+
+SELECT A, COUNT(*), SUM(SUM(C)) OVER () FROM TEST GROUP BY A HAVING COUNT(*) > 1 ORDER BY A;
+> A    COUNT(*) SUM(SUM(C)) OVER ()
+> ---- -------- -------------------
+> null 2        21
+> 1    2        21
+> 2    2        21
+> rows (ordered): 3
+
+SELECT CASE WHEN A > 1 THEN CAST(A AS TINYINT) ELSE A END X, COUNT(*) FROM TEST GROUP BY X;
+> X    COUNT(*)
+> ---- --------
+> 1    2
+> 2    2
+> 3    1
+> null 2
+> rows: 4
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(ID BIGINT PRIMARY KEY, A INT, B INT, D DOUBLE, F BOOLEAN) AS SELECT X,
+    CASE WHEN MOD(X, 7) = 0 THEN NULL ELSE MOD(X, 100) END, MOD(X, 13), X / 3.0, MOD(X, 2) = 0
+    FROM SYSTEM_RANGE(1, 5000);
+> ok
+
+SELECT COUNT(*), SUM(A) FROM TEST WHERE A > 50 AND B <> 3;
+> COUNT(*) SUM(A)
+> -------- ------
+> 1940     145480
+> rows: 1
+
+SELECT COUNT(*), SUM(ID) FROM TEST WHERE A + B * 2 >= 70 OR D < 100.0 OR F = TRUE;
+> COUNT(*) SUM(ID)
+> -------- -------
+> 3496     8536638
+> rows: 1
+
+SELECT COUNT(*), SUM(ID) FROM TEST WHERE A IS NOT DISTINCT FROM NULL OR B - 4 BETWEEN -2 AND 0;
+> COUNT(*) SUM(ID)
+> -------- -------
+> 1704     4260795
+> rows: 1
+
+SELECT ID, A, B FROM TEST WHERE A = 99 AND B = 12 AND ID > 2000;
+> ID   A  B
+> ---- -- --
+> 2599 99 12
+> rows: 1
+
+SELECT COUNT(*) FROM TEST WHERE A * 100000000 > 0;
+> exception NUMERIC_VALUE_OUT_OF_RANGE_1
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(ID BIGINT PRIMARY KEY, A INT, B INT, F BOOLEAN) AS SELECT X,
+    CASE WHEN MOD(X, 7) = 0 THEN NULL ELSE MOD(X, 100) END, MOD(X, 13), MOD(X, 5) = 0
+    FROM SYSTEM_RANGE(1, 50000);
+> ok
+
+SET MAX_PARALLELISM 4;
+> ok
+
+SELECT COUNT(*), COUNT(A), SUM(A), MIN(ID), MAX(B), BIT_OR_AGG(B), EVERY(F) FROM TEST WHERE A > 50 OR B = 3;
+> COUNT(*) COUNT(A) SUM(A)  MIN(ID) MAX(B) BIT_OR_AGG(B) EVERY(F)
+> -------- -------- ------- ------- ------ ------------- --------
+> 23230    22681    1617049 3       12     15            FALSE
+> rows: 1
+
+SELECT COUNT(*), SUM(A) FROM TEST WHERE F OR A + B > 100;
+> COUNT(*) SUM(A)
+> -------- ------
+> 11880    587563
+> rows: 1
+
+SELECT SUM(A) + 1, AVG(B), ANY(F) FROM TEST HAVING COUNT(*) > 100;
+> SUM(A) + 1 AVG(B) ANY(F)
+> ---------- ------ ------
+> 2121430    5      TRUE
+> rows: 1
+
+SELECT COUNT(*) FROM TEST WHERE A * 100000000 > 0;
+> exception NUMERIC_VALUE_OUT_OF_RANGE_1
+
+SET MAX_PARALLELISM 0;
+> exception INVALID_VALUE_2
+
+SET MAX_PARALLELISM 1;
+> ok
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, A INT, B INT) AS SELECT X, MOD(X * 7919, 1009), MOD(X, 4)
+    FROM SYSTEM_RANGE(1, 10000);
+> ok
+
+SELECT ID, A FROM TEST ORDER BY A DESC, ID FETCH FIRST 3 ROWS ONLY;
+> ID   A
+> ---- ----
+> 765  1008
+> 1774 1008
+> 2783 1008
+> rows (ordered): 3
+
+SELECT A, COUNT(*) FROM (SELECT A FROM TEST ORDER BY A DESC OFFSET 2 ROWS FETCH FIRST 2 ROWS WITH TIES) GROUP BY A;
+> A    COUNT(*)
+> ---- --------
+> 1008 8
+> rows: 1
+
+SELECT A, B FROM TEST WHERE B = 0 ORDER BY A DESC OFFSET 3 ROWS FETCH NEXT 2 ROWS WITH TIES;
+> A    B
+> ---- -
+> 1007 0
+> 1006 0
+> 1006 0
+> rows (ordered): 3
+
+SELECT ID FROM TEST WHERE ID < 3 UNION ALL SELECT ID FROM TEST WHERE ID > 9997 ORDER BY ID DESC
+    OFFSET 1 ROW FETCH FIRST 2 ROWS ONLY;
+> ID
+> ----
+> 9999
+> 9998
+> rows (ordered): 2
+
+SET MAX_MEMORY_ROWS 100;
+> ok
+
+SELECT COUNT(*), MIN(B), MAX(B) FROM (SELECT B FROM TEST ORDER BY B DESC OFFSET 5 ROWS
+    FETCH FIRST 3 ROWS WITH TIES);
+> COUNT(*) MIN(B) MAX(B)
+> -------- ------ ------
+> 2495     3      3
+> rows: 1
+
+SET MAX_MEMORY_ROWS 40000;
+> ok
+
+DROP TABLE TEST;
+> ok
+
+SELECT X FROM (VALUES 5, 3, 9, 1, 7, 3) T(X) ORDER BY X FETCH FIRST 2 ROWS WITH TIES;
+> X
+> -
+> 1
+> 3
+> 3
+> rows (ordered): 3
@@ -44,6 +44,9 @@ public class TestCacheLongKeyLIRS extends TestBase {
         testLimitMemory();
         testScanResistance();
         testRandomOperations();
+        testAdmissionFilter();
+        testBufferedReads();
+        testOnRemove();
     }
 
     private void testRandomSmallCache() {
@@ -494,7 +497,97 @@ public class TestCacheLongKeyLIRS extends TestBase {
         }
     }
 
-    private static <V> CacheLongKeyLIRS<V> createCache(int maxSize) {
+    private void testAdmissionFilter() {
+        CacheLongKeyLIRS.Config cc = new CacheLongKeyLIRS.Config();
+        cc.maxMemory = 100;
+        cc.segmentCount = 1;
+        cc.stackMoveDistance = 0;
+        cc.admissionFilter = true;
+        CacheLongKeyLIRS<Integer> test = new CacheLongKeyLIRS<>(cc);
+        for (int i = 0; i < 100; i++) {
+            test.put(i, i);
+        }
+        for (int j = 0; j < 4; j++) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, test.get(i).intValue());
+            }
+        }
+        // a large scan of unknown keys while frequently used keys are still
+        // used
+        for (int i = 1000; i < 11_000; i++) {
+            assertNull(test.get(i));
+            test.put(i, i);
+            assertEquals(i % 100, test.get(i % 100).intValue());
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(test.containsKey(i));
+        }
+        assertEquals(10_400, test.getHits());
+        assertEquals(10_000, test.getMisses());
+        assertTrue(test.getEvictions() >= 10_000);
+    }
+
+    private void testOnRemove() {
+        CacheLongKeyLIRS.Config cc = new CacheLongKeyLIRS.Config();
+        cc.maxMemory = 100;
+        cc.segmentCount = 4;
+        cc.admissionFilter = true;
+        cc.weakReferences = false;
+        HashSet<Integer> values = new HashSet<>();
+        CacheLongKeyLIRS<Integer> test = new CacheLongKeyLIRS<Integer>(cc) {
+            @Override
+            protected void onRemove(Integer value) {
+                assertTrue(values.remove(value));
+            }
+        };
+        Random r = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            int key = r.nextInt(200);
+            switch (r.nextInt(3)) {
+            case 0:
+                values.add(i);
+                test.put(key, i, r.nextInt(30) + 1);
+                break;
+            case 1:
+                test.remove(key);
+                break;
+            default:
+                test.get(key);
+            }
+            if ((i & 255) == 0) {
+                HashSet<Integer> resident = new HashSet<>();
+                for (long k : test.keySet()) {
+                    if (test.getMemory(k) > 0) {
+                        resident.add(test.peek(k));
+                    }
+                }
+                assertEquals(resident, values);
+            }
+        }
+        test.clear();
+        assertTrue(values.isEmpty());
+    }
+
+    private void testBufferedReads() {
+        CacheLongKeyLIRS.Config cc = new CacheLongKeyLIRS.Config();
+        cc.maxMemory = 10;
+        cc.segmentCount = 1;
+        CacheLongKeyLIRS<Integer> test = new CacheLongKeyLIRS<>(cc);
+        for (int i = 0; i < 20; i++) {
+            test.put(i, i);
+        }
+        for (int j = 0; j < 100; j++) {
+            for (int i = 10; i < 20; i++) {
+                assertEquals(i, test.get(i).intValue());
+            }
+        }
+        assertNull(test.get(100));
+        assertEquals(1000, test.getHits());
+        assertEquals(1, test.getMisses());
+        assertTrue(test.getEvictions() >= 10);
+    }
+
+        private static <V> CacheLongKeyLIRS<V> createCache(int maxSize) {
         CacheLongKeyLIRS.Config cc = new CacheLongKeyLIRS.Config();
         cc.maxMemory = maxSize;
         cc.segmentCount = 1;
@@ -8,6 +8,9 @@ package org.guinsoo.test.store;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -21,16 +24,19 @@ import org.guinsoo.mvstore.Chunk;
 import org.guinsoo.mvstore.Cursor;
 import org.guinsoo.mvstore.DataUtils;
 import org.guinsoo.mvstore.FileStore;
+import org.guinsoo.mvstore.IncrementalBackup;
 import org.guinsoo.mvstore.MVMap;
 import org.guinsoo.mvstore.MVStore;
 import org.guinsoo.mvstore.MVStoreException;
 import org.guinsoo.mvstore.OffHeapStore;
 import org.guinsoo.mvstore.type.DataType;
+import org.guinsoo.mvstore.type.LongDataType;
 import org.guinsoo.mvstore.type.ObjectDataType;
 import org.guinsoo.mvstore.type.StringDataType;
 import org.guinsoo.store.fs.FilePath;
 import org.guinsoo.store.fs.FileUtils;
 import org.guinsoo.test.TestBase;
+import org.guinsoo.util.IOUtils;
 import org.guinsoo.util.Utils;
 
 /**
@@ -58,6 +64,15 @@ public class TestMVStore extends TestBase {
 //        testEntrySet();
 //        testCompressEmptyPage();
 //        testCompressed();
+        testParallelSerialization();
+        testCompressionLevelOfMap();
+        testEncodedKeys();
+        testOffHeapCache();
+        testMemoryMapped();
+        testCompactionStatistics();
+        testCompactionRateBelowChunkSize();
+        testBulkLoad();
+        testIncrementalBackup();
         testFileFormatExample();
 //        testMaxChunkLength();
 //        testCacheInfo();
@@ -260,7 +275,394 @@ public class TestMVStore extends TestBase {
         }
     }
 
-    private void testFileFormatExample() {
+    private void testEncodedKeys() {
+        FileUtils.createDirectories(getBaseDir());
+        String fileName = getBaseDir() + "/" + getTestName();
+        String prefix = new String(new char[200]).replace((char) 0, 'x');
+        long lastSize = 0;
+        for (int encode = 0; encode <= 1; encode++) {
+            FileUtils.delete(fileName);
+            MVStore.Builder builder = new MVStore.Builder().fileName(fileName);
+            if (encode == 1) {
+                builder.encodeKeys();
+            }
+            try (MVStore s = builder.open()) {
+                MVMap<Long, Integer> longs = s.openMap("longs",
+                        new MVMap.Builder<Long, Integer>().keyType(LongDataType.INSTANCE));
+                MVMap<String, Integer> strings = s.openMap("strings",
+                        new MVMap.Builder<String, Integer>().keyType(StringDataType.INSTANCE));
+                MVMap<Object, Integer> objects = s.openMap("objects");
+                for (int i = 0; i < 5_000; i++) {
+                    longs.put(i * 1_000_000_000L - Long.MAX_VALUE / 2, i);
+                    strings.put(prefix + i, i);
+                    objects.put(new Object[] { prefix, i }, i);
+                }
+                longs.put(Long.MIN_VALUE, -1);
+                longs.put(Long.MAX_VALUE, -2);
+            }
+            long size = FileUtils.size(fileName);
+            if (encode == 1) {
+                assertTrue(size < lastSize);
+            }
+            lastSize = size;
+            try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+                MVMap<Long, Integer> longs = s.openMap("longs",
+                        new MVMap.Builder<Long, Integer>().keyType(LongDataType.INSTANCE));
+                MVMap<String, Integer> strings = s.openMap("strings",
+                        new MVMap.Builder<String, Integer>().keyType(StringDataType.INSTANCE));
+                MVMap<Object, Integer> objects = s.openMap("objects");
+                for (int i = 0; i < 5_000; i++) {
+                    assertEquals(i, longs.get(i * 1_000_000_000L - Long.MAX_VALUE / 2).intValue());
+                    assertEquals(i, strings.get(prefix + i).intValue());
+                    assertEquals(i, objects.get(new Object[] { prefix, i }).intValue());
+                }
+                assertEquals(-1, longs.get(Long.MIN_VALUE).intValue());
+                assertEquals(-2, longs.get(Long.MAX_VALUE).intValue());
+                assertEquals(5_002, longs.size());
+            }
+        }
+    }
+
+    private void testOffHeapCache() {
+        FileUtils.createDirectories(getBaseDir());
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        String prefix = new String(new char[1000]).replace((char) 0, 'x');
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 10_000; i++) {
+                map.put(i, prefix + i);
+            }
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).cacheSize(1).offHeapCacheSize(16).open()) {
+            assertEquals(16, s.getOffHeapCacheSize());
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals(prefix + i, map.get(i));
+            }
+            long readCount = s.getFileStore().getReadCount();
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals(prefix + i, map.get(i));
+            }
+            assertEquals(readCount, s.getFileStore().getReadCount());
+            assertTrue(s.getOffHeapCacheHitRatio() > 0);
+            assertTrue(s.getOffHeapCacheSizeUsed() > 0);
+            // rewritten chunks may reuse ids of dropped chunks
+            for (int j = 0; j < 10; j++) {
+                for (int i = 0; i < 10_000; i += 7) {
+                    map.put(i, prefix + j + i);
+                }
+                s.commit();
+                s.compactMoveChunks();
+                for (int i = 0; i < 10_000; i += 7) {
+                    assertEquals(prefix + j + i, map.get(i));
+                }
+            }
+        }
+        // the cache is smaller than the data, slices of evicted pages are reused
+        try (MVStore s = new MVStore.Builder().fileName(fileName).cacheSize(1).offHeapCacheSize(1).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            Random random = new Random(1);
+            for (int i = 0; i < 50_000; i++) {
+                int key = random.nextInt(10_000);
+                String value = map.get(key);
+                assertTrue(value, value.startsWith(prefix) && value.endsWith(Integer.toString(key)));
+            }
+            assertTrue(s.getOffHeapCacheHitRatio() > 0);
+            assertEquals(1, s.getOffHeapCacheSize());
+        }
+    }
+
+    private void testMemoryMapped() {
+        FileUtils.createDirectories(getBaseDir());
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        String prefix = new String(new char[1000]).replace((char) 0, 'x');
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped().cacheSize(1).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int j = 0; j < 5; j++) {
+                // the file grows and shrinks while regions are mapped
+                for (int i = 0; i < 10_000; i++) {
+                    map.put(i, prefix + j + i);
+                }
+                s.commit();
+                for (int i = 0; i < 10_000; i++) {
+                    assertEquals(prefix + j + i, map.get(i));
+                }
+                s.compactMoveChunks();
+            }
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped().readOnly().open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals(prefix + 4 + i, map.get(i));
+            }
+        }
+    }
+
+    private void testCompactionStatistics() {
+        FileUtils.createDirectories(getBaseDir());
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        String prefix = new String(new char[1000]).replace((char) 0, 'x');
+        try (MVStore s = new MVStore.Builder().fileName(fileName).autoCommitDisabled().compactionRate(64).open()) {
+            assertEquals(64, s.getCompactionRate());
+            s.setRetentionTime(0);
+            s.setVersionsToKeep(0);
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int j = 0; j < 3; j++) {
+                for (int i = 0; i < 1_000; i++) {
+                    map.put(i, prefix + j + i);
+                }
+                s.commit();
+            }
+            for (int i = 0; i < 1_000; i += 2) {
+                map.remove(i);
+            }
+            s.commit();
+            assertEquals(0L, s.getRewrittenChunkCount());
+            assertEquals(0L, s.getMovedChunkCount());
+            s.compact(100, 1024 * 1024);
+            s.commit();
+            assertTrue(s.getRewrittenChunkCount() > 0);
+            assertTrue(s.getRewrittenBytes() > 0);
+            for (int i = 0; i < 3; i++) {
+                map.put(-1, prefix + i);
+                s.commit();
+            }
+            s.compactMoveChunks();
+            assertTrue(s.getMovedChunkCount() > 0);
+            assertTrue(s.getMovedBytes() > 0);
+            for (int i = 1; i < 1_000; i += 2) {
+                assertEquals(prefix + 2 + i, map.get(i));
+            }
+        }
+    }
+
+    private void testCompactionRateBelowChunkSize() throws Exception {
+        FileUtils.createDirectories(getBaseDir());
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        String prefix = new String(new char[1000]).replace((char) 0, 'x');
+        // 1 KB per second, each chunk is much larger
+        try (MVStore s = new MVStore.Builder().fileName(fileName).compactionRate(1).open()) {
+            s.setRetentionTime(0);
+            s.setVersionsToKeep(0);
+            MVMap<Integer, String> data = s.openMap("data");
+            MVMap<Integer, String> keep = s.openMap("keep");
+            for (int j = 0; j < 20; j++) {
+                for (int i = 0; i < 100; i++) {
+                    data.put(j * 100 + i, prefix + i);
+                    keep.put(j * 100 + i, prefix + i);
+                }
+                s.commit();
+            }
+            data.clear();
+            s.commit();
+            FileStore fs = s.getFileStore();
+            long used = fs.size() * fs.getFillRate() / 100;
+            long newUsed = used;
+            for (int i = 0; i < 200 && newUsed >= used; i++) {
+                Thread.sleep(50);
+                keep.put(-1, Integer.toString(i));
+                s.commit();
+                newUsed = fs.size() * fs.getFillRate() / 100;
+            }
+            assertTrue(s.getRewrittenChunkCount() > 0);
+            assertTrue(newUsed < used);
+            for (int i = 0; i < 2_000; i++) {
+                assertEquals(prefix + i % 100, keep.get(i));
+            }
+        }
+    }
+
+    private void testIncrementalBackup() throws Exception {
+        String fileName = getBaseDir() + "/" + getTestName();
+        String baseFileName = fileName + ".base", backupFileName = fileName + ".inc";
+        String restoredFileName = fileName + ".restored";
+        FileUtils.delete(fileName);
+        TreeMap<Integer, String> expected;
+        long version;
+        try (MVStore s = new MVStore.Builder().fileName(fileName).autoCommitDisabled().open()) {
+            s.setRetentionTime(0);
+            s.setVersionsToKeep(0);
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 1000; i++) {
+                map.put(i, "Hello " + i);
+                if (i % 100 == 99) {
+                    s.commit();
+                }
+            }
+            version = s.getLastStoredVersion();
+            IOUtils.copyFiles(fileName, baseFileName);
+            for (int i = 0; i < 200; i++) {
+                map.put(i, "World " + i);
+            }
+            s.commit();
+            map.put(1000, "Old");
+            s.commit();
+            // chunks of older versions may be moved
+            s.compactMoveChunks();
+            map.put(1000, "New");
+            s.commit();
+            // empty space isn't re-used while any backup is running, so each
+            // chunk is appended
+            s.beginBackup();
+            s.beginBackup();
+            s.endBackup();
+            long size = s.getFileStore().size();
+            for (int i = 0; i < 3; i++) {
+                map.put(2000 + i, "Appended");
+                s.commit();
+            }
+            assertTrue(s.getFileStore().size() >= size + 3 * 4096);
+            s.endBackup();
+            assertEquals(s.getLastStoredVersion(), IncrementalBackup.write(s, version, backupFileName));
+            assertTrue(FileUtils.size(backupFileName) < FileUtils.size(fileName));
+            expected = new TreeMap<>(map);
+        }
+        assertEquals(FileUtils.getName(fileName), IncrementalBackup.getStoreFileName(backupFileName));
+        IncrementalBackup.restore(baseFileName, backupFileName, restoredFileName);
+        try (MVStore s = MVStore.open(restoredFileName)) {
+            assertEquals(expected, new TreeMap<>(s.<Integer, String>openMap("data")));
+        }
+        FileUtils.delete(fileName);
+        FileUtils.delete(baseFileName);
+        FileUtils.delete(backupFileName);
+        FileUtils.delete(restoredFileName);
+    }
+
+    private void testBulkLoad() {
+        FileUtils.createDirectories(getBaseDir());
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        for (int count : new int[] { 0, 1, 47, 48, 49, 2_305, 100_000 }) {
+            try (MVStore s = new MVStore.Builder().open()) {
+                MVMap<Integer, String> map = s.openMap("data");
+                map.bulkLoad(entries(count));
+                assertEquals(count, map.size());
+                checkBulkLoaded(map, count);
+            }
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).autoCommitBufferSize(1).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            map.bulkLoad(entries(200_000));
+            checkBulkLoaded(map, 200_000);
+            assertThrows(IllegalArgumentException.class, () -> map.bulkLoad(entries(1)));
+            MVMap<Integer, String> map2 = s.openMap("data2");
+            assertThrows(IllegalArgumentException.class, () -> map2.bulkLoad(
+                    Arrays.asList(new AbstractMap.SimpleImmutableEntry<>(2, "a"),
+                            new AbstractMap.SimpleImmutableEntry<>(1, "b")).iterator()));
+            map.put(-1, "x");
+            map.remove(100);
+            assertEquals(200_000, map.size());
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            assertEquals(200_000, map.size());
+            assertEquals("x", map.get(-1));
+            assertNull(map.get(100));
+            assertEquals("Hello 101", map.get(202));
+        }
+    }
+
+    private static Iterator<Map.Entry<Integer, String>> entries(int count) {
+        ArrayList<Map.Entry<Integer, String>> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(new AbstractMap.SimpleImmutableEntry<>(i * 2, "Hello " + i));
+        }
+        return list.iterator();
+    }
+
+    private void checkBulkLoaded(MVMap<Integer, String> map, int count) {
+        assertEquals(count, map.size());
+        int i = 0;
+        for (Map.Entry<Integer, String> e : map.entrySet()) {
+            assertEquals(i * 2, e.getKey().intValue());
+            assertEquals("Hello " + i, e.getValue());
+            i++;
+        }
+        assertEquals(count, i);
+        for (i = 0; i < count; i += 97) {
+            assertEquals("Hello " + i, map.get(i * 2));
+            assertNull(map.get(i * 2 + 1));
+            assertEquals(i, map.getKeyIndex(i * 2));
+        }
+    }
+
+    private void testCompressionLevelOfMap() {
+        FileUtils.createDirectories(getBaseDir());
+        String fileName = getBaseDir() + "/" + getTestName();
+        String data = new String(new char[1000]).replace((char) 0, 'x');
+        long lastSize = 0;
+        for (int level = 0; level <= 3; level++) {
+            FileUtils.delete(fileName);
+            try (MVStore s = new MVStore.Builder().fileName(fileName).compressHigh().open()) {
+                MVMap<String, String> map = s.openMap("data");
+                map.setCompressionLevel(level);
+                assertEquals(level, map.getCompressionLevel());
+                MVMap<Integer, String> other = s.openMap("other");
+                assertEquals(2, other.getCompressionLevel());
+                for (int i = 0; i < 400; i++) {
+                    map.put(data + i, data);
+                }
+            }
+            long size = FileUtils.size(fileName);
+            if (level > 0) {
+                assertTrue(size < lastSize);
+            } else {
+                lastSize = size;
+            }
+            try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+                MVMap<String, String> map = s.openMap("data");
+                for (int i = 0; i < 400; i++) {
+                    assertEquals(data, map.get(data + i));
+                }
+            }
+        }
+        try (MVStore s = new MVStore.Builder().open()) {
+            MVMap<String, String> map = s.openMap("data");
+            assertThrows(IllegalArgumentException.class, () -> map.setCompressionLevel(4));
+        }
+    }
+
+        private void testParallelSerialization() {
+        FileUtils.createDirectories(getBaseDir());
+        String fileName = getBaseDir() + "/" + getTestName();
+        long lastSize = 0;
+        for (int threads = 1; threads <= 4; threads += 3) {
+            FileUtils.delete(fileName);
+            try (MVStore s = new MVStore.Builder().fileName(fileName).compress().
+                    serializationThreads(threads).open()) {
+                MVMap<Integer, String> map = s.openMap("data");
+                MVMap<Integer, String> map2 = s.openMap("data2");
+                for (int i = 0; i < 20_000; i++) {
+                    map.put(i, "Hello " + i);
+                    map2.put(i, "World " + (i & 0xff));
+                }
+                s.commit();
+                for (int i = 0; i < 20_000; i += 3) {
+                    map.put(i, "Hi " + i);
+                }
+            }
+            long size = FileUtils.size(fileName);
+            if (threads > 1) {
+                // the layout doesn't depend on the number of threads
+                assertEquals(lastSize, size);
+            }
+            lastSize = size;
+            try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+                MVMap<Integer, String> map = s.openMap("data");
+                MVMap<Integer, String> map2 = s.openMap("data2");
+                for (int i = 0; i < 20_000; i++) {
+                    assertEquals((i % 3 == 0 ? "Hi " : "Hello ") + i, map.get(i));
+                    assertEquals("World " + (i & 0xff), map2.get(i));
+                }
+            }
+        }
+    }
+
+        private void testFileFormatExample() {
         String fileName = getBaseDir() + "/" + getTestName();
         FileUtils.delete(fileName);
         try (MVStore s = MVStore.open(fileName)) {
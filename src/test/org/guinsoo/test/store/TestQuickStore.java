@@ -0,0 +1,402 @@
+/*
+ * Copyright 2021 Guinsoo Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://github.com/ciusji/guinsoo/blob/master/LICENSE.txt).
+ * Initial Developer: Guinsoo Group
+ */
+package org.guinsoo.test.store;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.guinsoo.api.ErrorCode;
+import org.guinsoo.engine.SessionLocal;
+import org.guinsoo.jdbc.JdbcConnection;
+import org.guinsoo.quickstore.QuickStore;
+import org.guinsoo.quickstore.QuickStoreCursor;
+import org.guinsoo.quickstore.QuickStoreException;
+import org.guinsoo.quickstore.QuickStoreMap;
+import org.guinsoo.quickstore.StoreBuildersFactory;
+import org.guinsoo.quickstore.StoreScopedReadBuffer;
+import org.guinsoo.quickstore.StoreScopedWriteBuffer;
+import org.guinsoo.quickstore.StoreSerializer;
+import org.guinsoo.test.TestBase;
+import org.guinsoo.util.Task;
+
+/**
+ * Tests the off-heap maps of the QuickStore.
+ */
+public class TestQuickStore extends TestBase {
+
+    /**
+     * A serializer of strings as a length and UTF-8 bytes.
+     */
+    static final class StringSerializer implements StoreSerializer<String> {
+
+        @Override
+        public void serialize(String object, StoreScopedWriteBuffer targetBuffer) {
+            byte[] bytes = object.getBytes(StandardCharsets.UTF_8);
+            targetBuffer.putInt(0, bytes.length);
+            for (int i = 0; i < bytes.length; i++) {
+                targetBuffer.put(i + 4, bytes[i]);
+            }
+        }
+
+        @Override
+        public String deserialize(StoreScopedReadBuffer byteBuffer) {
+            byte[] bytes = new byte[byteBuffer.getInt(0)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = byteBuffer.get(i + 4);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int calculateSize(String object) {
+            return 4 + object.getBytes(StandardCharsets.UTF_8).length;
+        }
+    }
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase.createCaller().init().testFromMain();
+    }
+
+    @Override
+    public void test() throws Exception {
+        testBasic();
+        testRandomOperations();
+        testInPlaceUpdate();
+        testMemoryReuse();
+        testConcurrent();
+        testConcurrentInsertAndRemove();
+        testClosed();
+        testRemoveMap();
+        testTables();
+        testTableTransactions();
+    }
+
+    private static QuickStoreMap<Integer, String> openMap(QuickStore store) {
+        return store.openMap("test", StoreBuildersFactory.DEFAULT_INT_COMPARATOR,
+                StoreBuildersFactory.DEFAULT_INT_SERIALIZER, new StringSerializer());
+    }
+
+    private void testBasic() {
+        QuickStore store = new QuickStore(1 << 16);
+        QuickStoreMap<Integer, String> map = openMap(store);
+        assertTrue(map == openMap(store));
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+        map.put(2, "two");
+        map.put(1, "one");
+        map.put(3, "three");
+        assertEquals(3, map.size());
+        assertEquals("one", map.get(1));
+        assertEquals("two", map.get(2));
+        // the length of the serialized string
+        assertEquals(5, map.get(3, b -> b.getInt(0)).intValue());
+        assertFalse(map.putIfAbsent(2, "zwei"));
+        assertEquals("two", map.get(2));
+        map.put(2, "a longer value that does not fit into the old slice");
+        assertEquals("a longer value that does not fit into the old slice", map.get(2));
+        assertTrue(map.remove(2));
+        assertFalse(map.remove(2));
+        assertFalse(map.containsKey(2));
+        assertNull(map.get(2));
+        assertEquals(2, map.size());
+        assertTrue(map.putIfAbsent(2, "deux"));
+        assertEquals("deux", map.get(2));
+        assertEquals(3, map.size());
+        store.close();
+    }
+
+    private void testRandomOperations() {
+        QuickStore store = new QuickStore(1 << 16);
+        QuickStoreMap<Integer, String> map = openMap(store);
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(10_000) - 5_000;
+            switch (random.nextInt(4)) {
+            case 0:
+                assertEquals(expected.remove(key) != null, map.remove(key));
+                break;
+            case 1:
+                assertEquals(expected.get(key), map.get(key));
+                break;
+            default:
+                String value = Integer.toString(random.nextInt(1 << random.nextInt(31)));
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        QuickStoreCursor<Integer, String> cursor = map.cursor(null);
+        for (Integer key : expected.keySet()) {
+            assertTrue(cursor.hasNext());
+            assertEquals(key, cursor.next());
+            assertEquals(expected.get(key), cursor.getValue());
+        }
+        assertFalse(cursor.hasNext());
+        ArrayList<Integer> keys = new ArrayList<>();
+        for (cursor = map.cursor(-100, 100); cursor.hasNext();) {
+            keys.add(cursor.next());
+        }
+        assertEquals(new ArrayList<>(expected.subMap(-100, true, 100, true).keySet()), keys);
+        store.close();
+    }
+
+    private void testInPlaceUpdate() {
+        QuickStore store = new QuickStore(1 << 16);
+        QuickStoreMap<Integer, Integer> map = store.openMap("counters", StoreBuildersFactory.DEFAULT_INT_COMPARATOR,
+                StoreBuildersFactory.DEFAULT_INT_SERIALIZER, StoreBuildersFactory.DEFAULT_INT_SERIALIZER);
+        map.put(1, 10);
+        long used = store.getUsedMemory();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(map.computeIfPresent(1, b -> b.putInt(0, b.getInt(0) + 1)));
+        }
+        assertFalse(map.computeIfPresent(2, b -> b.putInt(0, 0)));
+        assertEquals(15, map.get(1).intValue());
+        map.put(1, 20);
+        assertEquals(20, map.get(1).intValue());
+        assertEquals(used, store.getUsedMemory());
+        store.close();
+    }
+
+    private void testMemoryReuse() {
+        QuickStore store = new QuickStore(1 << 16);
+        QuickStoreMap<Integer, String> map = openMap(store);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, "value " + i);
+        }
+        long allocated = store.getAllocatedMemory();
+        for (int j = 0; j < 10; j++) {
+            for (int i = 0; i < 1000; i++) {
+                map.remove(i);
+            }
+            for (int i = 0; i < 1000; i++) {
+                map.put(i, "value " + i);
+            }
+        }
+        assertEquals(allocated, store.getAllocatedMemory());
+        store.close();
+    }
+
+    private void testConcurrent() throws Exception {
+        QuickStore store = new QuickStore();
+        QuickStoreMap<Integer, Integer> map = store.openMap("counters", StoreBuildersFactory.DEFAULT_INT_COMPARATOR,
+                StoreBuildersFactory.DEFAULT_INT_SERIALIZER, StoreBuildersFactory.DEFAULT_INT_SERIALIZER);
+        int threadCount = 4, count = 20_000;
+        AtomicBoolean stopped = new AtomicBoolean();
+        Task reader = new Task() {
+            @Override
+            public void call() {
+                Random random = new Random(1);
+                while (!stopped.get()) {
+                    int key = random.nextInt(count);
+                    Integer value = map.get(key);
+                    if (value != null && value != key && value != -key) {
+                        throw new AssertionError(key + " " + value);
+                    }
+                }
+            }
+        };
+        reader.execute();
+        Task[] tasks = new Task[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            int x = t;
+            tasks[t] = new Task() {
+                @Override
+                public void call() {
+                    for (int i = x; i < count; i += threadCount) {
+                        map.put(i, i);
+                        map.put(count - 1 - i, -(count - 1 - i));
+                        map.putIfAbsent(i, 0);
+                    }
+                }
+            };
+            tasks[t].execute();
+        }
+        for (Task t : tasks) {
+            t.get();
+        }
+        stopped.set(true);
+        reader.get();
+        assertEquals(count, map.size());
+        int expected = 0;
+        for (QuickStoreCursor<Integer, Integer> cursor = map.cursor(null); cursor.hasNext(); expected++) {
+            int key = cursor.next();
+            assertEquals(expected, key);
+            int value = cursor.getValue();
+            assertTrue(value == key || value == -key);
+        }
+        assertEquals(count, expected);
+        store.close();
+    }
+
+    private void testConcurrentInsertAndRemove() throws Exception {
+        QuickStore store = new QuickStore(1 << 16);
+        QuickStoreMap<Integer, String> other = store.openMap("other", StoreBuildersFactory.DEFAULT_INT_COMPARATOR,
+                StoreBuildersFactory.DEFAULT_INT_SERIALIZER, new StringSerializer());
+        for (int i = 0; i < 1_000; i++) {
+            other.put(i, "other " + i);
+        }
+        long used = store.getUsedMemory();
+        int threadCount = 4, count = 2_000;
+        for (int round = 0; round < 10; round++) {
+            QuickStoreMap<Integer, String> map = openMap(store);
+            Task[] tasks = new Task[threadCount];
+            for (int t = 0; t < threadCount; t++) {
+                tasks[t] = new Task() {
+                    @Override
+                    public void call() {
+                        // all threads insert the same keys, so some of them lose races
+                        for (int i = 0; i < count; i++) {
+                            map.putIfAbsent(i, "value " + i);
+                        }
+                    }
+                };
+                tasks[t].execute();
+            }
+            for (Task t : tasks) {
+                t.get();
+            }
+            assertEquals(count, map.size());
+            // DROP TABLE and TRUNCATE TABLE remove the maps of the table
+            store.removeMap("test");
+            assertEquals(used, store.getUsedMemory());
+        }
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals("other " + i, other.get(i));
+        }
+        store.close();
+    }
+
+    private void testClosed() {
+        QuickStore store = new QuickStore();
+        QuickStoreMap<Integer, String> map = openMap(store);
+        map.put(1, "one");
+        store.close();
+        assertTrue(store.isClosed());
+        try {
+            map.get(1);
+            fail();
+        } catch (QuickStoreException e) {
+            assertEquals(QuickStoreException.ERROR_CLOSED, e.getErrorCode());
+        }
+    }
+
+    private void testRemoveMap() {
+        QuickStore store = new QuickStore(1 << 16);
+        QuickStoreMap<Integer, String> map = openMap(store);
+        for (int i = 0; i < 1_000; i++) {
+            map.put(i, "value " + i);
+        }
+        assertTrue(store.getUsedMemory() > 0);
+        store.removeMap("test");
+        assertFalse(store.hasMap("test"));
+        assertEquals(0, store.getUsedMemory());
+        map = openMap(store);
+        assertTrue(map.isEmpty());
+        store.close();
+    }
+
+    private static final String URL = "jdbc:guinsoo:mem:quickStore;STORE=QUICK";
+
+    private void testTables() throws Exception {
+        try (Connection conn = DriverManager.getConnection(URL)) {
+            QuickStore store = ((SessionLocal) ((JdbcConnection) conn).getSession()).getDatabase().getQuickStore();
+            assertNotNull(store);
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR, V NUMERIC(10, 2), "
+                    + "T TIMESTAMP, E ENUM('A', 'B'), A INT ARRAY, C CLOB)");
+            stat.execute("CREATE INDEX TEST_V ON TEST(V)");
+            assertTrue(store.getUsedMemory() == 0);
+            stat.execute("INSERT INTO TEST SELECT X, 'Name ' || X, X / 4.0, DATEADD(SECOND, X, TIMESTAMP '2021-01-01 00:00:00'), "
+                    + "CASEWHEN(MOD(X, 2) = 0, 'A', 'B'), ARRAY[X, X + 1], REPEAT('x', X) FROM SYSTEM_RANGE(1, 1000)");
+            assertTrue(store.getUsedMemory() > 0);
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST", 1000);
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST WHERE V BETWEEN 10 AND 20", 41);
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST WHERE E = 'A'", 500);
+            assertResult("Name 7", stat, "SELECT NAME FROM TEST WHERE ID = 7");
+            assertResult("[7, 8]", stat, "SELECT A FROM TEST WHERE ID = 7");
+            assertResult("xxx", stat, "SELECT C FROM TEST WHERE ID = 3");
+            assertResult("2021-01-01 00:00:07", stat, "SELECT T FROM TEST WHERE ID = 7");
+            ResultSet rs = stat.executeQuery("EXPLAIN SELECT * FROM TEST WHERE V = 10");
+            rs.next();
+            assertContains(rs.getString(1), "TEST_V");
+            rs = stat.executeQuery("SELECT ID FROM TEST WHERE V >= 249.5 ORDER BY V DESC, ID");
+            for (int i = 1000; i >= 998; i--) {
+                assertTrue(rs.next());
+                assertEquals(i, rs.getInt(1));
+            }
+            assertFalse(rs.next());
+            stat.execute("UPDATE TEST SET V = V + 1000 WHERE ID <= 100");
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST WHERE V > 1000", 100);
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST WHERE V < 1000", 900);
+            stat.execute("DELETE FROM TEST WHERE MOD(ID, 3) = 0");
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST", 667);
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST WHERE V < 1000", 600);
+            stat.execute("CREATE UNIQUE INDEX TEST_NAME ON TEST(NAME)");
+            assertThrows(ErrorCode.DUPLICATE_KEY_1, stat, "INSERT INTO TEST(ID, NAME) VALUES (2000, 'Name 1')");
+            assertThrows(ErrorCode.DUPLICATE_KEY_1, stat, "INSERT INTO TEST(ID, NAME) VALUES (1, 'Name 2000')");
+            // the failed statement was rolled back
+            assertThrows(ErrorCode.DUPLICATE_KEY_1, stat,
+                    "INSERT INTO TEST(ID, NAME) VALUES (3000, 'Name 3000'), (3001, 'Name 4')");
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST WHERE ID = 3000", 0);
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST", 667);
+            stat.execute("TRUNCATE TABLE TEST");
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST", 0);
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST WHERE V = 10", 0);
+            stat.execute("INSERT INTO TEST(ID, NAME) VALUES (1, 'Name 1')");
+            assertResult("Name 1", stat, "SELECT NAME FROM TEST WHERE NAME = 'Name 1'");
+            stat.execute("ALTER TABLE TEST ADD COLUMN X INT DEFAULT 5");
+            assertResult("5", stat, "SELECT X FROM TEST WHERE ID = 1");
+            stat.execute("DROP TABLE TEST");
+            assertEquals(0, store.getUsedMemory());
+        }
+    }
+
+    private void testTableTransactions() throws Exception {
+        try (Connection conn = DriverManager.getConnection(URL);
+                Connection conn2 = DriverManager.getConnection(URL)) {
+            Statement stat = conn.createStatement();
+            Statement stat2 = conn2.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V INT)");
+            stat.execute("CREATE INDEX TEST_V ON TEST(V)");
+            stat.execute("INSERT INTO TEST VALUES (1, 10), (2, 20)");
+            conn.setAutoCommit(false);
+            stat.execute("INSERT INTO TEST VALUES (3, 30)");
+            stat.execute("UPDATE TEST SET V = 11 WHERE ID = 1");
+            Savepoint savepoint = conn.setSavepoint();
+            stat.execute("DELETE FROM TEST WHERE ID = 2");
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST", 2);
+            conn.rollback(savepoint);
+            assertSingleValue(stat, "SELECT COUNT(*) FROM TEST", 3);
+            // uncommitted changes are not visible to other sessions
+            stat2.execute("SET LOCK_TIMEOUT 10");
+            assertThrows(ErrorCode.LOCK_TIMEOUT_1, stat2, "SELECT * FROM TEST");
+            conn.rollback();
+            assertSingleValue(stat2, "SELECT COUNT(*) FROM TEST", 2);
+            assertSingleValue(stat2, "SELECT SUM(V) FROM TEST", 30);
+            assertSingleValue(stat2, "SELECT ID FROM TEST WHERE V = 10", 1);
+            conn2.commit();
+            stat.execute("UPDATE TEST SET V = V + 1");
+            conn.commit();
+            assertSingleValue(stat2, "SELECT SUM(V) FROM TEST", 32);
+            stat.execute("DROP TABLE TEST");
+        }
+    }
+
+}
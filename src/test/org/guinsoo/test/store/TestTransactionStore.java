@@ -88,6 +88,7 @@ public class TestTransactionStore extends TestBase {
         testCompareWithPostgreSQL();
         testStoreMultiThreadedReads();
         testCommitAfterMapRemoval();
+        testGroupCommit();
     }
 
     private void testHCLFKey() {
@@ -974,4 +975,46 @@ public class TestTransactionStore extends TestBase {
             }
         }
     }
+
+    private void testGroupCommit() throws Exception {
+        String fileName = getBaseDir() + "/testGroupCommit.h3";
+        FileUtils.delete(fileName);
+        int threadCount = 4, commitCount = 50;
+        try (MVStore s = new MVStore.Builder().fileName(fileName).autoCommitDisabled().open()) {
+            TransactionStore ts = new TransactionStore(s);
+            ts.init();
+            ts.setGroupCommit(1000, true);
+            Task[] tasks = new Task[threadCount];
+            for (int i = 0; i < threadCount; i++) {
+                int thread = i;
+                tasks[i] = new Task() {
+                    @Override
+                    public void call() {
+                        for (int j = 0; j < commitCount; j++) {
+                            Transaction tx = ts.begin();
+                            TransactionMap<Integer, Integer> map = tx.openMap("data");
+                            map.put(thread * commitCount + j, j);
+                            tx.commit();
+                        }
+                    }
+                }.execute();
+            }
+            for (Task task : tasks) {
+                task.get();
+            }
+            assertEquals(threadCount * commitCount, ts.getGroupCommitTransactionCount());
+            long groups = ts.getGroupCommitCount();
+            assertTrue(groups > 0 && groups <= threadCount * commitCount);
+            assertFalse(s.hasUnsavedChanges());
+        }
+        try (MVStore s = MVStore.open(fileName)) {
+            TransactionStore ts = new TransactionStore(s);
+            ts.init();
+            Transaction tx = ts.begin();
+            TransactionMap<Integer, Integer> map = tx.openMap("data");
+            assertEquals(threadCount * commitCount, map.sizeAsLong());
+            tx.commit();
+        }
+        FileUtils.delete(fileName);
+    }
 }
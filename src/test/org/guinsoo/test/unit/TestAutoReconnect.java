@@ -143,9 +143,12 @@ public class TestAutoReconnect extends TestDb {
         rs = stat.executeQuery("CALL @TEST");
         rs.next();
         assertEquals(10, rs.getInt(1));
-        stat.setFetchSize(10);
+        // rows of lazy results are not requested in advance
+        Connection lazyConn = getConnection(url + ";LAZY_QUERY_EXECUTION=TRUE");
+        Statement lazyStat = lazyConn.createStatement();
+        lazyStat.setFetchSize(10);
         restart();
-        rs = stat.executeQuery("select * from system_range(1, 20)");
+        rs = lazyStat.executeQuery("select * from system_range(1, 20)");
         restart();
         for (int i = 0;; i++) {
             try {
@@ -169,6 +172,7 @@ public class TestAutoReconnect extends TestDb {
         }
         restart();
         rs.close();
+        lazyConn.close();
 
         conn.setAutoCommit(false);
         restart();
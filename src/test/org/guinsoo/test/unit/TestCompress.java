@@ -137,6 +137,7 @@ public class TestCompress extends TestDb {
             String test = b.toString();
             byte[] in = test.getBytes();
             assertEquals(in, utils.expand(utils.compress(in, "LZF")));
+            assertEquals(in, utils.expand(utils.compress(in, "LZ4")));
         }
     }
 
@@ -246,7 +247,7 @@ public class TestCompress extends TestDb {
             CompressTool utils = CompressTool.getInstance();
             // level 9 is highest, strategy 2 is huffman only
             for (String a : new String[] { "LZF", "No",
-                    "Deflate", "Deflate level 9 strategy 2" }) {
+                    "Deflate", "Deflate level 9 strategy 2", "LZ4" }) {
                 long time = System.nanoTime();
                 byte[] out = utils.compress(b, a);
                 byte[] test = utils.expand(out);
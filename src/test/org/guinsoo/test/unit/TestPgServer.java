@@ -5,8 +5,11 @@
  */
 package org.guinsoo.test.unit;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.Date;
@@ -23,6 +26,7 @@ import java.sql.Types;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -35,6 +39,8 @@ import org.guinsoo.test.TestBase;
 import org.guinsoo.test.TestDb;
 import org.guinsoo.Server;
 import org.guinsoo.util.DateTimeUtils;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 
 /**
  * Tests the PostgreSQL server protocol compliant implementation.
@@ -72,6 +78,9 @@ public class TestPgServer extends TestDb {
         testPrepareWithUnspecifiedType();
         testOtherPgClients();
         testArray();
+        testCopy();
+        testBinaryTypes();
+        testPortalSuspension();
     }
 
     private boolean getPgJdbcDriver() {
@@ -913,4 +922,216 @@ public class TestPgServer extends TestDb {
         }
     }
 
+    private void testCopy() throws Exception {
+        if (!getPgJdbcDriver()) {
+            return;
+        }
+
+        Server server = createPgServer(
+                "-ifNotExists", "-pgPort", "5535", "-pgDaemon", "-key", "pgserver", "mem:pgserver");
+        try (
+                Connection conn = DriverManager.getConnection(
+                        "jdbc:postgresql://localhost:5535/pgserver", "sa", "sa");
+                Statement stat = conn.createStatement();
+        ) {
+            CopyManager copy = conn.unwrap(PGConnection.class).getCopyAPI();
+            stat.execute("CREATE TABLE test(id int primary key, name varchar, x double, b bytea)");
+
+            String text = "1\tHello\t1.5\t\\\\x01ff\n"
+                    + "2\ttab\\there\\\\\t\\N\t\\N\n"
+                    + "3\t\\N\t-2.0\t\\N\n";
+            assertEquals(3, copy.copyIn("COPY test FROM STDIN",
+                    new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+            try (ResultSet rs = stat.executeQuery("SELECT * FROM test ORDER BY id")) {
+                assertTrue(rs.next());
+                assertEquals("Hello", rs.getString(2));
+                assertEquals(1.5, rs.getDouble(3));
+                assertEquals(new byte[] { 1, (byte) 0xff }, rs.getBytes(4));
+                assertTrue(rs.next());
+                assertEquals("tab\there\\", rs.getString(2));
+                assertNull(rs.getObject(3));
+                assertTrue(rs.next());
+                assertNull(rs.getString(2));
+                assertFalse(rs.next());
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(3, copy.copyOut("COPY test(id, name, x) TO STDOUT", out));
+            assertEquals("1\tHello\t1.5\n2\ttab\\there\\\\\t\\N\n3\t\\N\t-2.0\n",
+                    new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+            out.reset();
+            assertEquals(2, copy.copyOut("COPY (SELECT id, name FROM test WHERE id < 3 ORDER BY id) "
+                    + "TO STDOUT (FORMAT CSV, HEADER)", out));
+            assertEquals("id,name\n1,Hello\n2,tab\there\\\n",
+                    new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+            stat.execute("DELETE FROM test");
+            String csv = "id;name\n10;\"a;\"\"b\"\"\nc\"\n11;\n12;\"\"\n";
+            assertEquals(3, copy.copyIn("COPY test(id, name) FROM STDIN WITH CSV HEADER DELIMITER ';'",
+                    new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+            try (ResultSet rs = stat.executeQuery("SELECT name FROM test ORDER BY id")) {
+                assertTrue(rs.next());
+                assertEquals("a;\"b\"\nc", rs.getString(1));
+                assertTrue(rs.next());
+                assertNull(rs.getString(1));
+                assertTrue(rs.next());
+                assertEquals("", rs.getString(1));
+                assertFalse(rs.next());
+            }
+
+            out.reset();
+            assertEquals(3, copy.copyOut("COPY test TO STDOUT (FORMAT BINARY)", out));
+            byte[] binary = out.toByteArray();
+            stat.execute("CREATE TABLE test2(id int primary key, name varchar, x double, b bytea)");
+            assertEquals(3, copy.copyIn("COPY test2 FROM STDIN BINARY", new ByteArrayInputStream(binary)));
+            try (ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM test2 "
+                    + "WHERE (id, name, x, b) IS NOT DISTINCT FROM (SELECT * FROM test WHERE id = test2.id)")) {
+                assertTrue(rs.next());
+                assertEquals(3, rs.getInt(1));
+            }
+
+            // all rows are rolled back on failure
+            try {
+                copy.copyIn("COPY test2 FROM STDIN",
+                        new ByteArrayInputStream("20\ta\t\\N\t\\N\n10\tb\t\\N\t\\N\n".getBytes()));
+                fail();
+            } catch (SQLException e) {
+                assertEquals("23505", e.getSQLState());
+            }
+            try {
+                copy.copyIn("COPY test2 FROM STDIN", new ByteArrayInputStream("30\ta\n".getBytes()));
+                fail();
+            } catch (SQLException e) {
+                assertEquals("21S02", e.getSQLState());
+            }
+            try (ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM test2")) {
+                assertTrue(rs.next());
+                assertEquals(3, rs.getInt(1));
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private void testBinaryTypes() throws Exception {
+        if (!getPgJdbcDriver()) {
+            return;
+        }
+
+        Server server = createPgServer(
+                "-ifNotExists", "-pgPort", "5535", "-pgDaemon", "-key", "pgserver", "mem:pgserver");
+        try {
+            Properties props = new Properties();
+            props.setProperty("user", "sa");
+            props.setProperty("password", "sa");
+            // force binary, also for NUMERIC and arrays
+            props.setProperty("prepareThreshold", "-1");
+            props.setProperty("binaryTransferEnable", "1700,1000,1016,1022,1231,1015");
+            try (Connection conn = DriverManager.getConnection("jdbc:postgresql://localhost:5535/pgserver", props);
+                    Statement stat = conn.createStatement()) {
+                stat.execute("CREATE TABLE test(id int primary key, u uuid, n numeric(20, 4), j json, "
+                        + "t timestamp, tz timestamp with time zone, "
+                        + "a1 boolean array, a2 bigint array, a3 double precision array, a4 numeric(10, 2) array, "
+                        + "a5 varchar array)");
+                UUID uuid = UUID.randomUUID();
+                PreparedStatement prep = conn.prepareStatement("INSERT INTO test VALUES(?, ?, ?, ? FORMAT JSON, "
+                        + "TIMESTAMP '2001-10-30 14:16:10.123456', TIMESTAMP WITH TIME ZONE '2001-10-30 14:16:10+05', "
+                        + "ARRAY[TRUE, NULL], ARRAY[1, -2], ARRAY[1.5], ARRAY[-1.25], ARRAY['a', NULL, '{,}'])");
+                prep.setInt(1, 1);
+                prep.setString(2, uuid.toString());
+                prep.setBigDecimal(3, new BigDecimal("-12345678.0001"));
+                prep.setString(4, "{\"a\":[1,null]}");
+                prep.executeUpdate();
+
+                prep = conn.prepareStatement("SELECT * FROM test WHERE u = ?");
+                prep.setString(1, uuid.toString());
+                try (ResultSet rs = prep.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(uuid.toString(), rs.getString(2));
+                    assertEquals(new BigDecimal("-12345678.0001"), rs.getBigDecimal(3));
+                    assertEquals("{\"a\":[1,null]}", rs.getString(4));
+                    assertEquals(Timestamp.valueOf("2001-10-30 14:16:10.123456"), rs.getTimestamp(5));
+                    assertEquals(Timestamp.valueOf("2001-10-30 09:16:10").getTime()
+                            - TimeZone.getDefault().getOffset(Timestamp.valueOf("2001-10-30 09:16:10").getTime()),
+                            rs.getTimestamp(6).getTime());
+                    assertEquals(new Object[] { true, null }, (Object[]) rs.getArray(7).getArray());
+                    assertEquals(new Object[] { 1L, -2L }, (Object[]) rs.getArray(8).getArray());
+                    assertEquals(new Object[] { 1.5 }, (Object[]) rs.getArray(9).getArray());
+                    assertEquals(new Object[] { new BigDecimal("-1.25") }, (Object[]) rs.getArray(10).getArray());
+                    assertEquals(new Object[] { "a", null, "{,}" }, (Object[]) rs.getArray(11).getArray());
+                    assertFalse(rs.next());
+                }
+
+                // binary input of all types
+                CopyManager copy = conn.unwrap(PGConnection.class).getCopyAPI();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                copy.copyOut("COPY test TO STDOUT BINARY", out);
+                stat.execute("CREATE TABLE test2 AS SELECT * FROM test WITH NO DATA");
+                copy.copyIn("COPY test2 FROM STDIN BINARY", new ByteArrayInputStream(out.toByteArray()));
+                try (ResultSet rs = stat.executeQuery("SELECT (SELECT COUNT(*) FROM test2), "
+                        + "(SELECT COUNT(*) FROM (SELECT * FROM test EXCEPT SELECT * FROM test2))")) {
+                    assertTrue(rs.next());
+                    assertEquals(1, rs.getInt(1));
+                    assertEquals(0, rs.getInt(2));
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private void testPortalSuspension() throws Exception {
+        if (!getPgJdbcDriver()) {
+            return;
+        }
+
+        Server server = createPgServer(
+                "-ifNotExists", "-pgPort", "5535", "-pgDaemon", "-key", "pgserver", "mem:pgserver");
+        try (
+                Connection conn = DriverManager.getConnection(
+                        "jdbc:postgresql://localhost:5535/pgserver", "sa", "sa");
+                Statement stat = conn.createStatement();
+        ) {
+            stat.execute("CREATE TABLE test(id int primary key, name varchar)");
+            stat.execute("INSERT INTO test SELECT \"X\", 'Hello ' || \"X\" FROM system_range(1, 1000)");
+            // rows are fetched in chunks only outside of auto-commit mode
+            conn.setAutoCommit(false);
+            PreparedStatement prep1 = conn.prepareStatement("SELECT * FROM test WHERE id > ? ORDER BY id");
+            PreparedStatement prep2 = conn.prepareStatement("SELECT name FROM test WHERE id = ?");
+            prep1.setFetchSize(10);
+            prep1.setInt(1, 100);
+            try (ResultSet rs1 = prep1.executeQuery()) {
+                for (int i = 101; i <= 1000; i++) {
+                    assertTrue(rs1.next());
+                    assertEquals(i, rs1.getInt(1));
+                    if (i % 97 == 0) {
+                        prep2.setInt(1, i);
+                        try (ResultSet rs2 = prep2.executeQuery()) {
+                            assertTrue(rs2.next());
+                            assertEquals(rs1.getString(2), rs2.getString(1));
+                        }
+                    }
+                }
+                assertFalse(rs1.next());
+            }
+            // a new execution closes the previous result
+            prep1.setInt(1, 990);
+            try (ResultSet rs1 = prep1.executeQuery()) {
+                assertTrue(rs1.next());
+                assertEquals(991, rs1.getInt(1));
+                prep1.setInt(1, 995);
+                try (ResultSet rs2 = prep1.executeQuery()) {
+                    for (int i = 996; i <= 1000; i++) {
+                        assertTrue(rs2.next());
+                        assertEquals(i, rs2.getInt(1));
+                    }
+                    assertFalse(rs2.next());
+                }
+            }
+            conn.commit();
+        } finally {
+            server.stop();
+        }
+    }
+
 }
@@ -97,6 +97,7 @@ public class TestTools extends TestDb {
         Driver.load();
         testSimpleResultSet();
         testTcpServerWithoutPort();
+        testTcpServerWorkers();
         testConsole();
         testJdbcDriverUtils();
         testWrongServer();
@@ -132,6 +133,45 @@ public class TestTools extends TestDb {
         s1.stop();
     }
 
+    private void testTcpServerWorkers() throws Exception {
+        for (String option : new String[] { "-tcpWorkers", "-tcpVirtualThreads" }) {
+            Server server = Server.createTcpServer(option.equals("-tcpWorkers")
+                    ? new String[] { option, "2", "-tcpPassword", "abc", "-ifNotExists" }
+                    : new String[] { option, "-tcpPassword", "abc", "-ifNotExists" }).start();
+            String url = "jdbc:guinsoo:tcp://localhost:" + server.getPort() + "/mem:workers";
+            Connection[] connections = new Connection[8];
+            for (int i = 0; i < connections.length; i++) {
+                connections[i] = getConnection(url, "sa", "");
+            }
+            Statement stat = connections[0].createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, DATA CLOB)");
+            for (int i = 0; i < connections.length; i++) {
+                PreparedStatement prep = connections[i].prepareStatement("INSERT INTO TEST VALUES(?, ?)");
+                prep.setInt(1, i);
+                prep.setString(2, new String(new char[100_000]).replace('\0', (char) ('a' + i)));
+                prep.executeUpdate();
+            }
+            for (int i = 0; i < connections.length; i++) {
+                Statement s = connections[i].createStatement();
+                s.setFetchSize(2);
+                ResultSet rs = s.executeQuery("SELECT * FROM TEST ORDER BY ID");
+                for (int j = 0; j < connections.length; j++) {
+                    assertTrue(rs.next());
+                    assertEquals(j, rs.getInt(1));
+                    String data = rs.getString(2);
+                    assertEquals(100_000, data.length());
+                    assertEquals('a' + j, data.charAt(99_999));
+                }
+                assertFalse(rs.next());
+            }
+            for (Connection conn : connections) {
+                conn.close();
+            }
+            Server.shutdownTcpServer("tcp://localhost:" + server.getPort(), "abc", false, false);
+            assertThrows(ErrorCode.CONNECTION_BROKEN_1, () -> getConnection(url, "sa", ""));
+        }
+    }
+
     private void testConsole() throws Exception {
         String old = System.getProperty(SysProperties.H2_BROWSER);
         GUIConsole c = new GUIConsole();